@@ -0,0 +1,123 @@
+package org.yourcompany.yourproject.bench;
+
+import java.util.List;
+
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.GameLogic;
+import org.yourcompany.yourproject.model.GameSnapshot;
+import org.yourcompany.yourproject.model.Shape.Tetrominoes;
+import org.yourcompany.yourproject.model.Tetromino;
+
+/**
+ * ベンチマークで使う局面。実際の対局でよく出る形 (空・中くらいの積み・お邪魔だらけ・Tスピンの形) をそろえています。
+ *
+ * 盤面は下詰めの行 (上から順、'#' がブロック) と、その下にせり上げるお邪魔の穴の位置で表します。
+ * お邪魔は行より後に入れるので、行はお邪魔の上に載ります。
+ */
+public enum BenchmarkPosition {
+
+    /** 開幕 (何もない盤面) */
+    EMPTY(Tetrominoes.TShape, null,
+        List.of(Tetrominoes.LineShape, Tetrominoes.SquareShape, Tetrominoes.LShape,
+                Tetrominoes.MirroredLShape, Tetrominoes.SShape),
+        new String[0], new int[0]),
+
+    /** 右端を空けて積んだ中盤の盤面 (穴が1つ、凸凹あり) */
+    MID_STACK(Tetrominoes.LineShape, Tetrominoes.TShape,
+        List.of(Tetrominoes.ZShape, Tetrominoes.LShape, Tetrominoes.SquareShape,
+                Tetrominoes.SShape, Tetrominoes.MirroredLShape),
+        new String[] {
+            "..##......",
+            ".####...#.",
+            "######.##.",
+            "#########.",
+            "####.####.",
+            "#########.",
+            "#########.",
+        },
+        new int[0]),
+
+    /** お邪魔を 12 段せり上げられた後の盤面 (穴の位置がばらばら) */
+    GARBAGE_HEAVY(Tetrominoes.ZShape, Tetrominoes.LineShape,
+        List.of(Tetrominoes.TShape, Tetrominoes.MirroredLShape, Tetrominoes.SShape,
+                Tetrominoes.SquareShape, Tetrominoes.LShape),
+        new String[] {
+            "#.........",
+            "##...##..#",
+            "###.####.#",
+        },
+        new int[] { 2, 2, 7, 0, 0, 5, 9, 3, 3, 6, 1, 8 }),
+
+    /** Tスピンダブルの穴 (左に屋根) を作った盤面。ネクストの T で入れる */
+    TSPIN_SETUP(Tetrominoes.TShape, Tetrominoes.LineShape,
+        List.of(Tetrominoes.SShape, Tetrominoes.ZShape, Tetrominoes.LShape,
+                Tetrominoes.MirroredLShape, Tetrominoes.SquareShape),
+        new String[] {
+            "####......",
+            "###...####",
+            "####.#####",
+            "#########.",
+        },
+        new int[] { 4, 6, 1 });
+
+    private final Tetrominoes current;
+    private final Tetrominoes hold;
+    private final List<Tetrominoes> nextQueue;
+    private final String[] rows;
+    private final int[] garbageHoles;
+
+    BenchmarkPosition(Tetrominoes current, Tetrominoes hold, List<Tetrominoes> nextQueue,
+                      String[] rows, int[] garbageHoles) {
+        this.current = current;
+        this.hold = hold;
+        this.nextQueue = nextQueue;
+        this.rows = rows;
+        this.garbageHoles = garbageHoles;
+    }
+
+    public Tetrominoes current() { return current; }
+
+    /** この局面の盤面 (呼ぶたびに新しく作る) */
+    public Board board() {
+        Board board = new Board();
+        fill(board);
+        return board;
+    }
+
+    /** 盤面に局面のブロックを書き込みます (空の盤面に対して使う) */
+    public void fill(Board board) {
+        int top = Board.TOTAL_BOARD_HEIGHT - rows.length;
+        for (int r = 0; r < rows.length; r++) {
+            for (int x = 0; x < Board.BOARD_WIDTH; x++) {
+                if (rows[r].charAt(x) == '#') {
+                    // 4マスとも同じ位置にしたミノを置く (Board にはマスを直接書く口がない)
+                    Tetromino cell = new Tetromino(Tetrominoes.SquareShape);
+                    cell.applyRotation(new int[][] {{0, 0}, {0, 0}, {0, 0}, {0, 0}}, x, top + r, 0);
+                    board.placeTetromino(cell);
+                }
+            }
+        }
+        for (int hole : garbageHoles) {
+            board.addGarbageLines(1, hole);
+        }
+    }
+
+    /**
+     * 操作中のミノが出現位置にある状態のスナップショット (MoveGenerator などの入力)。
+     */
+    public GameSnapshot snapshot() {
+        Tetromino spawned = new Tetromino(current);
+        spawned.resetPositionAndState();
+        return new GameSnapshot(0, 0, board(), current, spawned.getX(), spawned.getY(), 0,
+            hold, nextQueue, null, List.of(), true, 0, -1, false, 0, false);
+    }
+
+    /**
+     * 盤面をこの局面にした GameLogic。操作中のミノはシードで決まるもの (出現位置) です。
+     */
+    public GameLogic gameLogic(long seed) {
+        GameLogic logic = new GameLogic(seed);
+        fill(logic.getBoard());
+        return logic;
+    }
+}
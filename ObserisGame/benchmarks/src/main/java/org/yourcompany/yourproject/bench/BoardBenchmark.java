@@ -0,0 +1,119 @@
+package org.yourcompany.yourproject.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.Shape;
+import org.yourcompany.yourproject.model.Tetromino;
+
+/**
+ * Board の基本操作 (当たり判定・固定・ライン消去・お邪魔のせり上げ) のベンチマーク。
+ *
+ * 固定・消去・せり上げは盤面を書き換えるので、毎回局面の盤面をコピーしてから行います。
+ * コピーだけの時間は {@link #copy()} で測っているので、差し引いて見てください。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param
+    public BenchmarkPosition position;
+
+    private Board board;
+    private int[][][] probeShapes; // 全ミノの全向き
+    private Tetromino lineFiller;   // 右端の列を埋める縦の I (消去が起きる)
+    private Tetromino surfacePiece; // 消去が起きない T
+
+    @Setup
+    public void setUp() {
+        board = position.board();
+        Shape.Tetrominoes[] shapes = Shape.Tetrominoes.values();
+        probeShapes = new int[(shapes.length - 1) * 4][][];
+        int i = 0;
+        for (Shape.Tetrominoes shape : shapes) {
+            if (shape == Shape.Tetrominoes.NoShape) continue;
+            for (int rot = 0; rot < 4; rot++) probeShapes[i++] = shape.allCoords.get(rot);
+        }
+        lineFiller = dropped(Shape.Tetrominoes.LineShape, Board.BOARD_WIDTH - 2, 1);
+        surfacePiece = dropped(Shape.Tetrominoes.TShape, 1, 0);
+    }
+
+    /** 出現位置の高さから x 列に真下へ落としたミノ */
+    private Tetromino dropped(Shape.Tetrominoes shape, int x, int rot) {
+        Tetromino piece = new Tetromino(shape);
+        piece.resetPositionAndState();
+        int y = piece.getY();
+        piece.setSimulatedState(x, y, rot);
+        while (board.isValidPosition(piece.getCoords(), x, y + 1)) y++;
+        piece.setSimulatedState(x, y, rot);
+        return piece;
+    }
+
+    /**
+     * 出現位置付近から底までの全マス x 全ミノ・全向きの当たり判定 (MoveGenerator の探索と同じ使われ方)。
+     */
+    @Benchmark
+    public int isValidPosition() {
+        int valid = 0;
+        for (int[][] coords : probeShapes) {
+            for (int y = Board.TOTAL_BOARD_HEIGHT - Board.VISIBLE_BOARD_HEIGHT - 2; y < Board.TOTAL_BOARD_HEIGHT; y++) {
+                for (int x = -1; x <= Board.BOARD_WIDTH; x++) {
+                    if (board.isValidPosition(coords, x, y)) valid++;
+                }
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public Board copy() {
+        return new Board(board);
+    }
+
+    @Benchmark
+    public Board placeTetromino() {
+        Board b = new Board(board);
+        b.placeTetromino(surfacePiece);
+        return b;
+    }
+
+    /** 消える行がない場合 (置くたびに毎回呼ばれる) */
+    @Benchmark
+    public int clearLinesNone(Blackhole bh) {
+        Board b = new Board(board);
+        bh.consume(b);
+        return b.clearLines();
+    }
+
+    /** 右端の縦 I を置いてから消去 (局面によって 0〜4 行消える) */
+    @Benchmark
+    public int placeAndClearLines(Blackhole bh) {
+        Board b = new Board(board);
+        b.placeTetromino(lineFiller);
+        bh.consume(b);
+        return b.clearLines();
+    }
+
+    @Benchmark
+    public boolean addGarbageLines(Blackhole bh) {
+        Board b = new Board(board);
+        bh.consume(b);
+        return b.addGarbageLines(4, 3);
+    }
+}
@@ -0,0 +1,86 @@
+package org.yourcompany.yourproject.bench;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.yourcompany.yourproject.ai.LandingSpot;
+import org.yourcompany.yourproject.ai.MoveGenerator;
+import org.yourcompany.yourproject.config.GameAction;
+import org.yourcompany.yourproject.model.GameLogic;
+import org.yourcompany.yourproject.model.GameSnapshot;
+import org.yourcompany.yourproject.model.Tetromino;
+import org.yourcompany.yourproject.player.Finesse;
+
+/**
+ * AIPlayer が1手ごとに行う候補手の列挙 (MoveGenerator.generate) と、
+ * 選んだ手のキー操作を求める Finesse.findPath のベンチマーク。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+
+    @Param
+    public BenchmarkPosition position;
+
+    private GameSnapshot snapshot;
+    private GameLogic logic;
+    private int[] targetXs;
+    private int[] targetRots;
+
+    @Setup
+    public void setUp() {
+        snapshot = position.snapshot();
+        // findPath は GameLogic の操作中のミノから探すので、そのミノの置き場所すべてを目標にする
+        logic = position.gameLogic(1L);
+        Tetromino piece = logic.getCurrentTetromino();
+        GameSnapshot current = new GameSnapshot(0, 0, logic.getBoard(), piece.getPieceShape(),
+            piece.getX(), piece.getY(), piece.getRotationState(), null, List.of(), null, List.of(),
+            false, 0, -1, false, 0, false);
+        Set<List<Integer>> targets = new LinkedHashSet<>();
+        for (LandingSpot spot : MoveGenerator.generate(current)) {
+            targets.add(List.of(spot.finalX, spot.finalRot));
+        }
+        List<List<Integer>> list = new ArrayList<>(targets);
+        targetXs = new int[list.size()];
+        targetRots = new int[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            targetXs[i] = list.get(i).get(0);
+            targetRots[i] = list.get(i).get(1);
+        }
+    }
+
+    /** 現在のミノとホールドしたミノの候補手をすべて列挙する (1回の思考の最初の段階) */
+    @Benchmark
+    public List<LandingSpot> generate() {
+        return MoveGenerator.generate(snapshot);
+    }
+
+    /** 操作中のミノの置き場所 (x, 向き) すべてについて最短のキー操作を求める */
+    @Benchmark
+    public void findPath(Blackhole bh) {
+        for (int i = 0; i < targetXs.length; i++) {
+            Queue<GameAction> path = Finesse.findPath(logic, targetXs[i], targetRots[i]);
+            bh.consume(path);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.yourcompany.yourproject.bench;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yourcompany.yourproject.ai.LandingSpot;
+import org.yourcompany.yourproject.ai.MoveGenerator;
+import org.yourcompany.yourproject.ai.OnnxModel;
+import org.yourcompany.yourproject.ai.TensorEncoder;
+import org.yourcompany.yourproject.config.AIConfig;
+import org.yourcompany.yourproject.model.GameSnapshot;
+
+/**
+ * ONNX Runtime での CNN の推論 (OnnxModel.run) のバッチサイズ・スレッド数ごとのベンチマーク。
+ *
+ * スレッド数は ONNX Runtime の環境 (JVM 全体で1つ) を作る前に AIConfig.COMPUTE_CORES で決まるので、
+ * パラメータの組み合わせごとに別の JVM (フォーク) で測ります。-f 0 では正しく測れません。
+ * 入力は MID_STACK 局面の候補手を並べて、バッチサイズ分に繰り返したものです。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OnnxInferenceBenchmark {
+
+    @Param({ "tetris_model_v2_final.onnx" })
+    public String model;
+
+    @Param({ "1", "8", "32", "64" })
+    public int batchSize;
+
+    @Param({ "1", "2", "4" })
+    public int threads;
+
+    private OnnxModel onnx;
+    private FloatBuffer boards;
+    private FloatBuffer features;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        AIConfig.COMPUTE_CORES = threads;
+        AIConfig.MODEL_WARMUP = false; // JMH のウォームアップで足りる
+        onnx = OnnxModel.fromResource(model);
+
+        GameSnapshot snapshot = BenchmarkPosition.MID_STACK.snapshot();
+        List<LandingSpot> moves = MoveGenerator.generate(snapshot);
+        FloatBuffer moveBoards = FloatBuffer.allocate(moves.size() * 2 * TensorEncoder.BOARD_PLANE_SIZE);
+        FloatBuffer moveFeatures = FloatBuffer.allocate(moves.size() * TensorEncoder.FEATURE_INPUT_SIZE);
+        TensorEncoder.encodeMoves(moves, snapshot, moveBoards, moveFeatures);
+
+        boards = FloatBuffer.allocate(batchSize * 2 * TensorEncoder.BOARD_PLANE_SIZE);
+        features = FloatBuffer.allocate(batchSize * TensorEncoder.FEATURE_INPUT_SIZE);
+        for (int i = 0; i < batchSize; i++) {
+            int move = i % moves.size();
+            boards.put(moveBoards.array(), move * 2 * TensorEncoder.BOARD_PLANE_SIZE, 2 * TensorEncoder.BOARD_PLANE_SIZE);
+            features.put(moveFeatures.array(), move * TensorEncoder.FEATURE_INPUT_SIZE, TensorEncoder.FEATURE_INPUT_SIZE);
+        }
+        boards.flip();
+        features.flip();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        onnx.close();
+    }
+
+    @Benchmark
+    public float[] run() throws Exception {
+        return onnx.run(boards, features, batchSize);
+    }
+}
@@ -0,0 +1,85 @@
+package org.yourcompany.yourproject.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.RotationSystem;
+import org.yourcompany.yourproject.model.Shape;
+import org.yourcompany.yourproject.model.Tetromino;
+
+/**
+ * RotationSystem.simulateRotation (SRS のキック判定) のベンチマーク。
+ *
+ * 局面の盤面で、全ミノ・全向き・全列について接地した位置 (キックが起きやすい) から左右に回す場合を
+ * 1回の計測でまとめて試します。結果は1回の回転あたりではなく、この全体の時間です。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RotationBenchmark {
+
+    @Param
+    public BenchmarkPosition position;
+
+    private Board board;
+    private int[] xs, ys, rots;
+    private Shape.Tetrominoes[] shapes;
+
+    @Setup
+    public void setUp() {
+        board = position.board();
+        List<int[]> cases = new ArrayList<>();
+        List<Shape.Tetrominoes> caseShapes = new ArrayList<>();
+        for (Shape.Tetrominoes shape : Shape.Tetrominoes.values()) {
+            if (shape == Shape.Tetrominoes.NoShape) continue;
+            Tetromino piece = new Tetromino(shape);
+            piece.resetPositionAndState();
+            int spawnY = piece.getY();
+            for (int rot = 0; rot < 4; rot++) {
+                int[][] coords = shape.allCoords.get(rot);
+                for (int x = -1; x <= Board.BOARD_WIDTH; x++) {
+                    if (!board.isValidPosition(coords, x, spawnY)) continue;
+                    int y = spawnY;
+                    while (board.isValidPosition(coords, x, y + 1)) y++;
+                    cases.add(new int[] { x, y, rot });
+                    caseShapes.add(shape);
+                }
+            }
+        }
+        xs = new int[cases.size()];
+        ys = new int[cases.size()];
+        rots = new int[cases.size()];
+        for (int i = 0; i < cases.size(); i++) {
+            xs[i] = cases.get(i)[0];
+            ys[i] = cases.get(i)[1];
+            rots[i] = cases.get(i)[2];
+        }
+        shapes = caseShapes.toArray(new Shape.Tetrominoes[0]);
+    }
+
+    @Benchmark
+    public int simulateRotation() {
+        int succeeded = 0;
+        for (int i = 0; i < xs.length; i++) {
+            if (RotationSystem.simulateRotation(xs[i], ys[i], rots[i], shapes[i], board, true).success()) succeeded++;
+            if (RotationSystem.simulateRotation(xs[i], ys[i], rots[i], shapes[i], board, false).success()) succeeded++;
+        }
+        return succeeded;
+    }
+}
@@ -0,0 +1,70 @@
+package org.yourcompany.yourproject.bench;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.yourcompany.yourproject.ai.LandingSpot;
+import org.yourcompany.yourproject.ai.MoveGenerator;
+import org.yourcompany.yourproject.ai.TensorEncoder;
+import org.yourcompany.yourproject.model.GameSnapshot;
+
+/**
+ * CNN で評価する前の、候補手を入力テンソルに詰める処理 (OnnxEvaluator と同じ TensorEncoder.encodeMoves) のベンチマーク。
+ * 候補手は局面の MoveGenerator の結果すべて、相手は同じ局面です。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TensorEncodingBenchmark {
+
+    @Param
+    public BenchmarkPosition position;
+
+    private List<LandingSpot> moves;
+    private GameSnapshot opponent;
+    private FloatBuffer boards;
+    private FloatBuffer features;
+
+    @Setup
+    public void setUp() {
+        GameSnapshot snapshot = position.snapshot();
+        moves = MoveGenerator.generate(snapshot);
+        opponent = snapshot;
+        boards = FloatBuffer.allocate(moves.size() * 2 * TensorEncoder.BOARD_PLANE_SIZE);
+        features = FloatBuffer.allocate(moves.size() * TensorEncoder.FEATURE_INPUT_SIZE);
+    }
+
+    /** バッファを使い回す場合 (エンコードだけの時間) */
+    @Benchmark
+    public void encode(Blackhole bh) {
+        TensorEncoder.encodeMoves(moves, opponent, boards, features);
+        bh.consume(boards);
+        bh.consume(features);
+    }
+
+    /** OnnxEvaluator と同じく毎回バッファを確保する場合 */
+    @Benchmark
+    public void allocateAndEncode(Blackhole bh) {
+        FloatBuffer b = FloatBuffer.allocate(moves.size() * 2 * TensorEncoder.BOARD_PLANE_SIZE);
+        FloatBuffer f = FloatBuffer.allocate(moves.size() * TensorEncoder.FEATURE_INPUT_SIZE);
+        TensorEncoder.encodeMoves(moves, opponent, b, f);
+        bh.consume(b);
+        bh.consume(f);
+    }
+}
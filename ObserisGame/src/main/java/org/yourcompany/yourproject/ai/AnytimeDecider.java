@@ -0,0 +1,270 @@
+package org.yourcompany.yourproject.ai;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+import org.yourcompany.yourproject.config.AIConfig;
+import org.yourcompany.yourproject.model.GameSnapshot;
+
+/**
+ * 締め切り (AIConfig.THINK_BUDGET_MS) 付きで最善手を選ぶクラス。
+ *
+ * 1. まず全候補を事前スコア (HeuristicEvaluator) で並べ、その1位をフォールバックの手として確保する。
+ * 2. 重い評価関数で上位 K 個 (+ 戦術的に特別な手) を評価する。
+ * 3. 時間が残っていれば、次の K 個、その次の K 個…と評価範囲を広げる (iterative widening)。
+ * 4. AIConfig.LOOKAHEAD_DEPTH が 1 以上なら、評価の上位候補を先読み ({@link ExpectimaxSearch}) で比べ直す
+ *    (評価値と先読みの値を AIConfig.LOOKAHEAD_WEIGHT の割合で混ぜる)。
+ *
+ * 評価は専用スレッドで行い、締め切りを過ぎたらその段階の結果を待たずに、それまでに分かった最善手を返します。
+ * 間に合わなかった段階は取り消す (推論スレッドに割り込む) ので、次の思考の評価がその後ろで待たされることはありません。
+ */
+public class AnytimeDecider {
+
+    /** 選んだ手とその思考の記録 */
+    public record Decision(LandingSpot bestMove, DecisionReport report) {}
+
+    private volatile Evaluator evaluator; // 思考の合間に差し替えられる (1回の思考の中では変わらない)
+    private final ExecutorService inferenceExecutor;
+
+    // --- 統計 ---
+    private final AtomicLong decisionCount = new AtomicLong();
+    private final AtomicLong deadlineMissCount = new AtomicLong();
+    private volatile DecisionReport lastReport;
+    private long lastLookaheadNodes; // 思考スレッドの中だけで使う
+
+    public AnytimeDecider(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        this.inferenceExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ai-inference-" + evaluator.getName());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 候補手の中から締め切りまでに分かった最善手を選びます。
+     *
+     * @param moves          生成済みの候補手
+     * @param startNanos     思考を開始した時刻 (System.nanoTime)
+     * @param moveGenNanos   候補手の生成にかかった時間
+     */
+    public Decision decide(List<LandingSpot> moves, GameSnapshot myState, GameSnapshot opponentState,
+                           long startNanos, long moveGenNanos) {
+        long budgetMs = AIConfig.THINK_BUDGET_MS;
+        long deadline = (budgetMs > 0) ? startNanos + budgetMs * 1_000_000L : Long.MAX_VALUE;
+        long evalStart = System.nanoTime();
+        Evaluator evaluator = this.evaluator;
+
+        // 1. フォールバック: 事前スコアで並べた1位 (必ず求まる)
+        PruningEvaluator pruning = (evaluator instanceof PruningEvaluator p) ? p : null;
+        List<LandingSpot> ranked = HeuristicEvaluator.rank(moves);
+        if (ranked.isEmpty()) {
+            // 全ての手がゲームオーバー (またはそもそも手がない)
+            LandingSpot any = moves.isEmpty() ? null : moves.get(0);
+            return finish(any, moves.size(), 0, 0, false, true, moveGenNanos, evalStart, startNanos);
+        }
+        LandingSpot fallback = ranked.get(0);
+
+        if (evaluator instanceof HeuristicEvaluator) {
+            // 事前スコアそのものが最終評価
+            LandingSpot best = refineWithLookahead(ranked, spot -> spot.aiScore, fallback, myState, deadline);
+            return finish(best, moves.size(), ranked.size(), 1, false, false, moveGenNanos, evalStart, startNanos);
+        }
+
+        // 2. 最初の評価段階
+        Map<LandingSpot, Double> scores = new IdentityHashMap<>();
+        List<LandingSpot> firstStage = (pruning != null) ? pruning.select(ranked) : ranked;
+        long stageStart = System.nanoTime();
+        StageResult first = runStage(evaluator, firstStage, myState, opponentState, deadline, pruning, scores);
+        if (first != StageResult.COMPLETED) {
+            boolean missed = (first == StageResult.TIMED_OUT);
+            if (missed) deadlineMissCount.incrementAndGet();
+            return finish(fallback, moves.size(), 0, 0, missed, true, moveGenNanos, evalStart, startNanos);
+        }
+        long stageNanos = System.nanoTime() - stageStart;
+        int stages = 1;
+
+        // 3. 時間が残っている限り、評価範囲を広げる (締め切りなしの場合は絞り込みどおり1段で終える)
+        List<LandingSpot> rest = new ArrayList<>();
+        for (LandingSpot spot : ranked) if (!scores.containsKey(spot)) rest.add(spot);
+        int chunkSize = Math.max(1, firstStage.size());
+        int next = 0;
+        while (deadline != Long.MAX_VALUE && next < rest.size()) {
+            // 同じ大きさの段階がもう一度間に合いそうなときだけ始める
+            if (System.nanoTime() + stageNanos > deadline) break;
+            List<LandingSpot> chunk = rest.subList(next, Math.min(rest.size(), next + chunkSize));
+            stageStart = System.nanoTime();
+            if (runStage(evaluator, new ArrayList<>(chunk), myState, opponentState, deadline, pruning, scores)
+                    != StageResult.COMPLETED) {
+                break;
+            }
+            stageNanos = System.nanoTime() - stageStart;
+            next += chunk.size();
+            stages++;
+        }
+
+        List<LandingSpot> evaluated = new ArrayList<>(scores.keySet());
+        evaluated.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+        LandingSpot best = evaluated.isEmpty() ? fallback : evaluated.get(0);
+        best = refineWithLookahead(evaluated, scores::get, best, myState, deadline);
+        if (scores.containsKey(best)) best.aiScore = scores.get(best);
+        return finish(best, moves.size(), scores.size(), stages, false, false, moveGenNanos, evalStart, startNanos);
+    }
+
+    /**
+     * 評価の高い順に並んだ候補の上位 LOOKAHEAD_WIDTH 個を先読みで比べ直します。
+     *
+     * 先読みの値 (事前スコアでの期待値) と評価値は尺度が違うので、それぞれを候補の中で標準化してから
+     * LOOKAHEAD_WEIGHT の割合で混ぜます。評価関数 (CNN) の判断を捨てずに、先読みで分かった差だけを加えるためです。
+     * 先読みしない設定の場合や、締め切りまでに1つも読めなかった場合は best をそのまま返します。
+     *
+     * @param score 候補の評価値
+     */
+    private LandingSpot refineWithLookahead(List<LandingSpot> ordered, ToDoubleFunction<LandingSpot> score,
+                                            LandingSpot best, GameSnapshot myState, long deadline) {
+        lastLookaheadNodes = 0;
+        if (AIConfig.LOOKAHEAD_DEPTH <= 0 || ordered.size() < 2) return best;
+        ExpectimaxSearch search = new ExpectimaxSearch(AIConfig.LOOKAHEAD_DEPTH, AIConfig.LOOKAHEAD_BEAM,
+            AIConfig.LOOKAHEAD_PRUNE_MARGIN, deadline);
+        List<LandingSpot> candidates = ordered.subList(0, Math.min(AIConfig.LOOKAHEAD_WIDTH, ordered.size()));
+        double[] lookahead = search.values(candidates, myState);
+        lastLookaheadNodes = search.getNodeCount();
+
+        // 締め切りまでに読めた候補だけを比べる
+        List<LandingSpot> finished = new ArrayList<>();
+        List<Double> evalValues = new ArrayList<>();
+        List<Double> lookaheadValues = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (Double.isNaN(lookahead[i])) continue;
+            finished.add(candidates.get(i));
+            evalValues.add(score.applyAsDouble(candidates.get(i)));
+            lookaheadValues.add(lookahead[i]);
+        }
+        if (finished.isEmpty()) return best;
+
+        double weight = Math.max(0, Math.min(1, AIConfig.LOOKAHEAD_WEIGHT));
+        double[] evalZ = standardize(evalValues);
+        double[] lookaheadZ = standardize(lookaheadValues);
+        LandingSpot refined = null;
+        double refinedValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < finished.size(); i++) {
+            double value = (1 - weight) * evalZ[i] + weight * lookaheadZ[i];
+            if (value > refinedValue) {
+                refinedValue = value;
+                refined = finished.get(i);
+            }
+        }
+        return refined;
+    }
+
+    /** 平均 0・標準偏差 1 にそろえた値 (全て同じ値なら全て 0) */
+    private static double[] standardize(List<Double> values) {
+        int n = values.size();
+        double mean = 0;
+        for (double v : values) mean += v;
+        mean /= n;
+        double variance = 0;
+        for (double v : values) variance += (v - mean) * (v - mean);
+        double sd = Math.sqrt(variance / n);
+        double[] z = new double[n];
+        for (int i = 0; i < n; i++) z[i] = (sd > 1e-12) ? (values.get(i) - mean) / sd : 0;
+        return z;
+    }
+
+    private enum StageResult { COMPLETED, TIMED_OUT, FAILED }
+
+    /**
+     * 1つの評価段階を推論スレッドで実行し、締め切りまで待ちます。
+     * 完了した場合だけ scores に結果を書き込みます。
+     */
+    private StageResult runStage(Evaluator evaluator, List<LandingSpot> batch,
+                                 GameSnapshot myState, GameSnapshot opponentState,
+                                 long deadline, PruningEvaluator pruning, Map<LandingSpot, Double> scores) {
+        ThinkTimings timings = ThinkTimings.current();
+        long stageStart = System.nanoTime();
+        Future<double[]> future = inferenceExecutor.submit(() -> {
+            ThinkTimings.attach(timings);
+            try {
+                if (pruning != null) {
+                    pruning.evaluateSelected(batch, myState, opponentState);
+                } else {
+                    evaluator.evaluate(batch, myState, opponentState);
+                }
+            } finally {
+                ThinkTimings.attach(null);
+            }
+            double[] values = new double[batch.size()];
+            for (int i = 0; i < values.length; i++) values[i] = batch.get(i).aiScore;
+            return values;
+        });
+        try {
+            return awaitStage(future, batch, deadline, scores);
+        } finally {
+            if (timings != null) timings.addStage(System.nanoTime() - stageStart);
+        }
+    }
+
+    private StageResult awaitStage(Future<double[]> future, List<LandingSpot> batch,
+                                   long deadline, Map<LandingSpot, Double> scores) {
+        try {
+            double[] values = (deadline == Long.MAX_VALUE)
+                ? future.get()
+                : future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            for (int i = 0; i < values.length; i++) scores.put(batch.get(i), values[i]);
+            return StageResult.COMPLETED;
+        } catch (TimeoutException e) {
+            // 取り消さないと、1本しかない推論スレッドで次の思考の評価がこの段階の後ろに並んでしまう
+            future.cancel(true);
+            return StageResult.TIMED_OUT;
+        } catch (ExecutionException e) {
+            // 推論失敗: フォールバックの手で代用する
+            e.getCause().printStackTrace();
+            return StageResult.FAILED;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return StageResult.FAILED;
+        }
+    }
+
+    private Decision finish(LandingSpot best, int candidates, int evaluated, int stages,
+                            boolean missed, boolean usedFallback,
+                            long moveGenNanos, long evalStart, long startNanos) {
+        long now = System.nanoTime();
+        DecisionReport report = new DecisionReport(candidates, evaluated, stages, missed, usedFallback,
+            lastLookaheadNodes, moveGenNanos, now - evalStart, now - startNanos);
+        decisionCount.incrementAndGet();
+        lastReport = report;
+        return new Decision(best, report);
+    }
+
+    public Evaluator getEvaluator() { return evaluator; }
+
+    /**
+     * 評価関数を差し替えます。実行中の思考は元の評価関数のまま終わり、次の思考から新しい評価関数を使います。
+     * @return 差し替える前の評価関数
+     */
+    public Evaluator setEvaluator(Evaluator evaluator) {
+        Evaluator previous = this.evaluator;
+        this.evaluator = evaluator;
+        return previous;
+    }
+    public long getDecisionCount() { return decisionCount.get(); }
+    public long getDeadlineMissCount() { return deadlineMissCount.get(); }
+    public DecisionReport getLastReport() { return lastReport; }
+
+    /** 推論用のスレッドを止めます (実行中の評価には割り込み、待っている評価は実行しない) */
+    public void close() {
+        inferenceExecutor.shutdownNow();
+    }
+}
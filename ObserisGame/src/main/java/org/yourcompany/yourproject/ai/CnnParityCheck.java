@@ -0,0 +1,96 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.File;
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.yourcompany.yourproject.model.Board;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtSession;
+
+/**
+ * {@link JavaCnnModel} の出力が ONNX Runtime と許容誤差内で一致するかを検証するツール。
+ * 使い方: java ... org.yourcompany.yourproject.ai.CnnParityCheck [model.onnx ...]
+ * 一致しないモデルがあれば終了コード 1 で終了します。
+ */
+public final class CnnParityCheck {
+
+    private static final int BATCH_SIZE = 64;
+    private static final float TOLERANCE = 1e-3f; // 相対誤差 (|v| < 1 のときは絶対誤差)
+
+    private CnnParityCheck() {}
+
+    public static void main(String[] args) throws Exception {
+        String[] models = args.length > 0 ? args : new String[] {
+            "tetris_model_v2_final.onnx", "milestone_gen_1900.onnx", "tetris_model_examination.onnx"
+        };
+        boolean allPassed = true;
+        for (String model : models) {
+            float maxError = check(model, new Random(42));
+            boolean passed = maxError <= TOLERANCE;
+            allPassed &= passed;
+            System.out.printf("%-32s max error = %.3e  %s%n", model, maxError, passed ? "OK" : "NG");
+        }
+        if (!allPassed) System.exit(1);
+    }
+
+    /**
+     * ランダムな盤面・特徴量で両方の推論を実行し、最大誤差を返します。
+     */
+    public static float check(String modelResourceName, Random random) throws Exception {
+        int plane = Board.TOTAL_BOARD_HEIGHT * Board.BOARD_WIDTH;
+        float[] boards = new float[BATCH_SIZE * 2 * plane];
+        float[] features = new float[BATCH_SIZE * JavaCnnModel.FEATURE_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            fillRandomBoard(boards, i * 2 * plane, random);
+            fillRandomBoard(boards, i * 2 * plane + plane, random);
+            int f = i * JavaCnnModel.FEATURE_SIZE;
+            for (int q = 0; q < 10; q++) features[f + q * 7 + random.nextInt(7)] = 1.0f;
+            features[f + 70] = random.nextInt(8);
+            features[f + 71] = random.nextInt(8);
+        }
+
+        float[] javaValues = JavaCnnModel.fromResource(modelResourceName).evaluate(boards, features, BATCH_SIZE);
+
+        OrtEnvironment env = OrtEnvironment.getEnvironment();
+        File modelFile = ModelResources.extractToTempDir(modelResourceName);
+        float[] onnxValues = new float[BATCH_SIZE];
+        try (OrtSession session = env.createSession(modelFile.getAbsolutePath(), new OrtSession.SessionOptions());
+             OnnxTensor boardTensor = OnnxTensor.createTensor(env, FloatBuffer.wrap(boards),
+                 new long[] {BATCH_SIZE, 2, Board.TOTAL_BOARD_HEIGHT, Board.BOARD_WIDTH});
+             OnnxTensor featureTensor = OnnxTensor.createTensor(env, FloatBuffer.wrap(features),
+                 new long[] {BATCH_SIZE, JavaCnnModel.FEATURE_SIZE})) {
+            Map<String, OnnxTensor> inputs = new HashMap<>();
+            inputs.put("board_tensor_input", boardTensor);
+            inputs.put("feature_tensor_input", featureTensor);
+            try (OrtSession.Result result = session.run(inputs)) {
+                float[][] output = (float[][]) result.get(0).getValue();
+                for (int i = 0; i < BATCH_SIZE; i++) onnxValues[i] = output[i][0];
+            }
+        }
+
+        float maxError = 0f;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            float scale = Math.max(1f, Math.abs(onnxValues[i]));
+            maxError = Math.max(maxError, Math.abs(javaValues[i] - onnxValues[i]) / scale);
+        }
+        return maxError;
+    }
+
+    /**
+     * 実戦に近い形 (下から積み上がった列 + ところどころの穴) の盤面を生成する。
+     */
+    private static void fillRandomBoard(float[] buffer, int offset, Random random) {
+        for (int x = 0; x < Board.BOARD_WIDTH; x++) {
+            int height = random.nextInt(16);
+            for (int h = 0; h < height; h++) {
+                int y = Board.TOTAL_BOARD_HEIGHT - 1 - h;
+                if (random.nextInt(8) != 0) buffer[offset + y * Board.BOARD_WIDTH + x] = 1.0f;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.yourcompany.yourproject.ai;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.yourcompany.yourproject.config.AIConfig;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtLoggingLevel;
+import ai.onnxruntime.OrtSession;
+
+/**
+ * AIの計算に使うCPUの予算 (コア数) を JVM 全体で1つにまとめて管理するクラス。
+ *
+ * <ul>
+ *   <li>ONNX Runtime: 全セッションで1つのスレッドプール (予算と同じスレッド数・スピン待ちなし) を共有する</li>
+ *   <li>思考 (AIPlayer の1手分の計算): 予算内の数のワーカーで、届いた順に実行する。
+ *       各AIは同時に1つしか思考を要求しないので、届いた順に実行すればAIごとに公平に順番が回る</li>
+ *   <li>先読み ({@link ExpectimaxSearch}): 予算内の ForkJoinPool</li>
+ * </ul>
+ * 予算は最初に使われたときの AIConfig.COMPUTE_CORES で決まります (既定はコア数 - 1。描画とゲームループ用に1つ残す)。
+ */
+public final class ComputeScheduler {
+
+    private static volatile ComputeScheduler shared;
+
+    /** 思考要求の待ち時間の統計 */
+    public record Stats(long completedThinks, int queuedThinks, double meanQueueDelayMs, double maxQueueDelayMs) {
+        @Override
+        public String toString() {
+            return String.format("thinks=%d queued=%d queueDelay(mean=%.2fms max=%.2fms)",
+                completedThinks, queuedThinks, meanQueueDelayMs, maxQueueDelayMs);
+        }
+    }
+
+    private final int coreBudget;
+    private final ThreadPoolExecutor thinkExecutor;
+    private final ForkJoinPool lookaheadPool;
+    private OrtEnvironment ortEnvironment;
+    private boolean sharedOrtThreads;
+
+    // --- 統計 ---
+    private final AtomicLong startedThinks = new AtomicLong();
+    private final AtomicLong totalQueueNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    private ComputeScheduler(int coreBudget) {
+        this.coreBudget = coreBudget;
+        int thinkSlots = (AIConfig.MAX_CONCURRENT_THINKS > 0) ? AIConfig.MAX_CONCURRENT_THINKS : coreBudget;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.thinkExecutor = new ThreadPoolExecutor(thinkSlots, thinkSlots, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "ai-think-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        int lookaheadThreads = (AIConfig.LOOKAHEAD_THREADS > 0) ? AIConfig.LOOKAHEAD_THREADS : coreBudget;
+        this.lookaheadPool = new ForkJoinPool(lookaheadThreads);
+    }
+
+    /**
+     * JVM 全体で共有するスケジューラを返します。初回に AIConfig の設定で予算を決めます。
+     */
+    public static ComputeScheduler shared() {
+        ComputeScheduler s = shared;
+        if (s == null) {
+            synchronized (ComputeScheduler.class) {
+                s = shared;
+                if (s == null) {
+                    int cores = (AIConfig.COMPUTE_CORES > 0)
+                        ? AIConfig.COMPUTE_CORES
+                        : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+                    s = new ComputeScheduler(cores);
+                    shared = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * 思考を1つ実行待ちに加えます。空いているワーカーが届いた順に実行します。
+     */
+    public void submitThink(Runnable think) {
+        long submitted = System.nanoTime();
+        thinkExecutor.execute(() -> {
+            long delay = System.nanoTime() - submitted;
+            startedThinks.incrementAndGet();
+            totalQueueNanos.addAndGet(delay);
+            maxQueueNanos.accumulateAndGet(delay, Math::max);
+            think.run();
+        });
+    }
+
+    /**
+     * 予算内のスレッドを共有する ONNX Runtime の環境を返します。
+     * 既に別の設定で環境が作られていた場合は、セッションごとのスレッド数で予算を守ります。
+     */
+    public synchronized OrtEnvironment ortEnvironment() throws OrtException {
+        if (ortEnvironment == null) {
+            try (OrtEnvironment.ThreadingOptions threading = new OrtEnvironment.ThreadingOptions()) {
+                threading.setGlobalIntraOpNumThreads(coreBudget);
+                threading.setGlobalInterOpNumThreads(1);
+                threading.setGlobalSpinControl(false); // 待ち時間にコアを回し続けない
+                ortEnvironment = OrtEnvironment.getEnvironment(OrtLoggingLevel.ORT_LOGGING_LEVEL_WARNING,
+                    "obseris", threading);
+                sharedOrtThreads = true;
+            } catch (IllegalStateException e) {
+                ortEnvironment = OrtEnvironment.getEnvironment();
+                sharedOrtThreads = false;
+            }
+        }
+        return ortEnvironment;
+    }
+
+    /**
+     * 予算に合わせたセッション設定を返します (共有スレッドプールを使う・演算子は順番に実行する)。
+     * ネイティブのメモリを持つので、セッションを作ったら close してください。
+     */
+    public OrtSession.SessionOptions newSessionOptions() throws OrtException {
+        ortEnvironment();
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        options.setExecutionMode(OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL);
+        if (sharedOrtThreads) {
+            options.disablePerSessionThreads();
+        } else {
+            options.setIntraOpNumThreads(coreBudget);
+            options.setInterOpNumThreads(1);
+        }
+        return options;
+    }
+
+    /** 先読みに使う ForkJoinPool */
+    public ForkJoinPool lookaheadPool() { return lookaheadPool; }
+
+    /** AIの計算に使うコア数 */
+    public int getCoreBudget() { return coreBudget; }
+
+    public Stats getStats() {
+        long started = startedThinks.get();
+        double mean = (started == 0) ? 0 : totalQueueNanos.get() / 1e6 / started;
+        return new Stats(thinkExecutor.getCompletedTaskCount(), thinkExecutor.getQueue().size(),
+            mean, maxQueueNanos.get() / 1e6);
+    }
+}
@@ -0,0 +1,35 @@
+package org.yourcompany.yourproject.ai;
+
+/**
+ * 1手分の思考がどこまで進んだかの記録。
+ *
+ * @param candidateCount   生成した候補手の数
+ * @param evaluatedCount   重い評価関数 (CNN) で評価できた候補手の数
+ * @param stagesCompleted  締め切りまでに完了した評価段階の数 (0 = フォールバックのみ)
+ * @param deadlineMissed   最初の評価段階が締め切りに間に合わなかった
+ * @param usedFallback     フォールバック (事前スコア) の手を採用した
+ * @param lookaheadNodes   先読み (ExpectimaxSearch) で展開した局面の数 (先読みなしの場合は 0)
+ * @param moveGenNanos     候補手の生成にかかった時間
+ * @param evaluationNanos  評価にかかった時間
+ * @param totalNanos       思考全体にかかった時間
+ */
+public record DecisionReport(
+    int candidateCount,
+    int evaluatedCount,
+    int stagesCompleted,
+    boolean deadlineMissed,
+    boolean usedFallback,
+    long lookaheadNodes,
+    long moveGenNanos,
+    long evaluationNanos,
+    long totalNanos
+) {
+    @Override
+    public String toString() {
+        return String.format("candidates=%d evaluated=%d stages=%d%s%s%s movegen=%.1fms eval=%.1fms total=%.1fms",
+            candidateCount, evaluatedCount, stagesCompleted,
+            deadlineMissed ? " DEADLINE_MISSED" : "", usedFallback ? " FALLBACK" : "",
+            lookaheadNodes > 0 ? " lookahead=" + lookaheadNodes : "",
+            moveGenNanos / 1e6, evaluationNanos / 1e6, totalNanos / 1e6);
+    }
+}
@@ -0,0 +1,48 @@
+package org.yourcompany.yourproject.ai;
+
+import java.util.List;
+
+import org.yourcompany.yourproject.config.AIConfig;
+import org.yourcompany.yourproject.model.GameSnapshot;
+
+/**
+ * 候補手 (LandingSpot) のバッチを評価する評価関数のインターフェース。
+ * AIPlayer は探索した全候補をまとめて渡し、実装は各 LandingSpot.aiScore に評価値を書き込みます。
+ */
+public interface Evaluator {
+
+    /**
+     * 候補手をまとめて評価します。
+     * @param moves 評価対象の候補手 (aiScore が書き換えられる)
+     * @param myState 自分のゲーム状態 (考え始めた時点のスナップショット)
+     * @param opponentState 相手のゲーム状態 (相手がいない場合は null)
+     * @throws RuntimeException 推論に失敗した場合
+     */
+    void evaluate(List<LandingSpot> moves, GameSnapshot myState, GameSnapshot opponentState);
+
+    /** ログや画面表示用の名前 */
+    String getName();
+
+    /**
+     * モデル名から評価関数を生成します。
+     * HeuristicEvaluator.MODEL_NAME ならモデル不要のヒューリスティック、
+     * それ以外は AIConfig.INFERENCE_BACKEND に従って CNN モデルをロードします
+     * (ONNX のセッションや Java 版の重みは同じモデルを使う全てのAIで共有されます)。
+     * CNN は AIConfig.CANDIDATE_TOP_K に従い、事前スコアで候補を絞り込んでから評価します。
+     */
+    static Evaluator forModel(String modelResourceName) {
+        if (HeuristicEvaluator.MODEL_NAME.equals(modelResourceName)) {
+            return new HeuristicEvaluator();
+        }
+        try {
+            Evaluator cnn = switch (AIConfig.INFERENCE_BACKEND) {
+                case ONNX -> new OnnxEvaluator(InferenceBroker.forModel(modelResourceName));
+                case JAVA -> new JavaCnnEvaluator(modelResourceName, JavaCnnModel.shared(modelResourceName));
+            };
+            return (AIConfig.CANDIDATE_TOP_K > 0) ? new PruningEvaluator(cnn) : cnn;
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("Failed to load model: " + modelResourceName, e);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package org.yourcompany.yourproject.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.GameSnapshot;
+import org.yourcompany.yourproject.model.Shape;
+import org.yourcompany.yourproject.model.Tetromino;
+
+/**
+ * 7種1巡の袋 (7-bag) を考慮した期待値探索 (expectimax) による先読み。
+ *
+ * 見えているミノ (ネクスト5個 + 6個目) は決まった手順として読み、その先の見えないミノは
+ * 「今の袋に残っているミノのどれかが等確率で来る」(袋が空なら7種すべて) 分岐として期待値を取ります。
+ * 各局面では事前スコア (HeuristicEvaluator) の上位 LOOKAHEAD_BEAM 手だけを展開し、
+ * 末端の局面は盤面の形状スコアで、途中の手はその手の結果 (火力など) の和で評価します。
+ *
+ * 候補ごとの探索は ComputeScheduler の ForkJoinPool で並列に行い、同じ局面の結果は全スレッドで共有する置換表に保存します。
+ * 締め切りまでに読み終わらなかった候補の値は NaN になります (比べるのは読み終わった候補だけ。AnytimeDecider を参照)。
+ */
+public final class ExpectimaxSearch {
+
+    private static final List<Shape.Tetrominoes> ALL_SHAPES = Arrays.stream(Shape.Tetrominoes.values())
+        .filter(s -> s != Shape.Tetrominoes.NoShape).toList();
+    private static final double GAME_OVER_VALUE = -1000.0;
+
+    // ミノごとの出現位置 (ホールドした後・見えないミノは出現位置から動かす)
+    private static final Map<Shape.Tetrominoes, int[]> SPAWN = new EnumMap<>(Shape.Tetrominoes.class);
+    static {
+        for (Shape.Tetrominoes shape : ALL_SHAPES) {
+            Tetromino t = new Tetromino(shape);
+            t.resetPositionAndState();
+            SPAWN.put(shape, new int[]{t.getX(), t.getY()});
+        }
+    }
+
+    /** 締め切りを過ぎたときに探索を打ち切るための例外 (スタックトレースは不要) */
+    private static final class TimeUp extends RuntimeException {
+        TimeUp() { super(null, null, false, false); }
+    }
+    private static final TimeUp TIME_UP = new TimeUp();
+
+    // --- 探索中の1局面 (操作中のミノが出た直後) ---
+    private record Node(Board board, Shape.Tetrominoes current, Shape.Tetrominoes hold,
+                        List<Shape.Tetrominoes> known, List<Shape.Tetrominoes> bag,
+                        int combo, boolean b2b, int pendingGarbage) {}
+
+    // 置換表のキー (盤面は行ビット列で比較する)
+    private record NodeKey(int[] rows, Shape.Tetrominoes current, Shape.Tetrominoes hold,
+                           List<Shape.Tetrominoes> known, List<Shape.Tetrominoes> bag,
+                           int combo, boolean b2b, int pendingGarbage, int depth) {
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof NodeKey that)) return false;
+            return Arrays.equals(rows, that.rows) && current == that.current && hold == that.hold
+                && known.equals(that.known) && bag.equals(that.bag) && combo == that.combo
+                && b2b == that.b2b && pendingGarbage == that.pendingGarbage && depth == that.depth;
+        }
+        @Override
+        public int hashCode() {
+            return Objects.hash(Arrays.hashCode(rows), current, hold, known, bag, combo, b2b, pendingGarbage, depth);
+        }
+    }
+
+    // 次のミノの候補1つ (見えているミノなら確率1の1通り)
+    private record Draw(Shape.Tetrominoes shape, double probability,
+                        List<Shape.Tetrominoes> known, List<Shape.Tetrominoes> bag) {}
+
+    private final int depth;
+    private final int beamWidth;
+    private final double pruneMargin;
+    private final long deadline;
+    private final Map<NodeKey, Double> table = new ConcurrentHashMap<>();
+    private final Map<NodeKey, List<LandingSpot>> expansions = new ConcurrentHashMap<>();
+    private final AtomicLong nodeCount = new AtomicLong();
+    private final AtomicLong tableHits = new AtomicLong();
+    private final AtomicLong chanceCutoffs = new AtomicLong();
+
+    /**
+     * @param depth       候補手の後に読む手数 (1 以上)
+     * @param beamWidth   各局面で展開する手の数
+     * @param pruneMargin 見えないミノの分岐を打ち切るときに、1手ごとに見込む評価値の伸びしろ
+     * @param deadline    締め切り (System.nanoTime)。Long.MAX_VALUE で無制限
+     */
+    public ExpectimaxSearch(int depth, int beamWidth, double pruneMargin, long deadline) {
+        this.depth = Math.max(1, depth);
+        this.beamWidth = Math.max(1, beamWidth);
+        this.pruneMargin = pruneMargin;
+        this.deadline = deadline;
+    }
+
+    /**
+     * 候補手それぞれの先読みの期待値を返します (candidates と同じ順)。
+     * 締め切りまでに読み終わらなかった候補は NaN です。
+     *
+     * @param candidates 比べる候補手 (state で指せる手)
+     * @param state      候補手を生成した局面
+     */
+    public double[] values(List<LandingSpot> candidates, GameSnapshot state) {
+        double[] values = new double[candidates.size()];
+        if (candidates.isEmpty() || !state.hasCurrentPiece()) {
+            Arrays.fill(values, Double.NaN);
+            return values;
+        }
+        List<Shape.Tetrominoes> known = new ArrayList<>(state.nextQueue());
+        if (state.sixthPiece() != null) known.add(state.sixthPiece());
+        Node root = new Node(state.board(), state.currentShape(), state.holdShape(), List.copyOf(known),
+            state.unseenBag(), state.comboCount(), state.b2bActive(), state.pendingGarbage());
+
+        List<ForkJoinTask<Double>> tasks = new ArrayList<>(candidates.size());
+        for (LandingSpot candidate : candidates) {
+            tasks.add(ForkJoinTask.adapt(() -> rootValue(root, candidate)));
+        }
+        ForkJoinPool pool = ComputeScheduler.shared().lookaheadPool();
+        for (ForkJoinTask<Double> task : tasks) pool.execute(task);
+        for (int i = 0; i < tasks.size(); i++) values[i] = tasks.get(i).join();
+        return values;
+    }
+
+    /** 候補手1つの先読みの価値 (締め切りに間に合わなかった場合は NaN) */
+    private double rootValue(Node root, LandingSpot move) {
+        if (move.isGameOver) return GAME_OVER_VALUE;
+        try {
+            return HeuristicEvaluator.moveReward(move) + chanceValue(root, move, depth, Double.NEGATIVE_INFINITY);
+        } catch (TimeUp e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * 手 move を指した後、次のミノが出る分岐の期待値。
+     * alpha (親の局面でこれまでに見つかった最善値) を上回れないと分かった時点で打ち切り、
+     * その時点の上限値を返します (親の最大値には影響しない)。
+     */
+    private double chanceValue(Node parent, LandingSpot move, int remaining, double alpha) {
+        Shape.Tetrominoes holdAfter = parent.hold();
+        List<Shape.Tetrominoes> known = parent.known();
+        if (move.usedHold) {
+            holdAfter = parent.current();
+            // 空のホールドを使った場合、置いたのはネクストの先頭
+            if (parent.hold() == null) known = known.subList(1, known.size());
+        }
+
+        List<Draw> draws = nextDraws(known, parent.bag());
+        List<Node> children = new ArrayList<>(draws.size());
+        double[] estimates = new double[draws.size()];
+        double bound = 0;
+        for (int i = 0; i < draws.size(); i++) {
+            Draw draw = draws.get(i);
+            Node child = new Node(move.futureBoard, draw.shape(), holdAfter, draw.known(), draw.bag(),
+                move.comboCountAfter, move.b2bActiveAfter, move.pendingGarbageAfter);
+            children.add(child);
+            // 1手読みの値 (展開結果の1位) を見積もりにする
+            List<LandingSpot> beam = expand(child);
+            estimates[i] = beam.isEmpty() ? GAME_OVER_VALUE : beam.get(0).aiScore;
+            bound += draw.probability() * (estimates[i] + pruneMargin * (remaining - 1));
+        }
+        if (remaining == 1) {
+            double expected = 0;
+            for (int i = 0; i < draws.size(); i++) expected += draws.get(i).probability() * estimates[i];
+            return expected;
+        }
+
+        double expected = 0;
+        for (int i = 0; i < draws.size(); i++) {
+            double p = draws.get(i).probability();
+            expected += p * maxValue(children.get(i), remaining);
+            bound -= p * (estimates[i] + pruneMargin * (remaining - 1));
+            if (i + 1 < draws.size() && expected + bound <= alpha) {
+                // 残りの分岐が全て見積もりの上限でも alpha に届かない
+                chanceCutoffs.incrementAndGet();
+                return expected + bound;
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * ミノが出た直後の局面の価値 (残り remaining 手を最善に指した場合)。
+     */
+    private double maxValue(Node node, int remaining) {
+        if (remaining == 1) {
+            List<LandingSpot> beam = expand(node);
+            return beam.isEmpty() ? GAME_OVER_VALUE : beam.get(0).aiScore;
+        }
+        NodeKey key = keyOf(node, remaining);
+        Double cached = table.get(key);
+        if (cached != null) {
+            tableHits.incrementAndGet();
+            return cached;
+        }
+        List<LandingSpot> beam = expand(node);
+        double best = beam.isEmpty() ? GAME_OVER_VALUE : Double.NEGATIVE_INFINITY;
+        for (LandingSpot move : beam) {
+            double value = HeuristicEvaluator.moveReward(move) + chanceValue(node, move, remaining - 1, best);
+            best = Math.max(best, value);
+        }
+        table.put(key, best);
+        return best;
+    }
+
+    /**
+     * 局面で指せる手を生成し、事前スコアの上位 beamWidth 手を返します (結果は置換表に保存)。
+     * 各手の aiScore には「その手の結果 + 着地後の盤面」のスコアが入っています。
+     */
+    private List<LandingSpot> expand(Node node) {
+        if (System.nanoTime() > deadline) throw TIME_UP;
+        NodeKey key = keyOf(node, 0);
+        List<LandingSpot> cached = expansions.get(key);
+        if (cached != null) {
+            tableHits.incrementAndGet();
+            return cached;
+        }
+        nodeCount.incrementAndGet();
+        List<LandingSpot> ranked = HeuristicEvaluator.rank(MoveGenerator.generate(toSnapshot(node)));
+        List<LandingSpot> beam = List.copyOf(ranked.subList(0, Math.min(beamWidth, ranked.size())));
+        expansions.put(key, beam);
+        return beam;
+    }
+
+    /**
+     * 見えているミノ known と袋の残り bag から、次に出るミノの候補を返します。
+     * 見えているミノがあればそれが確率1で出ます。なければ袋の残り (空なら新しい袋の7種) から等確率です。
+     */
+    private static List<Draw> nextDraws(List<Shape.Tetrominoes> known, List<Shape.Tetrominoes> bag) {
+        if (!known.isEmpty()) {
+            return List.of(new Draw(known.get(0), 1.0, known.subList(1, known.size()), bag));
+        }
+        List<Shape.Tetrominoes> pool = bag.isEmpty() ? ALL_SHAPES : bag;
+        List<Draw> draws = new ArrayList<>(pool.size());
+        for (Shape.Tetrominoes shape : pool) {
+            List<Shape.Tetrominoes> rest = new ArrayList<>(pool);
+            rest.remove(shape);
+            draws.add(new Draw(shape, 1.0 / pool.size(), List.of(), List.copyOf(rest)));
+        }
+        return draws;
+    }
+
+    private static GameSnapshot toSnapshot(Node node) {
+        int[] spawn = SPAWN.get(node.current());
+        List<Shape.Tetrominoes> known = node.known();
+        List<Shape.Tetrominoes> next = known.subList(0, Math.min(5, known.size()));
+        Shape.Tetrominoes sixth = (known.size() > 5) ? known.get(5) : null;
+        return new GameSnapshot(0, 0, node.board(), node.current(), spawn[0], spawn[1], 0,
+            node.hold(), next, sixth, List.of(), true,
+            node.pendingGarbage(), node.combo(), node.b2b(), 0, false);
+    }
+
+    private static NodeKey keyOf(Node node, int remaining) {
+        return new NodeKey(node.board().toRowBits(), node.current(), node.hold(), List.copyOf(node.known()),
+            node.bag(), node.combo(), node.b2b(), node.pendingGarbage(), remaining);
+    }
+
+    /** 展開した局面の数 */
+    public long getNodeCount() { return nodeCount.get(); }
+    /** 置換表から結果を再利用した回数 */
+    public long getTableHits() { return tableHits.get(); }
+    /** 見込みがないとして打ち切った、見えないミノの分岐の数 */
+    public long getChanceCutoffs() { return chanceCutoffs.get(); }
+}
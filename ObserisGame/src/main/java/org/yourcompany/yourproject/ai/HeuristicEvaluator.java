@@ -0,0 +1,165 @@
+package org.yourcompany.yourproject.ai;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.yourcompany.yourproject.config.SpinType;
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.GameSnapshot;
+
+/**
+ * モデル不要の手作り特徴量による評価関数。
+ * 高さ・穴・凸凹・井戸・Tスロット・火力の線形和で盤面を評価します。
+ * ネイティブコードを使わず高速なので、大量の自己対戦や負荷試験、推論失敗時のフォールバックに使います。
+ */
+public class HeuristicEvaluator implements Evaluator {
+
+    /** Title のモデル選択に表示する名前 */
+    public static final String MODEL_NAME = "HEURISTIC (no model)";
+
+    private static final int H = Board.TOTAL_BOARD_HEIGHT;
+    private static final int W = Board.BOARD_WIDTH;
+    private static final int FULL_ROW = (1 << W) - 1;
+
+    // --- 重み (盤面形状) ---
+    private static final double W_AGGREGATE_HEIGHT = -0.51;
+    private static final double W_DANGER_HEIGHT = -1.5;   // 高さ DANGER_HEIGHT を超えた1段ごと
+    private static final int DANGER_HEIGHT = 12;
+    private static final double W_HOLES = -3.0;
+    private static final double W_BUMPINESS = -0.18;
+    private static final double W_WELLS = -0.5;           // 一番深い井戸以外の井戸の深さ
+    private static final double W_T_SLOT = 1.5;
+    // --- 重み (その手の結果) ---
+    private static final double W_ATTACK = 2.0;
+    private static final double W_BURN = -0.4;            // 火力にならないライン消去
+    private static final double W_T_SPIN = 1.5;
+    private static final double W_B2B = 1.0;
+    private static final double W_COMBO = 0.5;
+    private static final double W_PENDING_GARBAGE = -0.8;
+
+    @Override
+    public void evaluate(List<LandingSpot> moves, GameSnapshot myState, GameSnapshot opponentState) {
+        for (LandingSpot spot : moves) {
+            spot.aiScore = score(spot);
+        }
+    }
+
+    @Override
+    public String getName() { return MODEL_NAME; }
+
+    /**
+     * 候補手1つを評価します (他のクラスからの事前スコア計算にも使えるよう static)。
+     */
+    public static double score(LandingSpot spot) {
+        return boardScore(spot.futureBoard.toRowBits()) + moveReward(spot);
+    }
+
+    /**
+     * 候補手の評価のうち、盤面の形状によらない「その手の結果」(火力・スピン・コンボなど) の部分。
+     * 先読みで、途中の手の結果を積み上げるのに使います。
+     */
+    public static double moveReward(LandingSpot spot) {
+        double score = 0;
+        score += W_ATTACK * spot.attackPower;
+        if (spot.attackPower == 0 && spot.linesCleared > 0 && spot.spinType == SpinType.NONE) {
+            score += W_BURN * spot.linesCleared;
+        }
+        if (spot.spinType != SpinType.NONE) score += W_T_SPIN;
+        if (spot.b2bActiveAfter) score += W_B2B;
+        if (spot.comboCountAfter > 0) score += W_COMBO * spot.comboCountAfter;
+        score += W_PENDING_GARBAGE * spot.pendingGarbageAfter;
+        return score;
+    }
+
+    /**
+     * 全候補を評価して、スコアの高い順に並べたリストを返します (ゲームオーバーになる手は除く)。
+     */
+    public static List<LandingSpot> rank(List<LandingSpot> moves) {
+        List<LandingSpot> ranked = new ArrayList<>(moves.size());
+        for (LandingSpot spot : moves) {
+            if (spot.isGameOver) continue; // ゲームオーバーになる手は評価するまでもない
+            spot.aiScore = score(spot);
+            ranked.add(spot);
+        }
+        ranked.sort(Comparator.comparingDouble((LandingSpot s) -> s.aiScore).reversed());
+        return ranked;
+    }
+
+    /**
+     * 盤面の形状だけを評価します。
+     * @param rows 行ビット列 (Board#toRowBits)
+     */
+    public static double boardScore(int[] rows) {
+        int[] heights = new int[W];
+        int covered = 0; // これまでに上に何かが積まれている列
+        int holes = 0;
+        for (int y = 0; y < H; y++) {
+            int row = rows[y];
+            int newlyCovered = row & ~covered;
+            while (newlyCovered != 0) {
+                int x = Integer.numberOfTrailingZeros(newlyCovered);
+                newlyCovered &= newlyCovered - 1;
+                heights[x] = H - y;
+            }
+            holes += Integer.bitCount(covered & ~row & FULL_ROW);
+            covered |= row;
+        }
+
+        int aggregateHeight = 0;
+        int maxHeight = 0;
+        int bumpiness = 0;
+        int wellSum = 0;
+        int deepestWell = 0;
+        for (int x = 0; x < W; x++) {
+            aggregateHeight += heights[x];
+            maxHeight = Math.max(maxHeight, heights[x]);
+            if (x + 1 < W) bumpiness += Math.abs(heights[x] - heights[x + 1]);
+
+            int left = (x == 0) ? H : heights[x - 1];
+            int right = (x == W - 1) ? H : heights[x + 1];
+            int depth = Math.min(left, right) - heights[x];
+            if (depth > 0) {
+                wellSum += depth;
+                deepestWell = Math.max(deepestWell, depth);
+            }
+        }
+
+        double score = 0;
+        score += W_AGGREGATE_HEIGHT * aggregateHeight;
+        score += W_DANGER_HEIGHT * Math.max(0, maxHeight - DANGER_HEIGHT);
+        score += W_HOLES * holes;
+        score += W_BUMPINESS * bumpiness;
+        score += W_WELLS * (wellSum - deepestWell);
+        score += W_T_SLOT * Math.min(countTSlots(rows, heights), 2);
+        return score;
+    }
+
+    /**
+     * T-Spin を入れられる形 (Tスロット) の数を数えます。
+     * 中心とその左右・真下が空き、真下の左右が埋まり、上の2隅のうち片方だけが埋まっている形。
+     */
+    private static int countTSlots(int[] rows, int[] heights) {
+        int count = 0;
+        for (int x = 1; x < W - 1; x++) {
+            // Tスロットの中心は、その列の表面のすぐ上 (天井の下の空間) にできる
+            int maxNeighbor = Math.max(heights[x - 1], heights[x + 1]);
+            for (int y = H - maxNeighbor; y < H - 1; y++) {
+                if (y <= 0) continue;
+                if (isFilled(rows, x, y) || isFilled(rows, x - 1, y) || isFilled(rows, x + 1, y)) continue;
+                if (isFilled(rows, x, y + 1)) continue;
+                if (!isFilled(rows, x - 1, y + 1) || !isFilled(rows, x + 1, y + 1)) continue;
+                boolean topLeft = isFilled(rows, x - 1, y - 1);
+                boolean topRight = isFilled(rows, x + 1, y - 1);
+                if (topLeft != topRight && !isFilled(rows, x, y - 1)) count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isFilled(int[] rows, int x, int y) {
+        if (x < 0 || x >= W || y >= H) return true;
+        if (y < 0) return false;
+        return (rows[y] & (1 << x)) != 0;
+    }
+}
@@ -0,0 +1,222 @@
+package org.yourcompany.yourproject.ai;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.yourcompany.yourproject.config.AIConfig;
+
+import ai.onnxruntime.OrtException;
+
+/**
+ * 同じモデルを使う全てのAI (複数の対戦を含む) の推論要求をまとめて、1回の ONNX 呼び出しで実行するクラス。
+ *
+ * モデルごとに1つのセッションと1本のディスパッチスレッドを持ちます。
+ * ディスパッチスレッドは要求を受け取ると、他の利用者の要求が届くのを短い時間
+ * (AIConfig.INFERENCE_BATCH_WINDOW_MICROS) だけ待ち、集まった要求を連結して推論し、結果を各要求へ配ります。
+ * 直近に推論を要求した利用者が全員そろった時点で待たずに実行するため、AIが1体だけなら遅延は増えません。
+ */
+public final class InferenceBroker {
+
+    // この時間以上要求がない利用者は「いない」ものとして扱う
+    private static final long CLIENT_IDLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Map<String, InferenceBroker> BROKERS = new ConcurrentHashMap<>();
+
+    private record Request(Object client, float[] boards, float[] features, int batchSize,
+                           CompletableFuture<float[]> result) {}
+
+    private final OnnxModel model;
+    private final Thread dispatcher;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Map<Object, Long> lastSeenByClient = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    // --- 統計 ---
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong runCount = new AtomicLong();
+
+    private InferenceBroker(OnnxModel model) {
+        this.model = model;
+        this.dispatcher = new Thread(this::dispatchLoop, "inference-broker-" + model.getName());
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * モデル名に対応する (JVM 内で共有される) ブローカーを返します。初回はモデルをロードします。
+     */
+    public static InferenceBroker forModel(String modelResourceName) {
+        return BROKERS.computeIfAbsent(modelResourceName, name -> {
+            try {
+                return new InferenceBroker(OnnxModel.fromResource(name));
+            } catch (Exception e) {
+                e.printStackTrace();
+                throw new RuntimeException("Failed to load model: " + name, e);
+            }
+        });
+    }
+
+    /**
+     * ロード済みのモデル用に、共有しない (モデル名で登録されない) ブローカーを作ります。
+     * 対局中に差し替えるモデルなど、使い終わったら {@link #close()} で解放するものに使います。
+     */
+    public static InferenceBroker standalone(OnnxModel model) {
+        return new InferenceBroker(model);
+    }
+
+    /**
+     * ディスパッチスレッドを止めてセッションを閉じます (standalone で作ったブローカー用)。
+     * 処理待ちの要求は失敗として完了します。
+     * セッションはディスパッチスレッドが実行中の推論を終えて抜けるときに閉じるので、推論中に閉じることはありません。
+     */
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // 待つのをやめても、セッションはディスパッチスレッドが閉じる
+        }
+        List<Request> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        for (Request r : pending) r.result().completeExceptionally(new IllegalStateException("Broker closed"));
+    }
+
+    /**
+     * 推論を要求し、結果が出るまで待ちます。
+     * @param client 要求元 (利用者の数え上げに使う。通常は評価関数のインスタンス)
+     * @param boards [N, 2, 40, 10]
+     * @param features [N, 72]
+     * @return 各局面の評価値 (長さ N)
+     * @throws OrtException 推論に失敗した場合
+     */
+    public float[] infer(Object client, float[] boards, float[] features, int batchSize) throws OrtException {
+        if (closed) throw new IllegalStateException("Broker closed: " + model.getName());
+        Request request = new Request(client, boards, features, batchSize, new CompletableFuture<>());
+        lastSeenByClient.put(client, System.nanoTime());
+        requestCount.incrementAndGet();
+        queue.add(request);
+        try {
+            return request.result().get();
+        } catch (InterruptedException e) {
+            // 取り消された評価 (締め切りに間に合わなかった段階) の要求は、まだ始まっていなければ推論しない
+            queue.remove(request);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for inference", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof OrtException ortException) throw ortException;
+            throw new IllegalStateException("ONNX inference failed", e.getCause());
+        }
+    }
+
+    private void dispatchLoop() {
+        List<Request> batch = new ArrayList<>();
+        try {
+            while (!closed) {
+                try {
+                    batch.add(queue.take());
+                    gatherMore(batch);
+                    runBatch(batch);
+                } catch (InterruptedException e) {
+                    // close(): 集めかけの要求は失敗として返す
+                    for (Request r : batch) r.result().completeExceptionally(new IllegalStateException("Broker closed"));
+                    return;
+                } finally {
+                    batch.clear();
+                }
+            }
+        } finally {
+            // このスレッドがセッションを使い終わってから閉じる (close() の後。予期しない例外で抜けた場合も)
+            closed = true;
+            closeModel();
+        }
+    }
+
+    private void closeModel() {
+        try {
+            model.close();
+        } catch (OrtException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 他の利用者の要求が届くまで、時間枠の中で待つ。
+     */
+    private void gatherMore(List<Request> batch) throws InterruptedException {
+        queue.drainTo(batch);
+        long windowNanos = AIConfig.INFERENCE_BATCH_WINDOW_MICROS * 1_000L;
+        if (windowNanos <= 0) return;
+
+        long deadline = System.nanoTime() + windowNanos;
+        while (countClients(batch) < activeClientCount()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+            Request next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+            queue.drainTo(batch);
+        }
+    }
+
+    private static int countClients(List<Request> batch) {
+        return (int) batch.stream().map(Request::client).distinct().count();
+    }
+
+    private int activeClientCount() {
+        long now = System.nanoTime();
+        lastSeenByClient.values().removeIf(lastSeen -> now - lastSeen > CLIENT_IDLE_NANOS);
+        return lastSeenByClient.size();
+    }
+
+    /**
+     * 集まった要求を連結して1回で推論し、結果を配る。
+     */
+    private void runBatch(List<Request> batch) {
+        int total = 0;
+        for (Request r : batch) total += r.batchSize();
+        try {
+            float[] values;
+            if (batch.size() == 1) {
+                Request only = batch.get(0);
+                values = model.run(FloatBuffer.wrap(only.boards()), FloatBuffer.wrap(only.features()), total);
+            } else {
+                FloatBuffer boards = FloatBuffer.allocate(total * 2 * TensorEncoder.BOARD_PLANE_SIZE);
+                FloatBuffer features = FloatBuffer.allocate(total * TensorEncoder.FEATURE_INPUT_SIZE);
+                for (Request r : batch) {
+                    boards.put(r.boards(), 0, r.batchSize() * 2 * TensorEncoder.BOARD_PLANE_SIZE);
+                    features.put(r.features(), 0, r.batchSize() * TensorEncoder.FEATURE_INPUT_SIZE);
+                }
+                boards.flip();
+                features.flip();
+                values = model.run(boards, features, total);
+            }
+            runCount.incrementAndGet();
+
+            int offset = 0;
+            for (Request r : batch) {
+                float[] part = new float[r.batchSize()];
+                System.arraycopy(values, offset, part, 0, part.length);
+                offset += part.length;
+                r.result().complete(part);
+            }
+        } catch (Exception e) {
+            for (Request r : batch) r.result().completeExceptionally(e);
+        }
+    }
+
+    public String getModelName() { return model.getName(); }
+    /** 受け付けた推論要求の数 */
+    public long getRequestCount() { return requestCount.get(); }
+    /** 実際に ONNX Runtime を呼び出した回数 (要求数との比がまとめられた度合い) */
+    public long getRunCount() { return runCount.get(); }
+}
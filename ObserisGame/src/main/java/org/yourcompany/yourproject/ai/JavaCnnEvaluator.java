@@ -0,0 +1,63 @@
+package org.yourcompany.yourproject.ai;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.GameSnapshot;
+import org.yourcompany.yourproject.model.Shape;
+
+/**
+ * 純Java推論 ({@link JavaCnnModel}) で候補手を評価する評価関数。
+ * 盤面は float に展開せず、行ビット列のまま評価します。
+ */
+public class JavaCnnEvaluator implements Evaluator {
+
+    private static final int[] EMPTY_ROWS = new int[Board.TOTAL_BOARD_HEIGHT];
+
+    private final String name;
+    private final JavaCnnModel model;
+
+    public JavaCnnEvaluator(String name, JavaCnnModel model) {
+        this.name = name;
+        this.model = model;
+    }
+
+    @Override
+    public void evaluate(List<LandingSpot> moves, GameSnapshot myState, GameSnapshot opponentState) {
+        int[] opponentRows = (opponentState != null) ? opponentState.board().toRowBits() : EMPTY_ROWS;
+        List<Shape.Tetrominoes> opponentQueue = (opponentState != null) ? opponentState.nextQueue() : null;
+        float opponentGarbage = (opponentState != null) ? (float) opponentState.pendingGarbage() : 0.0f;
+
+        float[] features = new float[TensorEncoder.FEATURE_INPUT_SIZE];
+        FloatBuffer featureView = FloatBuffer.wrap(features);
+        ThinkTimings timings = ThinkTimings.current(); // 思考の計測中だけ、入力の作成と推論の時間を分けて測る
+        long encodingNanos = 0;
+        long inferenceNanos = 0;
+        for (LandingSpot spot : moves) {
+            checkCancelled();
+            long encodeStart = (timings != null) ? System.nanoTime() : 0;
+            TensorEncoder.fillFeatures(featureView, 0, spot, opponentQueue, opponentGarbage);
+            int[] rows = spot.futureBoard.toRowBits();
+            long inferStart = (timings != null) ? System.nanoTime() : 0;
+            spot.aiScore = model.evaluate(rows, opponentRows, features, 0);
+            if (timings != null) {
+                encodingNanos += inferStart - encodeStart;
+                inferenceNanos += System.nanoTime() - inferStart;
+            }
+        }
+        if (timings != null) {
+            timings.addEncoding(encodingNanos);
+            timings.addInference(inferenceNanos, moves.size());
+        }
+    }
+
+    /** 締め切りに間に合わずに取り消された (推論スレッドに割り込まれた) 評価は途中でやめる */
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) throw new CancellationException("evaluation cancelled");
+    }
+
+    @Override
+    public String getName() { return name + " (java)"; }
+}
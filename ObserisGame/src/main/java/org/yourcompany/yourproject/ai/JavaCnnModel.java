@@ -0,0 +1,324 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.profiling.ModelLoadEvent;
+
+/**
+ * TetrisCNN_v2 (PythonAITrainer/model.py) の順伝播を純Javaで実行する推論エンジン。
+ * export_onnx.py が出力した重み (BatchNorm は Conv に畳み込み済み) を {@link OnnxWeights} で読み込みます。
+ *
+ * 盤面入力は 0/1 の二値なので、1層目の畳み込みは「埋まっているセルの重みを足し込む」だけで計算でき、
+ * float への展開なしに行ビット列 (Board#toRowBits) から直接評価できます。
+ * 内側のループは出力チャンネル方向に連続した配列を走査する形にしてあり、JIT の自動ベクトル化 (SIMD) が効きます。
+ */
+public final class JavaCnnModel {
+
+    private static final int H = Board.TOTAL_BOARD_HEIGHT;   // 40
+    private static final int W = Board.BOARD_WIDTH;          // 10
+    private static final int C1 = 32, K1 = 5;                // conv1: 2 -> 32, 5x5, pad 2
+    private static final int C2 = 64, K2 = 3;                // conv2: 32 -> 64, 3x3, pad 1
+    private static final int H1 = H / 2, W1 = W / 2;         // pool1 後: 20 x 5
+    private static final int H2 = H1 / 2, W2 = W1 / 2;       // pool2 後: 10 x 2
+    private static final int CONV2_W = W2 * 2;               // pool2 で使われる conv2 の列数 (4)
+    private static final int CONV_OUT = C2 * H2 * W2;        // 1280
+    private static final int F1 = 64, F2 = 32;
+    private static final int HIDDEN = 256;
+    public static final int FEATURE_SIZE = 72;
+
+    // モデル名ごとに共有するインスタンス (重みは読み取り専用、作業領域はスレッドごとなので共有できる)
+    private static final Map<String, JavaCnnModel> SHARED = new ConcurrentHashMap<>();
+
+    // 転置済みの重み (内側ループが出力チャンネル方向に連続するよう並べ替え)
+    private final float[] conv1W;   // [c][ky][kx][o]
+    private final float[] conv1B;
+    private final float[] conv2W;   // [ky][kx][c][o]
+    private final float[] conv2B;
+    private final float[] feat1W;   // [in][out]
+    private final float[] feat1B;
+    private final float[] feat2W;   // [in][out]
+    private final float[] feat2B;
+    private final float[] comb1W;   // [in(HWC順)][out]
+    private final float[] comb1B;
+    private final float[] comb2W;
+    private final float comb2B;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public JavaCnnModel(OnnxWeights weights) {
+        float[] c1 = expect(weights, "conv1.weight", C1, 2, K1, K1);
+        conv1W = new float[2 * K1 * K1 * C1];
+        for (int o = 0; o < C1; o++)
+            for (int c = 0; c < 2; c++)
+                for (int k = 0; k < K1 * K1; k++)
+                    conv1W[(c * K1 * K1 + k) * C1 + o] = c1[(o * 2 + c) * K1 * K1 + k];
+        conv1B = expect(weights, "conv1.bias", C1);
+
+        float[] c2 = expect(weights, "conv2.weight", C2, C1, K2, K2);
+        conv2W = new float[K2 * K2 * C1 * C2];
+        for (int o = 0; o < C2; o++)
+            for (int c = 0; c < C1; c++)
+                for (int k = 0; k < K2 * K2; k++)
+                    conv2W[(k * C1 + c) * C2 + o] = c2[(o * C1 + c) * K2 * K2 + k];
+        conv2B = expect(weights, "conv2.bias", C2);
+
+        feat1W = transpose(expect(weights, "fc_features1.weight", F1, FEATURE_SIZE), F1, FEATURE_SIZE);
+        feat1B = expect(weights, "fc_features1.bias", F1);
+        feat2W = transpose(expect(weights, "fc_features2.weight", F2, F1), F2, F1);
+        feat2B = expect(weights, "fc_features2.bias", F2);
+
+        // PyTorch の view は CHW 順 (o*20 + y*2 + x)。こちらの pool2 出力は HWC 順なので行を並べ替える
+        float[] fc1 = expect(weights, "fc_combined1.weight", HIDDEN, CONV_OUT + F2);
+        comb1W = new float[(CONV_OUT + F2) * HIDDEN];
+        for (int j = 0; j < HIDDEN; j++) {
+            for (int o = 0; o < C2; o++) {
+                for (int s = 0; s < H2 * W2; s++) {
+                    comb1W[(s * C2 + o) * HIDDEN + j] = fc1[j * (CONV_OUT + F2) + o * H2 * W2 + s];
+                }
+            }
+            for (int k = 0; k < F2; k++) {
+                comb1W[(CONV_OUT + k) * HIDDEN + j] = fc1[j * (CONV_OUT + F2) + CONV_OUT + k];
+            }
+        }
+        comb1B = expect(weights, "fc_combined1.bias", HIDDEN);
+        comb2W = expect(weights, "fc_combined2.weight", 1, HIDDEN);
+        comb2B = expect(weights, "fc_combined2.bias", 1)[0];
+    }
+
+    public static JavaCnnModel fromResource(String modelResourceName) throws IOException {
+        ModelLoadEvent event = new ModelLoadEvent();
+        event.begin();
+        JavaCnnModel model = new JavaCnnModel(OnnxWeights.fromResource(modelResourceName));
+        if (event.shouldCommit()) {
+            event.model = modelResourceName;
+            event.backend = "java";
+            event.source = "resource";
+            event.commit();
+        }
+        return model;
+    }
+
+    /**
+     * モデル名に対応する (JVM 内で共有される) インスタンスを返します。初回は重みを読み込みます。
+     */
+    public static JavaCnnModel shared(String modelResourceName) throws IOException {
+        try {
+            return SHARED.computeIfAbsent(modelResourceName, name -> {
+                try {
+                    return fromResource(name);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * ONNX モデルと同じレイアウトの入力 ([N, 2, 40, 10] と [N, 72]) をまとめて評価します。
+     * 盤面は 0.5 以上を「埋まっている」とみなします。
+     */
+    public float[] evaluate(float[] boardInput, float[] featureInput, int batchSize) {
+        float[] out = new float[batchSize];
+        int plane = H * W;
+        int[] mine = new int[H];
+        int[] opp = new int[H];
+        for (int i = 0; i < batchSize; i++) {
+            planeToRows(boardInput, i * 2 * plane, mine);
+            planeToRows(boardInput, i * 2 * plane + plane, opp);
+            out[i] = evaluate(mine, opp, featureInput, i * FEATURE_SIZE);
+        }
+        return out;
+    }
+
+    /**
+     * 行ビット列から直接1局面を評価します (float 盤面への展開なし)。
+     * @param myRows 自分の盤面 (チャンネル0)
+     * @param oppRows 相手の盤面 (チャンネル1)
+     * @param features 特徴量配列
+     * @param featureOffset features 内の開始位置 (72要素)
+     * @return 盤面の価値 V(s)
+     */
+    public float evaluate(int[] myRows, int[] oppRows, float[] features, int featureOffset) {
+        Scratch s = scratch.get();
+
+        // --- conv1 (相手盤面の寄与はバッチ内で共通なのでキャッシュする) ---
+        if (!Arrays.equals(s.cachedOppRows, oppRows)) {
+            System.arraycopy(oppRows, 0, s.cachedOppRows, 0, H);
+            for (int p = 0; p < H * W; p++) System.arraycopy(conv1B, 0, s.oppConv1, p * C1, C1);
+            scatterConv1(oppRows, 1, s.oppConv1);
+        }
+        float[] acc1 = s.conv1;
+        System.arraycopy(s.oppConv1, 0, acc1, 0, acc1.length);
+        scatterConv1(myRows, 0, acc1);
+
+        // --- ReLU + MaxPool(2) ---
+        float[] p1 = s.pool1;
+        for (int py = 0; py < H1; py++) {
+            for (int px = 0; px < W1; px++) {
+                int a = ((2 * py) * W + 2 * px) * C1;
+                int b = a + C1;
+                int c = a + W * C1;
+                int d = c + C1;
+                int dst = (py * W1 + px) * C1;
+                for (int o = 0; o < C1; o++) {
+                    float m = Math.max(Math.max(acc1[a + o], acc1[b + o]), Math.max(acc1[c + o], acc1[d + o]));
+                    p1[dst + o] = Math.max(m, 0f);
+                }
+            }
+        }
+
+        // --- conv2 (pool2 で捨てられる最右列は計算しない) ---
+        float[] acc2 = s.conv2;
+        for (int y = 0; y < H1; y++) {
+            for (int x = 0; x < CONV2_W; x++) {
+                int dst = (y * CONV2_W + x) * C2;
+                System.arraycopy(conv2B, 0, acc2, dst, C2);
+                for (int ky = 0; ky < K2; ky++) {
+                    int iy = y + ky - 1;
+                    if (iy < 0 || iy >= H1) continue;
+                    for (int kx = 0; kx < K2; kx++) {
+                        int ix = x + kx - 1;
+                        if (ix < 0 || ix >= W1) continue;
+                        int src = (iy * W1 + ix) * C1;
+                        int wBase = (ky * K2 + kx) * C1 * C2;
+                        for (int c = 0; c < C1; c++) {
+                            float v = p1[src + c];
+                            if (v == 0f) continue;
+                            int w = wBase + c * C2;
+                            for (int o = 0; o < C2; o++) acc2[dst + o] += v * conv2W[w + o];
+                        }
+                    }
+                }
+            }
+        }
+
+        // --- ReLU + MaxPool(2) -> [10, 2, 64] (HWC) ---
+        float[] p2 = s.pool2;
+        for (int py = 0; py < H2; py++) {
+            for (int px = 0; px < W2; px++) {
+                int a = ((2 * py) * CONV2_W + 2 * px) * C2;
+                int b = a + C2;
+                int c = a + CONV2_W * C2;
+                int d = c + C2;
+                int dst = (py * W2 + px) * C2;
+                for (int o = 0; o < C2; o++) {
+                    float m = Math.max(Math.max(acc2[a + o], acc2[b + o]), Math.max(acc2[c + o], acc2[d + o]));
+                    p2[dst + o] = Math.max(m, 0f);
+                }
+            }
+        }
+
+        // --- 特徴量ブランチ (72 -> 64 -> 32) ---
+        float[] f1 = s.feat1;
+        System.arraycopy(feat1B, 0, f1, 0, F1);
+        for (int i = 0; i < FEATURE_SIZE; i++) {
+            float v = features[featureOffset + i];
+            if (v == 0f) continue;
+            int w = i * F1;
+            for (int o = 0; o < F1; o++) f1[o] += v * feat1W[w + o];
+        }
+        float[] f2 = s.feat2;
+        System.arraycopy(feat2B, 0, f2, 0, F2);
+        for (int i = 0; i < F1; i++) {
+            float v = Math.max(f1[i], 0f);
+            if (v == 0f) continue;
+            int w = i * F2;
+            for (int o = 0; o < F2; o++) f2[o] += v * feat2W[w + o];
+        }
+
+        // --- 結合層 (1312 -> 256 -> 1) ---
+        float[] h = s.hidden;
+        System.arraycopy(comb1B, 0, h, 0, HIDDEN);
+        for (int i = 0; i < CONV_OUT; i++) {
+            float v = p2[i];
+            if (v == 0f) continue;
+            int w = i * HIDDEN;
+            for (int o = 0; o < HIDDEN; o++) h[o] += v * comb1W[w + o];
+        }
+        for (int k = 0; k < F2; k++) {
+            float v = Math.max(f2[k], 0f);
+            if (v == 0f) continue;
+            int w = (CONV_OUT + k) * HIDDEN;
+            for (int o = 0; o < HIDDEN; o++) h[o] += v * comb1W[w + o];
+        }
+        float value = comb2B;
+        for (int o = 0; o < HIDDEN; o++) value += Math.max(h[o], 0f) * comb2W[o];
+        return value;
+    }
+
+    /**
+     * 埋まっているセルごとに、そのセルが影響する出力位置へ conv1 の重みを足し込む。
+     */
+    private void scatterConv1(int[] rows, int channel, float[] acc) {
+        for (int iy = 0; iy < H; iy++) {
+            int bits = rows[iy];
+            while (bits != 0) {
+                int ix = Integer.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                for (int ky = 0; ky < K1; ky++) {
+                    int y = iy - ky + K1 / 2;
+                    if (y < 0 || y >= H) continue;
+                    for (int kx = 0; kx < K1; kx++) {
+                        int x = ix - kx + K1 / 2;
+                        if (x < 0 || x >= W) continue;
+                        int dst = (y * W + x) * C1;
+                        int w = ((channel * K1 + ky) * K1 + kx) * C1;
+                        for (int o = 0; o < C1; o++) acc[dst + o] += conv1W[w + o];
+                    }
+                }
+            }
+        }
+    }
+
+    private static void planeToRows(float[] input, int offset, int[] rows) {
+        for (int y = 0; y < H; y++) {
+            int bits = 0;
+            for (int x = 0; x < W; x++) {
+                if (input[offset + y * W + x] >= 0.5f) bits |= 1 << x;
+            }
+            rows[y] = bits;
+        }
+    }
+
+    private static float[] transpose(float[] m, int rows, int cols) {
+        float[] t = new float[rows * cols];
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+                t[c * rows + r] = m[r * cols + c];
+        return t;
+    }
+
+    private static float[] expect(OnnxWeights weights, String name, long... dims) {
+        OnnxWeights.Tensor t = weights.get(name);
+        if (!Arrays.equals(t.dims(), dims)) {
+            throw new IllegalArgumentException(name + " の形状が TetrisCNN_v2 と一致しません: "
+                + Arrays.toString(t.dims()) + " (期待値 " + Arrays.toString(dims) + ")");
+        }
+        return t.data();
+    }
+
+    /** スレッドごとの作業領域 (推論中の確保を避ける) */
+    private static final class Scratch {
+        final int[] cachedOppRows = new int[H];
+        final float[] oppConv1 = new float[H * W * C1];
+        final float[] conv1 = new float[H * W * C1];
+        final float[] pool1 = new float[H1 * W1 * C1];
+        final float[] conv2 = new float[H1 * CONV2_W * C2];
+        final float[] pool2 = new float[CONV_OUT];
+        final float[] feat1 = new float[F1];
+        final float[] feat2 = new float[F2];
+        final float[] hidden = new float[HIDDEN];
+
+        Scratch() {
+            // 初回は必ずキャッシュを作り直すよう、ありえない行データで初期化
+            Arrays.fill(cachedOppRows, -1);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.yourcompany.yourproject.ai;
+
+import java.util.List;
+
+import org.yourcompany.yourproject.config.GameAction;
+import org.yourcompany.yourproject.config.SpinType;
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.Shape;
+
+/**
+ * AIの探索で見つかった「着地点」1つ分の情報。
+ * 着地後の盤面と、その手で発生する消去・火力・コンボなどの結果を保持します。
+ * 評価値 (aiScore) は {@link Evaluator} が書き込みます。
+ */
+public class LandingSpot {
+    public final List<GameAction> path;
+    public final Board futureBoard;
+    public final int linesCleared;
+    public final SpinType spinType;
+    public final long scoreDelta; // (元のロジック: スコア)
+    public final int attackPower;
+    public final int pendingGarbageAfter;
+    public final int comboCountAfter;
+    public final boolean b2bActiveAfter;
+    public final boolean isGameOver;
+    public final boolean usedHold;
+    public final Shape.Tetrominoes pieceShape; // 置いたミノの種類
+    public final int finalX, finalY, finalRot;
+    public double aiScore = Double.NEGATIVE_INFINITY;
+    public final List<Shape.Tetrominoes> futureNextQueue;
+
+
+    public LandingSpot(List<GameAction> path, Board futureBoard, int linesCleared,
+                       SpinType spinType, long scoreDelta, int attackPower,
+                       int pendingGarbageAfter, int comboCountAfter,
+                       boolean b2bActiveAfter, boolean isGameOver, boolean usedHold,
+                       int finalX, int finalY, int finalRot,
+                       List<Shape.Tetrominoes> futureNextQueue, Shape.Tetrominoes pieceShape) {
+        this.path = path;
+        this.futureBoard = futureBoard;
+        this.linesCleared = linesCleared;
+        this.spinType = spinType;
+        this.scoreDelta = scoreDelta;
+        this.attackPower = attackPower;
+        this.pendingGarbageAfter = pendingGarbageAfter;
+        this.comboCountAfter = comboCountAfter;
+        this.b2bActiveAfter = b2bActiveAfter;
+        this.isGameOver = isGameOver;
+        this.usedHold = usedHold;
+        this.finalX = finalX;
+        this.finalY = finalY;
+        this.finalRot = finalRot;
+        this.futureNextQueue = futureNextQueue;
+        this.pieceShape = pieceShape;
+    }
+}
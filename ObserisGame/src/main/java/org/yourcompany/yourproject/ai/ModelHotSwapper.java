@@ -0,0 +1,177 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.yourcompany.yourproject.config.AIConfig;
+
+/**
+ * 対局を止めずに ONNX モデルを差し替えるクラス。
+ *
+ * 新しいモデルのロード・入力名の確認・ウォームアップは専用のスレッドで行い、準備ができてから
+ * 登録された差し替え先 (通常は AIPlayer#swapEvaluator) へ新しい評価関数を渡します。
+ * 差し替えは思考の合間に行われるので、思考の途中でロードを待つことはありません。
+ *
+ * {@link #watch(Path)} で作ると、ディレクトリに置かれた (更新された) .onnx を自動でロードします
+ * (export_onnx.py が .onnx と .onnx.data を書き終えるまで、イベントが止むのを待ってからロードする)。
+ * 差し替えで使われなくなったセッションは、実行中の推論が終わるだけの時間をおいてから閉じます。
+ */
+public final class ModelHotSwapper implements AutoCloseable {
+
+    // 最後のイベントからこの時間イベントが来なければ、書き込みが終わったとみなす
+    private static final long QUIET_MILLIS = 500;
+    // 差し替え前のセッションを閉じるまでの時間 (思考の締め切りより十分長く)
+    private static final long RETIRE_DELAY_SECONDS = 10;
+
+    private final List<Consumer<Evaluator>> targets = new CopyOnWriteArrayList<>();
+    private final Map<Path, FileTime> loadedVersions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService loader = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "model-hot-swap");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private InferenceBroker current; // このクラスが作った、今使われているブローカー (loader スレッドだけが触る)
+    private WatchService watchService;
+
+    /**
+     * ディレクトリを監視して、新しいモデルを自動で差し替えるインスタンスを作ります。
+     */
+    public static ModelHotSwapper watch(Path dir) throws IOException {
+        ModelHotSwapper swapper = new ModelHotSwapper();
+        swapper.startWatching(dir);
+        return swapper;
+    }
+
+    /**
+     * 新しい評価関数の受け取り先を登録します。受け取り先ごとに別の評価関数のインスタンスを渡します。
+     */
+    public void addTarget(Consumer<Evaluator> target) {
+        targets.add(target);
+    }
+
+    /**
+     * モデルをバックグラウンドでロードし、準備ができたら全ての受け取り先へ差し替えます。
+     * @return ロードしたモデルの名前で完了する Future (失敗時は例外で完了する。前回と同じファイルなら null)
+     */
+    public CompletableFuture<String> loadAndSwap(Path modelFile) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        loader.execute(() -> {
+            try {
+                result.complete(load(modelFile));
+            } catch (Exception e) {
+                System.err.println("モデルを差し替えられませんでした: " + modelFile + " (" + e.getMessage() + ")");
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private String load(Path modelFile) throws Exception {
+        FileTime modified = Files.getLastModifiedTime(modelFile);
+        if (modified.equals(loadedVersions.get(modelFile))) return null; // 同じ書き込みのイベントが重なった
+
+        long start = System.nanoTime();
+        OnnxModel model = OnnxModel.fromFile(modelFile); // 入力名の確認とウォームアップを含む
+        InferenceBroker broker = InferenceBroker.standalone(model);
+        for (Consumer<Evaluator> target : targets) {
+            Evaluator cnn = new OnnxEvaluator(broker);
+            target.accept((AIConfig.CANDIDATE_TOP_K > 0) ? new PruningEvaluator(cnn) : cnn);
+        }
+        loadedVersions.put(modelFile, modified);
+
+        InferenceBroker previous = current;
+        current = broker;
+        if (previous != null) {
+            loader.schedule(previous::close, RETIRE_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+        System.out.printf("Hot-swapped model %s in %.0fms%n", model.getName(), (System.nanoTime() - start) / 1e6);
+        return model.getName();
+    }
+
+    private void startWatching(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        watchService = dir.getFileSystem().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread watcher = new Thread(() -> watchLoop(dir), "model-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        System.out.println("Watching for new models in " + dir.toAbsolutePath());
+    }
+
+    private void watchLoop(Path dir) {
+        try {
+            while (true) {
+                Set<Path> touched = new LinkedHashSet<>();
+                collect(dir, watchService.take(), touched);
+                // 続けて届くイベント (.onnx の後の .onnx.data など) をまとめる
+                WatchKey key;
+                while ((key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(dir, key, touched);
+                }
+                // 複数のモデルが書かれた場合は、最後に書かれたものだけを使う
+                Path newest = null;
+                FileTime newestTime = null;
+                for (Path model : touched) {
+                    if (!Files.isRegularFile(model)) continue;
+                    FileTime time = Files.getLastModifiedTime(model);
+                    if (newestTime == null || time.compareTo(newestTime) > 0) {
+                        newest = model;
+                        newestTime = time;
+                    }
+                }
+                if (newest != null) loadAndSwap(newest);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // close() で終了
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void collect(Path dir, WatchKey key, Set<Path> touched) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+            String name = event.context().toString();
+            if (name.endsWith(".onnx.data")) {
+                name = name.substring(0, name.length() - ".data".length());
+            }
+            if (name.endsWith(".onnx")) touched.add(dir.resolve(name));
+        }
+        key.reset();
+    }
+
+    /**
+     * 監視をやめ、このクラスが作ったセッションを閉じます (差し替え済みの評価関数は使えなくなる)。
+     */
+    @Override
+    public void close() {
+        try {
+            if (watchService != null) watchService.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        loader.execute(() -> {
+            if (current != null) current.close();
+        });
+        loader.shutdown();
+    }
+}
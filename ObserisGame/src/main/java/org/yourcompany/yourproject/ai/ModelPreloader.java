@@ -0,0 +1,108 @@
+package org.yourcompany.yourproject.ai;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.yourcompany.yourproject.config.AIConfig;
+import org.yourcompany.yourproject.config.InferenceBackend;
+import org.yourcompany.yourproject.model.Board;
+
+/**
+ * モデルのロードとウォームアップを、バックグラウンドのスレッドで先に済ませておくクラス。
+ * タイトル画面でモデル一覧を出した時点で始めておけば、対戦開始時にはロード済みの共有インスタンス
+ * ({@link InferenceBroker} / {@link JavaCnnModel#shared}) がそのまま使われ、待たずに始められます。
+ *
+ * ロードは1本のスレッドで1つずつ行います (描画やゲームの邪魔をしないよう優先度は低め)。
+ * 同じモデル・同じバックエンドのロードは1回だけです。
+ */
+public final class ModelPreloader {
+
+    /** 進捗の通知先 (プリロード用のスレッドから呼ばれる) */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param modelResourceName ロードが終わったモデル
+         * @param finished 終わったモデルの数 (失敗を含む)
+         * @param total モデルの総数
+         * @param error 失敗した場合の例外 (成功なら null)
+         */
+        void onProgress(String modelResourceName, int finished, int total, Throwable error);
+    }
+
+    private static final Map<String, CompletableFuture<Void>> LOADS = new ConcurrentHashMap<>();
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "model-preloader");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private ModelPreloader() {}
+
+    /**
+     * モデルを順番にロードし、1つ終わるごとに listener へ通知します。
+     * @return 全てのロードが終わったら完了する Future (失敗したモデルがあっても正常に完了する)
+     */
+    public static CompletableFuture<Void> preloadAll(List<String> modelResourceNames, ProgressListener listener) {
+        List<String> models = modelResourceNames.stream()
+            .filter(name -> !HeuristicEvaluator.MODEL_NAME.equals(name))
+            .distinct()
+            .toList();
+        int total = models.size();
+        AtomicInteger finished = new AtomicInteger();
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[total];
+        for (int i = 0; i < total; i++) {
+            String name = models.get(i);
+            loads[i] = preload(name).handle((v, error) -> {
+                Throwable cause = (error != null && error.getCause() != null) ? error.getCause() : error;
+                if (listener != null) listener.onProgress(name, finished.incrementAndGet(), total, cause);
+                return null;
+            });
+        }
+        return CompletableFuture.allOf(loads);
+    }
+
+    /**
+     * モデル1つのロードを (まだなら) 実行待ちに加えます。
+     * @return ロードが終わったら完了する Future (失敗時は例外で完了する)
+     */
+    public static CompletableFuture<Void> preload(String modelResourceName) {
+        if (modelResourceName == null || HeuristicEvaluator.MODEL_NAME.equals(modelResourceName)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        InferenceBackend backend = AIConfig.INFERENCE_BACKEND;
+        return LOADS.computeIfAbsent(backend + ":" + modelResourceName,
+            key -> CompletableFuture.runAsync(() -> load(modelResourceName, backend), EXECUTOR));
+    }
+
+    /** モデルのロードが (現在のバックエンドで) 終わっているか */
+    public static boolean isReady(String modelResourceName) {
+        return preload(modelResourceName).isDone();
+    }
+
+    private static void load(String modelResourceName, InferenceBackend backend) {
+        long start = System.nanoTime();
+        try {
+            switch (backend) {
+                case ONNX -> InferenceBroker.forModel(modelResourceName); // ロードとウォームアップ (OnnxModel.fromResource)
+                case JAVA -> {
+                    JavaCnnModel model = JavaCnnModel.shared(modelResourceName);
+                    if (AIConfig.MODEL_WARMUP) {
+                        float[] board = new float[2 * Board.TOTAL_BOARD_HEIGHT * Board.BOARD_WIDTH];
+                        model.evaluate(board, new float[JavaCnnModel.FEATURE_SIZE], 1);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to preload model: " + modelResourceName, e);
+        }
+        System.out.printf("Preloaded %s (%s) in %.0fms%n", modelResourceName, backend,
+            (System.nanoTime() - start) / 1e6);
+    }
+}
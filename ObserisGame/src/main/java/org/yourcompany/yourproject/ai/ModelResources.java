@@ -0,0 +1,165 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * クラスパス上の ONNX モデル (.onnx と .onnx.data) をファイルとして取り出すためのユーティリティ。
+ * ONNX Runtime は外部データを「モデルと同じディレクトリ」から探すため、元の名前のまま一時ディレクトリへコピーします。
+ */
+public final class ModelResources {
+
+    /** ビルド時に生成されるモデル一覧のリソース名 (1行に1つ、.onnx と .onnx.data がそろっているモデル) */
+    public static final String MANIFEST_RESOURCE = "models.manifest";
+
+    private ModelResources() {}
+
+    /**
+     * 利用可能なモデル (.onnx) の名前を返します。
+     * ビルド時に生成した models.manifest を読むため、JAR から実行しても動作します。
+     * マニフェストが無い場合 (IDE から直接実行した場合など) は、クラスパスのディレクトリをスキャンします。
+     * @return (例: ["model_A.onnx", "model_B.onnx"])。見つからなければ空のリスト
+     */
+    public static List<String> getModelList() {
+        try (InputStream in = ModelResources.class.getClassLoader().getResourceAsStream(MANIFEST_RESOURCE)) {
+            if (in != null) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                return reader.lines()
+                    .map(String::trim)
+                    .filter(name -> !name.isEmpty() && !name.startsWith("#"))
+                    .filter(ModelResources::hasDataFile) // マニフェストが古い場合に備えて確認する
+                    .distinct()
+                    .collect(Collectors.toCollection(ArrayList::new));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("Failed to read " + MANIFEST_RESOURCE + ". Falling back to classpath scan.");
+        }
+        return scanClasspath();
+    }
+
+    /**
+     * クラスパスのルート (resources がコピーされる場所) 以下から、.data がそろっている .onnx を探します。
+     * ファイルシステム上で実行している場合にだけ動作します。
+     */
+    private static List<String> scanClasspath() {
+        try {
+            URL rootUrl = ModelResources.class.getClassLoader().getResource("");
+            if (rootUrl == null || !"file".equals(rootUrl.getProtocol())) {
+                System.err.println("Cannot scan models: no " + MANIFEST_RESOURCE + " and not running from file system.");
+                return new ArrayList<>();
+            }
+            try (Stream<Path> stream = Files.walk(Paths.get(rootUrl.toURI()), 5)) { // 5階層までスキャン
+                return stream
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(".onnx"))
+                    .filter(ModelResources::hasDataFile)
+                    .distinct()
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+            }
+        } catch (IOException | URISyntaxException e) {
+            e.printStackTrace();
+            System.err.println("Failed to scan models. Returning empty list.");
+            return new ArrayList<>();
+        }
+    }
+
+    private static boolean hasDataFile(String modelResourceName) {
+        return ModelResources.class.getClassLoader().getResource(modelResourceName + ".data") != null;
+    }
+
+    /**
+     * モデルと外部データを一時ディレクトリへコピーし、.onnx ファイルを返します。
+     * 一時ディレクトリは JVM 終了時に削除されます。
+     */
+    public static File extractToTempDir(String modelResourceName) throws IOException {
+        String dataResourceName = modelResourceName + ".data";
+
+        // 1) 一時ディレクトリを作る（名前はランダムでもOK）
+        File tempDir = Files.createTempDirectory("onnx_model_").toFile();
+        tempDir.deleteOnExit();
+
+        // 2) リソースを「元の名前」のまま一時ディレクトリへコピーする
+        File tempOnnxFile = new File(tempDir, modelResourceName);
+        File tempDataFile = new File(tempDir, dataResourceName);
+        try {
+            copyResourceToFile(modelResourceName, tempOnnxFile);
+            copyResourceToFile(dataResourceName, tempDataFile);
+        } catch (IOException e) {
+            tempOnnxFile.delete();
+            tempDataFile.delete();
+            tempDir.delete();
+            throw e;
+        }
+
+        // 3) JVM 終了時に一時ディレクトリごと削除（簡易）
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (tempDir.exists()) {
+                for (File f : tempDir.listFiles()) {
+                    f.delete();
+                }
+                tempDir.delete();
+            }
+        }));
+        return tempOnnxFile;
+    }
+
+    /**
+     * モデルの外部データ (.onnx.data) を、元の名前のまま指定のディレクトリへコピーします。
+     */
+    public static void copyDataFile(String modelResourceName, Path dir) throws IOException {
+        String dataResourceName = modelResourceName + ".data";
+        try (InputStream in = ModelResources.class.getClassLoader().getResourceAsStream(dataResourceName)) {
+            if (in == null) throw new FileNotFoundException("Resource not found: " + dataResourceName);
+            Files.copy(in, dir.resolve(dataResourceName), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * モデルと外部データの中身から SHA-256 を計算し、16進文字列で返します (キャッシュのキーに使う)。
+     */
+    public static String contentHash(String modelResourceName) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        for (String resourceName : new String[]{modelResourceName, modelResourceName + ".data"}) {
+            try (InputStream in = ModelResources.class.getClassLoader().getResourceAsStream(resourceName)) {
+                if (in == null) throw new FileNotFoundException("Resource not found: " + resourceName);
+                int n;
+                while ((n = in.read(buffer)) > 0) digest.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void copyResourceToFile(String resourceName, File dest) throws IOException {
+        try (InputStream in = ModelResources.class.getClassLoader().getResourceAsStream(resourceName)) {
+            if (in == null) throw new FileNotFoundException("Resource not found: " + resourceName);
+            Files.copy(in, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            dest.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package org.yourcompany.yourproject.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+
+import org.yourcompany.yourproject.config.GameAction;
+import org.yourcompany.yourproject.config.SpinType;
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.GameSnapshot;
+import org.yourcompany.yourproject.model.RotationSystem;
+import org.yourcompany.yourproject.model.Shape;
+import org.yourcompany.yourproject.model.Tetromino;
+
+/**
+ * スナップショットから「あり得る手」(着地点と、そこまでのキー操作) をすべて列挙するクラス。
+ * 幅優先探索で到達できる全ての位置・向きを調べ、着地後の盤面や火力を計算します。
+ * 盤面にもぐり込める隙間がない場合は探索を省き、回転・横移動・ハードドロップだけの手を直接並べます。
+ * 入力はスナップショットだけなので、ゲーム進行中の GameLogic に触れずに別スレッドから呼べます。
+ */
+public final class MoveGenerator {
+
+    private static final GameAction[] SEARCH_ACTIONS = {
+        GameAction.MOVE_LEFT, GameAction.MOVE_RIGHT, GameAction.ROTATE_LEFT,
+        GameAction.ROTATE_RIGHT, GameAction.SOFT_DROP
+    };
+
+    // --- 探索用の状態 ---
+    private record SearchState(int x, int y, int rot, GameAction lastAction) {
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SearchState that = (SearchState) o;
+            return x == that.x && y == that.y && rot == that.rot;
+        }
+        @Override
+        public int hashCode() { return Objects.hash(x, y, rot); }
+    }
+
+    private MoveGenerator() {}
+
+    /**
+     * 現在のミノ、およびホールドした場合のミノで置ける全ての手を返します。
+     * 結果が同じになる手 (O・S・Z・I ミノの向き違いや、ホールドと同じミノを置く場合など) は、
+     * 操作数の少ない1つだけを残します。
+     */
+    public static List<LandingSpot> generate(GameSnapshot state) {
+        List<LandingSpot> results = new ArrayList<>();
+
+        // 1. 現行ミノでの手 (今いる位置・向きから探索する)
+        if (state.hasCurrentPiece()) {
+            generateMovesForPiece(state, state.currentShape(),
+                state.currentX(), state.currentY(), state.currentRotation(), false, results);
+        }
+
+        // 2. ホールド可能な場合、ホールドした後の手 (出現位置から探索する)
+        if (state.canHold()) {
+            Shape.Tetrominoes holdPiece = state.holdShape();
+            Shape.Tetrominoes pieceToSimulate = (holdPiece != null) ? holdPiece
+                : (state.nextQueue().isEmpty() ? null : state.nextQueue().get(0));
+            if (pieceToSimulate != null) {
+                Tetromino spawned = new Tetromino(pieceToSimulate);
+                spawned.resetPositionAndState();
+                generateMovesForPiece(state, pieceToSimulate,
+                    spawned.getX(), spawned.getY(), 0, true, results);
+            }
+        }
+        return removeDuplicateOutcomes(state, results);
+    }
+
+    /**
+     * 着地後の状態 (盤面・ネクスト・ホールド・お邪魔・コンボ/B2B) と、評価に使う手の結果 (消去数・火力・スピン) が
+     * 全く同じ手をまとめます。評価値は必ず同じになるので、評価する数だけが減ります。
+     * 残すのは操作数 (ホールドを含む) が最も少ない手です。同じ場合は先に見つかった手を残します。
+     */
+    private static List<LandingSpot> removeDuplicateOutcomes(GameSnapshot state, List<LandingSpot> moves) {
+        Map<Outcome, Integer> indexByOutcome = new HashMap<>();
+        List<LandingSpot> unique = new ArrayList<>(moves.size());
+        for (LandingSpot move : moves) {
+            Shape.Tetrominoes holdAfter = move.usedHold ? state.currentShape() : state.holdShape();
+            Outcome outcome = new Outcome(move.futureBoard.toRowBits(), move.futureNextQueue, holdAfter,
+                move.pendingGarbageAfter, move.comboCountAfter, move.b2bActiveAfter,
+                move.linesCleared, move.attackPower, move.spinType, move.isGameOver);
+            Integer index = indexByOutcome.putIfAbsent(outcome, unique.size());
+            if (index == null) {
+                unique.add(move);
+            } else if (inputCost(move) < inputCost(unique.get(index))) {
+                unique.set(index, move);
+            }
+        }
+        return unique;
+    }
+
+    private static int inputCost(LandingSpot move) {
+        return move.path.size() + (move.usedHold ? 1 : 0);
+    }
+
+    // 重複判定用の「手を指した後の状態」(盤面は行ビット列で比較する)
+    private record Outcome(int[] rows, List<Shape.Tetrominoes> queue, Shape.Tetrominoes hold,
+                           int pendingGarbage, int combo, boolean b2b,
+                           int linesCleared, int attack, SpinType spinType, boolean gameOver) {
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Outcome that)) return false;
+            return Arrays.equals(rows, that.rows) && queue.equals(that.queue) && hold == that.hold
+                && pendingGarbage == that.pendingGarbage && combo == that.combo && b2b == that.b2b
+                && linesCleared == that.linesCleared && attack == that.attack
+                && spinType == that.spinType && gameOver == that.gameOver;
+        }
+        @Override
+        public int hashCode() {
+            return Objects.hash(Arrays.hashCode(rows), queue, hold, pendingGarbage, combo, b2b,
+                linesCleared, attack, spinType, gameOver);
+        }
+    }
+
+    private static void generateMovesForPiece(GameSnapshot state, Shape.Tetrominoes shape,
+                                              int startX, int startY, int startRot,
+                                              boolean isHoldMove, List<LandingSpot> results) {
+        if (shape == null || shape == Shape.Tetrominoes.NoShape) return;
+
+        Board currentBoard = state.board();
+        List<Shape.Tetrominoes> futureQueue = getFutureQueue(state, isHoldMove);
+        if (generateHardDropMoves(state, shape, startX, startY, startRot, isHoldMove, futureQueue, results)) {
+            return;
+        }
+        Set<SearchState> visited = new HashSet<>();
+        Queue<SearchState> queue = new LinkedList<>();
+        Map<SearchState, SearchState> parentMap = new HashMap<>();
+
+        SearchState startState = new SearchState(startX, startY, startRot, GameAction.NONE);
+
+        if (!currentBoard.isValidPosition(shape.allCoords.get(startRot), startX, startY)) {
+            LandingSpot gameOverSpot = calculateLandingResult(
+                state, currentBoard, shape, startX, startY, startRot,
+                GameAction.NONE, isHoldMove, new ArrayList<>(), futureQueue);
+            results.add(gameOverSpot);
+            return;
+        }
+
+        queue.add(startState);
+        visited.add(startState);
+        parentMap.put(startState, null);
+
+        Set<Integer> foundLandings = new HashSet<>();
+
+        while (!queue.isEmpty()) {
+            SearchState currentState = queue.poll();
+
+            int finalY = dropPiece(currentBoard, shape.allCoords.get(currentState.rot()), currentState.x(), currentState.y());
+            int landingKey = (currentState.rot() * Board.TOTAL_BOARD_HEIGHT + finalY) * 64 + (currentState.x() + 16);
+
+            if (foundLandings.add(landingKey)) {
+                results.add(calculateLandingResult(
+                    state, currentBoard, shape,
+                    currentState.x(), finalY, currentState.rot(),
+                    currentState.lastAction(), isHoldMove,
+                    reconstructPath(parentMap, currentState), futureQueue));
+            }
+
+            for (GameAction action : SEARCH_ACTIONS) {
+                tryMove(action, currentState, shape, currentBoard, queue, visited, parentMap);
+            }
+        }
+    }
+
+    /**
+     * 盤面にもぐり込める隙間がなく、ミノが積み上がりより上にいる場合の近道。
+     * このときミノが入れる空間は各列の一番上のブロックより上だけなので、どの経路で動かしても
+     * 着地点は「回転してから横移動し、ハードドロップした位置」のどれかと一致します (幅優先探索と同じ結果)。
+     * 差し込みや T-Spin があり得る場合は何も追加せずに false を返します (通常の探索を使う)。
+     */
+    private static boolean generateHardDropMoves(GameSnapshot state, Shape.Tetrominoes shape,
+                                                 int startX, int startY, int startRot, boolean isHoldMove,
+                                                 List<Shape.Tetrominoes> futureQueue, List<LandingSpot> results) {
+        Board board = state.board();
+        int[] rows = board.toRowBits();
+        int stackTop = 0;
+        while (stackTop < Board.TOTAL_BOARD_HEIGHT && rows[stackTop] == 0) stackTop++;
+
+        // 1. 隙間のチェック: 上をふさがれた空きマスは、左右も埋まっている (横から入れない) 場合だけ許す。
+        //    そのような穴は幅1の縦穴にしかならないので、入れるのは縦向きの I ミノ (高さ4以上の穴) だけ
+        final int full = (1 << Board.BOARD_WIDTH) - 1;
+        int covered = 0;
+        int[] wellDepth = new int[Board.BOARD_WIDTH];
+        for (int y = stackTop; y < Board.TOTAL_BOARD_HEIGHT; y++) {
+            int row = rows[y];
+            int holes = ~row & full & covered;
+            int sealedSides = ((row << 1) | 1) & ((row >> 1) | (1 << (Board.BOARD_WIDTH - 1)));
+            if ((holes & ~sealedSides) != 0) return false;
+            for (int x = 0; x < Board.BOARD_WIDTH; x++) {
+                wellDepth[x] = ((holes >> x) & 1) != 0 ? wellDepth[x] + 1 : 0;
+                if (wellDepth[x] >= 4 && shape == Shape.Tetrominoes.LineShape) return false;
+            }
+            covered |= row;
+        }
+
+        // 2. どの向きでも、ミノ全体が積み上がりより上にあること
+        int[] rotations = (shape == Shape.Tetrominoes.SquareShape)
+            ? new int[]{startRot}
+            : new int[]{startRot, (startRot + 1) % 4, (startRot + 2) % 4, (startRot + 3) % 4};
+        for (int rot : rotations) {
+            for (int[] p : shape.allCoords.get(rot)) {
+                if (startY + p[1] < 0 || startY + p[1] >= stackTop) return false;
+            }
+        }
+
+        // 3. 向きごとに回転 → 横移動 → ハードドロップで行ける着地点を並べる
+        List<LandingSpot> spots = new ArrayList<>();
+        for (int rot : rotations) {
+            List<GameAction> rotatePath = new ArrayList<>(2);
+            int x = startX, y = startY, r = startRot;
+            int turns = (rot - startRot + 4) % 4;
+            for (int i = 0; i < (turns == 3 ? 1 : turns); i++) {
+                boolean clockwise = turns != 3;
+                RotationSystem.RotationResult result = RotationSystem.simulateRotation(x, y, r, shape, board, clockwise);
+                if (!result.success()) return false;
+                x = result.newX(); y = result.newY(); r = result.newRot();
+                rotatePath.add(clockwise ? GameAction.ROTATE_RIGHT : GameAction.ROTATE_LEFT);
+            }
+            int[][] coords = shape.allCoords.get(rot);
+            for (int targetX = -Board.BOARD_WIDTH; targetX < 2 * Board.BOARD_WIDTH; targetX++) {
+                if (!board.isValidPosition(coords, targetX, y)) continue;
+                int finalY = dropPiece(board, coords, targetX, y);
+                // T-Spin の形 (3隅が埋まる) になる着地点は経路で判定が変わるので、通常の探索に任せる
+                if (detectSpin(board, shape, targetX, finalY, rot, true) != SpinType.NONE) return false;
+
+                List<GameAction> path = new ArrayList<>(rotatePath);
+                GameAction shift = (targetX < x) ? GameAction.MOVE_LEFT : GameAction.MOVE_RIGHT;
+                for (int i = 0; i < Math.abs(targetX - x); i++) path.add(shift);
+                GameAction lastAction = path.isEmpty() ? GameAction.NONE : path.get(path.size() - 1);
+                spots.add(calculateLandingResult(state, board, shape, targetX, finalY, rot,
+                    lastAction, isHoldMove, path, futureQueue));
+            }
+        }
+        results.addAll(spots);
+        return true;
+    }
+
+    /**
+     * その手を指した後のネクスト (5個) を返します。
+     * 空のホールドを使った場合はキューが1つずれ、6個目のミノが見えるようになります。
+     */
+    private static List<Shape.Tetrominoes> getFutureQueue(GameSnapshot state, boolean isHoldMove) {
+        List<Shape.Tetrominoes> currentQueue = state.nextQueue();
+        if (isHoldMove && state.holdShape() == null) {
+            List<Shape.Tetrominoes> shiftedQueue = new ArrayList<>(currentQueue.size());
+            for (int i = 1; i < currentQueue.size(); i++) {
+                shiftedQueue.add(currentQueue.get(i));
+            }
+            if (state.sixthPiece() != null) {
+                shiftedQueue.add(state.sixthPiece());
+            }
+            return List.copyOf(shiftedQueue);
+        }
+        // それ以外 (Holdしない / Hold交換) の場合 -> 現在のキュー
+        return currentQueue;
+    }
+
+    private static void tryMove(GameAction action, SearchState currentState, Shape.Tetrominoes shape, Board board,
+                                Queue<SearchState> queue, Set<SearchState> visited,
+                                Map<SearchState, SearchState> parentMap) {
+
+        SearchState nextState = null;
+        int[][] currentCoords = shape.allCoords.get(currentState.rot());
+
+        switch (action) {
+            case MOVE_LEFT:
+                int nxLeft = currentState.x() - 1;
+                if (board.isValidPosition(currentCoords, nxLeft, currentState.y())) {
+                    nextState = new SearchState(nxLeft, currentState.y(), currentState.rot(), action);
+                }
+                break;
+            case MOVE_RIGHT:
+                int nxRight = currentState.x() + 1;
+                if (board.isValidPosition(currentCoords, nxRight, currentState.y())) {
+                    nextState = new SearchState(nxRight, currentState.y(), currentState.rot(), action);
+                }
+                break;
+            case SOFT_DROP:
+                int nyDrop = currentState.y() + 1;
+                if (board.isValidPosition(currentCoords, currentState.x(), nyDrop)) {
+                    nextState = new SearchState(currentState.x(), nyDrop, currentState.rot(), action);
+                }
+                break;
+            case ROTATE_RIGHT:
+            case ROTATE_LEFT:
+                RotationSystem.RotationResult result = RotationSystem.simulateRotation(
+                    currentState.x(), currentState.y(), currentState.rot(),
+                    shape, board, (action == GameAction.ROTATE_RIGHT)
+                );
+                if (result.success()) {
+                    nextState = new SearchState(result.newX(), result.newY(), result.newRot(), action);
+                }
+                break;
+            default:
+                break;
+        }
+
+        if (nextState != null && !visited.contains(nextState)) {
+            visited.add(nextState);
+            parentMap.put(nextState, currentState);
+            queue.add(nextState);
+        }
+    }
+
+    private static LandingSpot calculateLandingResult(
+        GameSnapshot state,
+        Board boardBeforePlace, Shape.Tetrominoes shape,
+        int finalX, int finalY, int finalRot,
+        GameAction lastAction, boolean isHoldMove,
+        List<GameAction> path, List<Shape.Tetrominoes> futureQueue
+    ) {
+        ThinkTimings timings = ThinkTimings.current(); // 思考の計測中だけ時間を測る
+        long simulationStart = (timings != null) ? System.nanoTime() : 0;
+        Board futureBoard = new Board(boardBeforePlace);
+        Tetromino landingPiece = new Tetromino(shape);
+        landingPiece.setSimulatedState(finalX, finalY, finalRot);
+
+        boolean isGameOver = isLockedOut(landingPiece.getCoords(), finalY);
+        futureBoard.placeTetromino(landingPiece);
+
+        boolean wasRotation = (lastAction == GameAction.ROTATE_LEFT || lastAction == GameAction.ROTATE_RIGHT);
+        SpinType spinType = detectSpin(futureBoard, shape, finalX, finalY, finalRot, wasRotation);
+
+        int linesCleared = futureBoard.countFullLines();
+        if (linesCleared > 0) {
+            futureBoard.clearLines();
+        }
+
+        int currentCombo = state.comboCount();
+        boolean currentB2B = state.b2bActive();
+
+        int comboCountAfter;
+        boolean b2bActiveAfter = currentB2B;
+        int pendingGarbageAfter = state.pendingGarbage();
+        int attackPower = 0;
+        long scoreDelta = 0;
+        boolean isDifficultClear = (spinType != SpinType.NONE) || (linesCleared == 4);
+
+        if (linesCleared > 0) {
+            comboCountAfter = currentCombo + 1;
+            boolean b2bBonusApplied = currentB2B && isDifficultClear;
+
+            // ★ JavaのGameLogic が持つ火力計算ロジックを使用
+            int baseAttack = calculateAttack(linesCleared, spinType, b2bBonusApplied, comboCountAfter);
+            if (baseAttack > 0) {
+                int remainingGarbage = pendingGarbageAfter - baseAttack;
+                if (remainingGarbage < 0) {
+                    attackPower = -remainingGarbage;
+                    pendingGarbageAfter = 0;
+                } else {
+                    pendingGarbageAfter = remainingGarbage;
+                    attackPower = 0;
+                }
+            }
+
+            // ★ JavaのGameLogic が持つスコア計算ロジックを使用
+            scoreDelta = calculateScore(linesCleared, spinType);
+            if (b2bBonusApplied) scoreDelta = Math.round(scoreDelta * 1.5);
+            scoreDelta += (comboCountAfter > 0) ? 50L * comboCountAfter : 0;
+
+            b2bActiveAfter = isDifficultClear;
+
+            if (futureBoard.isBoardEmpty()) {
+                attackPower += 10;
+                scoreDelta += 3000;
+            }
+        } else {
+            comboCountAfter = -1;
+        }
+
+        LandingSpot spot = new LandingSpot(
+            path,
+            futureBoard, linesCleared, spinType,
+            scoreDelta, attackPower, pendingGarbageAfter,
+            comboCountAfter, b2bActiveAfter, isGameOver, isHoldMove,
+            finalX, finalY, finalRot, futureQueue, shape
+        );
+        if (timings != null) timings.addLanding(System.nanoTime() - simulationStart);
+        return spot;
+    }
+
+    private static int dropPiece(Board board, int[][] coords, int startX, int startY) {
+        int y = startY;
+        while (board.isValidPosition(coords, startX, y + 1)) {
+            y++;
+        }
+        return y;
+    }
+
+    private static List<GameAction> reconstructPath(Map<SearchState, SearchState> parentMap, SearchState endState) {
+        LinkedList<GameAction> path = new LinkedList<>();
+        SearchState curr = endState;
+
+        while (curr != null && parentMap.get(curr) != null) {
+            if (curr.lastAction() != GameAction.NONE) {
+                path.addFirst(curr.lastAction());
+            }
+            curr = parentMap.get(curr);
+        }
+        return path;
+    }
+
+    private static boolean isLockedOut(int[][] coords, int pieceY) {
+        int hiddenRows = Board.TOTAL_BOARD_HEIGHT - Board.VISIBLE_BOARD_HEIGHT;
+        for (int[] p : coords) {
+            if (pieceY + p[1] >= hiddenRows) return false;
+        }
+        return true;
+    }
+
+    /**
+     * その位置・向きでミノを固定したときの T-Spin 判定 (GameLogic と同じ3隅ルール)。
+     * 判定に使う4隅はミノ自身のセルと重ならないので、固定前・固定後どちらの盤面を渡してもかまいません。
+     */
+    public static SpinType detectSpin(Board board, Shape.Tetrominoes shape, int x, int y, int rotation,
+                                      boolean lastActionWasRotation) {
+        if (shape != Shape.Tetrominoes.TShape || !lastActionWasRotation) {
+            return SpinType.NONE;
+        }
+
+        int[][] corners = {{y - 1, x - 1}, {y - 1, x + 1}, {y + 1, x - 1}, {y + 1, x + 1}};
+        int occupiedCorners = 0;
+        for (int[] corner : corners) if (isOccupied(board, corner[1], corner[0])) occupiedCorners++;
+
+        if (occupiedCorners < 3) return SpinType.NONE;
+
+        int[][] frontCorners;
+        switch (rotation) {
+            case 0: frontCorners = new int[][]{{y - 1, x - 1}, {y - 1, x + 1}}; break;
+            case 1: frontCorners = new int[][]{{y - 1, x + 1}, {y + 1, x + 1}}; break;
+            case 2: frontCorners = new int[][]{{y + 1, x - 1}, {y + 1, x + 1}}; break;
+            default: frontCorners = new int[][]{{y - 1, x - 1}, {y + 1, x - 1}}; break;
+        }
+
+        int occupiedFrontCorners = 0;
+        for (int[] corner : frontCorners) if (isOccupied(board, corner[1], corner[0])) occupiedFrontCorners++;
+
+        return (occupiedFrontCorners == 2) ? SpinType.T_SPIN : SpinType.T_SPIN_MINI;
+    }
+
+    private static boolean isOccupied(Board board, int x, int y) {
+        return x < 0 || x >= Board.BOARD_WIDTH || y < 0 || y >= Board.TOTAL_BOARD_HEIGHT || board.getGridAt(x, y) != null;
+    }
+
+    // 火力とスコアの計算は、JavaのGameLogic のロジックをそのまま流用
+    private static int calculateAttack(int linesCleared, SpinType spinType, boolean isB2B, int combo) {
+        int attack = 0;
+        if (spinType == SpinType.T_SPIN) attack = linesCleared * 2;
+        else if (spinType == SpinType.T_SPIN_MINI) attack = (linesCleared == 2) ? 2 : 1;
+        else {
+            switch (linesCleared) {
+                case 1: attack = 0; break;
+                case 2: attack = 1; break;
+                case 3: attack = 2; break;
+                case 4: attack = 4; break;
+            }
+        }
+        if (isB2B && attack > 0) attack += 1;
+        if (combo >= 1) {
+            int[] comboBonus = {0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 4, 5};
+            attack += (combo < comboBonus.length) ? comboBonus[combo] : comboBonus[comboBonus.length - 1];
+        }
+        return attack;
+    }
+
+    private static long calculateScore(int linesCleared, SpinType spinType) {
+        return switch (spinType) {
+            case T_SPIN -> switch (linesCleared) {
+                case 1 -> 800; case 2 -> 1200; case 3 -> 1600; default -> 400;
+            };
+            case T_SPIN_MINI -> switch (linesCleared) {
+                case 1 -> 200; case 2 -> 400; default -> 100;
+            };
+            case NONE -> switch (linesCleared) {
+                case 1 -> 100; case 2 -> 300; case 3 -> 500; case 4 -> 800; default -> 0;
+            };
+        };
+    }
+}
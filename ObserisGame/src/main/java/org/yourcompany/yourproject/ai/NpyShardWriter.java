@@ -0,0 +1,165 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 固定長の行を列ごとの .npy ファイルに書き出すクラス (numpy.load でそのまま読める。mmap_mode='r' も可)。
+ *
+ * 1つのシャードはディレクトリ (prefix-00000 など) で、列ごとに「列名.npy」を持ちます。
+ * 各列は FileChannel への書き込みをバッファにまとめ、行数はシャードを閉じるときにヘッダへ書き込みます。
+ * シャードの大きさが上限を超えたら、{@link #rotateIfFull()} を呼んだ時点で次のシャードへ切り替えます。
+ * 1つのスレッドから使ってください。
+ */
+public final class NpyShardWriter implements AutoCloseable {
+
+    // ヘッダの大きさ (行数の桁が増えても書き直せるように固定。64 の倍数)
+    private static final int HEADER_SIZE = 128;
+    private static final byte[] MAGIC = { (byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0 };
+    private static final int BUFFER_ROWS = 256;
+
+    /**
+     * 列の定義。
+     * @param name  列名 (ファイル名になる)
+     * @param dtype numpy の型 ("|u1", "|i1", "<f4", "<i8" など)
+     * @param shape 1行の形 (スカラーなら空)
+     */
+    public record Column(String name, String dtype, int... shape) {
+        public int rowBytes() {
+            int size = Integer.parseInt(dtype.substring(2));
+            for (int d : shape) size *= d;
+            return size;
+        }
+    }
+
+    private final Path dir;
+    private final String prefix;
+    private final List<Column> columns;
+    private final long maxShardBytes;
+    private final FileChannel[] channels;
+    private final ByteBuffer[] buffers;
+    private int shardIndex = -1;
+    private long rows;          // 今のシャードの行数
+    private long totalRows;     // 全シャードの行数
+
+    /**
+     * @param maxShardBytes シャード1つの大きさの目安 (全ての列の合計)
+     */
+    public NpyShardWriter(Path dir, String prefix, List<Column> columns, long maxShardBytes) throws IOException {
+        this.dir = dir;
+        this.prefix = prefix;
+        this.columns = List.copyOf(columns);
+        this.maxShardBytes = maxShardBytes;
+        this.channels = new FileChannel[columns.size()];
+        this.buffers = new ByteBuffer[columns.size()];
+        for (int c = 0; c < buffers.length; c++) {
+            buffers[c] = ByteBuffer.allocateDirect(columns.get(c).rowBytes() * BUFFER_ROWS).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        openShard();
+    }
+
+    /**
+     * 列 column の書き込み先を返します。1行につき、全ての列に rowBytes ずつ書き込んでから {@link #endRow()} を呼んでください。
+     */
+    public ByteBuffer column(int column) throws IOException {
+        ByteBuffer buffer = buffers[column];
+        if (buffer.remaining() < columns.get(column).rowBytes()) flush(column);
+        return buffer;
+    }
+
+    public void endRow() {
+        rows++;
+        totalRows++;
+    }
+
+    /** 今のシャードの行数 */
+    public long getRows() { return rows; }
+    /** これまでに書いた全ての行数 */
+    public long getTotalRows() { return totalRows; }
+
+    /**
+     * 今のシャードに書いた行 fromRow 以降の、列 column の値を書き換えます (1局が終わってから決まる値のため)。
+     * @param values 書き換える行の値を並べたもの (行の大きさ × 行数)
+     */
+    public void overwrite(int column, long fromRow, byte[] values) throws IOException {
+        flush(column);
+        long position = HEADER_SIZE + fromRow * columns.get(column).rowBytes();
+        ByteBuffer src = ByteBuffer.wrap(values);
+        while (src.hasRemaining()) {
+            position += channels[column].write(src, position);
+        }
+    }
+
+    /**
+     * シャードが上限を超えていたら閉じて、次のシャードを開きます。
+     */
+    public void rotateIfFull() throws IOException {
+        if (rows > 0 && rows * rowBytes() >= maxShardBytes) {
+            closeShard();
+            openShard();
+        }
+    }
+
+    private int rowBytes() {
+        int total = 0;
+        for (Column column : columns) total += column.rowBytes();
+        return total;
+    }
+
+    private void openShard() throws IOException {
+        shardIndex++;
+        Path shard = dir.resolve(String.format("%s-%05d", prefix, shardIndex));
+        Files.createDirectories(shard);
+        for (int c = 0; c < channels.length; c++) {
+            channels[c] = FileChannel.open(shard.resolve(columns.get(c).name() + ".npy"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            channels[c].write(header(columns.get(c), 0));
+        }
+        rows = 0;
+    }
+
+    private void closeShard() throws IOException {
+        for (int c = 0; c < channels.length; c++) {
+            flush(c);
+            channels[c].write(header(columns.get(c), rows), 0);
+            channels[c].close();
+        }
+    }
+
+    private void flush(int column) throws IOException {
+        ByteBuffer buffer = buffers[column];
+        buffer.flip();
+        while (buffer.hasRemaining()) channels[column].write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * .npy (版 1.0) のヘッダを作ります。行数が変わっても同じ大きさになるように空白で埋めます。
+     */
+    private static ByteBuffer header(Column column, long rows) {
+        String shape = (column.shape().length == 0)
+            ? rows + ","
+            : rows + ", " + Arrays.stream(column.shape()).mapToObj(String::valueOf).collect(Collectors.joining(", "));
+        String dict = "{'descr': '" + column.dtype() + "', 'fortran_order': False, 'shape': (" + shape + "), }";
+        int length = HEADER_SIZE - MAGIC.length - 2;
+        if (dict.length() + 1 > length) throw new IllegalStateException("npy header too long: " + dict);
+        String padded = dict + " ".repeat(length - dict.length() - 1) + "\n";
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putShort((short) length).put(padded.getBytes(StandardCharsets.US_ASCII));
+        return header.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeShard();
+    }
+}
@@ -0,0 +1,58 @@
+package org.yourcompany.yourproject.ai;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+import org.yourcompany.yourproject.model.GameSnapshot;
+
+import ai.onnxruntime.OrtException;
+
+/**
+ * CNN (ONNX Runtime) で候補手を評価する評価関数。
+ * 推論は {@link InferenceBroker} 経由で行い、同じモデルを使う他のAIの要求とまとめて実行されます。
+ */
+public class OnnxEvaluator implements Evaluator {
+
+    private final InferenceBroker broker;
+
+    public OnnxEvaluator(InferenceBroker broker) {
+        this.broker = broker;
+    }
+
+    @Override
+    public void evaluate(List<LandingSpot> moves, GameSnapshot myState, GameSnapshot opponentState) {
+        int batchSize = moves.size();
+        if (batchSize == 0) return;
+
+        // --- 1. 2つの入力テンソル用のバッファを作成 ---
+        FloatBuffer boardInputBuffer = FloatBuffer.allocate(batchSize * 2 * TensorEncoder.BOARD_PLANE_SIZE);
+        FloatBuffer featureInputBuffer = FloatBuffer.allocate(batchSize * TensorEncoder.FEATURE_INPUT_SIZE);
+
+        // --- 2. バッファにデータを充填 ---
+        ThinkTimings timings = ThinkTimings.current(); // 思考の計測中だけ時間を測る
+        long encodeStart = (timings != null) ? System.nanoTime() : 0;
+        GameSnapshot opponent = (opponentState != null) ? opponentState : GameSnapshot.EMPTY;
+        TensorEncoder.encodeMoves(moves, opponent, boardInputBuffer, featureInputBuffer);
+
+        // --- 3. モデルの実行 (バッチ推論) ---
+        long inferStart = (timings != null) ? System.nanoTime() : 0;
+        float[] values;
+        try {
+            values = broker.infer(this, boardInputBuffer.array(), featureInputBuffer.array(), batchSize);
+        } catch (OrtException e) {
+            throw new IllegalStateException("ONNX inference failed", e);
+        }
+        if (timings != null) {
+            timings.addEncoding(inferStart - encodeStart);
+            timings.addInference(System.nanoTime() - inferStart, batchSize);
+        }
+
+        // --- 4. 結果を LandingSpot に書き戻す (V(s') = CNNの評価値) ---
+        for (int i = 0; i < batchSize; i++) {
+            moves.get(i).aiScore = values[i];
+        }
+    }
+
+    @Override
+    public String getName() { return broker.getModelName(); }
+}
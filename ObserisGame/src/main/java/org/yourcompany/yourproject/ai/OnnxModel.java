@@ -0,0 +1,240 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.yourcompany.yourproject.config.AIConfig;
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.profiling.ModelLoadEvent;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+
+/**
+ * ONNX Runtime のセッションを1つ保持し、TetrisCNN_v2 形式の入力でバッチ推論を行うクラス。
+ *
+ * ロード時のグラフ最適化の結果は AIConfig.MODEL_CACHE_DIR に保存し、次回からはそれを読み込みます
+ * (キーはモデルの内容のハッシュ・ONNX Runtime の版・CPU アーキテクチャ)。
+ * また、ロード直後に代表的なバッチサイズで推論を空打ちして、最初の手を指すときの遅れをなくします。
+ */
+public final class OnnxModel implements AutoCloseable {
+
+    public static final String INPUT_BOARD = "board_tensor_input";
+    public static final String INPUT_FEATURE = "feature_tensor_input";
+
+    private final String name;
+    private final OrtEnvironment env;
+    private final OrtSession session;
+
+    private OnnxModel(String name, OrtEnvironment env, OrtSession session) {
+        this.name = name;
+        this.env = env;
+        this.session = session;
+    }
+
+    /**
+     * クラスパス上のモデルをロードします (一時ディレクトリへ展開してからセッションを生成)。
+     */
+    public static OnnxModel fromResource(String modelResourceName) throws IOException, OrtException {
+        ModelLoadEvent event = beginLoadEvent(modelResourceName, "resource");
+        // スレッド数は ComputeScheduler の CPU 予算に合わせる (全セッションで共有)
+        ComputeScheduler scheduler = ComputeScheduler.shared();
+        OrtEnvironment env = scheduler.ortEnvironment();
+        OrtSession session = openSession(env, scheduler, modelResourceName);
+        OnnxModel model = validateAndWarmUp(modelResourceName, env, session);
+        event.commit();
+        return model;
+    }
+
+    /**
+     * ファイルシステム上のモデル (export_onnx.py の出力など) をロードします。
+     * 外部データ (.onnx.data) は同じディレクトリから読み込まれます。内容が変わりうるので最適化結果はキャッシュしません。
+     */
+    public static OnnxModel fromFile(Path modelFile) throws OrtException {
+        ModelLoadEvent event = beginLoadEvent(modelFile.toString(), "file");
+        ComputeScheduler scheduler = ComputeScheduler.shared();
+        OrtEnvironment env = scheduler.ortEnvironment();
+        OrtSession session;
+        try (OrtSession.SessionOptions options = scheduler.newSessionOptions()) {
+            session = env.createSession(modelFile.toAbsolutePath().toString(), options);
+        }
+        System.out.println("ONNX v2 Model (from file) loaded: " + modelFile);
+        OnnxModel model = validateAndWarmUp(modelFile.getFileName().toString(), env, session);
+        event.commit();
+        return model;
+    }
+
+    /**
+     * ロードの JFR イベントを始めます (ロードに成功したら commit する)。
+     */
+    private static ModelLoadEvent beginLoadEvent(String model, String source) {
+        ModelLoadEvent event = new ModelLoadEvent();
+        event.model = model;
+        event.backend = "onnx";
+        event.source = source;
+        event.warmUp = AIConfig.MODEL_WARMUP;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 入力名が TetrisCNN_v2 形式か確かめてから、(設定に応じて) ウォームアップします。
+     */
+    private static OnnxModel validateAndWarmUp(String name, OrtEnvironment env, OrtSession session)
+            throws OrtException {
+        if (!session.getInputInfo().containsKey(INPUT_BOARD) ||
+            !session.getInputInfo().containsKey(INPUT_FEATURE)) {
+            session.close();
+            throw new IllegalArgumentException("モデルに入力名 " + INPUT_BOARD + " または " + INPUT_FEATURE + " が見つかりません。");
+        }
+        OnnxModel model = new OnnxModel(name, env, session);
+        if (AIConfig.MODEL_WARMUP) {
+            model.warmUp();
+        }
+        return model;
+    }
+
+    /**
+     * セッションを作ります。最適化済みモデルのキャッシュがあればそれを読み込み、
+     * なければ元のモデルを最適化して読み込みつつ、その結果をキャッシュに保存します。
+     *
+     * キャッシュは機種に依存しない段階 (EXTENDED) までの最適化結果です。読み込むときに残りの
+     * CPU 向けの最適化だけを行います。最適化済みモデルは元の .onnx.data を同じ名前で参照するので、
+     * キャッシュのディレクトリには .onnx.data も一緒に置きます。
+     */
+    private static OrtSession openSession(OrtEnvironment env, ComputeScheduler scheduler, String modelResourceName)
+            throws IOException, OrtException {
+        Path cacheEntry = optimizedModelDir(env, modelResourceName);
+        if (cacheEntry != null && Files.isRegularFile(cacheEntry.resolve(modelResourceName))) {
+            Path cachedModel = cacheEntry.resolve(modelResourceName);
+            try (OrtSession.SessionOptions options = scheduler.newSessionOptions()) {
+                OrtSession session = env.createSession(cachedModel.toString(), options);
+                System.out.println("ONNX v2 Model (optimized cache) loaded: " + modelResourceName + " <- " + cacheEntry);
+                return session;
+            } catch (OrtException e) {
+                // 壊れたキャッシュは消して作り直す
+                System.err.println("最適化済みモデルのキャッシュを読み込めませんでした: " + cacheEntry + " (" + e.getMessage() + ")");
+                deleteDirectory(cacheEntry);
+            }
+        }
+
+        Path tempEntry = null;
+        OrtSession session;
+        // オプションはセッションを作った後は不要 (ネイティブのメモリを持つので閉じる)
+        try (OrtSession.SessionOptions options = scheduler.newSessionOptions()) {
+            if (cacheEntry != null) {
+                try {
+                    Files.createDirectories(cacheEntry.getParent());
+                    tempEntry = Files.createTempDirectory(cacheEntry.getParent(), cacheEntry.getFileName() + ".tmp");
+                    ModelResources.copyDataFile(modelResourceName, tempEntry);
+                    options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.EXTENDED_OPT);
+                    options.setOptimizedModelFilePath(tempEntry.resolve(modelResourceName).toString());
+                } catch (IOException e) {
+                    System.err.println("モデルのキャッシュを作れません: " + cacheEntry + " (" + e.getMessage() + ")");
+                    if (tempEntry != null) deleteDirectory(tempEntry);
+                    tempEntry = null;
+                }
+            }
+            // ONNX Runtime は同じディレクトリにある .data を見つけられる
+            String modelPath = ModelResources.extractToTempDir(modelResourceName).getAbsolutePath();
+            session = env.createSession(modelPath, options);
+        }
+        System.out.println("ONNX v2 Model (from temp dir) loaded: " + modelResourceName);
+
+        if (tempEntry != null) {
+            // 書き終わったディレクトリだけを見えるようにする (同時に起動した別のプロセスと競合しない)
+            try {
+                if (Files.isRegularFile(tempEntry.resolve(modelResourceName)) && !Files.exists(cacheEntry)) {
+                    Files.move(tempEntry, cacheEntry, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                System.err.println("最適化済みモデルを保存できませんでした: " + cacheEntry + " (" + e.getMessage() + ")");
+            }
+            if (Files.exists(tempEntry)) deleteDirectory(tempEntry);
+        }
+        return session;
+    }
+
+    /**
+     * 最適化済みモデルのキャッシュディレクトリの場所を返します (キャッシュしない設定なら null)。
+     * キーはモデルの内容のハッシュ・ONNX Runtime の版・CPU アーキテクチャです。
+     */
+    private static Path optimizedModelDir(OrtEnvironment env, String modelResourceName) throws IOException {
+        String cacheDir = AIConfig.MODEL_CACHE_DIR;
+        if (cacheDir == null || cacheDir.isBlank()) return null;
+        String baseName = modelResourceName.endsWith(".onnx")
+            ? modelResourceName.substring(0, modelResourceName.length() - ".onnx".length())
+            : modelResourceName;
+        String key = ModelResources.contentHash(modelResourceName).substring(0, 16)
+            + "-ort" + env.getVersion() + "-" + System.getProperty("os.arch");
+        return Path.of(cacheDir, baseName + "-" + key);
+    }
+
+    private static void deleteDirectory(Path dir) {
+        try (var files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) Files.deleteIfExists(f);
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            System.err.println("ディレクトリを削除できませんでした: " + dir + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * 対局中に使うバッチサイズ (1・候補の絞り込み数・2体分) で推論を空打ちし、
+     * カーネルの選択やメモリ確保をロード時に済ませておきます。
+     */
+    public void warmUp() throws OrtException {
+        int topK = Math.max(1, AIConfig.CANDIDATE_TOP_K);
+        long start = System.nanoTime();
+        for (int batchSize : new TreeSet<>(List.of(1, topK, 2 * topK))) {
+            FloatBuffer boards = FloatBuffer.allocate(batchSize * 2 * TensorEncoder.BOARD_PLANE_SIZE);
+            FloatBuffer features = FloatBuffer.allocate(batchSize * TensorEncoder.FEATURE_INPUT_SIZE);
+            run(boards, features, batchSize);
+        }
+        System.out.printf("ONNX v2 Model warmed up: %s (%.1fms)%n", name, (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * バッチ推論を実行します。
+     * @param boardInput [N, 2, 40, 10]
+     * @param featureInput [N, 72]
+     * @return 各局面の評価値 V(s) (長さ N)
+     */
+    public float[] run(FloatBuffer boardInput, FloatBuffer featureInput, int batchSize) throws OrtException {
+        long[] boardShape = {batchSize, 2, Board.TOTAL_BOARD_HEIGHT, Board.BOARD_WIDTH};
+        long[] featureShape = {batchSize, TensorEncoder.FEATURE_INPUT_SIZE};
+
+        try (OnnxTensor boardTensor = OnnxTensor.createTensor(env, boardInput, boardShape);
+             OnnxTensor featureTensor = OnnxTensor.createTensor(env, featureInput, featureShape)) {
+            Map<String, OnnxTensor> inputs = new HashMap<>();
+            inputs.put(INPUT_BOARD, boardTensor);
+            inputs.put(INPUT_FEATURE, featureTensor);
+
+            try (OrtSession.Result result = session.run(inputs)) {
+                // (Batch, 1) の形状で出力される
+                float[][] outputValues = (float[][]) result.get(0).getValue();
+                float[] values = new float[batchSize];
+                for (int i = 0; i < batchSize; i++) {
+                    values[i] = outputValues[i][0];
+                }
+                return values;
+            }
+        }
+    }
+
+    public String getName() { return name; }
+
+    @Override
+    public void close() throws OrtException {
+        session.close();
+    }
+}
@@ -0,0 +1,208 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ONNX モデルファイル (.onnx + 外部 .data) から初期化子 (重み) だけを読み出すクラス。
+ * protobuf の必要最小限のフィールドのみをデコードします (ONNX Runtime は不要)。
+ */
+public final class OnnxWeights {
+
+    // --- protobuf のフィールド番号 (onnx.proto) ---
+    private static final int MODEL_GRAPH = 7;
+    private static final int GRAPH_INITIALIZER = 5;
+    private static final int TENSOR_DIMS = 1;
+    private static final int TENSOR_DATA_TYPE = 2;
+    private static final int TENSOR_FLOAT_DATA = 4;
+    private static final int TENSOR_NAME = 8;
+    private static final int TENSOR_RAW_DATA = 9;
+    private static final int TENSOR_EXTERNAL_DATA = 13;
+    private static final int DATA_TYPE_FLOAT = 1;
+
+    /** 重みテンソル1つ分 (形状と float 値) */
+    public record Tensor(long[] dims, float[] data) {}
+
+    private final Map<String, Tensor> tensors;
+
+    private OnnxWeights(Map<String, Tensor> tensors) {
+        this.tensors = tensors;
+    }
+
+    /**
+     * クラスパス上のモデルを読み込みます。外部データも同じ場所のリソースとして解決します。
+     * @param modelResourceName (例: "tetris_model_v2_final.onnx")
+     */
+    public static OnnxWeights fromResource(String modelResourceName) throws IOException {
+        byte[] model = readResource(modelResourceName);
+        Map<String, byte[]> externalFiles = new HashMap<>();
+        Map<String, Tensor> tensors = new HashMap<>();
+
+        ByteBuffer graph = findField(ByteBuffer.wrap(model), MODEL_GRAPH);
+        if (graph == null) throw new IOException("ONNX graph not found: " + modelResourceName);
+
+        ProtoReader reader = new ProtoReader(graph);
+        while (reader.hasRemaining()) {
+            int tag = reader.readTag();
+            if ((tag >>> 3) == GRAPH_INITIALIZER && (tag & 7) == 2) {
+                parseTensor(reader.readBytes(), tensors, externalFiles);
+            } else {
+                reader.skip(tag);
+            }
+        }
+        return new OnnxWeights(tensors);
+    }
+
+    public Tensor get(String name) {
+        Tensor t = tensors.get(name);
+        if (t == null) throw new IllegalArgumentException("初期化子 " + name + " がモデルに見つかりません。");
+        return t;
+    }
+
+    public boolean contains(String name) {
+        return tensors.containsKey(name);
+    }
+
+    private static void parseTensor(ByteBuffer buf, Map<String, Tensor> out,
+                                    Map<String, byte[]> externalFiles) throws IOException {
+        ProtoReader reader = new ProtoReader(buf);
+        long[] dims = new long[0];
+        int dataType = 0;
+        String name = null;
+        float[] floatData = null;
+        ByteBuffer raw = null;
+        Map<String, String> external = new HashMap<>();
+
+        while (reader.hasRemaining()) {
+            int tag = reader.readTag();
+            int field = tag >>> 3;
+            int wireType = tag & 7;
+            switch (field) {
+                case TENSOR_DIMS -> {
+                    if (wireType == 2) { // packed
+                        ProtoReader packed = new ProtoReader(reader.readBytes());
+                        while (packed.hasRemaining()) dims = append(dims, packed.readVarint());
+                    } else {
+                        dims = append(dims, reader.readVarint());
+                    }
+                }
+                case TENSOR_DATA_TYPE -> dataType = (int) reader.readVarint();
+                case TENSOR_NAME -> name = reader.readString();
+                case TENSOR_RAW_DATA -> raw = reader.readBytes();
+                case TENSOR_FLOAT_DATA -> {
+                    ByteBuffer packed = reader.readBytes().order(ByteOrder.LITTLE_ENDIAN);
+                    floatData = new float[packed.remaining() / 4];
+                    packed.asFloatBuffer().get(floatData);
+                }
+                case TENSOR_EXTERNAL_DATA -> {
+                    ProtoReader entry = new ProtoReader(reader.readBytes());
+                    String key = null, value = null;
+                    while (entry.hasRemaining()) {
+                        int t = entry.readTag();
+                        if ((t >>> 3) == 1) key = entry.readString();
+                        else if ((t >>> 3) == 2) value = entry.readString();
+                        else entry.skip(t);
+                    }
+                    if (key != null) external.put(key, value);
+                }
+                default -> reader.skip(tag);
+            }
+        }
+        if (name == null || dataType != DATA_TYPE_FLOAT) return; // float 以外 (形状定数など) は対象外
+
+        if (!external.isEmpty()) {
+            String location = external.get("location");
+            byte[] file = externalFiles.get(location);
+            if (file == null) {
+                file = readResource(location);
+                externalFiles.put(location, file);
+            }
+            int offset = Integer.parseInt(external.getOrDefault("offset", "0"));
+            int length = external.containsKey("length")
+                ? Integer.parseInt(external.get("length")) : file.length - offset;
+            raw = ByteBuffer.wrap(file, offset, length).slice();
+        }
+        if (raw != null) {
+            raw.order(ByteOrder.LITTLE_ENDIAN);
+            floatData = new float[raw.remaining() / 4];
+            raw.asFloatBuffer().get(floatData);
+        }
+        if (floatData == null) floatData = new float[0];
+        out.put(name, new Tensor(dims, floatData));
+    }
+
+    private static ByteBuffer findField(ByteBuffer buf, int fieldNumber) {
+        ProtoReader reader = new ProtoReader(buf);
+        while (reader.hasRemaining()) {
+            int tag = reader.readTag();
+            if ((tag >>> 3) == fieldNumber && (tag & 7) == 2) return reader.readBytes();
+            reader.skip(tag);
+        }
+        return null;
+    }
+
+    private static long[] append(long[] array, long value) {
+        long[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    private static byte[] readResource(String resourceName) throws IOException {
+        try (InputStream in = OnnxWeights.class.getClassLoader().getResourceAsStream(resourceName)) {
+            if (in == null) throw new FileNotFoundException("Resource not found: " + resourceName);
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * protobuf のワイヤーフォーマットを読むための最小限のリーダー。
+     */
+    private static final class ProtoReader {
+        private final ByteBuffer buf;
+
+        ProtoReader(ByteBuffer buf) { this.buf = buf; }
+
+        boolean hasRemaining() { return buf.hasRemaining(); }
+
+        int readTag() { return (int) readVarint(); }
+
+        long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buf.get();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IllegalStateException("Malformed varint");
+        }
+
+        ByteBuffer readBytes() {
+            int length = (int) readVarint();
+            ByteBuffer slice = buf.slice(buf.position(), length);
+            buf.position(buf.position() + length);
+            return slice;
+        }
+
+        String readString() {
+            ByteBuffer bytes = readBytes();
+            return StandardCharsets.UTF_8.decode(bytes).toString();
+        }
+
+        void skip(int tag) {
+            switch (tag & 7) {
+                case 0 -> readVarint();
+                case 1 -> buf.position(buf.position() + 8);
+                case 2 -> readBytes();
+                case 5 -> buf.position(buf.position() + 4);
+                default -> throw new IllegalStateException("Unsupported wire type: " + (tag & 7));
+            }
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.yourcompany.yourproject.config.SpinType;
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.GameSnapshot;
+import org.yourcompany.yourproject.model.Shape;
+import org.yourcompany.yourproject.model.Tetromino;
+
+/**
+ * 手の生成 (MoveGenerator) の正しさと速さを確かめるための、チェスの perft にあたるツール。
+ *
+ * 局面 (盤面・ミノの順番・ホールド) から深さ N まで、AI と同じ {@link MoveGenerator#generate} で手を展開し、
+ * 深さごとに「手順の数」(置き方の列の数) と「異なる局面の数」(盤面・ホールド・残りのミノ・コンボ/B2B が同じものは1つ) を数えます。
+ * 同じ局面は1回だけ展開する (手順の数は重みとして持つ) ので、ホールドや置く順番の入れ替えで同じ局面になる場合も速く数えられます。
+ * 手の生成を速くしたときは、期待値 (局面の一覧の expect) と同じ数になることを確かめてください。
+ *
+ * ミノの順番は局面に書いたものだけを使い、尽きた局面 (およびゲームオーバーの局面) はそれ以上展開しません。
+ *
+ * <pre>
+ * 使い方: Perft [--suite FILE] [--position NAME] [--depth N] [--accept] [--repeat K] [--divide]
+ *         Perft --board ROWS --queue PIECES [--hold H] [--depth N] [--repeat K] [--divide]
+ *   --suite FILE     局面の一覧 (既定: regression/perft.txt。形式は {@link PerftPosition})
+ *   --position NAME  その名前の局面だけ数える
+ *   --depth N        深さ N まで数える (既定: 局面の期待値がある最大の深さ。なければ 2)
+ *   --accept         数えた結果を期待値として一覧に書き込む (手の生成の規則を意図して変えた場合)
+ *   --repeat K       K 回数えて最も速い時間を表示する (JIT のウォームアップ込みで比べたいとき)
+ *   --divide         最初の手ごとに、深さ N までの手順の数を表示する
+ *   --board ROWS     '/' で区切った盤面の行 (上から)。一覧の代わりにこの局面を数える
+ *   --queue PIECES   ミノの順番 (例: TIOSZLJ)
+ *   --hold H         ホールドのミノ (- で空、off でホールドなし。既定: -)
+ * </pre>
+ */
+public final class Perft {
+
+    private static final Path DEFAULT_SUITE = Path.of("regression", "perft.txt");
+
+    /**
+     * 1つの深さの結果。
+     * @param depth        深さ
+     * @param nodes        手順の数 (置き方の列の数)
+     * @param uniqueStates 異なる局面の数
+     * @param generated    この深さのために生成した手の数 (同じ局面は1回だけ展開するので nodes 以下)
+     * @param nanos        この深さの展開にかかった時間
+     */
+    public record DepthResult(int depth, long nodes, int uniqueStates, long generated, long nanos) {
+        /** 1秒あたりに生成した手の数 */
+        public double generatedPerSecond() {
+            return generated / Math.max(1e-9, nanos / 1e9);
+        }
+    }
+
+    /** 展開する局面 (同じ局面に届く手順の数を count に持つ) */
+    private static final class Node {
+        final Board board;
+        final int index;               // 操作中のミノの、順番の中での位置
+        final Shape.Tetrominoes hold;
+        final int combo;
+        final boolean b2b;
+        final int pendingGarbage;
+        final boolean gameOver;
+        long count;
+
+        Node(Board board, int index, Shape.Tetrominoes hold, int combo, boolean b2b, int pendingGarbage,
+             boolean gameOver, long count) {
+            this.board = board;
+            this.index = index;
+            this.hold = hold;
+            this.combo = combo;
+            this.b2b = b2b;
+            this.pendingGarbage = pendingGarbage;
+            this.gameOver = gameOver;
+            this.count = count;
+        }
+
+        Key key() {
+            return new Key(board.toRowBits(), index, hold, combo, b2b, pendingGarbage, gameOver);
+        }
+    }
+
+    // 同じ局面の判定用 (盤面は行ビット列で比較する)
+    private record Key(int[] rows, int index, Shape.Tetrominoes hold, int combo, boolean b2b,
+                       int pendingGarbage, boolean gameOver) {
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key that)) return false;
+            return index == that.index && hold == that.hold && combo == that.combo && b2b == that.b2b
+                && pendingGarbage == that.pendingGarbage && gameOver == that.gameOver
+                && Arrays.equals(rows, that.rows);
+        }
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(rows) + Objects.hash(index, hold, combo, b2b, pendingGarbage, gameOver);
+        }
+    }
+
+    private final List<Shape.Tetrominoes> sequence;
+    private final boolean holdAllowed;
+
+    private Perft(PerftPosition position) {
+        this.sequence = position.queue();
+        this.holdAllowed = position.holdAllowed();
+    }
+
+    /**
+     * 局面を深さ 1 から depth まで数えます。
+     */
+    public static List<DepthResult> count(PerftPosition position, int depth) {
+        Perft perft = new Perft(position);
+        return perft.expand(perft.root(position), depth);
+    }
+
+    /**
+     * 最初の手ごとに、その後の深さ depth までの手順の数を返します (チェスの perft の divide)。
+     * 速くした手の生成と数が合わないときに、どの手の先で違うかを絞り込むのに使います。
+     */
+    public static Map<LandingSpot, Long> divide(PerftPosition position, int depth) {
+        Perft perft = new Perft(position);
+        Node root = perft.root(position);
+        Map<LandingSpot, Long> result = new LinkedHashMap<>();
+        GameSnapshot snapshot = perft.snapshot(root);
+        if (snapshot == null) return result;
+        for (LandingSpot move : MoveGenerator.generate(snapshot)) {
+            Node child = perft.child(root, move);
+            long nodes = (depth <= 1) ? 1 : perft.expand(child, depth - 1).get(depth - 2).nodes();
+            result.put(move, nodes);
+        }
+        return result;
+    }
+
+    private Node root(PerftPosition position) {
+        return new Node(position.board(), 0, position.hold(), -1, false, 0, false, 1);
+    }
+
+    private List<DepthResult> expand(Node root, int depth) {
+        Map<Key, Node> level = new HashMap<>();
+        level.put(root.key(), root);
+
+        List<DepthResult> results = new ArrayList<>(depth);
+        for (int d = 1; d <= depth; d++) {
+            long start = System.nanoTime();
+            Map<Key, Node> next = new HashMap<>();
+            long nodes = 0;
+            long generated = 0;
+            for (Node node : level.values()) {
+                GameSnapshot snapshot = snapshot(node);
+                if (snapshot == null) continue;
+                List<LandingSpot> moves = MoveGenerator.generate(snapshot);
+                generated += moves.size();
+                nodes += node.count * moves.size();
+                for (LandingSpot move : moves) {
+                    Node child = child(node, move);
+                    Node existing = next.putIfAbsent(child.key(), child);
+                    if (existing != null) existing.count += child.count;
+                }
+            }
+            results.add(new DepthResult(d, nodes, next.size(), generated, System.nanoTime() - start));
+            level = next;
+        }
+        return results;
+    }
+
+    /**
+     * 局面を MoveGenerator の入力にします。展開しない局面 (ゲームオーバー・ミノが尽きた) なら null。
+     */
+    private GameSnapshot snapshot(Node node) {
+        if (node.gameOver || node.index >= sequence.size()) return null;
+        int queueEnd = Math.min(sequence.size(), node.index + 6);
+        List<Shape.Tetrominoes> nextQueue = sequence.subList(node.index + 1, queueEnd);
+        Shape.Tetrominoes sixth = (node.index + 6 < sequence.size()) ? sequence.get(node.index + 6) : null;
+        Shape.Tetrominoes current = sequence.get(node.index);
+        // 空のホールドを使うには、代わりに出てくるミノが必要
+        boolean canHold = holdAllowed && (node.hold != null || !nextQueue.isEmpty());
+        return new GameSnapshot(0, 0, node.board, current, spawnX(current), spawnY(current), 0,
+            node.hold, nextQueue, sixth, List.of(), canHold, node.pendingGarbage, node.combo, node.b2b, 0, false);
+    }
+
+    /**
+     * 手を指した後の局面。ホールドを使った場合は操作中のミノがホールドに入り、
+     * 空のホールドを使った場合はネクストの先頭を置くのでミノを2つ進めます。
+     */
+    private Node child(Node node, LandingSpot move) {
+        Shape.Tetrominoes current = sequence.get(node.index);
+        int nextIndex = node.index + 1;
+        Shape.Tetrominoes hold = node.hold;
+        if (move.usedHold) {
+            if (hold == null) nextIndex++;
+            hold = current;
+        }
+        return new Node(move.futureBoard, nextIndex, hold, move.comboCountAfter, move.b2bActiveAfter,
+            move.pendingGarbageAfter, move.isGameOver, node.count);
+    }
+
+    private static final Map<Shape.Tetrominoes, int[]> SPAWN = new HashMap<>();
+    static {
+        for (Shape.Tetrominoes shape : Shape.Tetrominoes.values()) {
+            Tetromino t = new Tetromino(shape);
+            t.resetPositionAndState();
+            SPAWN.put(shape, new int[] { t.getX(), t.getY() });
+        }
+    }
+
+    private static int spawnX(Shape.Tetrominoes shape) { return SPAWN.get(shape)[0]; }
+    private static int spawnY(Shape.Tetrominoes shape) { return SPAWN.get(shape)[1]; }
+
+    public static void main(String[] args) throws IOException {
+        Path suite = DEFAULT_SUITE;
+        String only = null;
+        int depth = 0;
+        boolean accept = false;
+        int repeat = 1;
+        boolean divide = false;
+        String rows = null;
+        String queue = null;
+        String hold = "-";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--suite" -> suite = Path.of(args[++i]);
+                case "--position" -> only = args[++i];
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--accept" -> accept = true;
+                case "--repeat" -> repeat = Math.max(1, Integer.parseInt(args[++i]));
+                case "--divide" -> divide = true;
+                case "--board" -> rows = args[++i];
+                case "--queue" -> queue = args[++i];
+                case "--hold" -> hold = args[++i];
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        if (divide) accept = false;
+        List<PerftPosition> positions = new ArrayList<>();
+        if (queue != null) {
+            positions.add(PerftPosition.of(rows == null ? "" : rows, queue, hold));
+            accept = false;
+        } else {
+            if (!Files.exists(suite)) {
+                System.err.println("suite not found: " + suite.toAbsolutePath());
+                System.exit(2);
+            }
+            for (PerftPosition p : PerftPosition.readSuite(suite)) {
+                if (only == null || p.name().equals(only)) positions.add(p);
+            }
+            if (positions.isEmpty()) {
+                System.err.println("no position named " + only + " in " + suite);
+                System.exit(2);
+            }
+        }
+
+        Map<String, Map<Integer, Long>> counted = new LinkedHashMap<>();
+        int failures = 0;
+        long totalGenerated = 0;
+        long totalNanos = 0;
+        for (PerftPosition position : positions) {
+            int maxDepth = (depth > 0) ? depth : Math.max(2, position.maxExpectedDepth());
+            System.out.println(position.name() + (position.note().isEmpty() ? "" : "  (" + position.note() + ")"));
+            if (divide) {
+                printDivide(position, maxDepth);
+                continue;
+            }
+            List<DepthResult> best = null;
+            for (int r = 0; r < repeat; r++) {
+                List<DepthResult> results = count(position, maxDepth);
+                if (best == null || total(results) < total(best)) best = results;
+            }
+            Map<Integer, Long> counts = new LinkedHashMap<>();
+            for (DepthResult result : best) {
+                counts.put(result.depth(), result.nodes());
+                Long expected = position.expected().get(result.depth());
+                String verdict;
+                if (accept || expected == null) {
+                    verdict = accept ? "accepted" : "-";
+                } else if (expected == result.nodes()) {
+                    verdict = "OK";
+                } else {
+                    verdict = "MISMATCH (expected " + expected + ")";
+                    failures++;
+                }
+                System.out.printf("  depth %d: %,14d nodes %,10d unique %,10d generated %9.1f ms %,12.0f moves/s  %s%n",
+                    result.depth(), result.nodes(), result.uniqueStates(), result.generated(),
+                    result.nanos() / 1e6, result.generatedPerSecond(), verdict);
+                totalGenerated += result.generated();
+                totalNanos += result.nanos();
+            }
+            counted.put(position.name(), counts);
+        }
+        if (divide) return;
+        System.out.printf("total: %,d moves generated in %.1f ms (%,.0f moves/s)%n",
+            totalGenerated, totalNanos / 1e6, totalGenerated / Math.max(1e-9, totalNanos / 1e9));
+
+        if (accept) {
+            PerftPosition.writeExpected(suite, counted);
+            System.out.println("expected counts written to " + suite);
+        } else if (failures > 0) {
+            System.out.println(failures + " MISMATCH");
+            System.exit(1);
+        } else {
+            System.out.println("OK");
+        }
+    }
+
+    private static void printDivide(PerftPosition position, int depth) {
+        long total = 0;
+        for (Map.Entry<LandingSpot, Long> e : divide(position, depth).entrySet()) {
+            LandingSpot move = e.getKey();
+            System.out.printf("  %c%s x=%d y=%d rot=%d%s%s: %,d%n", move.pieceShape.letter(), move.usedHold ? " (hold)" : "",
+                move.finalX, move.finalY, move.finalRot,
+                move.spinType == SpinType.NONE ? "" : " " + move.spinType,
+                move.linesCleared > 0 ? " lines=" + move.linesCleared : "", e.getValue());
+            total += e.getValue();
+        }
+        System.out.printf("  total: %,d%n", total);
+    }
+
+    private static long total(List<DepthResult> results) {
+        long nanos = 0;
+        for (DepthResult r : results) nanos += r.nanos();
+        return nanos;
+    }
+}
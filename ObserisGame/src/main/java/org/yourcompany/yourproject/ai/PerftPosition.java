@@ -0,0 +1,203 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.Shape;
+
+/**
+ * {@link Perft} で数える局面 (盤面・ミノの順番・ホールド) と、深さごとの期待値。
+ *
+ * 局面の一覧はテキストファイルで、1つの局面は次のように書きます ('#' で始まる行 (盤面の行を除く) と空行は無視)。
+ * <pre>
+ * position tsd-slot          局面の名前 (ここから次の position までが1つの局面)
+ * note Tスピンダブルの穴      説明 (省略可)
+ * queue TSZLJIO              操作中のミノから順に (T, Z, S, I, O, L, J)
+ * hold I                     ホールドしているミノ。- で空、off でホールドなし
+ * board                      次の行から盤面 (上から順、一番下に詰めて置く。'.' が空き)
+ * ####......
+ * ###...####
+ * ####.#####
+ * expect 1 34                深さ 1 の手順の数の期待値
+ * expect 2 1234
+ * </pre>
+ *
+ * @param name     局面の名前
+ * @param note     説明 (なければ空)
+ * @param rows     盤面の行 (上から)
+ * @param queue    ミノの順番 (先頭が操作中のミノ)
+ * @param hold     ホールドしているミノ (空なら null)
+ * @param holdAllowed ホールドを使えるか
+ * @param expected 深さごとの手順の数の期待値
+ */
+public record PerftPosition(String name, String note, List<String> rows, List<Shape.Tetrominoes> queue,
+                            Shape.Tetrominoes hold, boolean holdAllowed, Map<Integer, Long> expected) {
+
+    public PerftPosition {
+        rows = List.copyOf(rows);
+        queue = List.copyOf(queue);
+        expected = Collections.unmodifiableMap(new TreeMap<>(expected));
+    }
+
+    public Board board() {
+        return Board.fromRows(rows.toArray(new String[0]));
+    }
+
+    /** 期待値がある最大の深さ (期待値がなければ 0) */
+    public int maxExpectedDepth() {
+        return expected.isEmpty() ? 0 : Collections.max(expected.keySet());
+    }
+
+    /**
+     * コマンドラインで指定した局面を作ります。
+     * @param rows  '/' で区切った盤面の行 (上から)。空文字で空の盤面
+     * @param queue ミノの文字を並べたもの
+     * @param hold  ホールドのミノの文字、- で空、off でホールドなし
+     */
+    public static PerftPosition of(String rows, String queue, String hold) {
+        List<String> boardRows = rows.isEmpty() ? List.of() : Arrays.asList(rows.split("/"));
+        Board.fromRows(boardRows.toArray(new String[0])); // 行の形式をここで確かめる
+        return new PerftPosition("command-line", "", boardRows, parseQueue(queue),
+            parseHold(hold), !hold.equalsIgnoreCase("off"), Map.of());
+    }
+
+    /**
+     * 局面の一覧のファイルを読みます。
+     */
+    public static List<PerftPosition> readSuite(Path file) throws IOException {
+        List<PerftPosition> positions = new ArrayList<>();
+        Builder current = null;
+        boolean inBoard = false;
+        int lineNumber = 0;
+        for (String raw : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            String line = raw.strip();
+            if (inBoard && isBoardRow(line)) {
+                current.rows.add(line);
+                continue;
+            }
+            inBoard = false;
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] parts = line.split("\\s+", 2);
+            String value = (parts.length > 1) ? parts[1].strip() : "";
+            if (!parts[0].equals("position") && current == null) {
+                throw new IOException(file + ":" + lineNumber + ": expected 'position NAME' first");
+            }
+            try {
+                switch (parts[0]) {
+                    case "position" -> {
+                        if (current != null) positions.add(current.build());
+                        current = new Builder(value);
+                    }
+                    case "note" -> current.note = value;
+                    case "queue" -> current.queue = parseQueue(value);
+                    case "hold" -> {
+                        current.hold = parseHold(value);
+                        current.holdAllowed = !value.equalsIgnoreCase("off");
+                    }
+                    case "board" -> inBoard = true;
+                    case "expect" -> {
+                        String[] depthAndCount = value.split("\\s+");
+                        current.expected.put(Integer.parseInt(depthAndCount[0]), Long.parseLong(depthAndCount[1]));
+                    }
+                    default -> throw new IllegalArgumentException("unknown keyword: " + parts[0]);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        if (current != null) positions.add(current.build());
+        return positions;
+    }
+
+    /**
+     * ファイルの各局面の expect 行を、与えた数え上げの結果に書き換えます (コメントなどはそのまま残す)。
+     * @param counts 局面の名前 → 深さごとの手順の数。含まれない局面は書き換えません
+     */
+    public static void writeExpected(Path file, Map<String, Map<Integer, Long>> counts) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        List<String> out = new ArrayList<>(lines.size());
+        String position = null;
+        for (String line : lines) {
+            String stripped = line.strip();
+            if (stripped.startsWith("position ")) {
+                appendExpected(out, counts.get(position));
+                position = stripped.substring("position ".length()).strip();
+            }
+            if (stripped.startsWith("expect ") && counts.containsKey(position)) continue;
+            out.add(line);
+        }
+        appendExpected(out, counts.get(position));
+        Files.write(file, out, StandardCharsets.UTF_8);
+    }
+
+    /** 局面の最後 (後ろの空行・コメントより前) に expect 行を足す */
+    private static void appendExpected(List<String> out, Map<Integer, Long> counts) {
+        if (counts == null) return;
+        int at = out.size();
+        while (at > 0 && (out.get(at - 1).isBlank() || isComment(out.get(at - 1).strip()))) at--;
+        List<String> expectLines = new ArrayList<>();
+        for (Map.Entry<Integer, Long> e : new TreeMap<>(counts).entrySet()) {
+            expectLines.add("expect " + e.getKey() + " " + e.getValue());
+        }
+        out.addAll(at, expectLines);
+    }
+
+    /** 盤面の行 ('#' で始まってもコメントではない) */
+    private static boolean isBoardRow(String line) {
+        return line.length() == Board.BOARD_WIDTH && line.chars().noneMatch(Character::isWhitespace);
+    }
+
+    private static boolean isComment(String line) {
+        return line.startsWith("#") && !isBoardRow(line);
+    }
+
+    private static List<Shape.Tetrominoes> parseQueue(String text) {
+        List<Shape.Tetrominoes> queue = new ArrayList<>();
+        for (char c : text.toCharArray()) {
+            if (Character.isWhitespace(c)) continue;
+            Shape.Tetrominoes shape = Shape.Tetrominoes.fromLetter(c);
+            if (shape == null) throw new IllegalArgumentException("unknown piece: " + c);
+            queue.add(shape);
+        }
+        if (queue.isEmpty()) throw new IllegalArgumentException("empty queue");
+        return queue;
+    }
+
+    private static Shape.Tetrominoes parseHold(String text) {
+        if (text.equals("-") || text.equalsIgnoreCase("off")) return null;
+        Shape.Tetrominoes shape = (text.length() == 1) ? Shape.Tetrominoes.fromLetter(text.charAt(0)) : null;
+        if (shape == null) throw new IllegalArgumentException("unknown hold piece: " + text);
+        return shape;
+    }
+
+    private static final class Builder {
+        final String name;
+        String note = "";
+        final List<String> rows = new ArrayList<>();
+        List<Shape.Tetrominoes> queue;
+        Shape.Tetrominoes hold;
+        boolean holdAllowed = true;
+        final Map<Integer, Long> expected = new TreeMap<>();
+
+        Builder(String name) {
+            if (name.isEmpty()) throw new IllegalArgumentException("position needs a name");
+            this.name = name;
+        }
+
+        PerftPosition build() {
+            if (queue == null) throw new IllegalArgumentException("position " + name + " has no queue");
+            Board.fromRows(rows.toArray(new String[0])); // 行の形式をここで確かめる
+            return new PerftPosition(name, note, rows, queue, hold, holdAllowed, expected);
+        }
+    }
+}
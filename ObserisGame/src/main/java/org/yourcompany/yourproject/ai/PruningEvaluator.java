@@ -0,0 +1,107 @@
+package org.yourcompany.yourproject.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.yourcompany.yourproject.config.AIConfig;
+import org.yourcompany.yourproject.config.SpinType;
+import org.yourcompany.yourproject.model.GameSnapshot;
+
+/**
+ * 2段階評価を行う評価関数 (デコレータ)。
+ * 1段目: 全候補を着地結果 (消去数・スピン・火力・穴/高さ) から安価に事前スコア付けする。
+ * 2段目: 事前スコア上位 K 個と戦術的に特別な手 (火力・スピン) だけを重い評価関数 (CNN) に渡す。
+ *
+ * 適応モード (AIConfig.ADAPTIVE_TOP_K) では、直近の推論コストから思考時間内に収まる K を見積もり、
+ * 余裕があるときは K を増やします。
+ */
+public class PruningEvaluator implements Evaluator {
+
+    // 推論に使ってよいのは思考時間のこの割合まで (残りは探索や事前スコアに使う)
+    private static final double INFERENCE_BUDGET_RATIO = 0.5;
+    private static final double COST_SMOOTHING = 0.2;
+
+    private final Evaluator delegate;
+    private volatile double nanosPerCandidate = 0; // 推論コストの移動平均 (0 = 未計測)
+    private volatile int lastCandidateCount;
+    private volatile int lastEvaluatedCount;
+
+    public PruningEvaluator(Evaluator delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void evaluate(List<LandingSpot> moves, GameSnapshot myState, GameSnapshot opponentState) {
+        List<LandingSpot> selected = select(rank(moves));
+
+        // 2段目に進めなかった手は選ばれないようにする
+        for (LandingSpot spot : moves) spot.aiScore = Double.NEGATIVE_INFINITY;
+        evaluateSelected(selected, myState, opponentState);
+
+        lastCandidateCount = moves.size();
+        lastEvaluatedCount = selected.size();
+    }
+
+    /**
+     * 1段目: 全候補を事前スコアの高い順に並べて返します (ゲームオーバーになる手は除く)。
+     * 各 LandingSpot.aiScore には事前スコアが入ります。
+     */
+    public List<LandingSpot> rank(List<LandingSpot> moves) {
+        return HeuristicEvaluator.rank(moves);
+    }
+
+    /**
+     * 並べ替え済みの候補から、2段目に送る上位 K 個と戦術的に特別な手を選びます。
+     */
+    public List<LandingSpot> select(List<LandingSpot> ranked) {
+        int k = currentTopK(ranked.size());
+        if (ranked.size() <= k) return new ArrayList<>(ranked);
+        List<LandingSpot> selected = new ArrayList<>(ranked.subList(0, k));
+        for (LandingSpot spot : ranked.subList(k, ranked.size())) {
+            if (isTacticallySpecial(spot)) selected.add(spot);
+        }
+        return selected;
+    }
+
+    /**
+     * 2段目: 選んだ候補だけを重い評価関数で評価し、推論コストを記録します。
+     */
+    public void evaluateSelected(List<LandingSpot> selected, GameSnapshot myState, GameSnapshot opponentState) {
+        long start = System.nanoTime();
+        delegate.evaluate(selected, myState, opponentState);
+        recordCost(System.nanoTime() - start, selected.size());
+    }
+
+    @Override
+    public String getName() { return delegate.getName(); }
+
+    /**
+     * 今回2段目に送る候補数 K を決める。
+     */
+    private int currentTopK(int candidateCount) {
+        int k = AIConfig.CANDIDATE_TOP_K;
+        if (k <= 0) return candidateCount; // 絞り込みなし
+        double cost = nanosPerCandidate;
+        if (AIConfig.ADAPTIVE_TOP_K && cost > 0) {
+            double budgetNanos = AIConfig.THINK_BUDGET_MS * 1_000_000.0 * INFERENCE_BUDGET_RATIO;
+            k = Math.max(k, (int) (budgetNanos / cost));
+        }
+        return Math.min(k, candidateCount);
+    }
+
+    private void recordCost(long elapsedNanos, int batchSize) {
+        if (batchSize == 0) return;
+        double sample = (double) elapsedNanos / batchSize;
+        double cost = nanosPerCandidate;
+        nanosPerCandidate = (cost == 0) ? sample : cost + COST_SMOOTHING * (sample - cost);
+    }
+
+    /** 事前スコアが低くても必ず2段目で評価する手 (火力が出る手・スピン) */
+    private static boolean isTacticallySpecial(LandingSpot spot) {
+        return spot.attackPower > 0 || spot.spinType != SpinType.NONE || spot.linesCleared == 4;
+    }
+
+    public Evaluator getDelegate() { return delegate; }
+    public int getLastCandidateCount() { return lastCandidateCount; }
+    public int getLastEvaluatedCount() { return lastEvaluatedCount; }
+}
@@ -0,0 +1,190 @@
+package org.yourcompany.yourproject.ai;
+
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * 対局結果からレーティングを計算するクラス (Tournament 用)。
+ *
+ * <ul>
+ * <li>Elo: 全ての対局をまとめて最尤推定 (Bradley-Terry モデル)。結果の順番によらない。
+ *     未勝利・全勝でも発散しないように、平均 0・標準偏差 {@link #ELO_PRIOR_SD} の事前分布を置く</li>
+ * <li>Glicko-2: 対局を「期間」(大会のラウンド) ごとに順番に反映する。RD が信頼区間の幅になる</li>
+ * </ul>
+ * どちらも 1500 を平均とする尺度で返します。
+ */
+public final class Ratings {
+
+    public static final double BASE = 1500.0;
+    public static final double ELO_PRIOR_SD = 400.0;
+    private static final double Z95 = 1.96;
+    private static final double ELO_K = Math.log(10) / 400.0;
+
+    /**
+     * 1局の結果。
+     * @param a      プレイヤー a の番号
+     * @param b      プレイヤー b の番号
+     * @param scoreA a から見た結果 (勝ち 1, 引き分け 0.5, 負け 0)
+     */
+    public record Outcome(int a, int b, double scoreA) {}
+
+    /**
+     * レーティングと 95% 信頼区間。
+     */
+    public record Rating(double value, double low, double high) {
+        public double halfWidth() { return (high - low) / 2; }
+    }
+
+    private Ratings() {}
+
+    /**
+     * Elo レーティングを最尤推定します (各プレイヤーごとのニュートン法を収束するまで繰り返す)。
+     * 信頼区間はヘッセ行列の対角成分から求めた近似です。
+     */
+    public static Rating[] elo(int players, List<Outcome> games) {
+        double[] r = new double[players];
+        double[] curvature = new double[players];
+        for (int iter = 0; iter < 200; iter++) {
+            double maxStep = 0;
+            for (int i = 0; i < players; i++) {
+                double grad = -r[i] / (ELO_PRIOR_SD * ELO_PRIOR_SD);
+                double hess = 1.0 / (ELO_PRIOR_SD * ELO_PRIOR_SD);
+                for (Outcome g : games) {
+                    if (g.a() != i && g.b() != i) continue;
+                    int opponent = (g.a() == i) ? g.b() : g.a();
+                    double score = (g.a() == i) ? g.scoreA() : 1 - g.scoreA();
+                    double p = expected(r[i], r[opponent]);
+                    grad += ELO_K * (score - p);
+                    hess += ELO_K * ELO_K * p * (1 - p);
+                }
+                double step = grad / hess;
+                r[i] += step;
+                curvature[i] = hess;
+                maxStep = Math.max(maxStep, Math.abs(step));
+            }
+            if (maxStep < 1e-4) break;
+        }
+        double mean = 0;
+        for (double v : r) mean += v / players;
+        Rating[] ratings = new Rating[players];
+        for (int i = 0; i < players; i++) {
+            double value = BASE + r[i] - mean;
+            double se = 1.0 / Math.sqrt(curvature[i]);
+            ratings[i] = new Rating(value, value - Z95 * se, value + Z95 * se);
+        }
+        return ratings;
+    }
+
+    /** Elo の期待勝率 */
+    public static double expected(double ratingA, double ratingB) {
+        return 1.0 / (1.0 + Math.pow(10, (ratingB - ratingA) / 400.0));
+    }
+
+    /**
+     * Glicko-2 (Glickman, 2012)。{@link #ratePeriod(List)} を期間の順に呼んでください。
+     */
+    public static final class Glicko2 {
+        private static final double SCALE = 173.7178;
+        private static final double TAU = 0.5;
+        private static final double EPSILON = 1e-6;
+
+        private final double[] mu;
+        private final double[] phi;
+        private final double[] sigma;
+
+        public Glicko2(int players) {
+            mu = new double[players];
+            phi = new double[players];
+            sigma = new double[players];
+            for (int i = 0; i < players; i++) {
+                phi[i] = 350.0 / SCALE;
+                sigma[i] = 0.06;
+            }
+        }
+
+        /**
+         * 1期間分の対局をまとめて反映します (期間中は全員の期間開始時のレーティングを使う)。
+         */
+        public void ratePeriod(List<Outcome> games) {
+            int n = mu.length;
+            double[] newMu = mu.clone();
+            double[] newPhi = new double[n];
+            double[] newSigma = sigma.clone();
+            for (int i = 0; i < n; i++) {
+                double vInv = 0;
+                double deltaSum = 0;
+                boolean played = false;
+                for (Outcome g : games) {
+                    if (g.a() != i && g.b() != i) continue;
+                    played = true;
+                    int j = (g.a() == i) ? g.b() : g.a();
+                    double score = (g.a() == i) ? g.scoreA() : 1 - g.scoreA();
+                    double gj = g(phi[j]);
+                    double e = 1.0 / (1.0 + Math.exp(-gj * (mu[i] - mu[j])));
+                    vInv += gj * gj * e * (1 - e);
+                    deltaSum += gj * (score - e);
+                }
+                if (!played) {
+                    // 対局がなければ不確かさだけが増える
+                    newPhi[i] = Math.sqrt(phi[i] * phi[i] + sigma[i] * sigma[i]);
+                    continue;
+                }
+                double v = 1.0 / vInv;
+                double delta = v * deltaSum;
+                newSigma[i] = volatility(phi[i], sigma[i], v, delta);
+                double phiStar = Math.sqrt(phi[i] * phi[i] + newSigma[i] * newSigma[i]);
+                newPhi[i] = 1.0 / Math.sqrt(1.0 / (phiStar * phiStar) + 1.0 / v);
+                newMu[i] = mu[i] + newPhi[i] * newPhi[i] * deltaSum;
+            }
+            System.arraycopy(newMu, 0, mu, 0, n);
+            System.arraycopy(newPhi, 0, phi, 0, n);
+            System.arraycopy(newSigma, 0, sigma, 0, n);
+        }
+
+        private static double g(double phi) {
+            return 1.0 / Math.sqrt(1.0 + 3.0 * phi * phi / (Math.PI * Math.PI));
+        }
+
+        /** 新しい変動率 (Illinois 法で f(x) = 0 を解く) */
+        private static double volatility(double phi, double sigma, double v, double delta) {
+            double a = Math.log(sigma * sigma);
+            double phi2 = phi * phi;
+            DoubleUnaryOperator f = x -> {
+                double ex = Math.exp(x);
+                double d = phi2 + v + ex;
+                return ex * (delta * delta - phi2 - v - ex) / (2 * d * d) - (x - a) / (TAU * TAU);
+            };
+            double lo = a;
+            double hi;
+            if (delta * delta > phi2 + v) {
+                hi = Math.log(delta * delta - phi2 - v);
+            } else {
+                int k = 1;
+                while (f.applyAsDouble(a - k * TAU) < 0) k++;
+                hi = a - k * TAU;
+            }
+            double fLo = f.applyAsDouble(lo);
+            double fHi = f.applyAsDouble(hi);
+            while (Math.abs(hi - lo) > EPSILON) {
+                double c = lo + (lo - hi) * fLo / (fHi - fLo);
+                double fC = f.applyAsDouble(c);
+                if (fC * fHi <= 0) {
+                    lo = hi;
+                    fLo = fHi;
+                } else {
+                    fLo /= 2;
+                }
+                hi = c;
+                fHi = fC;
+            }
+            return Math.exp(lo / 2);
+        }
+
+        /** プレイヤー i のレーティングと 95% 信頼区間 (±1.96 RD) */
+        public Rating rating(int i) {
+            double value = BASE + SCALE * mu[i];
+            double rd = SCALE * phi[i];
+            return new Rating(value, value - Z95 * rd, value + Z95 * rd);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.yourcompany.yourproject.ai.NpyShardWriter.Column;
+import org.yourcompany.yourproject.config.AIConfig;
+import org.yourcompany.yourproject.config.GameAction;
+import org.yourcompany.yourproject.config.SpeedProfile;
+import org.yourcompany.yourproject.config.SpinType;
+import org.yourcompany.yourproject.controller.HeadlessMatch;
+import org.yourcompany.yourproject.controller.VersusManager;
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.GameLogic;
+import org.yourcompany.yourproject.model.GameSnapshot;
+import org.yourcompany.yourproject.model.Placement;
+import org.yourcompany.yourproject.player.AIPlayer;
+import org.yourcompany.yourproject.player.Player;
+
+/**
+ * Java のゲームエンジン (GameLogic) で AI どうしを対局させ、学習データを .npy のシャードに書き出すツール。
+ * C++ のシミュレータ (tetris_simulator.cpp) ではなくゲーム本体のルールでデータを作れます。
+ *
+ * 使い方: java ... org.yourcompany.yourproject.ai.SelfPlayExporter --out DIR [--games N] [--workers W]
+ *         [--p1 MODEL] [--p2 MODEL] [--seed S] [--n-step N] [--gamma G] [--epsilon E]
+ *         [--shard-mb MB] [--max-frames F] [--think-ms MS]
+ *
+ * MODEL は Evaluator.forModel に渡すモデル名 (heuristic でヒューリスティック)。
+ * 両方のプレイヤーの手を1手1行で記録します。列 (シャードのディレクトリ内の 列名.npy):
+ * <pre>
+ * boards   u1  [2, 40, 10]  選んだ手の盤面 (チャンネル0=置いた後の自分, 1=相手の現在)
+ * features f4  [72]         CNN の特徴量 (TensorEncoder と同じ)
+ * moves    i1  [4]          ホールド, x, y, 向き
+ * rewards  f4               その手の報酬 (train_dql.py の calculate_step_reward、最後の手は勝敗の ±20 を含む)
+ * returns  f4               n 手分の割引報酬和 (ブートストラップなし。終局で打ち切り)
+ * outcomes i1               その手を指したプレイヤーの勝敗 (1 / -1、引き分けは 0)
+ * players  u1               プレイヤー (1 / 2)
+ * games    i8               対局の番号 (シードは --seed と番号から決まる)
+ * </pre>
+ * AIが置いた手が生成した候補手の中に見つからなかった場合、その手は記録できないので行を書きません。
+ * その数は対局ごとと最後の集計で表示します。
+ * ワーカーごとに別のシャード (w00-00000 ...) に書くので、ワーカーどうしは同期しません。
+ * メモリに持つのは対局中の直近 n 手だけです。
+ */
+public final class SelfPlayExporter {
+
+    private static final long SEED_STRIDE = 0x9E3779B97F4A7C15L;
+    private static final float WIN_REWARD = 20.0f;
+
+    static final int BOARDS = 0, FEATURES = 1, MOVES = 2, REWARDS = 3, RETURNS = 4, OUTCOMES = 5, PLAYERS = 6, GAMES = 7;
+    static final List<Column> COLUMNS = List.of(
+        new Column("boards", "|u1", 2, Board.TOTAL_BOARD_HEIGHT, Board.BOARD_WIDTH),
+        new Column("features", "<f4", TensorEncoder.FEATURE_INPUT_SIZE),
+        new Column("moves", "|i1", 4),
+        new Column("rewards", "<f4"),
+        new Column("returns", "<f4"),
+        new Column("outcomes", "|i1"),
+        new Column("players", "|u1"),
+        new Column("games", "<i8"));
+
+    private final String model1;
+    private final String model2;
+    private final long seed;
+    private final int nStep;
+    private final float gamma;
+    private final double epsilon;
+    private final long maxFrames;
+    private final AtomicLong droppedRows = new AtomicLong(); // 候補手に見つからず書けなかった手の数
+
+    private SelfPlayExporter(String model1, String model2, long seed, int nStep, float gamma, double epsilon, long maxFrames) {
+        this.model1 = model1;
+        this.model2 = model2;
+        this.seed = seed;
+        this.nStep = nStep;
+        this.gamma = gamma;
+        this.epsilon = epsilon;
+        this.maxFrames = maxFrames;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path out = null;
+        long games = 100;
+        int workers = Runtime.getRuntime().availableProcessors();
+        String model1 = "heuristic";
+        String model2 = "heuristic";
+        long seed = 0;
+        int nStep = 5;
+        float gamma = 0.99f;
+        double epsilon = 0.0;
+        long shardBytes = 256L << 20;
+        long maxFrames = 20_000;
+        long thinkMs = 0; // 締め切りなし (全ての候補を評価する)
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out" -> out = Path.of(args[++i]);
+                case "--games" -> games = Long.parseLong(args[++i]);
+                case "--workers" -> workers = Integer.parseInt(args[++i]);
+                case "--p1" -> model1 = args[++i];
+                case "--p2" -> model2 = args[++i];
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--n-step" -> nStep = Integer.parseInt(args[++i]);
+                case "--gamma" -> gamma = Float.parseFloat(args[++i]);
+                case "--epsilon" -> epsilon = Double.parseDouble(args[++i]);
+                case "--shard-mb" -> shardBytes = Long.parseLong(args[++i]) << 20;
+                case "--max-frames" -> maxFrames = Long.parseLong(args[++i]);
+                case "--think-ms" -> thinkMs = Long.parseLong(args[++i]);
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        if (out == null) {
+            System.err.println("--out DIR is required");
+            System.exit(2);
+        }
+        AIConfig.THINK_BUDGET_MS = thinkMs;
+        Files.createDirectories(out);
+
+        SelfPlayExporter exporter = new SelfPlayExporter(model1, model2, seed, Math.max(1, nStep), gamma, epsilon, maxFrames);
+        AtomicLong nextGame = new AtomicLong();
+        AtomicLong totalRows = new AtomicLong();
+        long start = System.nanoTime();
+        Thread[] threads = new Thread[Math.max(1, workers)];
+        for (int w = 0; w < threads.length; w++) {
+            String prefix = String.format("w%02d", w);
+            long limit = games;
+            Path dir = out;
+            long maxShardBytes = shardBytes;
+            threads[w] = new Thread(() -> {
+                try (NpyShardWriter writer = new NpyShardWriter(dir, prefix, COLUMNS, maxShardBytes)) {
+                    long game;
+                    while ((game = nextGame.getAndIncrement()) < limit) {
+                        writer.rotateIfFull(); // 1局の途中では切り替えない (勝敗を後から書き込むため)
+                        exporter.playGame(game, writer);
+                    }
+                    totalRows.addAndGet(writer.getTotalRows());
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    throw new RuntimeException("Failed to write shards: " + prefix, e);
+                }
+            }, "self-play-" + prefix);
+            threads[w].start();
+        }
+        for (Thread t : threads) t.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Wrote %d rows from %d games in %.1fs (%.0f rows/s) to %s%n",
+            totalRows.get(), games, seconds, totalRows.get() / seconds, out.toAbsolutePath());
+        if (exporter.droppedRows.get() > 0) {
+            System.err.printf("WARNING: %d moves were not written (not found among the generated moves)%n",
+                exporter.droppedRows.get());
+        }
+    }
+
+    /**
+     * 1局を最後まで対局させ、両方のプレイヤーの手を書き込みます。
+     */
+    void playGame(long game, NpyShardWriter writer) throws IOException {
+        long gameSeed = seed + game * SEED_STRIDE;
+        GameRecord record = new GameRecord(game, writer);
+        GameRecord.Recorder recorder1 = record.new Recorder(createPlayer(model1), 1, new Random(gameSeed ^ 1));
+        GameRecord.Recorder recorder2 = record.new Recorder(createPlayer(model2), 2, new Random(gameSeed ^ 2));
+
+        HeadlessMatch.Result result;
+        try {
+            HeadlessMatch match = new HeadlessMatch(recorder1, recorder2, gameSeed);
+            recorder1.manager = match.getManager();
+            recorder2.manager = match.getManager();
+            result = match.play(maxFrames);
+        } finally {
+            recorder1.delegate.close();
+            recorder2.delegate.close();
+        }
+        record.finish(result.winner(), recorder1, recorder2);
+        int dropped = recorder1.dropped + recorder2.dropped;
+        droppedRows.addAndGet(dropped);
+        System.out.printf("game %d: winner=%d pieces=%d/%d frames=%d%s%n", game, result.winner(),
+            result.player1().placedPieces(), result.player2().placedPieces(), result.frames(),
+            (dropped > 0) ? " dropped=" + dropped : "");
+    }
+
+    private static AIPlayer createPlayer(String model) {
+        String name = "heuristic".equalsIgnoreCase(model) ? HeuristicEvaluator.MODEL_NAME : model;
+        AIPlayer player = new AIPlayer(Evaluator.forModel(name));
+        player.setSpeedProfile(SpeedProfile.instant());
+        return player;
+    }
+
+    /**
+     * 1手の報酬 (train_dql.py の calculate_step_reward と同じ)。
+     */
+    static float stepReward(LandingSpot move, int garbageReceived) {
+        if (move.isGameOver) return -10.0f;
+        double reward = move.attackPower * 1.0 + move.linesCleared * 0.3;
+        if (move.comboCountAfter > 0) reward += move.comboCountAfter * 0.2;
+        reward -= garbageReceived * 2.0;
+        reward += 0.01; // 生存ボーナス
+        return (float) reward;
+    }
+
+    /** 書き出す前の1手分 */
+    private record Sample(byte[] boards, float[] features, byte[] move, float reward, int player) {
+        Sample withReward(float newReward) {
+            return new Sample(boards, features, move, newReward, player);
+        }
+    }
+
+    /**
+     * 1局分の書き込み。勝敗は終局まで分からないので、いったん 0 で書き込み、終局後に書き換えます。
+     */
+    private final class GameRecord {
+        private final long game;
+        private final NpyShardWriter writer;
+        private final long firstRow;
+        private final ByteArrayOutputStream players = new ByteArrayOutputStream(); // この対局で書いた行のプレイヤー
+
+        GameRecord(long game, NpyShardWriter writer) {
+            this.game = game;
+            this.writer = writer;
+            this.firstRow = writer.getRows();
+        }
+
+        void finish(int winner, Recorder recorder1, Recorder recorder2) throws IOException {
+            recorder1.flush(winner);
+            recorder2.flush(winner);
+            byte[] outcomes = players.toByteArray();
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = (byte) ((winner == 0) ? 0 : (outcomes[i] == winner ? 1 : -1));
+            }
+            writer.overwrite(OUTCOMES, firstRow, outcomes);
+        }
+
+        private void write(Sample sample, float nStepReturn) throws IOException {
+            writer.column(BOARDS).put(sample.boards());
+            ByteBuffer features = writer.column(FEATURES);
+            for (float value : sample.features()) features.putFloat(value);
+            writer.column(MOVES).put(sample.move());
+            writer.column(REWARDS).putFloat(sample.reward());
+            writer.column(RETURNS).putFloat(nStepReturn);
+            writer.column(OUTCOMES).put((byte) 0);
+            writer.column(PLAYERS).put((byte) sample.player());
+            writer.column(GAMES).putLong(game);
+            writer.endRow();
+            players.write(sample.player());
+        }
+
+        /**
+         * プレイヤーの置き場所を横取りして記録する Player (置き場所は元のプレイヤーのものをそのまま使う)。
+         * 即時配置 ({@link Player#getPlacement}) で置いた手だけを記録します。
+         */
+        final class Recorder implements Player {
+            private final AIPlayer delegate;
+            private final int player;
+            private final Random random;
+            private final ArrayDeque<Sample> window = new ArrayDeque<>();
+            private GameLogic opponent;
+            private VersusManager manager;
+            private int opponentSentSeen; // 前の手の時点で相手が送っていたお邪魔の行数 (相殺した後)
+            private int dropped;          // 候補手に見つからず書けなかった手の数
+
+            Recorder(AIPlayer delegate, int player, Random random) {
+                this.delegate = delegate;
+                this.player = player;
+                this.random = random;
+            }
+
+            @Override
+            public GameAction getAction(GameLogic gameState) { return delegate.getAction(gameState); }
+
+            @Override
+            public SpeedProfile getSpeedProfile() { return delegate.getSpeedProfile(); }
+
+            @Override
+            public boolean isThinking() { return delegate.isThinking(); }
+
+            @Override
+            public void setOpponent(GameLogic opponentLogic) {
+                this.opponent = opponentLogic;
+                delegate.setOpponent(opponentLogic);
+            }
+
+            @Override
+            public Placement getPlacement(GameLogic gameState) {
+                Placement placement = delegate.getPlacement(gameState);
+                if (placement == null) return null;
+                GameSnapshot me = gameState.getSnapshot();
+                List<LandingSpot> moves = MoveGenerator.generate(me);
+                LandingSpot chosen = null;
+                if (epsilon > 0 && !moves.isEmpty() && random.nextDouble() < epsilon) {
+                    // 探索: AIの手の代わりにランダムな手を置く
+                    chosen = moves.get(random.nextInt(moves.size()));
+                    placement = new Placement(chosen.usedHold, chosen.finalX, chosen.finalY, chosen.finalRot,
+                        chosen.spinType != SpinType.NONE);
+                } else {
+                    for (LandingSpot move : moves) {
+                        if (move.usedHold == placement.useHold() && move.finalX == placement.x()
+                            && move.finalY == placement.y() && move.finalRot == placement.rotation()) {
+                            chosen = move;
+                            break;
+                        }
+                    }
+                }
+                if (chosen != null) {
+                    try {
+                        record(chosen);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                } else {
+                    dropped++;
+                }
+                return placement;
+            }
+
+            private void record(LandingSpot move) throws IOException {
+                GameSnapshot opp = (opponent != null) ? opponent.getSnapshot() : GameSnapshot.EMPTY;
+                int plane = TensorEncoder.BOARD_PLANE_SIZE;
+                byte[] boards = new byte[2 * plane];
+                fillPlane(boards, 0, move.futureBoard);
+                fillPlane(boards, plane, opp.board());
+                float[] features = new float[TensorEncoder.FEATURE_INPUT_SIZE];
+                TensorEncoder.fillFeatures(FloatBuffer.wrap(features), 0, move, opp.nextQueue(), opp.pendingGarbage());
+                byte[] info = { (byte) (move.usedHold ? 1 : 0), (byte) move.finalX, (byte) move.finalY, (byte) move.finalRot };
+
+                // 前の手から今の手までに相手が実際に送ってきたお邪魔 (相手側の相殺で消えた火力は含めない)
+                int opponentSent = (manager != null) ? manager.getLinesSent(3 - player) : 0;
+                int garbageReceived = opponentSent - opponentSentSeen;
+                opponentSentSeen = opponentSent;
+                window.addLast(new Sample(boards, features, info, stepReward(move, garbageReceived), player));
+                // 直近 n 手の報酬がそろった一番古い手から書き出す (最後の手は勝敗の報酬のために残しておく)
+                if (window.size() > nStep) {
+                    write(window.peekFirst(), nStepReturn());
+                    window.pollFirst();
+                }
+            }
+
+            /** 終局: 最後の手に勝敗の報酬を足し、残りの手を打ち切りの割引報酬和で書き出す */
+            void flush(int winner) throws IOException {
+                if (!window.isEmpty() && winner != 0) {
+                    Sample last = window.pollLast();
+                    window.addLast(last.withReward(last.reward() + (winner == player ? WIN_REWARD : -WIN_REWARD)));
+                }
+                while (!window.isEmpty()) {
+                    write(window.peekFirst(), nStepReturn());
+                    window.pollFirst();
+                }
+            }
+
+            /** window の先頭の手から n 手分の割引報酬和 */
+            private float nStepReturn() {
+                double sum = 0;
+                double discount = 1;
+                Iterator<Sample> it = window.iterator();
+                for (int k = 0; k < nStep && it.hasNext(); k++) {
+                    sum += discount * it.next().reward();
+                    discount *= gamma;
+                }
+                return (float) sum;
+            }
+        }
+    }
+
+    private static void fillPlane(byte[] planes, int offset, Board board) {
+        for (int y = 0; y < Board.TOTAL_BOARD_HEIGHT; y++) {
+            int bits = board.getRowBits(y);
+            for (int x = 0; x < Board.BOARD_WIDTH; x++) {
+                planes[offset + y * Board.BOARD_WIDTH + x] = (byte) ((bits >> x) & 1);
+            }
+        }
+    }
+}
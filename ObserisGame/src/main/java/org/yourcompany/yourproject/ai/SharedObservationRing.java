@@ -0,0 +1,172 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.GameSnapshot;
+
+/**
+ * 学習側 (Python) と共有するメモリマップドファイル上のリングバッファ。
+ * VectorEnvironment が各環境の候補手を CNN の入力と同じ形 ({@link TensorEncoder}: 盤面 [2, 40, 10]・特徴量 [72]) で
+ * 直接書き込むので、学習側は numpy でそのまま (コピーせずに) テンソルとして読めます。
+ * パイプで送るのは、書き終えたスロットの番号と通し番号だけです。
+ *
+ * <pre>
+ * ヘッダ (64 バイト): [i32 "OBSR"][i32 版][i32 環境数 N][i32 最大手数 M][i32 スロット数][i32 予備][i64 スロットの大きさ]
+ * スロット k (ヘッダの後ろ、k * スロットの大きさ の位置):
+ *   i64 通し番号 (書き込み中は -1)
+ *   f32 報酬[N] / u8 終了[N] / i32 手の数[N] / i64 最終スコア[N] / i32 最終固定数[N]
+ *   i8 手[N][M][4] (ホールド, x, y, 向き)
+ *   f32 盤面[N][M][2][40][10] / f32 特徴量[N][M][72]
+ * </pre>
+ * 数値はリトルエンディアン、各配列の先頭は 64 バイト境界です。各環境の手は先頭の「手の数」個だけが有効です
+ * (M を超えた分は書き込まれず、選べません)。
+ */
+public final class SharedObservationRing implements AutoCloseable {
+
+    public static final int MAGIC = 0x5253424F; // "OBSR" (リトルエンディアン)
+    public static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int ALIGN = 64;
+    private static final int MOVE_INFO_SIZE = 4;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] slotBuffers;
+    private final int envs;
+    private final int maxMoves;
+
+    // スロット内の各配列の位置
+    private final int rewardsOffset;
+    private final int donesOffset;
+    private final int moveCountsOffset;
+    private final int finalScoresOffset;
+    private final int finalPiecesOffset;
+    private final int movesOffset;
+    private final int boardsOffset;
+    private final int featuresOffset;
+    private final int slotSize;
+
+    private volatile boolean truncationReported;
+
+    private SharedObservationRing(Path file, int envs, int maxMoves, int slots) throws IOException {
+        this.envs = envs;
+        this.maxMoves = maxMoves;
+        long offset = 8; // 通し番号
+        rewardsOffset = (int) (offset = align(offset));
+        offset += 4L * envs;
+        donesOffset = (int) (offset = align(offset));
+        offset += envs;
+        moveCountsOffset = (int) (offset = align(offset));
+        offset += 4L * envs;
+        finalScoresOffset = (int) (offset = align(offset));
+        offset += 8L * envs;
+        finalPiecesOffset = (int) (offset = align(offset));
+        offset += 4L * envs;
+        movesOffset = (int) (offset = align(offset));
+        offset += (long) MOVE_INFO_SIZE * envs * maxMoves;
+        boardsOffset = (int) (offset = align(offset));
+        offset += 4L * envs * maxMoves * 2 * TensorEncoder.BOARD_PLANE_SIZE;
+        featuresOffset = (int) (offset = align(offset));
+        offset += 4L * envs * maxMoves * TensorEncoder.FEATURE_INPUT_SIZE;
+        long size = align(offset);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("スロットが大きすぎます (環境数か最大手数を減らしてください): " + size);
+        }
+        slotSize = (int) size;
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(MAGIC).putInt(VERSION).putInt(envs).putInt(maxMoves).putInt(slots).putInt(0)
+            .putLong(slotSize);
+        slotBuffers = new MappedByteBuffer[slots];
+        for (int k = 0; k < slots; k++) {
+            slotBuffers[k] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + (long) k * slotSize, slotSize);
+            slotBuffers[k].order(ByteOrder.LITTLE_ENDIAN).putLong(0, -1L);
+        }
+    }
+
+    /**
+     * ファイルを (作り直して) マップします。
+     */
+    public static SharedObservationRing create(Path file, int envs, int maxMoves, int slots) throws IOException {
+        return new SharedObservationRing(file, envs, maxMoves, slots);
+    }
+
+    private static long align(long offset) {
+        return (offset + ALIGN - 1) / ALIGN * ALIGN;
+    }
+
+    public int getSlotCount() { return slotBuffers.length; }
+
+    /** 通し番号 seq の結果を書き込むスロット */
+    public int slotFor(long seq) {
+        return (int) (seq % slotBuffers.length);
+    }
+
+    /** スロットを書き込み中にします (学習側が古い内容を読まないように)。各環境の書き込みの前に呼んでください */
+    public void begin(int slot) {
+        slotBuffers[slot].putLong(0, -1L);
+    }
+
+    /**
+     * 環境1つ分の結果と候補手のテンソルを書き込みます。別々の環境なら複数のスレッドから同時に呼んでかまいません。
+     * 自分の盤面の後ろ (チャンネル1) と相手の特徴量は、相手がいないので空で書き込みます。
+     */
+    public void writeEnv(int slot, int env, float reward, boolean done, long finalScore, int finalPieces,
+                         List<LandingSpot> moves) {
+        ByteBuffer buf = slotBuffers[slot].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int count = Math.min(moves.size(), maxMoves);
+        if (count < moves.size() && !truncationReported) {
+            truncationReported = true;
+            System.err.println("候補手が最大手数を超えたため切り捨てました: " + moves.size() + " > " + maxMoves);
+        }
+        buf.putFloat(rewardsOffset + 4 * env, reward);
+        buf.put(donesOffset + env, (byte) (done ? 1 : 0));
+        buf.putInt(moveCountsOffset + 4 * env, count);
+        buf.putLong(finalScoresOffset + 8 * env, finalScore);
+        buf.putInt(finalPiecesOffset + 4 * env, finalPieces);
+
+        int first = env * maxMoves;
+        FloatBuffer boards = buf.position(boardsOffset).slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        FloatBuffer features = buf.position(featuresOffset).slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        Board empty = GameSnapshot.EMPTY.board();
+        int plane = TensorEncoder.BOARD_PLANE_SIZE;
+        for (int i = 0; i < count; i++) {
+            LandingSpot spot = moves.get(i);
+            int move = first + i;
+            int info = movesOffset + MOVE_INFO_SIZE * move;
+            buf.put(info, (byte) (spot.usedHold ? 1 : 0));
+            buf.put(info + 1, (byte) spot.finalX);
+            buf.put(info + 2, (byte) spot.finalY);
+            buf.put(info + 3, (byte) spot.finalRot);
+            // チャンネル 0: 自分の未来盤面 / チャンネル 1: 相手の現在盤面 (いないので空)
+            TensorEncoder.fillBoardBuffer(boards, spot.futureBoard, move * 2 * plane);
+            TensorEncoder.fillBoardBuffer(boards, empty, move * 2 * plane + plane);
+            TensorEncoder.fillFeatures(features, move * TensorEncoder.FEATURE_INPUT_SIZE, spot, List.of(), 0f);
+        }
+    }
+
+    /**
+     * 全ての環境を書き終えたスロットに通し番号を付けて公開します。
+     */
+    public void publish(int slot, long seq) {
+        VarHandle.releaseFence(); // 中身の書き込みが通し番号より先に見えるように
+        slotBuffers[slot].putLong(0, seq);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,107 @@
+package org.yourcompany.yourproject.ai;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.Map;
+
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.GameSnapshot;
+import org.yourcompany.yourproject.model.Shape;
+
+/**
+ * CNN (TetrisCNN_v2) への入力テンソルを組み立てるためのユーティリティ。
+ * 盤面: [N, 2, 40, 10] (チャンネル0=自分の未来盤面, 1=相手の現在盤面)
+ * 特徴量: [N, 72] (自分のネクスト35 + 相手のネクスト35 + 自分のお邪魔 + 相手のお邪魔)
+ */
+public final class TensorEncoder {
+
+    public static final int NUM_SHAPE_TYPES = 7;
+    public static final int QUEUE_FEATURES = 5 * NUM_SHAPE_TYPES; // 35
+    public static final int FEATURE_INPUT_SIZE = (NUM_SHAPE_TYPES * 5 * 2) + 2; // 72
+    public static final int BOARD_PLANE_SIZE = Board.TOTAL_BOARD_HEIGHT * Board.BOARD_WIDTH;
+
+    private static final Map<Shape.Tetrominoes, Integer> SHAPE_TO_INDEX = Map.of(
+        Shape.Tetrominoes.TShape, 0,
+        Shape.Tetrominoes.ZShape, 1,
+        Shape.Tetrominoes.SShape, 2,
+        Shape.Tetrominoes.LineShape, 3,
+        Shape.Tetrominoes.SquareShape, 4,
+        Shape.Tetrominoes.LShape, 5,
+        Shape.Tetrominoes.MirroredLShape, 6,
+        Shape.Tetrominoes.NoShape, -1 // マッピング外
+    );
+
+    private TensorEncoder() {}
+
+    /** ミノの種類を one-hot のインデックス (0-6) に変換します。対象外は -1。 */
+    public static int shapeIndex(Shape.Tetrominoes shape) {
+        return shape == null ? -1 : SHAPE_TO_INDEX.getOrDefault(shape, -1);
+    }
+
+    /**
+     * 候補手をまとめて CNN の入力 (盤面 [N, 2, 40, 10] と特徴量 [N, 72]) に書き込みます。
+     * @param opponent 相手のスナップショット (相手がいなければ {@link GameSnapshot#EMPTY})
+     * @param boards   moves.size() * 2 * BOARD_PLANE_SIZE 以上の大きさのバッファ
+     * @param features moves.size() * FEATURE_INPUT_SIZE 以上の大きさのバッファ
+     */
+    public static void encodeMoves(List<LandingSpot> moves, GameSnapshot opponent,
+                                   FloatBuffer boards, FloatBuffer features) {
+        // 相手の情報は全バッチ共通
+        Board opponentBoard = opponent.board();
+        List<Shape.Tetrominoes> opponentQueue = opponent.nextQueue();
+        float opponentGarbage = (float) opponent.pendingGarbage();
+        for (int i = 0; i < moves.size(); i++) {
+            LandingSpot spot = moves.get(i);
+            int boardOffset = i * 2 * BOARD_PLANE_SIZE;
+            // チャンネル 0: 自分の未来盤面 / チャンネル 1: 相手の現在盤面
+            fillBoardBuffer(boards, spot.futureBoard, boardOffset);
+            fillBoardBuffer(boards, opponentBoard, boardOffset + BOARD_PLANE_SIZE);
+            fillFeatures(features, i * FEATURE_INPUT_SIZE, spot, opponentQueue, opponentGarbage);
+        }
+    }
+
+    /**
+     * 候補手1つ分の特徴量 (72) を書き込みます。
+     */
+    public static void fillFeatures(FloatBuffer buffer, int offset, LandingSpot spot,
+                                    List<Shape.Tetrominoes> opponentQueue, float opponentGarbage) {
+        // 1. 自分のネクストキュー (35)
+        fillQueueBuffer(buffer, spot.futureNextQueue, offset);
+        // 2. 相手のネクストキュー (35)
+        fillQueueBuffer(buffer, opponentQueue, offset + QUEUE_FEATURES);
+        // 3. 自分の未来のお邪魔 (1)
+        buffer.put(offset + 2 * QUEUE_FEATURES, (float) spot.pendingGarbageAfter);
+        // 4. 相手の現在のお邪魔 (1)
+        buffer.put(offset + 2 * QUEUE_FEATURES + 1, opponentGarbage);
+    }
+
+    public static void fillBoardBuffer(FloatBuffer buffer, Board board, int offset) {
+        int pos = offset;
+        for (int y = 0; y < Board.TOTAL_BOARD_HEIGHT; y++) {
+            for (int x = 0; x < Board.BOARD_WIDTH; x++) {
+                float value = (board.getGridAt(x, y) != null) ? 1.0f : 0.0f;
+                buffer.put(pos++, value);
+            }
+        }
+    }
+
+    public static void fillQueueBuffer(FloatBuffer buffer, List<Shape.Tetrominoes> queue, int offset) {
+        // 5 (個) x 7 (種類) = 35 float の領域をゼロクリア
+        for (int i = 0; i < QUEUE_FEATURES; i++) {
+            buffer.put(offset + i, 0.0f);
+        }
+
+        for (int i = 0; i < 5; i++) {
+            if (queue != null && i < queue.size()) {
+                Shape.Tetrominoes shape = queue.get(i);
+                if (shape != null) {
+                    int shapeIndex = shapeIndex(shape);
+                    if (shapeIndex != -1) {
+                        // (i * 7) + shapeIndex の位置を 1.0f にする
+                        buffer.put(offset + (i * NUM_SHAPE_TYPES) + shapeIndex, 1.0f);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.yourcompany.yourproject.ai;
+
+/**
+ * 1回の思考の中で、処理ごとにかかった時間を集めるクラス (JFR の AIDecision イベント用)。
+ *
+ * 思考スレッドで {@link #start()} すると、着地のシミュレーション (MoveGenerator)・入力テンソルの作成・
+ * 推論 (評価関数) がそれぞれの時間を足していきます。イベントを記録していないときは start() しないので、
+ * 各所の処理は {@link #current()} が null であることを確かめるだけです。
+ * 評価は推論スレッドで行うため、AnytimeDecider が評価段階ごとに同じインスタンスをそのスレッドに付け替えます。
+ *
+ * 締め切りに間に合わなかった評価段階の時間は、思考が終わった後に足されることがあります (記録には含まれない)。
+ */
+public final class ThinkTimings {
+
+    private static final ThreadLocal<ThinkTimings> CURRENT = new ThreadLocal<>();
+
+    private long landingNanos;            // 思考スレッドだけが書く
+    private long stageNanos;              // 思考スレッドだけが書く
+    private volatile long encodingNanos;  // 推論スレッドが書く
+    private volatile long inferenceNanos; // 推論スレッドが書く
+    private volatile int largestBatch;    // 推論スレッドが書く
+
+    private ThinkTimings() {}
+
+    /**
+     * 今のスレッドで思考の計測を始めます。終わったら必ず {@link #finish()} してください。
+     */
+    public static ThinkTimings start() {
+        ThinkTimings timings = new ThinkTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    /** 今のスレッドでの計測をやめます */
+    public void finish() {
+        if (CURRENT.get() == this) CURRENT.remove();
+    }
+
+    /** 今のスレッドで計測中の思考 (計測していなければ null) */
+    static ThinkTimings current() {
+        return CURRENT.get();
+    }
+
+    /** 別のスレッド (推論スレッド) で計測を引き継ぎます。null で外す */
+    static void attach(ThinkTimings timings) {
+        if (timings != null) CURRENT.set(timings);
+        else CURRENT.remove();
+    }
+
+    void addLanding(long nanos) { landingNanos += nanos; }
+    void addStage(long nanos) { stageNanos += nanos; }
+    void addEncoding(long nanos) { encodingNanos += nanos; }
+
+    void addInference(long nanos, int batchSize) {
+        inferenceNanos += nanos;
+        if (batchSize > largestBatch) largestBatch = batchSize;
+    }
+
+    /** 着地のシミュレーションにかかった時間の合計 */
+    public long getLandingNanos() { return landingNanos; }
+    /** 評価段階 (推論スレッドでの評価と、その待ち) にかかった時間の合計 */
+    public long getStageNanos() { return stageNanos; }
+    /** 入力テンソルの作成にかかった時間の合計 */
+    public long getEncodingNanos() { return encodingNanos; }
+    /** 推論 (ONNX はブローカーでまとめられる待ちを含む) にかかった時間の合計 */
+    public long getInferenceNanos() { return inferenceNanos; }
+    /** 1回の推論に渡した候補手の数の最大 (推論しなかった場合は 0) */
+    public int getLargestBatch() { return largestBatch; }
+}
@@ -0,0 +1,425 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.yourcompany.yourproject.config.AIConfig;
+import org.yourcompany.yourproject.config.SpeedProfile;
+import org.yourcompany.yourproject.controller.GameController;
+import org.yourcompany.yourproject.controller.HeadlessMatch;
+import org.yourcompany.yourproject.player.AIPlayer;
+
+/**
+ * モデル (とヒューリスティック) どうしを画面なしで総当たり・スイス式で対局させ、強さを比べるツール。
+ *
+ * 使い方: java ... org.yourcompany.yourproject.ai.Tournament --players A,B,C [--format round-robin|swiss]
+ *         [--rounds R] [--seeds K] [--workers W] [--seed S] [--max-frames F] [--think-ms MS] [--pps P] [--out DIR]
+ *
+ * プレイヤーは Evaluator.forModel に渡すモデル名 (heuristic でヒューリスティック) です。
+ * 1つの組み合わせは K 個のシード (全ての組み合わせで同じ袋) で、それぞれ先後を入れ替えて 2K 局を指します。
+ * 対局はワーカースレッドで並列に進めます (AIの思考は ComputeScheduler の予算内で実行される)。
+ *
+ * 結果は DIR/games.csv (1局1行)、DIR/standings.csv と DIR/report.json (プレイヤーごとの成績) に書き出します。
+ * <ul>
+ * <li>Elo は全対局からの最尤推定、Glicko-2 はラウンドごとの更新で、どちらも 95% 信頼区間付き</li>
+ * <li>PPS・APM はゲーム内の時間 (フレーム数 × GameController.TICK_MILLIS) あたり。APM は相殺後に送ったお邪魔の行数</li>
+ * <li>思考時間は1手ごとの DecisionReport の合計時間 (他のAIの思考待ちは含まない)</li>
+ * </ul>
+ */
+public final class Tournament {
+
+    private static final long SEED_STRIDE = 0x9E3779B97F4A7C15L;
+
+    private enum Format { ROUND_ROBIN, SWISS }
+
+    /** 1局の結果 (プレイヤーは参加者の番号) */
+    private record GameResult(int round, int player1, int player2, long seed, int winner, long frames,
+                              long pieces1, long pieces2, int linesSent1, int linesSent2,
+                              Latencies think1, Latencies think2) {
+        /** player1 から見た結果 */
+        double score1() {
+            return (winner == 0) ? 0.5 : (winner == 1 ? 1.0 : 0.0);
+        }
+    }
+
+    /** 1局の中の1人分の思考時間 (思考スレッドから追加される) */
+    private static final class Latencies {
+        private long[] nanos = new long[256];
+        private int size;
+        private int deadlineMisses;
+
+        synchronized void add(DecisionReport report) {
+            if (size == nanos.length) nanos = Arrays.copyOf(nanos, size * 2);
+            nanos[size++] = report.totalNanos();
+            if (report.deadlineMissed()) deadlineMisses++;
+        }
+
+        synchronized long[] values() { return Arrays.copyOf(nanos, size); }
+        synchronized int deadlineMisses() { return deadlineMisses; }
+    }
+
+    /** 参加者ごとの集計 */
+    private static final class Standing {
+        final String name;
+        int games, wins, draws, losses;
+        double points;
+        long pieces, frames, linesSent;
+        int deadlineMisses;
+        final List<long[]> think = new ArrayList<>();
+        Ratings.Rating elo;
+        Ratings.Rating glicko;
+
+        Standing(String name) { this.name = name; }
+
+        void add(boolean first, GameResult g) {
+            int result = (g.winner() == 0) ? 0 : ((g.winner() == 1) == first ? 1 : -1);
+            games++;
+            if (result > 0) wins++;
+            else if (result < 0) losses++;
+            else draws++;
+            points += (result + 1) / 2.0;
+            pieces += first ? g.pieces1() : g.pieces2();
+            frames += g.frames();
+            linesSent += first ? g.linesSent1() : g.linesSent2();
+            Latencies latencies = first ? g.think1() : g.think2();
+            think.add(latencies.values());
+            deadlineMisses += latencies.deadlineMisses();
+        }
+
+        double gameSeconds() { return frames * GameController.TICK_MILLIS / 1000.0; }
+        double pps() { return (frames == 0) ? 0 : pieces / gameSeconds(); }
+        double apm() { return (frames == 0) ? 0 : linesSent * 60.0 / gameSeconds(); }
+
+        long[] sortedThink() {
+            long[] all = think.stream().flatMapToLong(Arrays::stream).toArray();
+            Arrays.sort(all);
+            return all;
+        }
+    }
+
+    private final List<String> models;
+    private final List<String> names;
+    private final int seeds;
+    private final long baseSeed;
+    private final long maxFrames;
+    private final SpeedProfile speed;
+    private final ExecutorService pool;
+    private final Set<Long> playedPairs = new HashSet<>();
+
+    private Tournament(List<String> models, int seeds, long baseSeed, long maxFrames, SpeedProfile speed, int workers) {
+        this.models = models;
+        this.names = models.stream().map(Tournament::displayName).toList();
+        this.seeds = seeds;
+        this.baseSeed = baseSeed;
+        this.maxFrames = maxFrames;
+        this.speed = speed;
+        this.pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "tournament-worker");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> models = new ArrayList<>();
+        Format format = Format.ROUND_ROBIN;
+        int rounds = 0;
+        int seeds = 2;
+        int workers = Runtime.getRuntime().availableProcessors();
+        long seed = 0;
+        long maxFrames = 20_000;
+        double pps = 0;
+        Path out = Path.of("tournament-results");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--players" -> models.addAll(Arrays.asList(args[++i].split(",")));
+                case "--format" -> format = args[++i].equalsIgnoreCase("swiss") ? Format.SWISS : Format.ROUND_ROBIN;
+                case "--rounds" -> rounds = Integer.parseInt(args[++i]);
+                case "--seeds" -> seeds = Integer.parseInt(args[++i]);
+                case "--workers" -> workers = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--max-frames" -> maxFrames = Long.parseLong(args[++i]);
+                case "--think-ms" -> AIConfig.THINK_BUDGET_MS = Long.parseLong(args[++i]);
+                case "--pps" -> pps = Double.parseDouble(args[++i]);
+                case "--out" -> out = Path.of(args[++i]);
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        if (models.size() < 2) {
+            System.err.println("--players needs at least two models (e.g. heuristic,tetris_model_v2_final.onnx)");
+            System.exit(2);
+        }
+        if (rounds <= 0) {
+            // スイス式の既定: log2(参加者数) + 2 ラウンド
+            rounds = (format == Format.SWISS) ? (32 - Integer.numberOfLeadingZeros(models.size() - 1)) + 2 : 0;
+        }
+
+        Tournament tournament = new Tournament(models, Math.max(1, seeds), seed, maxFrames,
+            SpeedProfile.instant().withTargetPps(pps), Math.max(1, workers));
+        long start = System.nanoTime();
+        List<GameResult> results = (format == Format.SWISS) ? tournament.runSwiss(rounds) : tournament.runRoundRobin();
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+        tournament.pool.shutdown();
+
+        List<Standing> standings = tournament.standings(results);
+        Files.createDirectories(out);
+        tournament.writeGamesCsv(out.resolve("games.csv"), results);
+        writeStandingsCsv(out.resolve("standings.csv"), standings);
+        tournament.writeJson(out.resolve("report.json"), format, results, standings, wallSeconds);
+        printStandings(standings);
+        System.out.printf(Locale.ROOT, "%d games in %.1fs wall time. Reports written to %s%n",
+            results.size(), wallSeconds, out.toAbsolutePath());
+    }
+
+    private static String displayName(String model) {
+        if (model.equalsIgnoreCase("heuristic") || model.equals(HeuristicEvaluator.MODEL_NAME)) return "heuristic";
+        return model.endsWith(".onnx") ? model.substring(0, model.length() - ".onnx".length()) : model;
+    }
+
+    // ---------------------------------------------------------------
+    // 組み合わせ
+    // ---------------------------------------------------------------
+
+    /**
+     * 総当たり。サークル方式で全員が1ラウンドに1回ずつ対局するように並べ、全ラウンドをまとめて並列に実行します。
+     */
+    private List<GameResult> runRoundRobin() throws InterruptedException, ExecutionException {
+        int n = models.size();
+        int slots = n + (n % 2); // 奇数なら不戦 (-1) を加える
+        int[] circle = new int[slots];
+        for (int i = 0; i < slots; i++) circle[i] = (i < n) ? i : -1;
+        List<Future<GameResult>> futures = new ArrayList<>();
+        for (int round = 0; round < slots - 1; round++) {
+            for (int k = 0; k < slots / 2; k++) {
+                int a = circle[k];
+                int b = circle[slots - 1 - k];
+                if (a >= 0 && b >= 0) futures.addAll(submitPairing(round, a, b));
+            }
+            // 先頭を固定して残りを1つ回す
+            int last = circle[slots - 1];
+            System.arraycopy(circle, 1, circle, 2, slots - 2);
+            circle[1] = last;
+        }
+        return collect(futures);
+    }
+
+    /**
+     * スイス式。ラウンドごとに勝ち点の近いプレイヤーどうしを (なるべく再戦しないように) 組み合わせます。
+     * 参加者が奇数のときは、組み合わせから余った1人がそのラウンドを休みます (勝ち点なし)。
+     */
+    private List<GameResult> runSwiss(int rounds) throws InterruptedException, ExecutionException {
+        int n = models.size();
+        double[] points = new double[n];
+        List<GameResult> results = new ArrayList<>();
+        for (int round = 0; round < rounds; round++) {
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingDouble((Integer i) -> -points[i]).thenComparingInt(i -> i));
+            boolean[] paired = new boolean[n];
+            List<Future<GameResult>> futures = new ArrayList<>();
+            for (int x = 0; x < n; x++) {
+                int a = order[x];
+                if (paired[a]) continue;
+                int opponent = -1;
+                for (int y = x + 1; y < n; y++) {
+                    int b = order[y];
+                    if (paired[b]) continue;
+                    if (opponent < 0) opponent = b; // 全員と対局済みなら、一番近い相手と再戦
+                    if (!playedPairs.contains(pairKey(a, b))) {
+                        opponent = b;
+                        break;
+                    }
+                }
+                if (opponent < 0) continue; // 休み
+                paired[a] = true;
+                paired[opponent] = true;
+                playedPairs.add(pairKey(a, opponent));
+                futures.addAll(submitPairing(round, a, opponent));
+            }
+            List<GameResult> roundResults = collect(futures);
+            for (GameResult g : roundResults) {
+                points[g.player1()] += g.score1();
+                points[g.player2()] += 1 - g.score1();
+            }
+            results.addAll(roundResults);
+            System.out.printf(Locale.ROOT, "Round %d/%d finished (%d games)%n", round + 1, rounds, roundResults.size());
+        }
+        return results;
+    }
+
+    private static long pairKey(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    /** 1つの組み合わせの対局 (シードごとに先後を入れ替えて2局) を投入します */
+    private List<Future<GameResult>> submitPairing(int round, int a, int b) {
+        List<Future<GameResult>> futures = new ArrayList<>();
+        for (int k = 0; k < seeds; k++) {
+            long gameSeed = baseSeed + k * SEED_STRIDE;
+            futures.add(pool.submit(() -> playGame(round, a, b, gameSeed)));
+            futures.add(pool.submit(() -> playGame(round, b, a, gameSeed)));
+        }
+        return futures;
+    }
+
+    private static List<GameResult> collect(List<Future<GameResult>> futures) throws InterruptedException, ExecutionException {
+        List<GameResult> results = new ArrayList<>(futures.size());
+        for (Future<GameResult> f : futures) results.add(f.get());
+        return results;
+    }
+
+    private GameResult playGame(int round, int index1, int index2, long seed) {
+        AIPlayer player1 = createPlayer(models.get(index1));
+        AIPlayer player2 = createPlayer(models.get(index2));
+        Latencies think1 = new Latencies();
+        Latencies think2 = new Latencies();
+        player1.setDecisionListener(think1::add);
+        player2.setDecisionListener(think2::add);
+        try {
+            HeadlessMatch match = new HeadlessMatch(player1, player2, seed);
+            HeadlessMatch.Result result = match.play(maxFrames);
+            GameResult game = new GameResult(round, index1, index2, seed, result.winner(), result.frames(),
+                result.player1().placedPieces(), result.player2().placedPieces(),
+                match.getManager().getLinesSent(1), match.getManager().getLinesSent(2), think1, think2);
+            System.out.printf("  %s vs %s: winner=%d frames=%d%n",
+                names.get(index1), names.get(index2), result.winner(), result.frames());
+            return game;
+        } finally {
+            player1.close();
+            player2.close();
+        }
+    }
+
+    private AIPlayer createPlayer(String model) {
+        String name = model.equalsIgnoreCase("heuristic") ? HeuristicEvaluator.MODEL_NAME : model;
+        AIPlayer player = new AIPlayer(Evaluator.forModel(name));
+        player.setSpeedProfile(speed);
+        return player;
+    }
+
+    // ---------------------------------------------------------------
+    // 集計と出力
+    // ---------------------------------------------------------------
+
+    private List<Standing> standings(List<GameResult> results) {
+        int n = models.size();
+        List<Standing> standings = new ArrayList<>();
+        for (String name : names) standings.add(new Standing(name));
+        List<Ratings.Outcome> outcomes = new ArrayList<>();
+        for (GameResult g : results) {
+            standings.get(g.player1()).add(true, g);
+            standings.get(g.player2()).add(false, g);
+            outcomes.add(new Ratings.Outcome(g.player1(), g.player2(), g.score1()));
+        }
+        Ratings.Rating[] elo = Ratings.elo(n, outcomes);
+        Ratings.Glicko2 glicko = new Ratings.Glicko2(n);
+        int lastRound = results.stream().mapToInt(GameResult::round).max().orElse(-1);
+        for (int round = 0; round <= lastRound; round++) {
+            List<Ratings.Outcome> period = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i).round() == round) period.add(outcomes.get(i));
+            }
+            glicko.ratePeriod(period);
+        }
+        for (int i = 0; i < n; i++) {
+            standings.get(i).elo = elo[i];
+            standings.get(i).glicko = glicko.rating(i);
+        }
+        List<Standing> sorted = new ArrayList<>(standings);
+        sorted.sort(Comparator.comparingDouble((Standing s) -> -s.elo.value()));
+        return sorted;
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.min(sorted.length - 1, Math.max(0, Math.ceil(p * sorted.length) - 1));
+        return sorted[index] / 1e6;
+    }
+
+    private static double meanMs(long[] values) {
+        return Arrays.stream(values).average().orElse(0) / 1e6;
+    }
+
+    private void writeGamesCsv(Path file, List<GameResult> results) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("round,seed,player1,player2,winner,frames,pieces1,pieces2,lines_sent1,lines_sent2,think_mean_ms1,think_mean_ms2");
+            for (GameResult g : results) {
+                out.printf(Locale.ROOT, "%d,%d,%s,%s,%d,%d,%d,%d,%d,%d,%.3f,%.3f%n", g.round() + 1, g.seed(),
+                    names.get(g.player1()), names.get(g.player2()), g.winner(), g.frames(), g.pieces1(), g.pieces2(),
+                    g.linesSent1(), g.linesSent2(), meanMs(g.think1().values()), meanMs(g.think2().values()));
+            }
+        }
+    }
+
+    private static void writeStandingsCsv(Path file, List<Standing> standings) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("rank,player,games,wins,draws,losses,points,elo,elo_low,elo_high,glicko,glicko_low,glicko_high,"
+                + "pps,apm,think_mean_ms,think_p50_ms,think_p95_ms,think_p99_ms,deadline_misses");
+            int rank = 1;
+            for (Standing s : standings) {
+                long[] think = s.sortedThink();
+                out.printf(Locale.ROOT, "%d,%s,%d,%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.3f,%.2f,%.3f,%.3f,%.3f,%.3f,%d%n",
+                    rank++, s.name, s.games, s.wins, s.draws, s.losses, s.points,
+                    s.elo.value(), s.elo.low(), s.elo.high(), s.glicko.value(), s.glicko.low(), s.glicko.high(),
+                    s.pps(), s.apm(), meanMs(think), percentileMs(think, 0.5), percentileMs(think, 0.95),
+                    percentileMs(think, 0.99), s.deadlineMisses);
+            }
+        }
+    }
+
+    private void writeJson(Path file, Format format, List<GameResult> results, List<Standing> standings,
+                           double wallSeconds) throws IOException {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("{\n  \"format\": \"").append(format == Format.SWISS ? "swiss" : "round-robin").append('"')
+          .append(",\n  \"games\": ").append(results.size())
+          .append(",\n  \"seedsPerPairing\": ").append(seeds)
+          .append(",\n  \"thinkBudgetMs\": ").append(AIConfig.THINK_BUDGET_MS)
+          .append(",\n  \"targetPps\": ").append(speed.targetPps())
+          .append(String.format(Locale.ROOT, ",\n  \"wallSeconds\": %.1f", wallSeconds))
+          .append(",\n  \"standings\": [");
+        for (int i = 0; i < standings.size(); i++) {
+            Standing s = standings.get(i);
+            long[] think = s.sortedThink();
+            sb.append(i == 0 ? "\n" : ",\n").append(String.format(Locale.ROOT,
+                "    {\"rank\": %d, \"player\": \"%s\", \"games\": %d, \"wins\": %d, \"draws\": %d, \"losses\": %d, "
+                + "\"points\": %.1f, \"elo\": {\"value\": %.1f, \"low\": %.1f, \"high\": %.1f}, "
+                + "\"glicko\": {\"value\": %.1f, \"low\": %.1f, \"high\": %.1f}, \"pps\": %.3f, \"apm\": %.2f, "
+                + "\"thinkMs\": {\"mean\": %.3f, \"p50\": %.3f, \"p95\": %.3f, \"p99\": %.3f}, \"deadlineMisses\": %d}",
+                i + 1, s.name.replace("\\", "\\\\").replace("\"", "\\\""), s.games, s.wins, s.draws, s.losses, s.points,
+                s.elo.value(), s.elo.low(), s.elo.high(), s.glicko.value(), s.glicko.low(), s.glicko.high(),
+                s.pps(), s.apm(), meanMs(think), percentileMs(think, 0.5), percentileMs(think, 0.95),
+                percentileMs(think, 0.99), s.deadlineMisses));
+        }
+        sb.append("\n  ]\n}\n");
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+    }
+
+    private static void printStandings(List<Standing> standings) {
+        System.out.printf("%-4s %-28s %5s %5s %5s %5s %16s %16s %7s %7s %9s %9s%n",
+            "rank", "player", "games", "W", "D", "L", "elo (95%)", "glicko (95%)", "pps", "apm", "think", "p95");
+        int rank = 1;
+        for (Standing s : standings) {
+            long[] think = s.sortedThink();
+            System.out.printf(Locale.ROOT, "%-4d %-28s %5d %5d %5d %5d %9.0f +-%-4.0f %9.0f +-%-4.0f %7.2f %7.1f %7.2fms %7.2fms%n",
+                rank++, s.name, s.games, s.wins, s.draws, s.losses, s.elo.value(), s.elo.halfWidth(),
+                s.glicko.value(), s.glicko.halfWidth(), s.pps(), s.apm(), meanMs(think), percentileMs(think, 0.95));
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.yourcompany.yourproject.config.SpinType;
+import org.yourcompany.yourproject.model.Board;
+import org.yourcompany.yourproject.model.GameLogic;
+import org.yourcompany.yourproject.model.GameSnapshot;
+import org.yourcompany.yourproject.model.Placement;
+import org.yourcompany.yourproject.model.Shape;
+
+/**
+ * 学習用のヘッドレスなゲーム環境 (PythonAITrainer/obseris_env.py から起動される)。
+ * 1手ごとに「置ける場所の一覧」を返し、学習側が選んだ手を GameLogic に即時配置して次の状態を返します。
+ *
+ * 使い方: java ... org.yourcompany.yourproject.ai.TrainingEnvironment [--json] [--seed N]
+ *
+ * <h2>バイナリ形式 (既定)</h2>
+ * 標準入出力でメッセージをやり取りします。各メッセージは [int32 長さ][本体] で、数値はすべてビッグエンディアンです。
+ * <pre>
+ * 要求:  RESET  = [u8 1][u8 シードあり][i64 シード]
+ *        STEP   = [u8 2][u16 手の番号 (直前に返した一覧の中の位置)]
+ *        PLACE  = [u8 3][u8 ホールド][i8 x][u8 向き]   (一覧から同じ置き方の手を探して STEP する)
+ *        CLOSE  = [u8 4]
+ * 応答:  観測 = [u8 1] 手の結果 状態 手の一覧
+ *        エラー = [u8 0][UTF 文字列]
+ * 手の結果: [u8 受理][u8 消去数][u8 スピン][u8 火力][i32 スコア増分]
+ * 状態:   [u8 ゲームオーバー][u16 × 40 盤面][u8 現在][u8 ホールド][u8 ホールド可][u8 ネクスト数][u8 × n ネクスト]
+ *         [i16 お邪魔][i8 コンボ][u8 B2B][i64 スコア][i32 固定数]
+ * 手:     [u16 手の数] 各手 = [u8 ホールド][i8 x][i8 y][u8 向き][u8 スピン][u8 消去数][u8 火力][u8 ゲームオーバー][u16 × 40 置いた後の盤面]
+ * </pre>
+ * 盤面は上の行から順に、1行を1つの u16 (bit x = 列 x が埋まっている) で表します。
+ * ミノは Shape.Tetrominoes の序数 (0 = なし, 1..7 = ミノ)、スピンは SpinType の序数です。
+ *
+ * <h2>JSON 形式 (--json, デバッグ用)</h2>
+ * 1行に1つの JSON で同じ内容をやり取りします。
+ * 要求は {"cmd":"reset","seed":1} / {"cmd":"step","move":3} / {"x":4,"rot":1,"useHold":false} / {"cmd":"close"}。
+ */
+public final class TrainingEnvironment {
+
+    public static final byte OP_RESET = 1;
+    public static final byte OP_STEP = 2;
+    public static final byte OP_PLACE = 3;
+    public static final byte OP_CLOSE = 4;
+    public static final byte RESPONSE_ERROR = 0;
+    public static final byte RESPONSE_OBSERVATION = 1;
+
+    // ライン消去や出現待ちで、次のミノが出るまでに進めるフレーム数の上限
+    private static final int MAX_SETTLE_FRAMES = 1000;
+
+    /** 1手の結果 */
+    public record StepResult(boolean accepted, int linesCleared, SpinType spinType, int attack, long scoreDelta) {
+        public static final StepResult NONE = new StepResult(true, 0, SpinType.NONE, 0, 0);
+        public static final StepResult REJECTED = new StepResult(false, 0, SpinType.NONE, 0, 0);
+    }
+
+    private final Random seeds;
+    private GameLogic logic;
+    private List<LandingSpot> moves = List.of();
+
+    public TrainingEnvironment(long seed) {
+        this.seeds = new Random(seed);
+        reset(seeds.nextLong());
+    }
+
+    /**
+     * 新しいゲームを始めます。同じシードなら同じ順番でミノが出ます。
+     */
+    public void reset(long seed) {
+        logic = new GameLogic(seed);
+        moves = MoveGenerator.generate(logic.getSnapshot());
+    }
+
+    /** 環境のシード列から次のシードを取って新しいゲームを始めます */
+    public void reset() {
+        reset(seeds.nextLong());
+    }
+
+    /**
+     * 直前の一覧の moveIndex 番目の手を置き、次のミノが出るまでゲームを進めます。
+     * ゲームオーバー後・範囲外の番号・置けない手の場合は何もせず、受理されなかった結果を返します。
+     */
+    public StepResult step(int moveIndex) {
+        if (logic.isGameOver() || moveIndex < 0 || moveIndex >= moves.size()) return StepResult.REJECTED;
+        LandingSpot move = moves.get(moveIndex);
+        long scoreBefore = logic.getScore();
+        boolean placed = logic.applyPlacement(new Placement(move.usedHold,
+            move.finalX, move.finalY, move.finalRot, move.spinType != SpinType.NONE));
+        if (!placed) return StepResult.REJECTED;
+
+        for (int i = 0; i < MAX_SETTLE_FRAMES && !logic.isGameOver() && !logic.getSnapshot().hasCurrentPiece(); i++) {
+            logic.update();
+        }
+        moves = logic.isGameOver() ? List.of() : MoveGenerator.generate(logic.getSnapshot());
+        return new StepResult(true, move.linesCleared, move.spinType, move.attackPower,
+            logic.getScore() - scoreBefore);
+    }
+
+    /**
+     * 「ホールドするか・x・向き」が一致する手の番号を返します (見つからなければ -1)。
+     * 同じ x・向きで高さの違う手がある場合は、一覧で先に出てくる手を選びます。
+     */
+    public int findMove(boolean useHold, int x, int rotation) {
+        for (int i = 0; i < moves.size(); i++) {
+            LandingSpot m = moves.get(i);
+            if (m.usedHold == useHold && m.finalX == x && m.finalRot == rotation) return i;
+        }
+        return -1;
+    }
+
+    public GameLogic getLogic() { return logic; }
+    public List<LandingSpot> getMoves() { return moves; }
+
+    // ---------------------------------------------------------------
+    // バイナリ形式
+    // ---------------------------------------------------------------
+
+    /**
+     * 観測 (手の結果・状態・手の一覧) をバイナリ形式で書き込みます。
+     */
+    public void writeObservation(DataOutputStream out, StepResult result) throws IOException {
+        out.writeByte(RESPONSE_OBSERVATION);
+        writeStepResult(out, result);
+        writeState(out, logic.getSnapshot());
+        writeMoves(out, moves);
+    }
+
+    static void writeStepResult(DataOutputStream out, StepResult result) throws IOException {
+        out.writeByte(result.accepted() ? 1 : 0);
+        out.writeByte(result.linesCleared());
+        out.writeByte(result.spinType().ordinal());
+        out.writeByte(result.attack());
+        out.writeInt((int) result.scoreDelta());
+    }
+
+    static void writeState(DataOutputStream out, GameSnapshot s) throws IOException {
+        out.writeByte(s.gameOver() ? 1 : 0);
+        writeBoard(out, s.board());
+        out.writeByte(shapeCode(s.currentShape()));
+        out.writeByte(shapeCode(s.holdShape()));
+        out.writeByte(s.canHold() ? 1 : 0);
+        out.writeByte(s.nextQueue().size());
+        for (Shape.Tetrominoes shape : s.nextQueue()) out.writeByte(shapeCode(shape));
+        out.writeShort(s.pendingGarbage());
+        out.writeByte(s.comboCount());
+        out.writeByte(s.b2bActive() ? 1 : 0);
+        out.writeLong(s.score());
+        out.writeInt((int) s.placedPieces());
+    }
+
+    static void writeMoves(DataOutputStream out, List<LandingSpot> moves) throws IOException {
+        out.writeShort(moves.size());
+        for (LandingSpot m : moves) {
+            out.writeByte(m.usedHold ? 1 : 0);
+            out.writeByte(m.finalX);
+            out.writeByte(m.finalY);
+            out.writeByte(m.finalRot);
+            out.writeByte(m.spinType.ordinal());
+            out.writeByte(m.linesCleared);
+            out.writeByte(m.attackPower);
+            out.writeByte(m.isGameOver ? 1 : 0);
+            writeBoard(out, m.futureBoard);
+        }
+    }
+
+    private static void writeBoard(DataOutputStream out, Board board) throws IOException {
+        for (int y = 0; y < Board.TOTAL_BOARD_HEIGHT; y++) out.writeShort(board.getRowBits(y));
+    }
+
+    private static int shapeCode(Shape.Tetrominoes shape) {
+        return (shape == null) ? 0 : shape.ordinal();
+    }
+
+    static void writeError(DataOutputStream out, String message) throws IOException {
+        out.writeByte(RESPONSE_ERROR);
+        out.writeUTF(message);
+    }
+
+    // ---------------------------------------------------------------
+    // JSON 形式 (デバッグ用)
+    // ---------------------------------------------------------------
+
+    /**
+     * 観測を1行の JSON で返します (バイナリ形式と同じ内容)。
+     */
+    public String toJson(StepResult result) {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append('{');
+        appendStepResultJson(sb, result);
+        sb.append(',');
+        appendStateJson(sb, logic.getSnapshot());
+        sb.append(",\"moves\":");
+        appendMovesJson(sb, moves);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    static void appendStepResultJson(StringBuilder sb, StepResult r) {
+        sb.append("\"accepted\":").append(r.accepted())
+          .append(",\"linesCleared\":").append(r.linesCleared())
+          .append(",\"spin\":\"").append(r.spinType()).append('"')
+          .append(",\"attack\":").append(r.attack())
+          .append(",\"scoreDelta\":").append(r.scoreDelta());
+    }
+
+    static void appendStateJson(StringBuilder sb, GameSnapshot s) {
+        sb.append("\"isGameOver\":").append(s.gameOver())
+          .append(",\"board\":");
+        appendBoardJson(sb, s.board());
+        sb.append(",\"current\":").append(shapeCode(s.currentShape()))
+          .append(",\"hold\":").append(shapeCode(s.holdShape()))
+          .append(",\"canHold\":").append(s.canHold())
+          .append(",\"next\":[");
+        for (int i = 0; i < s.nextQueue().size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(shapeCode(s.nextQueue().get(i)));
+        }
+        sb.append("],\"pendingGarbage\":").append(s.pendingGarbage())
+          .append(",\"combo\":").append(s.comboCount())
+          .append(",\"b2b\":").append(s.b2bActive())
+          .append(",\"score\":").append(s.score())
+          .append(",\"placedPieces\":").append(s.placedPieces());
+    }
+
+    static void appendMovesJson(StringBuilder sb, List<LandingSpot> moves) {
+        sb.append('[');
+        for (int i = 0; i < moves.size(); i++) {
+            LandingSpot m = moves.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"useHold\":").append(m.usedHold)
+              .append(",\"x\":").append(m.finalX)
+              .append(",\"y\":").append(m.finalY)
+              .append(",\"rot\":").append(m.finalRot)
+              .append(",\"spin\":\"").append(m.spinType).append('"')
+              .append(",\"linesCleared\":").append(m.linesCleared)
+              .append(",\"attack\":").append(m.attackPower)
+              .append(",\"isGameOver\":").append(m.isGameOver)
+              .append(",\"board\":");
+            appendBoardJson(sb, m.futureBoard);
+            sb.append('}');
+        }
+        sb.append(']');
+    }
+
+    private static void appendBoardJson(StringBuilder sb, Board board) {
+        sb.append('[');
+        for (int y = 0; y < Board.TOTAL_BOARD_HEIGHT; y++) {
+            if (y > 0) sb.append(',');
+            sb.append(board.getRowBits(y));
+        }
+        sb.append(']');
+    }
+
+    private static final Pattern JSON_FIELD = Pattern.compile("\"(\\w+)\"\\s*:\\s*(\"[^\"]*\"|[-\\w.]+)");
+
+    /**
+     * 入れ子のない JSON オブジェクト ({"cmd":"step","move":3} など) を キー→値 の表にします。
+     */
+    static Map<String, String> parseFlatJson(String line) {
+        Map<String, String> fields = new HashMap<>();
+        Matcher m = JSON_FIELD.matcher(line);
+        while (m.find()) {
+            String value = m.group(2);
+            if (value.startsWith("\"")) value = value.substring(1, value.length() - 1);
+            fields.put(m.group(1), value);
+        }
+        return fields;
+    }
+
+    // ---------------------------------------------------------------
+    // サーバー
+    // ---------------------------------------------------------------
+
+    public static void main(String[] args) throws IOException {
+        boolean json = false;
+        long seed = System.nanoTime();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--json" -> json = true;
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        OutputStream stdout = takeStdout();
+        TrainingEnvironment env = new TrainingEnvironment(seed);
+        if (json) {
+            serveJson(env, stdout);
+        } else {
+            serveBinary(env, stdout);
+        }
+    }
+
+    /**
+     * 標準出力を応答専用にして返します (各クラスのログは標準エラーへ流す)。
+     */
+    static OutputStream takeStdout() {
+        OutputStream stdout = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16);
+        System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true, StandardCharsets.UTF_8));
+        return stdout;
+    }
+
+    /**
+     * 要求を1つ読み込みます。
+     * @return 本体 (相手が接続を閉じた場合は null)
+     */
+    static ByteBuffer readFrame(DataInputStream in) throws IOException {
+        try {
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            return ByteBuffer.wrap(payload);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /** 書き終えた本体に長さを付けて送ります */
+    static void writeFrame(DataOutputStream out, ByteArrayOutputStream body) throws IOException {
+        out.writeInt(body.size());
+        body.writeTo(out);
+        out.flush();
+    }
+
+    private static void serveBinary(TrainingEnvironment env, OutputStream stdout) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in, 1 << 16));
+        DataOutputStream out = new DataOutputStream(stdout);
+        ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 16);
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        while (true) {
+            ByteBuffer request = readFrame(in);
+            if (request == null) return; // 学習側が終了した
+            body.reset();
+            try {
+                byte op = request.get();
+                if (op == OP_CLOSE) return;
+                switch (op) {
+                    case OP_RESET -> {
+                        boolean hasSeed = request.get() != 0;
+                        long seed = request.getLong();
+                        if (hasSeed) env.reset(seed); else env.reset();
+                        env.writeObservation(bodyOut, StepResult.NONE);
+                    }
+                    case OP_STEP -> env.writeObservation(bodyOut, env.step(Short.toUnsignedInt(request.getShort())));
+                    case OP_PLACE -> {
+                        boolean useHold = request.get() != 0;
+                        int x = request.get();
+                        int rotation = request.get();
+                        env.writeObservation(bodyOut, env.step(env.findMove(useHold, x, rotation)));
+                    }
+                    default -> writeError(bodyOut, "Unknown op: " + op);
+                }
+            } catch (RuntimeException e) {
+                // 短い・壊れた要求や範囲外の手でもサーバーは止めず、エラーとして返す (JSON 形式と同じ)
+                body.reset();
+                writeError(bodyOut, e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+            bodyOut.flush();
+            writeFrame(out, body);
+        }
+    }
+
+    private static void serveJson(TrainingEnvironment env, OutputStream stdout) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        PrintStream out = new PrintStream(stdout, false, StandardCharsets.UTF_8);
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank()) continue;
+            Map<String, String> command = parseFlatJson(line);
+            String cmd = command.getOrDefault("cmd", command.containsKey("x") ? "place" : "");
+            String response;
+            try {
+                response = switch (cmd) {
+                    case "reset" -> {
+                        if (command.containsKey("seed")) env.reset(Long.parseLong(command.get("seed")));
+                        else env.reset();
+                        yield env.toJson(StepResult.NONE);
+                    }
+                    case "step" -> env.toJson(env.step(Integer.parseInt(command.get("move"))));
+                    case "place" -> env.toJson(env.step(env.findMove(
+                        Boolean.parseBoolean(command.getOrDefault("useHold", "false")),
+                        Integer.parseInt(command.get("x")),
+                        Integer.parseInt(command.getOrDefault("rot", "0")))));
+                    case "close" -> null;
+                    default -> "{\"error\":\"Unknown command: " + cmd + "\"}";
+                };
+            } catch (RuntimeException e) {
+                response = "{\"error\":\"" + e.getClass().getSimpleName() + "\"}";
+            }
+            if (response == null) return;
+            out.println(response);
+            out.flush();
+        }
+    }
+}
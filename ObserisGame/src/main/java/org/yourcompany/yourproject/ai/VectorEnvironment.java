@@ -0,0 +1,258 @@
+package org.yourcompany.yourproject.ai;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import org.yourcompany.yourproject.ai.TrainingEnvironment.StepResult;
+
+/**
+ * N 個の独立したゲーム ({@link TrainingEnvironment}) を1つのプロセスで動かす学習用の環境。
+ * 1回の要求で全ての環境を (ワーカースレッドで並列に) 1手ずつ進め、観測・報酬・終了フラグをまとめて返すので、
+ * 環境の数が増えても通信は1往復のままです。ゲームオーバーになった環境は自動でリセットされます。
+ *
+ * 使い方: java ... org.yourcompany.yourproject.ai.VectorEnvironment --envs N [--seed S] [--threads T]
+ *         [--shm PATH [--shm-slots K] [--max-moves M]]
+ *
+ * 形式は TrainingEnvironment のバイナリ形式と同じ枠 ([int32 長さ][本体]、ビッグエンディアン) です。
+ * <pre>
+ * 要求:  RESET = [u8 1][u8 シードあり][i64 シード]         (環境 i のシードはこのシードと i から決まる)
+ *        STEP  = [u8 2][u16 N][u16 × N 手の番号]
+ *        CLOSE = [u8 4]
+ * 応答:  [u8 1][u16 N][f32 × N 報酬][u8 × N 終了][i64 × N 最終スコア][i32 × N 最終固定数]
+ *        [観測 × N]  (各観測は TrainingEnvironment の観測と同じ)
+ * </pre>
+ * --shm PATH を付けると、観測と報酬などはパイプでは送らず {@link SharedObservationRing} (PATH にマップしたファイル) へ
+ * CNN の入力と同じ形で書き込み、応答は [u8 2][i64 通し番号][u8 スロット] だけになります
+ * (--shm-slots でスロット数、--max-moves で1環境あたりの最大手数を指定)。
+ * 終了した環境の観測はリセット後の新しいゲームの最初の状態です。最終スコア・最終固定数は
+ * 終了した環境についてだけ意味を持ちます (終了したゲームの結果)。
+ * 報酬は train_dql.py の calculate_step_reward と同じ式です (相手がいないので、受けたお邪魔は 0)。
+ */
+public final class VectorEnvironment {
+
+    // 環境ごとのシードをずらす量 (近いシードどうしの相関を避ける)
+    private static final long SEED_STRIDE = 0x9E3779B97F4A7C15L;
+    public static final byte RESPONSE_SHARED = 2;
+
+    private final TrainingEnvironment[] envs;
+    private final ForkJoinPool workers;
+    private final SharedObservationRing ring; // null ならパイプで観測を送る
+    private long sequence;                     // reset / step の通し番号
+
+    // --- 直前の step の結果 (環境ごと) ---
+    private final float[] rewards;
+    private final boolean[] dones;
+    private final long[] finalScores;
+    private final int[] finalPieces;
+    private final byte[][] observations;
+
+    public VectorEnvironment(int count, long seed, int threads) {
+        this(count, seed, threads, null);
+    }
+
+    /**
+     * @param ring 観測の書き込み先 (null ならパイプで送る)
+     */
+    public VectorEnvironment(int count, long seed, int threads, SharedObservationRing ring) {
+        this.envs = new TrainingEnvironment[count];
+        this.workers = new ForkJoinPool(threads);
+        this.ring = ring;
+        this.rewards = new float[count];
+        this.dones = new boolean[count];
+        this.finalScores = new long[count];
+        this.finalPieces = new int[count];
+        this.observations = new byte[count][];
+        reset(seed);
+    }
+
+    /**
+     * 全ての環境を作り直します。環境 i のゲームの並びは seed と i だけで決まります。
+     */
+    public void reset(long seed) {
+        int slot = beginBatch();
+        parallel(i -> {
+            envs[i] = new TrainingEnvironment(seed + i * SEED_STRIDE);
+            rewards[i] = 0;
+            dones[i] = false;
+            finalScores[i] = 0;
+            finalPieces[i] = 0;
+            record(slot, i, StepResult.NONE);
+        });
+        endBatch(slot);
+    }
+
+    /**
+     * 全ての環境を actions[i] 番目の手で1手進めます。終了した環境はその場でリセットします。
+     */
+    public void step(int[] actions) {
+        if (actions.length != envs.length) {
+            throw new IllegalArgumentException("actions.length=" + actions.length + " != envs=" + envs.length);
+        }
+        int slot = beginBatch();
+        parallel(i -> {
+            TrainingEnvironment env = envs[i];
+            StepResult result = env.step(actions[i]);
+            boolean done = env.getLogic().isGameOver();
+            rewards[i] = result.accepted() ? reward(result, env, done) : 0f;
+            dones[i] = done;
+            if (done) {
+                finalScores[i] = env.getLogic().getScore();
+                finalPieces[i] = (int) env.getLogic().getSnapshot().placedPieces();
+                env.reset();
+                result = StepResult.NONE;
+            }
+            record(slot, i, result);
+        });
+        endBatch(slot);
+    }
+
+    private int beginBatch() {
+        sequence++;
+        if (ring == null) return -1;
+        int slot = ring.slotFor(sequence);
+        ring.begin(slot);
+        return slot;
+    }
+
+    private void endBatch(int slot) {
+        if (ring != null) ring.publish(slot, sequence);
+    }
+
+    /** 環境 i の結果を、共有メモリかパイプ用のバイト列に書き込む */
+    private void record(int slot, int i, StepResult result) {
+        if (ring != null) {
+            ring.writeEnv(slot, i, rewards[i], dones[i], finalScores[i], finalPieces[i], envs[i].getMoves());
+        } else {
+            observations[i] = encode(envs[i], result);
+        }
+    }
+
+    /**
+     * 1手の報酬 (train_dql.py の calculate_step_reward と同じ)。
+     */
+    static float reward(StepResult result, TrainingEnvironment env, boolean gameOver) {
+        if (gameOver) return -10.0f;
+        double reward = result.attack() * 1.0 + result.linesCleared() * 0.3;
+        int combo = env.getLogic().getSnapshot().comboCount();
+        if (combo > 0) reward += combo * 0.2;
+        reward += 0.01; // 生存ボーナス
+        return (float) reward;
+    }
+
+    private static byte[] encode(TrainingEnvironment env, StepResult result) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(8 * 1024);
+            DataOutputStream out = new DataOutputStream(body);
+            env.writeObservation(out, result);
+            out.flush();
+            return body.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void parallel(IntConsumer task) {
+        workers.submit(() -> IntStream.range(0, envs.length).parallel().forEach(task)).join();
+    }
+
+    /**
+     * 直前の reset / step の結果をまとめて書き込みます。
+     */
+    public void writeBatch(DataOutputStream out) throws IOException {
+        if (ring != null) {
+            out.writeByte(RESPONSE_SHARED);
+            out.writeLong(sequence);
+            out.writeByte(ring.slotFor(sequence));
+            return;
+        }
+        int n = envs.length;
+        out.writeByte(TrainingEnvironment.RESPONSE_OBSERVATION);
+        out.writeShort(n);
+        for (int i = 0; i < n; i++) out.writeFloat(rewards[i]);
+        for (int i = 0; i < n; i++) out.writeByte(dones[i] ? 1 : 0);
+        for (int i = 0; i < n; i++) out.writeLong(finalScores[i]);
+        for (int i = 0; i < n; i++) out.writeInt(finalPieces[i]);
+        for (int i = 0; i < n; i++) out.write(observations[i]);
+    }
+
+    public int size() { return envs.length; }
+    public TrainingEnvironment get(int index) { return envs[index]; }
+
+    public static void main(String[] args) throws IOException {
+        int count = 1;
+        long seed = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path shmPath = null;
+        int shmSlots = 2;
+        int maxMoves = 256;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--envs" -> count = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--shm" -> shmPath = Path.of(args[++i]);
+                case "--shm-slots" -> shmSlots = Integer.parseInt(args[++i]);
+                case "--max-moves" -> maxMoves = Integer.parseInt(args[++i]);
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        OutputStream stdout = TrainingEnvironment.takeStdout();
+        SharedObservationRing ring = (shmPath != null)
+            ? SharedObservationRing.create(shmPath, count, maxMoves, Math.max(1, shmSlots))
+            : null;
+        VectorEnvironment vec = new VectorEnvironment(count, seed, Math.max(1, threads), ring);
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in, 1 << 16));
+        DataOutputStream out = new DataOutputStream(stdout);
+        ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 20);
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        while (true) {
+            ByteBuffer request = TrainingEnvironment.readFrame(in);
+            if (request == null) return; // 学習側が終了した
+            body.reset();
+            try {
+                byte op = request.get();
+                if (op == TrainingEnvironment.OP_CLOSE) return;
+                switch (op) {
+                    case TrainingEnvironment.OP_RESET -> {
+                        boolean hasSeed = request.get() != 0;
+                        long newSeed = request.getLong();
+                        vec.reset(hasSeed ? newSeed : System.nanoTime());
+                        vec.writeBatch(bodyOut);
+                    }
+                    case TrainingEnvironment.OP_STEP -> {
+                        int n = Short.toUnsignedInt(request.getShort());
+                        if (n != vec.size()) {
+                            TrainingEnvironment.writeError(bodyOut, "Expected " + vec.size() + " actions, got " + n);
+                            break;
+                        }
+                        int[] actions = new int[n];
+                        for (int i = 0; i < n; i++) actions[i] = Short.toUnsignedInt(request.getShort());
+                        vec.step(actions);
+                        vec.writeBatch(bodyOut);
+                    }
+                    default -> TrainingEnvironment.writeError(bodyOut, "Unknown op: " + op);
+                }
+            } catch (RuntimeException e) {
+                // 短い・壊れた要求でもサーバーは止めず、エラーとして返す (TrainingEnvironment と同じ)
+                body.reset();
+                TrainingEnvironment.writeError(bodyOut, e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+            bodyOut.flush();
+            TrainingEnvironment.writeFrame(out, body);
+        }
+    }
+}
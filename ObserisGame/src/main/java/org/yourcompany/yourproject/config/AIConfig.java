@@ -0,0 +1,63 @@
+package org.yourcompany.yourproject.config;
+
+/**
+ * AIプレイヤーの動作設定をアプリケーション全体で共有するためのクラス。
+ * GameLogic の SDF などと同様に、静的フィールドで値を保持します。
+ */
+public class AIConfig {
+
+    // --- 推論バックエンド ---
+    // ONNX: ONNX Runtime で推論 / JAVA: 重みを読み込んで純Javaで推論 (ネイティブ依存なし)
+    public static InferenceBackend INFERENCE_BACKEND = InferenceBackend.ONNX;
+
+    // --- 候補手の絞り込み (2段階評価) ---
+    // CNN に送る候補手の数 (事前スコア上位 K 個 + 火力/スピンの手)。0 以下で絞り込みなし
+    public static int CANDIDATE_TOP_K = 24;
+    // true の場合、思考時間に余裕があれば推論コストの実測値から K を自動で増やす
+    public static boolean ADAPTIVE_TOP_K = false;
+    // 1手あたりの思考時間の締め切り (ミリ秒)。超えた場合は事前スコアの最善手で妥協する。0 以下で無制限
+    public static long THINK_BUDGET_MS = 100;
+
+    // --- モデルのロード (ONNX) ---
+    // ロード直後に代表的なバッチサイズで推論を空打ちし、最初の手が遅くならないようにする
+    public static boolean MODEL_WARMUP = true;
+    // 最適化済みモデルを保存しておくディレクトリ (モデルの内容と ONNX Runtime の版ごと)。空文字でキャッシュしない
+    public static String MODEL_CACHE_DIR = System.getProperty("user.home") + "/.obseris/model-cache";
+
+    // --- 対局中のモデル差し替え (ONNX) ---
+    // このディレクトリに置かれた (更新された) .onnx をロードし、対局中のAIへ差し替える。空文字で監視しない
+    public static String MODEL_WATCH_DIR = "";
+    // 差し替える対象のプレイヤー (1 または 2。0 で両方のAI)
+    public static int MODEL_HOT_SWAP_PLAYER = 2;
+
+    // --- 推論のまとめ実行 (ONNX) ---
+    // 同じモデルを使う他のAIの推論要求を待つ最大時間 (マイクロ秒)。0 で待たない (同時に届いた要求だけまとめる)
+    public static long INFERENCE_BATCH_WINDOW_MICROS = 500;
+
+    // --- 先読み (7種1巡の袋を考慮した期待値探索) ---
+    // 評価の上位候補について、その後さらに何手先まで読むか。0 で先読みなし
+    public static int LOOKAHEAD_DEPTH = 0;
+    // 先読みで比べる候補の数 (評価の上位から)
+    public static int LOOKAHEAD_WIDTH = 6;
+    // 先読み中の各局面で展開する手の数 (事前スコアの上位から)
+    public static int LOOKAHEAD_BEAM = 6;
+    // 見えないミノの分岐を打ち切る判定で、1手ごとに見込む評価値の伸びしろ (大きいほど打ち切りにくい)
+    public static double LOOKAHEAD_PRUNE_MARGIN = 3.0;
+    // 先読みで比べ直すときの、先読みの値の割合 (0 で評価値だけ、1 で先読みの値だけ)。
+    // 評価値と先読みの値はそれぞれ候補の中で標準化してから混ぜる
+    public static double LOOKAHEAD_WEIGHT = 0.5;
+    // 先読みに使うスレッド数。0 以下で COMPUTE_CORES と同じ。最初のAIを作る前に設定すること
+    public static int LOOKAHEAD_THREADS = 0;
+
+    // --- CPU の予算 (ComputeScheduler) ---
+    // AIの計算 (思考・ONNX 推論・先読み) に使うコア数。0 以下で (コア数 - 1)。最初のAIを作る前に設定すること
+    public static int COMPUTE_CORES = 0;
+    // 同時に実行する思考の数。0 以下で COMPUTE_CORES と同じ
+    public static int MAX_CONCURRENT_THINKS = 0;
+
+    // --- 操作速度 ---
+    // AIPlayer の生成時に使う速度設定 (1ティックの操作数・目標PPS・即時配置)。AIPlayer.setSpeedProfile で個別に変更できる
+    public static SpeedProfile SPEED_PROFILE = SpeedProfile.DEFAULT;
+
+    private AIConfig() {}
+}
@@ -7,5 +7,8 @@ public enum GameAction {
     SOFT_DROP,
     HARD_DROP,
     HOLD,
+    DAS_LEFT,   // 壁 (または障害物) に当たるまで左へ移動
+    DAS_RIGHT,  // 壁 (または障害物) に当たるまで右へ移動
+    SONIC_DROP, // 固定せずに一番下まで落とす
     NONE // 何もしない
 }
\ No newline at end of file
@@ -0,0 +1,5 @@
+package org.yourcompany.yourproject.config;
+public enum InferenceBackend {
+    ONNX, // ONNX Runtime (ネイティブ)
+    JAVA  // 純Java実装のCNN推論
+}
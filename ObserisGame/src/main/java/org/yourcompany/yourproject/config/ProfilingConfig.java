@@ -0,0 +1,24 @@
+package org.yourcompany.yourproject.config;
+
+/**
+ * JDK Flight Recorder (JFR) での記録の設定をアプリケーション全体で共有するためのクラス。
+ * AIConfig と同様に、静的フィールドで値を保持します。
+ *
+ * 記録には obseris.jfc の設定 (ゲームのイベント・GC・セーフポイントなどだけ) を使うので、
+ * 記録中でも遅くなることはほとんどありません。記録していないときのイベントの費用はほぼ 0 です。
+ * 画面を使わないツールは、JVM の起動オプションで同じ設定を使えます:
+ * <pre>
+ * -XX:StartFlightRecording:settings=src/main/resources/obseris.jfc,filename=obseris.jfr
+ * </pre>
+ */
+public class ProfilingConfig {
+
+    // true の場合、画面で遊んだ対局ごとに JFR の記録 (.jfr) を JFR_DIR に保存する
+    public static boolean JFR_RECORDING = false;
+    // 記録を保存するディレクトリ
+    public static String JFR_DIR = System.getProperty("user.home") + "/.obseris/recordings";
+    // 1つの記録の大きさの上限 (MB)。超えた分は古いものから捨てる
+    public static int JFR_MAX_SIZE_MB = 64;
+
+    private ProfilingConfig() {}
+}
@@ -0,0 +1,17 @@
+package org.yourcompany.yourproject.config;
+
+/**
+ * 対局の記録 (リプレイ) の設定をアプリケーション全体で共有するためのクラス。
+ * AIConfig と同様に、静的フィールドで値を保持します。
+ */
+public class ReplayConfig {
+
+    // true の場合、画面で遊んだ対局を REPLAY_DIR にリプレイ (.obr) として保存する
+    public static boolean RECORD_MATCHES = false;
+    // リプレイを保存するディレクトリ (アーカイブ)。索引 (index.obx) も同じ場所に作る
+    public static String REPLAY_DIR = System.getProperty("user.home") + "/.obseris/replays";
+    // キーフレーム (シーク用の状態の保存) の間隔 (フレーム数)。600 フレームで約10秒
+    public static int KEYFRAME_INTERVAL = 600;
+
+    private ReplayConfig() {}
+}
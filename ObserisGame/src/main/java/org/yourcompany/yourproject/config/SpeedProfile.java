@@ -0,0 +1,40 @@
+package org.yourcompany.yourproject.config;
+
+/**
+ * プレイヤーの操作速度の設定。
+ * 通常はゲームループの1ティック (約16ms) ごとに1操作ですが、
+ * AI同士の対戦や学習では操作数で速度が頭打ちにならないように変更できます。
+ *
+ * @param actionsPerTick   1ティックに実行する操作の最大数 (1 以上)
+ * @param targetPps        目標の置く速さ (ミノ/秒)。これより速くは置かない。0 で制限なし
+ * @param instantPlacement true の場合、操作列を使わずに選んだ置き場所へ1ティックで直接置く
+ */
+public record SpeedProfile(int actionsPerTick, double targetPps, boolean instantPlacement) {
+
+    /** 1ティック1操作・速度制限なし (これまでの動作) */
+    public static final SpeedProfile DEFAULT = new SpeedProfile(1, 0, false);
+
+    public SpeedProfile {
+        if (actionsPerTick < 1) {
+            throw new IllegalArgumentException("actionsPerTick must be >= 1: " + actionsPerTick);
+        }
+        if (targetPps < 0 || Double.isNaN(targetPps)) {
+            throw new IllegalArgumentException("targetPps must be >= 0: " + targetPps);
+        }
+    }
+
+    /** 1ティックに最大 n 操作を実行する設定 */
+    public static SpeedProfile actionsPerTick(int n) {
+        return new SpeedProfile(n, 0, false);
+    }
+
+    /** 選んだ置き場所へ直接置く設定 (1ティックに1ミノ) */
+    public static SpeedProfile instant() {
+        return new SpeedProfile(1, 0, true);
+    }
+
+    /** 目標の置く速さ (ミノ/秒) だけを変えた設定を返します */
+    public SpeedProfile withTargetPps(double pps) {
+        return new SpeedProfile(actionsPerTick, pps, instantPlacement);
+    }
+}
@@ -1,20 +1,35 @@
 package org.yourcompany.yourproject.controller;
 import org.yourcompany.yourproject.config.*;
+import org.yourcompany.yourproject.model.GameLogic;
 import org.yourcompany.yourproject.player.*;
+import org.yourcompany.yourproject.profiling.FlightRecording;
+import org.yourcompany.yourproject.replay.ReplayIndex;
+import org.yourcompany.yourproject.replay.ReplayWriter;
 import org.yourcompany.yourproject.view.VersusGameFrame;
 
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 
 import javax.swing.*;
 
 public class GameController {
 
+    /** ゲームループの1ティックの長さ (ミリ秒)。ゲーム内の1フレーム ({@link GameLogic#FRAME_MILLIS}) と同じ */
+    public static final int TICK_MILLIS = GameLogic.FRAME_MILLIS;
+
     private final VersusManager versusManager;
     private final VersusGameFrame gameFrame;
     private final Player player1;
     private final Player player2;
     private Timer gameLoopTimer;
+    private ReplayWriter replayWriter; // 記録中のリプレイ (記録しない場合は null)
+    private Path replayFile;
+    private FlightRecording flightRecording; // JFR の記録 (記録しない場合は null)
 
     private final InputState player1Input = new InputState();
     private final InputState player2Input = new InputState();
@@ -28,7 +43,9 @@ public class GameController {
 
     public void startGame() {
         setupKeyListeners();
-        gameLoopTimer = new Timer(16, e -> updateGame()); // 約60FPS
+        startRecording();
+        startProfiling();
+        gameLoopTimer = new Timer(TICK_MILLIS, e -> updateGame()); // 約60FPS
         gameLoopTimer.start();
     }
 
@@ -45,6 +62,8 @@ public class GameController {
         boolean p2Over = versusManager.getPlayer2Logic().isGameOver();
         if (p1Over || p2Over) {
             gameLoopTimer.stop(); // タイマーを停止
+            stopRecording();
+            stopProfiling();
             String message;
             if (p1Over && p2Over) message = "引き分け！";
             else message = "ゲームオーバー！\n勝者: " + (p1Over ? "プレイヤー2" : "プレイヤー1");
@@ -69,6 +88,8 @@ public class GameController {
                 player1Input.reset();
                 player2Input.reset();
                 gameFrame.resetUI(versusManager);
+                startRecording();
+                startProfiling();
                 // タイマーを再開
                 gameLoopTimer.start();
             } else { // 1 = "終了" またはダイアログが閉じられた
@@ -78,6 +99,57 @@ public class GameController {
         }
     }
 
+    /**
+     * ReplayConfig.RECORD_MATCHES が true なら、今のゲームのリプレイの記録を始めます。
+     */
+    private void startRecording() {
+        if (!ReplayConfig.RECORD_MATCHES) return;
+        Path dir = Paths.get(ReplayConfig.REPLAY_DIR);
+        String name = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date())
+            + String.format("-%016x", versusManager.getGameSeed(1)) + ReplayIndex.EXTENSION;
+        try {
+            replayFile = dir.resolve(name);
+            replayWriter = ReplayWriter.start(replayFile, versusManager, player1.getClass().getSimpleName(),
+                player2.getClass().getSimpleName(), ReplayConfig.KEYFRAME_INTERVAL);
+        } catch (IOException e) {
+            e.printStackTrace(); // 記録できなくてもゲームは続ける
+            replayWriter = null;
+        }
+    }
+
+    private void stopRecording() {
+        if (replayWriter == null) return;
+        try {
+            replayWriter.close();
+            ReplayIndex.append(replayFile.getParent(), replayFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        replayWriter = null;
+    }
+
+    /**
+     * ProfilingConfig.JFR_RECORDING が true なら、今のゲームの JFR の記録 (obseris.jfc の設定) を始めます。
+     */
+    private void startProfiling() {
+        if (!ProfilingConfig.JFR_RECORDING) return;
+        String name = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date())
+            + String.format("-%016x", versusManager.getGameSeed(1)) + ".jfr";
+        try {
+            flightRecording = FlightRecording.start(Paths.get(ProfilingConfig.JFR_DIR).resolve(name),
+                ProfilingConfig.JFR_MAX_SIZE_MB * 1024L * 1024L);
+        } catch (IOException e) {
+            e.printStackTrace(); // 記録できなくてもゲームは続ける
+            flightRecording = null;
+        }
+    }
+
+    private void stopProfiling() {
+        if (flightRecording == null) return;
+        System.out.println("JFR recording saved: " + flightRecording.stop());
+        flightRecording = null;
+    }
+
     private void setupKeyListeners() {
         gameFrame.addKeyListener(new KeyAdapter() {
             @Override
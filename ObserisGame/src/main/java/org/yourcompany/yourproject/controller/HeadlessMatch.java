@@ -0,0 +1,71 @@
+package org.yourcompany.yourproject.controller;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.yourcompany.yourproject.model.GameLogic;
+import org.yourcompany.yourproject.model.GameSnapshot;
+import org.yourcompany.yourproject.player.Player;
+
+/**
+ * 画面もタイマーも使わずに VersusManager の対局を最後まで進めるクラス (自己対局・学習データ作成用)。
+ *
+ * フレームは待ち時間なしで進めますが、プレイヤーが考えている間 ({@link Player#isThinking()}) は
+ * 次のフレームに進まないので、思考時間の分だけ盤面が不利になることはありません。
+ * AIは即時配置 (SpeedProfile.instant()) にしておくと、1手を1フレームで置けるので最も速く終わります。
+ */
+public final class HeadlessMatch {
+
+    // 思考の完了を待つときの間隔
+    private static final long POLL_NANOS = 20_000;
+
+    /**
+     * 対局の結果。
+     * @param winner 勝ったプレイヤー (1 または 2)。同時にゲームオーバー・フレーム数の上限に達した場合は 0
+     * @param frames 進めたフレーム数
+     * @param player1 プレイヤー1の最後の状態
+     * @param player2 プレイヤー2の最後の状態
+     */
+    public record Result(int winner, long frames, GameSnapshot player1, GameSnapshot player2) {}
+
+    private final VersusManager manager;
+    private final Player player1;
+    private final Player player2;
+
+    /**
+     * @param seed 袋のシード (両方のプレイヤーに同じ順番でミノが出る)
+     */
+    public HeadlessMatch(Player player1, Player player2, long seed) {
+        this.player1 = player1;
+        this.player2 = player2;
+        this.manager = new VersusManager(player1, player2, seed);
+        player1.setOpponent(manager.getPlayer2Logic());
+        player2.setOpponent(manager.getPlayer1Logic());
+    }
+
+    public VersusManager getManager() { return manager; }
+
+    /**
+     * どちらかがゲームオーバーになるか、maxFrames フレーム進むまで対局を進めます。
+     */
+    public Result play(long maxFrames) {
+        GameLogic logic1 = manager.getPlayer1Logic();
+        GameLogic logic2 = manager.getPlayer2Logic();
+        long frames = 0;
+        while (frames < maxFrames && !logic1.isGameOver() && !logic2.isGameOver()) {
+            awaitDecision(player1);
+            awaitDecision(player2);
+            manager.update();
+            frames++;
+        }
+        boolean over1 = logic1.isGameOver();
+        boolean over2 = logic2.isGameOver();
+        int winner = (over1 == over2) ? 0 : (over1 ? 2 : 1);
+        return new Result(winner, frames, logic1.getSnapshot(), logic2.getSnapshot());
+    }
+
+    private static void awaitDecision(Player player) {
+        while (player.isThinking()) {
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.yourcompany.yourproject.controller;
+
+import org.yourcompany.yourproject.config.GameAction;
+import org.yourcompany.yourproject.model.Placement;
+
+/**
+ * VersusManager の対局を1フレームずつ記録する先 ({@link VersusManager#setRecorder(MatchRecorder)})。
+ * ゲームループのスレッドから呼ばれるので、時間のかかる処理 (ファイルへの書き込みなど) はしないでください。
+ */
+public interface MatchRecorder {
+
+    /**
+     * プレイヤーの操作を実行する直前に呼ばれます。
+     * @param player プレイヤー (0 = プレイヤー1, 1 = プレイヤー2)
+     */
+    void recordAction(int player, GameAction action);
+
+    /**
+     * 即時配置モードで置き場所を適用する直前に呼ばれます (置けなかった場合も呼ばれる)。
+     * @param player プレイヤー (0 = プレイヤー1, 1 = プレイヤー2)
+     */
+    void recordPlacement(int player, Placement placement);
+
+    /**
+     * 両方のプレイヤーの1フレーム分の更新が終わったときに呼ばれます。
+     */
+    void endFrame(VersusManager manager);
+}
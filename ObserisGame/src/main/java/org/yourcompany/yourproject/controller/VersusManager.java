@@ -1,16 +1,49 @@
 package org.yourcompany.yourproject.controller;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
 import org.yourcompany.yourproject.config.GameAction;
+import org.yourcompany.yourproject.config.SpeedProfile;
 import org.yourcompany.yourproject.model.GameLogic;
+import org.yourcompany.yourproject.model.Placement;
 import org.yourcompany.yourproject.player.Player;
+import org.yourcompany.yourproject.profiling.GameTickEvent;
+import org.yourcompany.yourproject.profiling.GarbageExchangeEvent;
 public class VersusManager {
     private GameLogic player1Logic;
     private GameLogic player2Logic;
     private final Player player1;
     private final Player player2;
+    private final long[] fixedSeeds; // null なら毎回ランダムな袋
+    private final long[] gameSeeds = new long[2]; // 今のゲームで使っている袋のシード (プレイヤー1, 2)
+    private final int[] linesSent = new int[2]; // 相殺した後に相手へ送ったお邪魔の行数 (プレイヤー1, 2)
+    private MatchRecorder recorder; // null なら記録しない
 
     public VersusManager(Player p1, Player p2) {
-        this.player1Logic = new GameLogic();
-        this.player2Logic = new GameLogic();
+        this(p1, p2, (Long) null);
+    }
+
+    /**
+     * 袋のシードを指定して対局を作ります。両方のプレイヤーに同じ順番でミノが出ます (リセット後も同じ)。
+     * @param seed 袋のシード (null ならランダム)
+     */
+    public VersusManager(Player p1, Player p2, Long seed) {
+        this(p1, p2, (seed != null) ? new long[] { seed, seed } : null);
+    }
+
+    /**
+     * プレイヤーごとに袋のシードを指定して対局を作ります (リプレイの再生用)。
+     */
+    public VersusManager(Player p1, Player p2, long seed1, long seed2) {
+        this(p1, p2, new long[] { seed1, seed2 });
+    }
+
+    private VersusManager(Player p1, Player p2, long[] seeds) {
+        this.fixedSeeds = seeds;
+        this.player1Logic = newLogic(0);
+        this.player2Logic = newLogic(1);
     
         
         // Playerインスタンスをセット
@@ -26,19 +59,45 @@ public class VersusManager {
      * ゲームのメインループ。GameControllerのタイマーから呼ばれる。
      */
     public void update() {
+        GameTickEvent event = new GameTickEvent();
+        event.begin();
         // Player1の更新
-        if (!player1Logic.isGameOver()) {
-            GameAction p1Action = player1.getAction(player1Logic);
-            executeAction(player1Logic, p1Action);
-            player1Logic.update();
+        updatePlayer(player1, player1Logic);
+        // Player2の更新
+        updatePlayer(player2, player2Logic);
+        if (recorder != null) recorder.endFrame(this);
+        if (event.shouldCommit()) {
+            event.frame = player1Logic.getFrameCount();
+            event.aiThinking = player1.isThinking() || player2.isThinking();
+            event.commit();
         }
+    }
 
-        // Player2の更新
-        if (!player2Logic.isGameOver()) {
-            GameAction p2Action = player2.getAction(player2Logic);
-            executeAction(player2Logic, p2Action);
-            player2Logic.update();
+    /**
+     * プレイヤーの速度設定に従って操作を実行し、ゲームを1フレーム進める。
+     * 即時配置モードでは置き場所を直接適用し、それ以外では1ティックに最大 actionsPerTick 回の操作を実行する。
+     */
+    private void updatePlayer(Player player, GameLogic logic) {
+        if (logic.isGameOver()) return;
+        int index = (logic == player1Logic) ? 0 : 1;
+        SpeedProfile speed = player.getSpeedProfile();
+        if (speed.instantPlacement()) {
+            Placement placement = player.getPlacement(logic);
+            if (placement != null) {
+                if (recorder != null) recorder.recordPlacement(index, placement);
+                logic.applyPlacement(placement);
+            }
+        } else {
+            for (int i = 0; i < speed.actionsPerTick(); i++) {
+                GameAction action = player.getAction(logic);
+                if (action == null || action == GameAction.NONE) break;
+                if (recorder != null) recorder.recordAction(index, action);
+                executeAction(logic, action);
+                // 固定した後は次のミノが出るまで操作できない。ソフトドロップは時間で進むので1ティック1回まで
+                if (action == GameAction.HARD_DROP || action == GameAction.SOFT_DROP || logic.isGameOver()) break;
+            }
         }
+        logic.update();
     }
 
     /**
@@ -48,8 +107,10 @@ public class VersusManager {
      */
     public void sendAttack(GameLogic sender, int lines) {
         if (sender == player1Logic) {
+            linesSent[0] += lines;
             player2Logic.receiveGarbage(lines);
         } else {
+            linesSent[1] += lines;
             player1Logic.receiveGarbage(lines);
         }
     }
@@ -68,6 +129,18 @@ public class VersusManager {
         }
     }
 
+    /**
+     * ライン消去での火力の相殺と送信を記録する (JFR の GarbageExchange イベント。記録していなければ何もしない)
+     * @param sender 攻撃したプレイヤーのGameLogic
+     * @param attack 消去で出た火力 (パーフェクトクリアの分を含む)
+     * @param cancelled 自分に溜まっていたお邪魔と相殺した行数
+     * @param sent 相手に送った行数
+     */
+    public void reportGarbageExchange(GameLogic sender, int attack, int cancelled, int sent) {
+        GarbageExchangeEvent.emit((sender == player1Logic) ? 1 : 2, sender.getFrameCount(), attack, cancelled, sent,
+            sender.getPendingGarbage());
+    }
+
     private void executeAction(GameLogic logic, GameAction action) {
         if (action == null || action == GameAction.NONE) return;
         switch (action) {
@@ -78,13 +151,18 @@ public class VersusManager {
             case SOFT_DROP -> logic.softDrop();
             case HARD_DROP -> logic.hardDrop();
             case HOLD -> logic.hold();
+            case DAS_LEFT -> logic.shiftLeftToWall();
+            case DAS_RIGHT -> logic.shiftRightToWall();
+            case SONIC_DROP -> logic.sonicDrop();
         }
     }
 
     public void resetGame() {
         // 2人のGameLogicインスタンスを新しく作り直す
-        this.player1Logic = new GameLogic();
-        this.player2Logic = new GameLogic();
+        this.player1Logic = newLogic(0);
+        this.player2Logic = newLogic(1);
+        linesSent[0] = 0;
+        linesSent[1] = 0;
         
         // GameLogicにVersusManagerを再度セットアップする
         // (この処理はコンストラクタでも行っているはずです)
@@ -93,7 +171,46 @@ public class VersusManager {
     }
 
 
+    private GameLogic newLogic(int index) {
+        gameSeeds[index] = (fixedSeeds != null) ? fixedSeeds[index] : ThreadLocalRandom.current().nextLong();
+        return new GameLogic(gameSeeds[index]);
+    }
+
+    /**
+     * 毎フレームの操作を記録する先を設定します (null で記録をやめる)。
+     * 記録はゲームの開始 (生成・resetGame の直後) から始めてください。
+     */
+    public void setRecorder(MatchRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * 今のゲームの状態 (両方の GameLogic と送ったお邪魔の行数) を書き出します (リプレイのキーフレーム用)。
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(linesSent[0]);
+        out.writeInt(linesSent[1]);
+        player1Logic.writeState(out);
+        player2Logic.writeState(out);
+    }
+
+    /**
+     * {@link #writeState(DataOutput)} で書き出した状態に戻します。GameLogic は作り直されます。
+     */
+    public void readState(DataInput in) throws IOException {
+        linesSent[0] = in.readInt();
+        linesSent[1] = in.readInt();
+        this.player1Logic = GameLogic.readState(in);
+        this.player2Logic = GameLogic.readState(in);
+        this.player1Logic.setVersusManager(this);
+        this.player2Logic.setVersusManager(this);
+    }
+
     // --- Viewが描画するためのゲッター ---
     public GameLogic getPlayer1Logic() { return player1Logic; }
     public GameLogic getPlayer2Logic() { return player2Logic; }
+    /** 今のゲームでプレイヤー (1 または 2) が使っている袋のシード */
+    public long getGameSeed(int player) { return gameSeeds[player - 1]; }
+    /** プレイヤー (1 または 2) がこれまでに相手へ送ったお邪魔の行数 */
+    public int getLinesSent(int player) { return linesSent[player - 1]; }
 }
\ No newline at end of file
@@ -1,11 +1,16 @@
 package org.yourcompany.yourproject.model;
 import java.awt.Color;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 
 public class Board {
     public static final int BOARD_WIDTH = 10;
     public static final int VISIBLE_BOARD_HEIGHT = 20; // プレイヤーに見える盤面の高さ
     public static final int TOTAL_BOARD_HEIGHT = 40;   // 内部データとしての盤面の全高
+    public static final Color GARBAGE_COLOR = Color.GRAY;
+    private static final int GARBAGE_CODE = 0xFF;
 
     private final Color[][] grid;
 
@@ -78,11 +83,21 @@ public class Board {
     }
     
     /**
-     * お邪魔ブロックを指定された行数せり上げます。
+     * お邪魔ブロックを指定された行数せり上げます (穴の位置はランダム)。
      * @param lineCount せり上げる行数
      * @return せり上がりの結果、ブロックが盤面の上限を突き抜けたらtrue（ゲームオーバー）
      */
     public boolean addGarbageLines(int lineCount) {
+        return addGarbageLines(lineCount, (int) (Math.random() * BOARD_WIDTH));
+    }
+
+    /**
+     * お邪魔ブロックを指定された行数せり上げます。
+     * @param lineCount せり上げる行数
+     * @param holePosition 穴を空ける列
+     * @return せり上がりの結果、ブロックが盤面の上限を突き抜けたらtrue（ゲームオーバー）
+     */
+    public boolean addGarbageLines(int lineCount, int holePosition) {
         if (lineCount <= 0) return false;
 
         // 1. せり上がりでブロックが盤面外に押し出されるかチェック (ゲームオーバー条件C)
@@ -100,10 +115,9 @@ public class Board {
         }
 
         // 3. 下にお邪魔ブロック行を追加
-        int holePosition = (int) (Math.random() * BOARD_WIDTH);
         for (int y = TOTAL_BOARD_HEIGHT - lineCount; y < TOTAL_BOARD_HEIGHT; y++) {
             Color[] garbageLine = new Color[BOARD_WIDTH];
-            Arrays.fill(garbageLine, Color.GRAY);
+            Arrays.fill(garbageLine, GARBAGE_COLOR);
             garbageLine[holePosition] = null;
             grid[y] = garbageLine;
         }
@@ -126,7 +140,51 @@ public class Board {
         return null;
     }
 
-    
+    /**
+     * 指定行の埋まり具合をビット列 (bit x = 列x が埋まっている) で返します。
+     */
+    public int getRowBits(int y) {
+        if (y < 0 || y >= TOTAL_BOARD_HEIGHT) return 0;
+        Color[] row = grid[y];
+        int bits = 0;
+        for (int x = 0; x < BOARD_WIDTH; x++) {
+            if (row[x] != null) bits |= 1 << x;
+        }
+        return bits;
+    }
+
+    /**
+     * 盤面全体を行ビット列 (長さ TOTAL_BOARD_HEIGHT) に変換します。
+     */
+    public int[] toRowBits() {
+        int[] rows = new int[TOTAL_BOARD_HEIGHT];
+        for (int y = 0; y < TOTAL_BOARD_HEIGHT; y++) {
+            rows[y] = getRowBits(y);
+        }
+        return rows;
+    }
+
+    /**
+     * 文字の行から盤面を作ります (テスト局面の記述用)。行は上から順に並べ、盤面の一番下に詰めて置きます。
+     * '.' は空き、ミノの文字 (T, Z, S, I, O, L, J) はそのミノの色、それ以外 ('#' など) はお邪魔のマスです。
+     */
+    public static Board fromRows(String... rows) {
+        if (rows.length > TOTAL_BOARD_HEIGHT) throw new IllegalArgumentException("too many rows: " + rows.length);
+        Board board = new Board();
+        int top = TOTAL_BOARD_HEIGHT - rows.length;
+        for (int r = 0; r < rows.length; r++) {
+            String row = rows[r];
+            if (row.length() != BOARD_WIDTH) throw new IllegalArgumentException("row must be " + BOARD_WIDTH + " cells: " + row);
+            for (int x = 0; x < BOARD_WIDTH; x++) {
+                char c = row.charAt(x);
+                if (c == '.') continue;
+                Shape.Tetrominoes shape = Shape.Tetrominoes.fromLetter(c);
+                board.grid[top + r][x] = (shape != null) ? shape.color : GARBAGE_COLOR;
+            }
+        }
+        return board;
+    }
+
     public Board(Board other) {
         this.grid = new java.awt.Color[TOTAL_BOARD_HEIGHT][BOARD_WIDTH];
         for (int y = 0; y < TOTAL_BOARD_HEIGHT; y++) {
@@ -150,4 +208,42 @@ public class Board {
         }
         return count;
     }
+
+    /**
+     * 盤面を書き出します (リプレイのキーフレーム用)。
+     * 行ごとに埋まっているマスのビット列を書き、埋まっているマスだけ種類 (ミノの番号・お邪魔) を続けます。
+     */
+    void writeCells(DataOutput out) throws IOException {
+        for (int y = 0; y < TOTAL_BOARD_HEIGHT; y++) {
+            int bits = getRowBits(y);
+            out.writeShort(bits);
+            for (int x = 0; x < BOARD_WIDTH; x++) {
+                if ((bits & (1 << x)) != 0) out.writeByte(cellCode(grid[y][x]));
+            }
+        }
+    }
+
+    /** {@link #writeCells(DataOutput)} で書き出した盤面を読み込みます */
+    void readCells(DataInput in) throws IOException {
+        for (int y = 0; y < TOTAL_BOARD_HEIGHT; y++) {
+            int bits = in.readUnsignedShort();
+            Color[] row = new Color[BOARD_WIDTH];
+            for (int x = 0; x < BOARD_WIDTH; x++) {
+                if ((bits & (1 << x)) != 0) row[x] = cellColor(in.readUnsignedByte());
+            }
+            grid[y] = row;
+        }
+    }
+
+    private static int cellCode(Color color) {
+        for (Shape.Tetrominoes shape : Shape.Tetrominoes.values()) {
+            if (shape.color.equals(color)) return shape.ordinal();
+        }
+        return GARBAGE_CODE;
+    }
+
+    private static Color cellColor(int code) {
+        Shape.Tetrominoes[] shapes = Shape.Tetrominoes.values();
+        return (code < shapes.length) ? shapes[code].color : GARBAGE_COLOR;
+    }
 }
\ No newline at end of file
@@ -1,10 +1,14 @@
 package org.yourcompany.yourproject.model;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Random;
 import java.util.stream.Collectors;
 
 import org.yourcompany.yourproject.config.ClearInfo;
@@ -14,9 +18,14 @@ import org.yourcompany.yourproject.controller.VersusManager;
 /**
  * ゲームの進行状態とルール全体を管理するモデル。
  * 硬直時間（ARE/Line Clear Delay）を制御するステートマシンを導入。
+ * 落下・固定猶予の時間は実時間ではなくフレーム数 (update() の回数) で数えるので、
+ * 乱数のシードと操作の列が同じなら、何度進めても同じ結果になります (リプレイ用)。
  */
 public class GameLogic {
 
+    /** 1フレーム (update() 1回) をゲーム内で何ミリ秒とみなすか。GameController のゲームループもこの間隔で進む */
+    public static final int FRAME_MILLIS = 16;
+
     // --- 設定可能なパラメータ ---
     public static double SDF = 20.0;
     public static int ARE_FRAMES = 0;
@@ -51,7 +60,33 @@ public class GameLogic {
     private final long fallInterval = 1000;
     private ClearInfo lastClearInfo = null;
 
+    // --- スナップショット (AIスレッドなど別スレッドからの読み取り用) ---
+    private volatile GameSnapshot snapshot;
+    private long snapshotVersion = 0;
+    private long placedPieces = 0;
+    private boolean stateChanged = true;  // 前回の公開から状態が変わったか
+    private boolean boardChanged = true;  // 前回の公開から盤面が変わったか
+    private Board publishedBoard;
+    private long frameCount = 0; // update() が呼ばれた回数
+    private long piecesDealt = 0; // 袋 (nextShapesQueue) から取り出したミノの数 (袋の何個目まで進んだかの計算に使う)
+    private final ReplayableRandom random; // 袋のシャッフルに使う乱数
+    private final ReplayableRandom garbageRandom; // お邪魔の穴の位置に使う乱数
+
     public GameLogic() {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * 袋のシードを指定して生成します。状態を {@link #writeState(DataOutput)} で保存できます。
+     * お邪魔の穴の位置も、このシードから作った別のシードで決まります (袋の乱数は使わないので、ミノの順番は new Random(seed) と同じ)。
+     */
+    public GameLogic(long seed) {
+        this(new ReplayableRandom(seed), garbageSeed(seed));
+    }
+
+    private GameLogic(ReplayableRandom random, long garbageSeed) {
+        this.random = random;
+        this.garbageRandom = new ReplayableRandom(garbageSeed);
         board = new Board();
         score = 0;
         isGameOver = false;
@@ -67,6 +102,113 @@ public class GameLogic {
             nextQueue.add(createNewPieceFromQueue());
         }
         spawnNewTetromino();
+        publishSnapshot();
+    }
+
+    /** 袋のシードから、お邪魔の穴の位置に使うシードを作ります (袋の乱数の列とは関係のない値になるように混ぜる) */
+    private static long garbageSeed(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * {@link #writeState(DataOutput)} で保存した状態からゲームを作ります (リプレイのシーク用)。
+     * 対戦相手 (VersusManager) は保存されないので、setVersusManager で設定し直してください。
+     */
+    public static GameLogic readState(DataInput in) throws IOException {
+        return new GameLogic(in);
+    }
+
+    private GameLogic(DataInput in) throws IOException {
+        phase = GamePhase.values()[in.readUnsignedByte()];
+        delayCounter = in.readInt();
+        board = new Board();
+        board.readCells(in);
+        currentTetromino = readTetromino(in);
+        holdTetromino = readTetromino(in);
+        nextShapesQueue = new LinkedList<>();
+        for (int i = in.readUnsignedByte(); i > 0; i--) nextShapesQueue.add(Shape.Tetrominoes.values()[in.readUnsignedByte()]);
+        nextQueue = new ArrayList<>();
+        for (int i = in.readUnsignedByte(); i > 0; i--) nextQueue.add(new Tetromino(Shape.Tetrominoes.values()[in.readUnsignedByte()]));
+        score = in.readLong();
+        isGameOver = in.readBoolean();
+        canHold = in.readBoolean();
+        pendingGarbage = in.readInt();
+        lastKickIndex = in.readInt();
+        lastActionWasRotation = in.readBoolean();
+        isB2BActive = in.readBoolean();
+        comboCount = in.readInt();
+        isLockdownActive = in.readBoolean();
+        lockdownStartTime = in.readLong();
+        lockdownResetCount = in.readInt();
+        lastFallTime = in.readLong();
+        snapshotVersion = in.readLong() - 1; // 最後の publishSnapshot で保存したときの番号に戻る
+        placedPieces = in.readLong();
+        frameCount = in.readLong();
+        piecesDealt = in.readLong();
+        random = new ReplayableRandom(0);
+        random.setState(in.readLong());
+        garbageRandom = new ReplayableRandom(0);
+        garbageRandom.setState(in.readLong());
+        publishSnapshot();
+    }
+
+    /**
+     * ゲームの状態をすべて書き出します (リプレイのキーフレーム用)。
+     * 直前に消したラインの表示 (getLastClearInfo) と対戦相手は含みません。
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeByte(phase.ordinal());
+        out.writeInt(delayCounter);
+        board.writeCells(out);
+        writeTetromino(out, currentTetromino);
+        writeTetromino(out, holdTetromino);
+        out.writeByte(nextShapesQueue.size());
+        for (Shape.Tetrominoes shape : nextShapesQueue) out.writeByte(shape.ordinal());
+        out.writeByte(nextQueue.size());
+        for (Tetromino t : nextQueue) out.writeByte(t.getPieceShape().ordinal());
+        out.writeLong(score);
+        out.writeBoolean(isGameOver);
+        out.writeBoolean(canHold);
+        out.writeInt(pendingGarbage);
+        out.writeInt(lastKickIndex);
+        out.writeBoolean(lastActionWasRotation);
+        out.writeBoolean(isB2BActive);
+        out.writeInt(comboCount);
+        out.writeBoolean(isLockdownActive);
+        out.writeLong(lockdownStartTime);
+        out.writeInt(lockdownResetCount);
+        out.writeLong(lastFallTime);
+        out.writeLong(snapshotVersion);
+        out.writeLong(placedPieces);
+        out.writeLong(frameCount);
+        out.writeLong(piecesDealt);
+        out.writeLong(random.getState());
+        out.writeLong(garbageRandom.getState());
+    }
+
+    private static void writeTetromino(DataOutput out, Tetromino t) throws IOException {
+        if (t == null) {
+            out.writeByte(0xFF);
+            return;
+        }
+        out.writeByte(t.getPieceShape().ordinal());
+        out.writeByte(t.getX());
+        out.writeByte(t.getY());
+        out.writeByte(t.getRotationState());
+    }
+
+    private static Tetromino readTetromino(DataInput in) throws IOException {
+        int shape = in.readUnsignedByte();
+        if (shape == 0xFF) return null;
+        Tetromino t = new Tetromino(Shape.Tetrominoes.values()[shape]);
+        int x = in.readByte();
+        int y = in.readByte();
+        int rotation = in.readUnsignedByte();
+        t.applyRotation(t.getCoordsForRotation(rotation), x, y, rotation);
+        return t;
     }
 
     public void setVersusManager(VersusManager manager) {
@@ -75,12 +217,14 @@ public class GameLogic {
 
     public void update() {
         if (isGameOver) return;
+        frameCount++;
 
         switch (phase) {
             case CLEAR_ANIMATION:
                 delayCounter--;
                 if (delayCounter <= 0) {
                     board.clearLines();
+                    markBoardChanged();
                     phase = GamePhase.ENTRY_DELAY;
                     delayCounter = ARE_FRAMES;
                 }
@@ -100,20 +244,20 @@ public class GameLogic {
                 updatePlaying();
                 break;
         }
+        publishSnapshot();
     }
 
     private void updatePlaying() {
         if (isGrounded()) {
             if (!isLockdownActive) {
                 isLockdownActive = true;
-                lockdownStartTime = System.currentTimeMillis();
-            } else if (System.currentTimeMillis() - lockdownStartTime > LOCKDOWN_DELAY) {
+                lockdownStartTime = gameTime();
+            } else if (gameTime() - lockdownStartTime > LOCKDOWN_DELAY) {
                 placeAndStartDelay();
             }
         } else {
             deactivateLockdown();
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - lastFallTime > fallInterval) {
+            if (gameTime() - lastFallTime > fallInterval) {
                 moveDown();
             }
         }
@@ -123,6 +267,8 @@ public class GameLogic {
         if (currentTetromino == null) return;
         lastClearInfo = null;
         board.placeTetromino(currentTetromino);
+        placedPieces++;
+        markBoardChanged();
 
         if (isLockedOut(currentTetromino)) {
             setGameOver();
@@ -147,13 +293,21 @@ public class GameLogic {
             String clearType = createClearTypeText(linesToClearCount, spinType);
             this.lastClearInfo = new ClearInfo(clearType, linesToClearCount, spinType, b2bBonusApplied, comboCount, isPerfectClear);
 
+            int pendingBefore = pendingGarbage;
+            int sent = 0;
             if (versusManager != null && attackPower > 0) {
                 int remainingAttack = versusManager.offsetGarbage(this, attackPower);
                 if (remainingAttack > 0) versusManager.sendAttack(this, remainingAttack);
+                sent += remainingAttack;
             }
             if (isPerfectClear) {
                 score += 3000;
                 if (versusManager != null) versusManager.sendAttack(this, 10);
+                sent += 10;
+            }
+            int totalAttack = attackPower + (isPerfectClear ? 10 : 0);
+            if (versusManager != null && totalAttack > 0) {
+                versusManager.reportGarbageExchange(this, totalAttack, pendingBefore - pendingGarbage, sent);
             }
             
             phase = GamePhase.CLEAR_ANIMATION;
@@ -202,8 +356,9 @@ public class GameLogic {
         nextQueue.add(createNewPieceFromQueue());
         currentTetromino.resetPositionAndState();
         canHold = true;
+        stateChanged = true;
         resetLockdownState();
-        lastFallTime = System.currentTimeMillis();
+        lastFallTime = gameTime();
         lastActionWasRotation = false;
         if (!board.isValidPosition(currentTetromino.getCoords(), currentTetromino.getX(), currentTetromino.getY())) {
             setGameOver();
@@ -212,7 +367,8 @@ public class GameLogic {
 
     private boolean applyGarbage() {
         if (this.pendingGarbage <= 0) return false;
-        if (board.addGarbageLines(this.pendingGarbage)) {
+        markBoardChanged();
+        if (board.addGarbageLines(this.pendingGarbage, garbageRandom.nextInt(Board.BOARD_WIDTH))) {
             setGameOver();
             return true;
         }
@@ -224,25 +380,40 @@ public class GameLogic {
         if (isGameOver || currentTetromino == null) return;
         if (board.isValidPosition(currentTetromino.getCoords(), currentTetromino.getX(), currentTetromino.getY() + 1)) {
             currentTetromino.moveDown();
-            lastFallTime = System.currentTimeMillis();
+            stateChanged = true;
+            lastFallTime = gameTime();
             lastActionWasRotation = false;
             this.lockdownResetCount = 0;
         }
     }
 
-    public void rotateRight() { handleRotation(true); }
-    public void rotateLeft() { handleRotation(false); }
-    public void moveLeft() { handleMove(-1, 0); }
-    public void moveRight() { handleMove(1, 0); }
+    public void rotateRight() { handleRotation(true); publishSnapshot(); }
+    public void rotateLeft() { handleRotation(false); publishSnapshot(); }
+    public void moveLeft() { handleMove(-1, 0); publishSnapshot(); }
+    public void moveRight() { handleMove(1, 0); publishSnapshot(); }
+
+    public void shiftLeftToWall() { handleShiftToWall(-1); publishSnapshot(); }
+    public void shiftRightToWall() { handleShiftToWall(1); publishSnapshot(); }
+
+    /**
+     * 固定せずに、落ちられるところまで一気に落とします (ソニックドロップ)。
+     */
+    public void sonicDrop() {
+        if (isGameOver || currentTetromino == null) return;
+        while (currentTetromino != null && !isGrounded()) {
+            moveDown();
+        }
+        publishSnapshot();
+    }
 
     public void softDrop() {
         if (isGameOver || currentTetromino == null) return;
         long softDropInterval = (long) (this.fallInterval / SDF);
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastFallTime >= softDropInterval) {
+        if (gameTime() - lastFallTime >= softDropInterval) {
             moveDown();
             score += 1;
         }
+        publishSnapshot();
     }
 
     public void hardDrop() {
@@ -255,6 +426,45 @@ public class GameLogic {
         this.lockdownResetCount = 0;
         score += cellsDropped * 2L;
         placeAndStartDelay();
+        publishSnapshot();
+    }
+
+    /**
+     * 置き場所を指定して、現在のミノを1回で固定します (AIの即時配置モード用)。
+     * 必要ならホールドしてから指定の位置・向きにミノを置き、ハードドロップと同じ処理で固定します。
+     * placement.lastMoveWasRotation() を最後の操作として扱うので、T-Spin の判定は操作で置いた場合と同じになります。
+     * 空のホールドにしまった場合は出現待ちをせずに次のミノを使います。
+     * その位置に操作で到達できるかは確認しないので、探索で見つけた置き場所を渡してください。
+     * @return 固定できた場合 true。ホールドできない・ミノが置けない位置の場合は false
+     */
+    public boolean applyPlacement(Placement placement) {
+        if (isGameOver || currentTetromino == null || phase != GamePhase.PLAYING) return false;
+        Tetromino piece = currentTetromino;
+        if (placement.useHold()) {
+            if (!canHold) return false;
+            piece = (holdTetromino != null) ? holdTetromino : nextQueue.get(0);
+        }
+        if (!board.isValidPosition(piece.getCoordsForRotation(placement.rotation()), placement.x(), placement.y())) {
+            return false;
+        }
+        if (placement.useHold()) {
+            hold();
+            if (currentTetromino == null && !isGameOver) {
+                spawnNewTetromino();
+                phase = GamePhase.PLAYING;
+            }
+            if (isGameOver || currentTetromino == null) return false;
+            // 出現時にお邪魔がせり上がった場合などは、置けなくなっていることがある
+            if (!board.isValidPosition(currentTetromino.getCoordsForRotation(placement.rotation()), placement.x(), placement.y())) {
+                publishSnapshot();
+                return false;
+            }
+        }
+        currentTetromino.setSimulatedState(placement.x(), placement.y(), placement.rotation());
+        lastActionWasRotation = placement.lastMoveWasRotation();
+        stateChanged = true;
+        hardDrop();
+        return true;
     }
 
     public void hold() {
@@ -275,23 +485,36 @@ public class GameLogic {
         }
         holdTetromino.resetPositionAndState();
         canHold = false;
+        stateChanged = true;
         resetLockdownState();
+        publishSnapshot();
     }
     
     private void handleRotation(boolean clockwise) {
         if (isGameOver || currentTetromino == null) return;
         RotationSystem.RotationResult result = RotationSystem.tryRotate(currentTetromino, board, clockwise);
         if (result.success()) {
+            stateChanged = true;
             lastActionWasRotation = true;
             lastKickIndex = result.kickIndex();
             tryResetLockdownTimer();
         }
     }
 
+    private void handleShiftToWall(int dx) {
+        // 1マスずつ動かす (移動ごとに固定猶予のリセットも通常の移動と同じく数える)
+        while (currentTetromino != null) {
+            int beforeX = currentTetromino.getX();
+            handleMove(dx, 0);
+            if (currentTetromino == null || currentTetromino.getX() == beforeX) break;
+        }
+    }
+
     private void handleMove(int dx, int dy) {
         if (isGameOver || currentTetromino == null) return;
         if (board.isValidPosition(currentTetromino.getCoords(), currentTetromino.getX() + dx, currentTetromino.getY() + dy)) {
             currentTetromino.moveBy(dx, dy);
+            stateChanged = true;
             lastActionWasRotation = false;
             tryResetLockdownTimer();
         }
@@ -300,12 +523,13 @@ public class GameLogic {
     private void setGameOver() {
         isGameOver = true;
         currentTetromino = null;
+        stateChanged = true;
     }
 
     private void tryResetLockdownTimer() {
         if (isGrounded()) {
             if (lockdownResetCount < MAX_LOCKDOWN_RESETS) {
-                lockdownStartTime = System.currentTimeMillis();
+                lockdownStartTime = gameTime();
                 lockdownResetCount++;
             } else {
                 placeAndStartDelay();
@@ -313,12 +537,17 @@ public class GameLogic {
         }
     }
 
-    public void receiveGarbage(int lines) { this.pendingGarbage += lines; }
+    public void receiveGarbage(int lines) {
+        this.pendingGarbage += lines;
+        stateChanged = true;
+        publishSnapshot();
+    }
     
     public int offsetGarbage(int attackPower) {
         this.pendingGarbage -= attackPower;
         int overflow = -this.pendingGarbage;
         if (this.pendingGarbage < 0) this.pendingGarbage = 0;
+        stateChanged = true;
         return overflow > 0 ? overflow : 0;
     }
     
@@ -425,6 +654,59 @@ public class GameLogic {
         };
     }
 
+    private void markBoardChanged() {
+        boardChanged = true;
+        stateChanged = true;
+    }
+
+    /**
+     * 状態が変わっていれば新しいスナップショットを作って公開します。
+     * 盤面のコピーは盤面が変わったときだけ作り直します。
+     */
+    private void publishSnapshot() {
+        if (!stateChanged) return;
+        if (boardChanged || publishedBoard == null) {
+            publishedBoard = new Board(board);
+            boardChanged = false;
+        }
+        List<Shape.Tetrominoes> nextShapes = new ArrayList<>(nextQueue.size());
+        for (Tetromino t : nextQueue) nextShapes.add(t.getPieceShape());
+        Tetromino current = currentTetromino;
+        snapshot = new GameSnapshot(
+            ++snapshotVersion, placedPieces, publishedBoard,
+            current != null ? current.getPieceShape() : null,
+            current != null ? current.getX() : 0,
+            current != null ? current.getY() : 0,
+            current != null ? current.getRotationState() : 0,
+            holdTetromino != null ? holdTetromino.getPieceShape() : null,
+            nextShapes, nextShapesQueue.peek(), unseenBagShapes(),
+            canHold, pendingGarbage, comboCount, isB2BActive, score, isGameOver);
+        stateChanged = false;
+    }
+
+    /**
+     * 6個目のミノより後に来る、同じ袋 (7種1巡) の残りのミノを種類順で返します。
+     * 順番はまだ見えていない情報なので、どのミノが残っているかだけを公開します。
+     */
+    private List<Shape.Tetrominoes> unseenBagShapes() {
+        // 袋の先頭 (6個目のミノ) は、通し番号 piecesDealt のミノ
+        int remaining = 6 - (int) (piecesDealt % 7);
+        List<Shape.Tetrominoes> unseen = new ArrayList<>(remaining);
+        int index = 0;
+        for (Shape.Tetrominoes shape : nextShapesQueue) {
+            if (index > remaining) break;
+            if (index > 0) unseen.add(shape);
+            index++;
+        }
+        unseen.sort(null);
+        return unseen;
+    }
+
+    /** ゲーム内の時刻 (ミリ秒)。フレーム数から求める */
+    private long gameTime() {
+        return frameCount * FRAME_MILLIS;
+    }
+
     private void resetLockdownState() {
         isLockdownActive = false;
         lockdownResetCount = 0;
@@ -434,12 +716,13 @@ public class GameLogic {
 
     private void fillNextShapesQueue() {
         List<Shape.Tetrominoes> shapes = Arrays.stream(Shape.Tetrominoes.values()).filter(s -> s != Shape.Tetrominoes.NoShape).collect(Collectors.toList());
-        Collections.shuffle(shapes);
+        Collections.shuffle(shapes, random);
         nextShapesQueue.addAll(shapes);
     }
 
     private Tetromino createNewPieceFromQueue() {
         if (nextShapesQueue.size() <= 7) fillNextShapesQueue();
+        piecesDealt++;
         return new Tetromino(nextShapesQueue.poll());
     }
 
@@ -473,7 +756,14 @@ public class GameLogic {
         return null;
     }
     
+    /**
+     * 最新のスナップショットを返します。どのスレッドから呼んでもよく、返り値は変更されません。
+     */
+    public GameSnapshot getSnapshot() { return snapshot; }
+
     public Board getBoard() { return board; }
+    /** update() が呼ばれた回数 (ゲーム開始からのフレーム数) */
+    public long getFrameCount() { return frameCount; }
     public Tetromino getCurrentTetromino() { return currentTetromino; }
     public Tetromino getHoldTetromino() { return holdTetromino; }
     public long getScore() { return score; }
@@ -0,0 +1,68 @@
+package org.yourcompany.yourproject.model;
+
+import java.util.List;
+
+/**
+ * ある時点のゲーム状態の不変なコピー。
+ * GameLogic が状態を変更するたびに新しいスナップショットを公開するので、
+ * AIスレッドや描画・記録処理はロックなしで一貫した状態を読むことができます。
+ *
+ * board は公開後に変更されないコピーです (盤面が変わっていない間は前のスナップショットと共有されます)。
+ * 読み取り専用として扱い、変更しないでください。
+ *
+ * @param version         公開のたびに1ずつ増える番号 (同じ GameLogic 内で単調増加)
+ * @param placedPieces    これまでに固定したミノの数 (AIの計画がどのミノのためのものかの識別に使う)
+ * @param board           盤面
+ * @param currentShape    操作中のミノ (ない場合は null)
+ * @param currentX        操作中のミノの X 座標
+ * @param currentY        操作中のミノの Y 座標
+ * @param currentRotation 操作中のミノの回転状態
+ * @param holdShape       ホールド中のミノ (ない場合は null)
+ * @param nextQueue       ネクスト (先頭が次のミノ)
+ * @param sixthPiece      ネクストの次のミノ (ない場合は null)
+ * @param unseenBag       6個目のミノより後に来る、同じ袋 (7種1巡) の残りのミノ (順番は分からないので種類順)
+ */
+public record GameSnapshot(
+    long version,
+    long placedPieces,
+    Board board,
+    Shape.Tetrominoes currentShape,
+    int currentX,
+    int currentY,
+    int currentRotation,
+    Shape.Tetrominoes holdShape,
+    List<Shape.Tetrominoes> nextQueue,
+    Shape.Tetrominoes sixthPiece,
+    List<Shape.Tetrominoes> unseenBag,
+    boolean canHold,
+    int pendingGarbage,
+    int comboCount,
+    boolean b2bActive,
+    long score,
+    boolean gameOver
+) {
+    /** 相手がいないときなどに使う、空の盤面だけのスナップショット */
+    public static final GameSnapshot EMPTY = new GameSnapshot(
+        0, 0, new Board(), null, 0, 0, 0, null, List.of(), null, List.of(), false, 0, -1, false, 0, false);
+
+    public GameSnapshot {
+        nextQueue = List.copyOf(nextQueue);
+        unseenBag = List.copyOf(unseenBag);
+    }
+
+    public boolean hasCurrentPiece() { return currentShape != null; }
+
+    /**
+     * 操作中のミノが other と同じ位置・向きにあるか (ホールドの状態も含めて) を返します。
+     * AIが計画を立てた後に状態が変わったかどうかの判定に使います。
+     */
+    public boolean samePieceStateAs(GameSnapshot other) {
+        return placedPieces == other.placedPieces
+            && currentShape == other.currentShape
+            && currentX == other.currentX
+            && currentY == other.currentY
+            && currentRotation == other.currentRotation
+            && holdShape == other.holdShape
+            && canHold == other.canHold;
+    }
+}
@@ -0,0 +1,13 @@
+package org.yourcompany.yourproject.model;
+
+/**
+ * ミノを直接置くための置き場所の指定 ({@link GameLogic#applyPlacement(Placement)} 用)。
+ *
+ * @param useHold             置く前にホールドするか
+ * @param x                   置く X 座標
+ * @param y                   置く Y 座標 (着地している位置)
+ * @param rotation            置く向き (0〜3)
+ * @param lastMoveWasRotation 最後の操作が回転だったか (T-Spin の判定に使う)
+ */
+public record Placement(boolean useHold, int x, int y, int rotation, boolean lastMoveWasRotation) {
+}
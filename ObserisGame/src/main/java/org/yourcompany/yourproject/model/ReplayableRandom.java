@@ -0,0 +1,40 @@
+package org.yourcompany.yourproject.model;
+
+import java.util.Random;
+
+/**
+ * 内部状態を取り出して復元できる乱数 (リプレイのキーフレーム用)。
+ *
+ * java.util.Random と同じ線形合同法なので、同じシードなら java.util.Random と同じ列を返します。
+ * スレッドセーフではありません (GameLogic と同じく1つのスレッドから使ってください)。
+ */
+public final class ReplayableRandom extends Random {
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    public ReplayableRandom(long seed) {
+        super(seed); // Random のコンストラクタが setSeed を呼ぶ
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /** 今の内部状態 (48ビット) */
+    public long getState() { return state; }
+
+    /** {@link #getState()} で取り出した状態に戻します */
+    public void setState(long state) { this.state = state & MASK; }
+}
@@ -74,5 +74,28 @@ public final class Shape {
             this.coordsTemplate = c0;
             this.color = color;
         }
+
+        /** 一般的な1文字の名前 (T, Z, S, I, O, L, J)。NoShape は '-' */
+        public char letter() {
+            return switch (this) {
+                case TShape -> 'T';
+                case ZShape -> 'Z';
+                case SShape -> 'S';
+                case LineShape -> 'I';
+                case SquareShape -> 'O';
+                case LShape -> 'L';
+                case MirroredLShape -> 'J';
+                case NoShape -> '-';
+            };
+        }
+
+        /** {@link #letter()} の逆 (大文字・小文字は区別しない)。該当しなければ null */
+        public static Tetrominoes fromLetter(char letter) {
+            char upper = Character.toUpperCase(letter);
+            for (Tetrominoes shape : values()) {
+                if (shape != NoShape && shape.letter() == upper) return shape;
+            }
+            return null;
+        }
     }
 }
\ No newline at end of file
@@ -1,13 +1,16 @@
 package org.yourcompany.yourproject.player;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.yourcompany.yourproject.ai.LandingSpot;
+import org.yourcompany.yourproject.ai.MoveGenerator;
 import org.yourcompany.yourproject.config.GameAction;
+import org.yourcompany.yourproject.config.SpinType;
 import org.yourcompany.yourproject.model.Board;
 import org.yourcompany.yourproject.model.GameLogic;
 import org.yourcompany.yourproject.model.RotationSystem;
@@ -18,11 +21,50 @@ import org.yourcompany.yourproject.model.Tetromino;
 /**
  * Finesse（最適経路探索）を計算するクラス。
  * 幅優先探索(BFS)を使い、目標地点までの最短のキー操作を見つけます。
+ *
+ * キー操作には1マス移動・回転・1段のソフトドロップに加えて、壁まで移動 (DAS) と
+ * 一番下まで落とす操作 (ソニックドロップ) を使います。どの操作も1フレームで実行されるので、
+ * 操作の数が最小 = 置くまでのフレーム数が最小になります。
+ *
+ * 上が開いている置き方 (出現位置から回転・移動・ハードドロップだけで置ける) の操作列は
+ * (ミノ, x, 向き) ごとにメモ化し、実際の盤面で同じ結果になることを確かめてから使います。
  */
 public class Finesse {
 
-    // 探索空間の状態を表すレコード
-    private record MoveState(int x, int y, int rot) {}
+    // 探索する操作 (同じ手数なら先に並んでいるものが選ばれる)
+    private static final GameAction[] SEARCH_ACTIONS = {
+        GameAction.DAS_LEFT, GameAction.DAS_RIGHT,
+        GameAction.ROTATE_RIGHT, GameAction.ROTATE_LEFT,
+        GameAction.MOVE_LEFT, GameAction.MOVE_RIGHT,
+        GameAction.SONIC_DROP, GameAction.SOFT_DROP
+    };
+
+    // --- 状態の番号付け: (向き, y, x, 直前の操作が回転か) を配列の添字にする ---
+    private static final int X_OFFSET = 3; // x は -3 .. 12 の範囲に収まる
+    private static final int X_RANGE = Board.BOARD_WIDTH + 6;
+    private static final int STATE_COUNT = 4 * Board.TOTAL_BOARD_HEIGHT * X_RANGE * 2;
+
+    // 上が開いている置き方の操作列 (キー: ミノ・x・向き)
+    private static final Map<Integer, List<GameAction>> OPEN_TOP_TABLE = new ConcurrentHashMap<>();
+    private static final Board EMPTY_BOARD = new Board();
+
+    /**
+     * BFS の作業領域 (スレッドごとに使い回す)。
+     * visitedStamp が現在の stamp と等しい状態だけを「訪問済み」とみなすので、毎回の初期化が不要。
+     */
+    private static final class Search {
+        final int[] visitedStamp = new int[STATE_COUNT];
+        final int[] parent = new int[STATE_COUNT];
+        final byte[] actionUsed = new byte[STATE_COUNT];
+        final int[] queue = new int[STATE_COUNT];
+        int stamp = 0;
+    }
+    private static final ThreadLocal<Search> SEARCH = ThreadLocal.withInitial(Search::new);
+
+    // 探索の目標
+    private interface Goal {
+        boolean reached(int x, int y, int rot, boolean lastWasRotation);
+    }
 
     /**
      * 目標の (x, rot) に到達するための最短キー操作のキューを返します。
@@ -36,105 +78,193 @@ public class Finesse {
         Tetromino piece = logic.getCurrentTetromino();
         if (piece == null) return path;
 
-        MoveState startState = new MoveState(piece.getX(), piece.getY(), piece.getRotationState());
-        Shape.Tetrominoes shape = piece.getPieceShape();
-        Board board = logic.getBoard();
+        List<GameAction> found = search(logic.getBoard(), piece.getPieceShape(),
+            piece.getX(), piece.getY(), piece.getRotationState(),
+            (x, y, rot, lastWasRotation) -> x == targetX && rot == targetRot);
+        if (found != null) path.addAll(found);
+        return path;
+    }
 
-        // BFS用のデータ構造
-        Queue<MoveState> queue = new LinkedList<>();
-        // どの状態から来たか(親)と、どのアクションで来たかを記録
-        Map<MoveState, MoveState> parent = new HashMap<>();
-        Map<MoveState, GameAction> actionUsed = new HashMap<>();
-        Set<MoveState> visited = new HashSet<>();
+    /**
+     * AIが選んだ着地点に、同じ結果 (位置・向き・スピン判定) で置くための最短キー操作を返します。
+     * 最後のハードドロップは含みません。見つからない場合は着地点の元の経路を返します。
+     *
+     * @param board 置く前の盤面
+     * @param startX 探索を始める位置 (操作中のミノの現在位置、ホールドした場合は出現位置)
+     */
+    public static List<GameAction> optimize(Board board, int startX, int startY, int startRot, LandingSpot target) {
+        Shape.Tetrominoes shape = target.pieceShape;
+        if (shape == null || target.isGameOver) return target.path;
 
-        queue.add(startState);
-        visited.add(startState);
-        parent.put(startState, null);
+        // 1. 出現位置からなら、メモ化した操作列が使えるか確かめる
+        if (startRot == 0 && startX == spawnX(shape) && startY == spawnY(shape)) {
+            List<GameAction> cached = OPEN_TOP_TABLE.computeIfAbsent(tableKey(shape, target.finalX, target.finalRot),
+                k -> openTopPath(shape, target.finalX, target.finalRot));
+            if (cached != null && reproduces(board, shape, startX, startY, cached, target)) {
+                return cached;
+            }
+        }
 
-        MoveState finalState = null;
+        // 2. 実際の盤面で探索する (ソフトドロップでの差し込みやスピンを含む)
+        List<GameAction> found = search(board, shape, startX, startY, startRot,
+            (x, y, rot, lastWasRotation) -> x == target.finalX && rot == target.finalRot
+                && dropY(board, shape, x, y, rot) == target.finalY
+                && MoveGenerator.detectSpin(board, shape, target.finalX, target.finalY, rot, lastWasRotation)
+                    == target.spinType);
+        return (found != null) ? found : target.path;
+    }
 
-        while (!queue.isEmpty()) {
-            MoveState currentState = queue.poll();
+    /**
+     * 空の盤面で、出現位置から (x, rot) に向けて置く最短の操作列を求める (見つからなければ null)。
+     */
+    private static List<GameAction> openTopPath(Shape.Tetrominoes shape, int targetX, int targetRot) {
+        List<GameAction> path = search(EMPTY_BOARD, shape, spawnX(shape), spawnY(shape), 0,
+            (x, y, rot, lastWasRotation) -> x == targetX && rot == targetRot);
+        return (path != null) ? Collections.unmodifiableList(path) : null;
+    }
 
-            // ゴール判定: X座標と回転が一致したら成功
-            if (currentState.x() == targetX && currentState.rot() == targetRot) {
-                finalState = currentState;
-                break;
-            }
+    /**
+     * 操作列を実際の盤面で再生し、目標と同じ位置・向き・スピン判定で置けるかを確かめる。
+     */
+    private static boolean reproduces(Board board, Shape.Tetrominoes shape, int x, int y,
+                                      List<GameAction> actions, LandingSpot target) {
+        int rot = 0;
+        boolean lastWasRotation = false;
+        for (GameAction action : actions) {
+            int next = step(board, shape, x, y, rot, action);
+            if (next < 0) return false; // 途中で動けない (障害物がある)
+            int nx = (next >> 8) - X_OFFSET;
+            int ny = (next >> 2) & 0x3F;
+            rot = next & 3;
+            lastWasRotation = (action == GameAction.ROTATE_LEFT || action == GameAction.ROTATE_RIGHT);
+            x = nx;
+            y = ny;
+        }
+        if (x != target.finalX || rot != target.finalRot) return false;
+        if (dropY(board, shape, x, y, rot) != target.finalY) return false;
+        SpinType spin = MoveGenerator.detectSpin(board, shape, x, target.finalY, rot, lastWasRotation);
+        return spin == target.spinType;
+    }
+
+    /**
+     * 配列ベースの幅優先探索。goal を満たす状態までの最短の操作列を返します (見つからなければ null)。
+     */
+    private static List<GameAction> search(Board board, Shape.Tetrominoes shape,
+                                           int startX, int startY, int startRot, Goal goal) {
+        if (!board.isValidPosition(shape.allCoords.get(startRot), startX, startY)) return null;
+
+        Search s = SEARCH.get();
+        int stamp = ++s.stamp;
+        int head = 0, tail = 0;
+        int start = index(startX, startY, startRot, false);
+        s.visitedStamp[start] = stamp;
+        s.parent[start] = -1;
+        s.queue[tail++] = start;
 
-            // --- 全てのアクションを試す ---
-            // (ハードドロップ、ホールドは経路探索に含まない)
-            GameAction[] actionsToTry = {
-                GameAction.MOVE_LEFT, GameAction.MOVE_RIGHT,
-                GameAction.ROTATE_LEFT, GameAction.ROTATE_RIGHT,
-                GameAction.SOFT_DROP
-            };
-
-            for (GameAction action : actionsToTry) {
-                MoveState nextState = simulateAction(currentState, action, shape, board);
-                if (nextState != null && !visited.contains(nextState)) {
-                    visited.add(nextState);
-                    parent.put(nextState, currentState);
-                    actionUsed.put(nextState, action);
-                    queue.add(nextState);
-                }
+        while (head < tail) {
+            int current = s.queue[head++];
+            boolean lastWasRotation = (current & 1) != 0;
+            int packed = current >> 1;
+            int x = (packed % X_RANGE) - X_OFFSET;
+            int y = (packed / X_RANGE) % Board.TOTAL_BOARD_HEIGHT;
+            int rot = packed / (X_RANGE * Board.TOTAL_BOARD_HEIGHT);
+
+            if (goal.reached(x, y, rot, lastWasRotation)) {
+                return reconstruct(s, current);
             }
-        }
 
-        // --- 経路の復元 ---
-        if (finalState != null) {
-            MoveState current = finalState;
-            while (parent.get(current) != null) {
-                path.add(actionUsed.get(current));
-                current = parent.get(current);
+            for (int a = 0; a < SEARCH_ACTIONS.length; a++) {
+                GameAction action = SEARCH_ACTIONS[a];
+                // O ミノの回転は位置が変わらないので意味がない
+                if (shape == Shape.Tetrominoes.SquareShape
+                        && (action == GameAction.ROTATE_LEFT || action == GameAction.ROTATE_RIGHT)) continue;
+                int next = step(board, shape, x, y, rot, action);
+                if (next < 0) continue;
+                int nx = (next >> 8) - X_OFFSET;
+                int ny = (next >> 2) & 0x3F;
+                int nrot = next & 3;
+                boolean rotated = (action == GameAction.ROTATE_LEFT || action == GameAction.ROTATE_RIGHT);
+                int nextIndex = index(nx, ny, nrot, rotated);
+                if (s.visitedStamp[nextIndex] == stamp) continue;
+                s.visitedStamp[nextIndex] = stamp;
+                s.parent[nextIndex] = current;
+                s.actionUsed[nextIndex] = (byte) a;
+                s.queue[tail++] = nextIndex;
             }
-            Collections.reverse((LinkedList<GameAction>) path);
         }
-
-        return path;
+        return null;
     }
 
     /**
-     * 1つのアクションをシミュレートし、次の状態を返す
+     * 1つの操作を適用した後の状態を ((x + X_OFFSET) << 8 | y << 2 | rot) で返す。動けない場合は -1。
      */
-    private static MoveState simulateAction(MoveState from, GameAction action, 
-                                            Shape.Tetrominoes shape, Board board) {
-        int x = from.x();
-        int y = from.y();
-        int rot = from.rot();
-        
+    private static int step(Board board, Shape.Tetrominoes shape, int x, int y, int rot, GameAction action) {
+        int[][] coords = shape.allCoords.get(rot);
         switch (action) {
             case MOVE_LEFT:
-                int[][] coordsL = shape.allCoords.get(rot);
-                if (board.isValidPosition(coordsL, x - 1, y)) {
-                    return new MoveState(x - 1, y, rot);
-                }
-                break;
+                return board.isValidPosition(coords, x - 1, y) ? pack(x - 1, y, rot) : -1;
             case MOVE_RIGHT:
-                int[][] coordsR = shape.allCoords.get(rot);
-                if (board.isValidPosition(coordsR, x + 1, y)) {
-                    return new MoveState(x + 1, y, rot);
-                }
-                break;
+                return board.isValidPosition(coords, x + 1, y) ? pack(x + 1, y, rot) : -1;
+            case DAS_LEFT:
+            case DAS_RIGHT: {
+                int dx = (action == GameAction.DAS_LEFT) ? -1 : 1;
+                int nx = x;
+                while (board.isValidPosition(coords, nx + dx, y)) nx += dx;
+                return (nx != x) ? pack(nx, y, rot) : -1;
+            }
             case SOFT_DROP:
-                int[][] coordsD = shape.allCoords.get(rot);
-                if (board.isValidPosition(coordsD, x, y + 1)) {
-                    return new MoveState(x, y + 1, rot);
-                }
-                break;
+                return board.isValidPosition(coords, x, y + 1) ? pack(x, y + 1, rot) : -1;
+            case SONIC_DROP: {
+                int ny = dropY(board, shape, x, y, rot);
+                return (ny != y) ? pack(x, ny, rot) : -1;
+            }
             case ROTATE_LEFT:
-                RotationResult resL = RotationSystem.simulateRotation(x, y, rot, shape, board, false);
-                if (resL.success()) {
-                    return new MoveState(resL.newX(), resL.newY(), resL.newRot());
-                }
-                break;
-            case ROTATE_RIGHT:
-                RotationResult resR = RotationSystem.simulateRotation(x, y, rot, shape, board, true);
-                if (resR.success()) {
-                    return new MoveState(resR.newX(), resR.newY(), resR.newRot());
-                }
-                break;
+            case ROTATE_RIGHT: {
+                RotationResult result = RotationSystem.simulateRotation(x, y, rot, shape, board,
+                    action == GameAction.ROTATE_RIGHT);
+                return result.success() ? pack(result.newX(), result.newY(), result.newRot()) : -1;
+            }
+            default:
+                return -1;
+        }
+    }
+
+    private static List<GameAction> reconstruct(Search s, int end) {
+        List<GameAction> path = new ArrayList<>();
+        for (int current = end; s.parent[current] != -1; current = s.parent[current]) {
+            path.add(SEARCH_ACTIONS[s.actionUsed[current]]);
         }
-        return null; // 移動失敗
+        Collections.reverse(path);
+        return path;
+    }
+
+    private static int dropY(Board board, Shape.Tetrominoes shape, int x, int y, int rot) {
+        int[][] coords = shape.allCoords.get(rot);
+        while (board.isValidPosition(coords, x, y + 1)) y++;
+        return y;
+    }
+
+    private static int index(int x, int y, int rot, boolean lastWasRotation) {
+        return (((rot * Board.TOTAL_BOARD_HEIGHT + y) * X_RANGE + (x + X_OFFSET)) << 1) | (lastWasRotation ? 1 : 0);
+    }
+
+    private static int pack(int x, int y, int rot) {
+        return ((x + X_OFFSET) << 8) | (y << 2) | rot;
+    }
+
+    private static int tableKey(Shape.Tetrominoes shape, int x, int rot) {
+        return (shape.ordinal() * X_RANGE + (x + X_OFFSET)) * 4 + rot;
+    }
+
+    private static int spawnX(Shape.Tetrominoes shape) {
+        Tetromino t = new Tetromino(shape);
+        t.resetPositionAndState();
+        return t.getX();
+    }
+
+    private static int spawnY(Shape.Tetrominoes shape) {
+        Tetromino t = new Tetromino(shape);
+        t.resetPositionAndState();
+        return t.getY();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package org.yourcompany.yourproject.player;
 import org.yourcompany.yourproject.config.GameAction;
+import org.yourcompany.yourproject.config.SpeedProfile;
 import org.yourcompany.yourproject.model.GameLogic;
+import org.yourcompany.yourproject.model.Placement;
 public interface Player {
     /**
      * 現在のゲーム状態を元に、実行すべきアクションを決定して返します。
@@ -8,4 +10,34 @@ public interface Player {
      * @return 実行するGameAction
      */
     GameAction getAction(GameLogic gameState);
-}
\ No newline at end of file
+
+    /**
+     * 操作速度の設定を返します。VersusManager が毎ティック参照します。
+     */
+    default SpeedProfile getSpeedProfile() {
+        return SpeedProfile.DEFAULT;
+    }
+
+    /**
+     * 即時配置モード ({@link SpeedProfile#instantPlacement()}) のときに、今置くミノの置き場所を返します。
+     * @param gameState 自身の現在のゲーム状態
+     * @return 置き場所。まだ決まっていなければ null
+     */
+    default Placement getPlacement(GameLogic gameState) {
+        return null;
+    }
+
+    /**
+     * 相手の GameLogic を受け取ります (相手の状態を見ないプレイヤーは何もしない)。
+     */
+    default void setOpponent(GameLogic opponentLogic) {
+    }
+
+    /**
+     * 次の操作・置き場所を考えている最中なら true を返します。
+     * ヘッドレスの対局 (HeadlessMatch) は、これが false になるまでフレームを進めずに待ちます。
+     */
+    default boolean isThinking() {
+        return false;
+    }
+}
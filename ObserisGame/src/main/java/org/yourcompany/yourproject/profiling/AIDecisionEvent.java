@@ -0,0 +1,76 @@
+package org.yourcompany.yourproject.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * AIの1手分の思考の JFR イベント。イベント自体の長さが思考全体の時間です。
+ *
+ * 候補手の生成・評価段階・選択の3つは重なりません (足すと思考全体になる)。
+ * 着地のシミュレーションは候補手の生成の内訳、入力の作成と推論は評価段階の内訳です。
+ */
+@Name("obseris.AIDecision")
+@Label("AI Decision")
+@Category({"Obseris", "AI"})
+@Description("AIの1手分の思考 (候補手の生成・入力の作成・推論・手の選択)")
+@StackTrace(false)
+public class AIDecisionEvent extends Event {
+
+    @Label("Evaluator")
+    public String evaluator;
+
+    @Label("Move Generation")
+    @Description("候補手の生成 (MoveGenerator.generate) の時間。着地のシミュレーションを含む")
+    @Timespan(Timespan.NANOSECONDS)
+    public long moveGeneration;
+
+    @Label("Landing Simulation")
+    @Description("候補手の生成のうち、着地後の盤面・火力の計算にかかった時間")
+    @Timespan(Timespan.NANOSECONDS)
+    public long landingSimulation;
+
+    @Label("Encoding")
+    @Description("評価段階のうち、入力テンソルの作成にかかった時間")
+    @Timespan(Timespan.NANOSECONDS)
+    public long encoding;
+
+    @Label("Inference")
+    @Description("評価段階のうち、推論にかかった時間 (ONNX はブローカーでまとめられる待ちを含む)")
+    @Timespan(Timespan.NANOSECONDS)
+    public long inference;
+
+    @Label("Selection")
+    @Description("事前スコアでの並べ替え・評価結果の比較・先読みにかかった時間")
+    @Timespan(Timespan.NANOSECONDS)
+    public long selection;
+
+    @Label("Candidates")
+    @Description("生成した候補手の数")
+    public int candidateCount;
+
+    @Label("Batch Size")
+    @Description("1回の推論に渡した候補手の数の最大")
+    public int batchSize;
+
+    @Label("Evaluated")
+    @Description("重い評価関数で評価できた候補手の数")
+    public int evaluatedCount;
+
+    @Label("Stages")
+    @Description("締め切りまでに完了した評価段階の数")
+    public int stagesCompleted;
+
+    @Label("Deadline Missed")
+    public boolean deadlineMissed;
+
+    @Label("Used Fallback")
+    public boolean usedFallback;
+
+    @Label("Lookahead Nodes")
+    public long lookaheadNodes;
+}
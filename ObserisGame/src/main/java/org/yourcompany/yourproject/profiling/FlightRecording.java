@@ -0,0 +1,82 @@
+package org.yourcompany.yourproject.profiling;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * obseris.jfc の設定で JFR の記録を1つ行うクラス。
+ *
+ * 記録はディスクに書きながら進め、{@link #stop()} で保存先のファイルに書き出します。
+ * 途中でアプリケーションが終了した場合も、それまでの分が保存先に書き出されます。
+ */
+public final class FlightRecording implements AutoCloseable {
+
+    /** 記録の設定 (クラスパス上のリソース名) */
+    public static final String CONFIGURATION = "obseris.jfc";
+
+    private final Recording recording;
+    private final Path file;
+
+    private FlightRecording(Recording recording, Path file) {
+        this.recording = recording;
+        this.file = file;
+    }
+
+    /**
+     * 記録を始めます。
+     * @param file     保存先 (親ディレクトリがなければ作る)
+     * @param maxBytes 記録の大きさの上限 (0 なら上限なし)
+     */
+    public static FlightRecording start(Path file, long maxBytes) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Recording recording = new Recording(loadConfiguration());
+        recording.setName("obseris-" + file.getFileName());
+        recording.setToDisk(true);
+        recording.setDestination(file);
+        recording.setDumpOnExit(true);
+        if (maxBytes > 0) recording.setMaxSize(maxBytes);
+        recording.start();
+        return new FlightRecording(recording, file);
+    }
+
+    /** obseris.jfc を読み込みます */
+    public static Configuration loadConfiguration() throws IOException {
+        InputStream in = FlightRecording.class.getClassLoader().getResourceAsStream(CONFIGURATION);
+        if (in == null) throw new IOException("JFR configuration not found on classpath: " + CONFIGURATION);
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return Configuration.create(reader);
+        } catch (ParseException e) {
+            throw new IOException("Invalid JFR configuration: " + CONFIGURATION, e);
+        }
+    }
+
+    /**
+     * 記録を止めて保存先に書き出します。
+     * @return 書き出したファイル
+     */
+    public Path stop() {
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop(); // 保存先が設定されているので、止めるとファイルに書き出される
+        }
+        recording.close();
+        return file;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    public Path getFile() { return file; }
+}
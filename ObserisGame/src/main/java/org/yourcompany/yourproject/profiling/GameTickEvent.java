@@ -0,0 +1,28 @@
+package org.yourcompany.yourproject.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * ゲームループの1フレーム分 ({@code VersusManager.update}) の JFR イベント。
+ * 画面で遊ぶときは EDT で、1フレームが 16ms を超えるとカクつきとして見えます。
+ */
+@Name("obseris.GameTick")
+@Label("Game Tick")
+@Category({"Obseris", "Game"})
+@Description("VersusManager.update の1回分 (両プレイヤーの操作とゲームの1フレーム)")
+@StackTrace(false)
+public class GameTickEvent extends Event {
+
+    @Label("Frame")
+    @Description("プレイヤー1のフレーム数 (update の後)")
+    public long frame;
+
+    @Label("AI Thinking")
+    @Description("フレームの終わりにどちらかのプレイヤーが考え中だった")
+    public boolean aiThinking;
+}
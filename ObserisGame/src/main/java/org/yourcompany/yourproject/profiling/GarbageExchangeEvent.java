@@ -0,0 +1,57 @@
+package org.yourcompany.yourproject.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 火力の相殺と送信 (ライン消去のたびに1回) の JFR イベント。
+ */
+@Name("obseris.GarbageExchange")
+@Label("Garbage Exchange")
+@Category({"Obseris", "Game"})
+@Description("ライン消去の火力で溜まったお邪魔を相殺し、残りを相手に送った")
+@StackTrace(false)
+public class GarbageExchangeEvent extends Event {
+
+    @Label("Player")
+    @Description("攻撃したプレイヤー (1 または 2)")
+    public int player;
+
+    @Label("Frame")
+    public long frame;
+
+    @Label("Attack")
+    @Description("消去で出た火力 (パーフェクトクリアの分を含む)")
+    public int attack;
+
+    @Label("Cancelled")
+    @Description("自分に溜まっていたお邪魔と相殺した行数")
+    public int cancelled;
+
+    @Label("Sent")
+    @Description("相手に送った行数")
+    public int sent;
+
+    @Label("Pending After")
+    @Description("相殺した後に自分に溜まっているお邪魔の行数")
+    public int pendingAfter;
+
+    /**
+     * イベントを記録します (記録していなければ何もしない)。
+     */
+    public static void emit(int player, long frame, int attack, int cancelled, int sent, int pendingAfter) {
+        GarbageExchangeEvent event = new GarbageExchangeEvent();
+        if (!event.shouldCommit()) return;
+        event.player = player;
+        event.frame = frame;
+        event.attack = attack;
+        event.cancelled = cancelled;
+        event.sent = sent;
+        event.pendingAfter = pendingAfter;
+        event.commit();
+    }
+}
@@ -0,0 +1,33 @@
+package org.yourcompany.yourproject.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * モデルのロード (セッションの生成・ウォームアップ、または重みの読み込み) の JFR イベント。
+ * ロードに成功したときだけ記録します (失敗は例外のスタックトレースで分かるため)。
+ */
+@Name("obseris.ModelLoad")
+@Label("Model Load")
+@Category({"Obseris", "AI"})
+@Description("CNN モデルのロード")
+public class ModelLoadEvent extends Event {
+
+    @Label("Model")
+    public String model;
+
+    @Label("Backend")
+    @Description("onnx (ONNX Runtime) または java (Java 実装の CNN)")
+    public String backend;
+
+    @Label("Source")
+    @Description("resource (クラスパス) または file (ファイルシステム)")
+    public String source;
+
+    @Label("Warm Up")
+    @Description("ロードの後にウォームアップした")
+    public boolean warmUp;
+}
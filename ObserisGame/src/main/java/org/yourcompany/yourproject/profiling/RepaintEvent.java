@@ -0,0 +1,23 @@
+package org.yourcompany.yourproject.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 1人分の画面 (盤面・HOLD・NEXT・スコア) の描画の JFR イベント (EDT)。
+ */
+@Name("obseris.Repaint")
+@Label("Repaint")
+@Category({"Obseris", "View"})
+@Description("PlayerUIPanel とその子の描画")
+@StackTrace(false)
+public class RepaintEvent extends Event {
+
+    @Label("Frame")
+    @Description("描画したゲームのフレーム数")
+    public long frame;
+}
@@ -0,0 +1,159 @@
+package org.yourcompany.yourproject.replay;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * メモリマップしたリプレイファイル。ヘッダ・末尾・キーフレーム表を読みます (再生はしない)。
+ *
+ * 最後まで書けなかったファイル (末尾がない) の場合は、開くときに本体を1回読んで
+ * キーフレームの位置とフレーム数を数えます。
+ */
+public final class ReplayFile {
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final ReplayHeader header;
+    private final int bodyStart;
+    private final boolean finished;
+    private final long totalFrames;
+    private final int winner;
+    // 末尾がある場合はファイル上の表を直接引く。ない場合は読んで作った表を使う
+    private final int tableOffset;
+    private final int keyframeCount;
+    private long[] scannedFrames;
+    private long[] scannedOffsets;
+
+    private ReplayFile(Path path, MappedByteBuffer data) throws IOException {
+        this.path = path;
+        this.data = data;
+        ByteBuffer buffer = data.duplicate();
+        try {
+            this.header = ReplayHeader.read(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated replay header: " + path, e);
+        }
+        this.bodyStart = buffer.position();
+
+        int size = data.limit();
+        if (size - bodyStart >= ReplayFormat.TRAILER_SIZE && data.getInt(size - 4) == ReplayFormat.TRAILER_MAGIC) {
+            int trailer = size - ReplayFormat.TRAILER_SIZE;
+            this.finished = true;
+            this.tableOffset = (int) data.getLong(trailer);
+            this.totalFrames = data.getLong(trailer + 8);
+            this.keyframeCount = data.getInt(trailer + 16);
+            this.winner = data.getInt(trailer + 20);
+        } else {
+            this.finished = false;
+            this.tableOffset = -1;
+            this.winner = 0;
+            long[] scanned = scan();
+            this.totalFrames = scanned[0];
+            this.keyframeCount = (int) scanned[1];
+        }
+    }
+
+    /**
+     * ファイルを読み取り専用でメモリマップして開きます。
+     */
+    public static ReplayFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("replay file too large: " + path);
+            return new ReplayFile(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * 本体を先頭から読み、フレーム数とキーフレームの位置を数えます (末尾がない場合)。
+     * @return { フレーム数, キーフレームの数 }
+     */
+    private long[] scan() {
+        scannedFrames = new long[16];
+        scannedOffsets = new long[16];
+        int count = 0;
+        long frames = 0;
+        ByteBuffer buffer = body();
+        try {
+            while (buffer.hasRemaining()) {
+                int offset = buffer.position();
+                long token = ReplayFormat.getVarint(buffer);
+                long value = ReplayFormat.value(token);
+                switch (ReplayFormat.kind(token)) {
+                    case ReplayFormat.ADVANCE -> frames += value;
+                    case ReplayFormat.ACTION -> { }
+                    case ReplayFormat.PLACEMENT -> {
+                        ReplayFormat.getVarint(buffer);
+                        ReplayFormat.getVarint(buffer);
+                    }
+                    default -> {
+                        if ((value & 1) != 0) return new long[] { frames, count };
+                        int length = (int) (value >>> 1);
+                        if (buffer.remaining() < length) return new long[] { frames, count };
+                        if (count == scannedFrames.length) {
+                            scannedFrames = Arrays.copyOf(scannedFrames, count * 2);
+                            scannedOffsets = Arrays.copyOf(scannedOffsets, count * 2);
+                        }
+                        scannedFrames[count] = frames;
+                        scannedOffsets[count] = offset;
+                        count++;
+                        buffer.position(buffer.position() + length);
+                    }
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            // 書きかけのトークンで終わっている
+        }
+        return new long[] { frames, count };
+    }
+
+    public Path getPath() { return path; }
+    public ReplayHeader getHeader() { return header; }
+    /** 最後まで書けたファイルなら true */
+    public boolean isFinished() { return finished; }
+    /** 記録されているフレーム数 */
+    public long getTotalFrames() { return totalFrames; }
+    /** 勝者 (1 または 2。引き分け・途中で終わった場合は 0) */
+    public int getWinner() { return winner; }
+    public int getKeyframeCount() { return keyframeCount; }
+    public long getSize() { return data.limit(); }
+
+    /** 本体 (ヘッダの直後から) を読むためのバッファ。呼ぶたびに新しい読み取り位置を返します */
+    ByteBuffer body() {
+        ByteBuffer buffer = data.duplicate();
+        buffer.position(bodyStart);
+        return buffer;
+    }
+
+    long keyframeFrame(int i) {
+        return finished ? data.getLong(tableOffset + i * ReplayFormat.KEYFRAME_ENTRY_SIZE) : scannedFrames[i];
+    }
+
+    int keyframeOffset(int i) {
+        return (int) (finished ? data.getLong(tableOffset + i * ReplayFormat.KEYFRAME_ENTRY_SIZE + 8) : scannedOffsets[i]);
+    }
+
+    /**
+     * frame 以前で最も新しいキーフレームの番号を返します (二分探索)。なければ -1。
+     */
+    int findKeyframe(long frame) {
+        int lo = 0;
+        int hi = keyframeCount - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keyframeFrame(mid) <= frame) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,79 @@
+package org.yourcompany.yourproject.replay;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * リプレイファイル (.obr) の形式。
+ *
+ * <pre>
+ * ヘッダ    ReplayHeader (マジック "OBRP" から始まる)
+ * 本体      トークンの列。トークンは可変長整数 (varint) で、下位2ビットが種類、残りが値
+ *   0 ADVANCE    値 n: n フレーム進める (1フレーム目はそれまでに読んだ操作を使う)
+ *   1 ACTION     値: プレイヤー (1ビット) | GameAction の番号 &lt;&lt; 1
+ *   2 PLACEMENT  値: プレイヤー | ホールド &lt;&lt; 1 | 最後が回転 &lt;&lt; 2 | 向き &lt;&lt; 3。続けて x (zigzag), y
+ *   3 特殊       値が偶数: キーフレーム (長さ = 値 &gt;&gt; 1 バイトの VersusManager.writeState)
+ *                値が奇数: 終わり (勝者 = 値 &gt;&gt; 1)。続けて総フレーム数
+ * キーフレーム表  (フレーム long, 位置 long) × 個数 (フレームの昇順)
+ * 末尾      表の位置 long, 総フレーム数 long, 個数 int, 勝者 int, マジック "OBRI"
+ * </pre>
+ * 1フレームの中では、プレイヤー1の操作がすべてプレイヤー2の操作より前に並びます (VersusManager.update の順番)。
+ * キーフレームはフレームの境目 (ADVANCE の直後) にだけ置かれ、表の「フレーム」はそこまでに進んだフレーム数です。
+ * 固定長の値はすべてビッグエンディアンです。最後まで書けなかったファイル (末尾がない) も、本体を先頭から読めば再生できます。
+ */
+final class ReplayFormat {
+
+    static final int MAGIC = 0x4F425250;         // "OBRP"
+    static final int TRAILER_MAGIC = 0x4F425249; // "OBRI"
+    // 2: お邪魔の穴の位置のシードを袋の乱数から取らず、袋のシードから作るようにした (1 のファイルは同じ対局にならない)
+    static final int VERSION = 2;
+    static final int TRAILER_SIZE = 28;
+    static final int KEYFRAME_ENTRY_SIZE = 16;
+
+    static final int ADVANCE = 0;
+    static final int ACTION = 1;
+    static final int PLACEMENT = 2;
+    static final int SPECIAL = 3;
+
+    /** 1トークンの最大の長さ (PLACEMENT: トークン + x + y) */
+    static final int MAX_TOKEN_BYTES = 3 * 10;
+
+    private ReplayFormat() {}
+
+    static int kind(long token) { return (int) (token & 3); }
+    static long value(long token) { return token >>> 2; }
+    static long token(int kind, long value) { return (value << 2) | kind; }
+
+    static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long getVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalStateException("varint too long at " + buffer.position());
+    }
+
+    static long zigzag(long value) { return (value << 1) ^ (value >> 63); }
+    static long unzigzag(long value) { return (value >>> 1) ^ -(value & 1); }
+
+    static void putString(ByteBuffer buffer, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        putVarint(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[(int) getVarint(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
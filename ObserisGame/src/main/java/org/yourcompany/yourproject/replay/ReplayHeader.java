@@ -0,0 +1,86 @@
+package org.yourcompany.yourproject.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.yourcompany.yourproject.model.GameLogic;
+
+/**
+ * リプレイファイルのヘッダ。対局を再現するのに必要な袋のシードとルールの設定を持ちます。
+ *
+ * @param seed1                 プレイヤー1の袋のシード
+ * @param seed2                 プレイヤー2の袋のシード
+ * @param sdf                   GameLogic.SDF
+ * @param areFrames             GameLogic.ARE_FRAMES
+ * @param lineClearDelayFrames  GameLogic.LINE_CLEAR_DELAY_FRAMES
+ * @param keyframeInterval      キーフレームの間隔 (フレーム数)
+ * @param createdMillis         記録を始めた時刻 (エポックからのミリ秒)
+ * @param player1               プレイヤー1の名前
+ * @param player2               プレイヤー2の名前
+ */
+public record ReplayHeader(long seed1, long seed2, double sdf, int areFrames, int lineClearDelayFrames,
+                           int keyframeInterval, long createdMillis, String player1, String player2) {
+
+    /** 今の GameLogic の設定でヘッダを作ります */
+    public static ReplayHeader current(long seed1, long seed2, int keyframeInterval, String player1, String player2) {
+        return new ReplayHeader(seed1, seed2, GameLogic.SDF, GameLogic.ARE_FRAMES, GameLogic.LINE_CLEAR_DELAY_FRAMES,
+            keyframeInterval, System.currentTimeMillis(), player1, player2);
+    }
+
+    /** 記録したときのルールの設定 */
+    public Rules rules() {
+        return new Rules(sdf, areFrames, lineClearDelayFrames);
+    }
+
+    /**
+     * GameLogic の静的なルールの設定 (SDF・ARE・ライン消去の硬直)。
+     * 再生中だけ記録したときの設定に切り替え、終わったら元に戻すのに使います。
+     */
+    public record Rules(double sdf, int areFrames, int lineClearDelayFrames) {
+
+        /** 今の GameLogic の設定 */
+        public static Rules current() {
+            return new Rules(GameLogic.SDF, GameLogic.ARE_FRAMES, GameLogic.LINE_CLEAR_DELAY_FRAMES);
+        }
+
+        /**
+         * この設定を GameLogic に反映します。
+         * @return 反映する前の設定 (戻すときにこれを apply する)
+         */
+        public Rules apply() {
+            Rules previous = current();
+            GameLogic.SDF = sdf;
+            GameLogic.ARE_FRAMES = areFrames;
+            GameLogic.LINE_CLEAR_DELAY_FRAMES = lineClearDelayFrames;
+            return previous;
+        }
+    }
+
+    void write(ByteBuffer buffer) {
+        buffer.putInt(ReplayFormat.MAGIC);
+        ReplayFormat.putVarint(buffer, ReplayFormat.VERSION);
+        buffer.putLong(seed1).putLong(seed2).putDouble(sdf);
+        ReplayFormat.putVarint(buffer, areFrames);
+        ReplayFormat.putVarint(buffer, lineClearDelayFrames);
+        ReplayFormat.putVarint(buffer, keyframeInterval);
+        buffer.putLong(createdMillis);
+        ReplayFormat.putString(buffer, player1);
+        ReplayFormat.putString(buffer, player2);
+    }
+
+    static ReplayHeader read(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 4 || buffer.getInt() != ReplayFormat.MAGIC) throw new IOException("not a replay file");
+        long version = ReplayFormat.getVarint(buffer);
+        if (version != ReplayFormat.VERSION) throw new IOException("unsupported replay version: " + version);
+        long seed1 = buffer.getLong();
+        long seed2 = buffer.getLong();
+        double sdf = buffer.getDouble();
+        int are = (int) ReplayFormat.getVarint(buffer);
+        int lineClearDelay = (int) ReplayFormat.getVarint(buffer);
+        int keyframeInterval = (int) ReplayFormat.getVarint(buffer);
+        long created = buffer.getLong();
+        String player1 = ReplayFormat.getString(buffer);
+        String player2 = ReplayFormat.getString(buffer);
+        return new ReplayHeader(seed1, seed2, sdf, are, lineClearDelay, keyframeInterval, created, player1, player2);
+    }
+}
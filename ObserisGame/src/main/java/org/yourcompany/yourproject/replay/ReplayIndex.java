@@ -0,0 +1,213 @@
+package org.yourcompany.yourproject.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * リプレイを保存したディレクトリ (アーカイブ) の索引 (ディレクトリの index.obx)。
+ *
+ * 索引は固定長 (128 バイト) のレコードを並べたファイルで、読むときはメモリマップするので、
+ * リプレイが何十万個あってもヒープに読み込まずに i 番目のレコードを直接引けます。
+ * レコードには各リプレイのヘッダと末尾の要約 (シード・フレーム数・勝者など) が入っているので、
+ * 探すときにリプレイのファイルを開く必要はありません。
+ *
+ * <pre>
+ * 使い方: ReplayIndex DIR [--rebuild] [--seed SEED]
+ *   --rebuild    ディレクトリの .obr をすべて読んで索引を作り直す
+ *   --seed SEED  そのシードのリプレイだけ表示する
+ * </pre>
+ */
+public final class ReplayIndex {
+
+    public static final String INDEX_FILE = "index.obx";
+    public static final String EXTENSION = ".obr";
+    private static final int MAGIC = 0x4F425258; // "OBRX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 128;
+    private static final int NAME_OFFSET = 48;
+    private static final int MAX_NAME_BYTES = RECORD_SIZE - NAME_OFFSET - 2;
+
+    /**
+     * 索引の1レコード。
+     * @param file          リプレイのファイル名 (アーカイブのディレクトリからの相対)
+     * @param seed1         プレイヤー1の袋のシード
+     * @param seed2         プレイヤー2の袋のシード
+     * @param frames        フレーム数
+     * @param createdMillis 記録を始めた時刻
+     * @param size          ファイルの大きさ (バイト)
+     * @param keyframes     キーフレームの数
+     * @param winner        勝者 (1, 2。引き分け・途中で終わった場合は 0)
+     * @param finished      最後まで書けたか
+     */
+    public record Entry(String file, long seed1, long seed2, long frames, long createdMillis, long size,
+                        int keyframes, int winner, boolean finished) {}
+
+    private final Path dir;
+    private final MappedByteBuffer data;
+    private final int size;
+
+    private ReplayIndex(Path dir, MappedByteBuffer data) throws IOException {
+        this.dir = dir;
+        this.data = data;
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException("not a replay index: " + dir.resolve(INDEX_FILE));
+        }
+        this.size = (data.limit() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    /**
+     * アーカイブの索引を開きます。索引がなければ作ります ({@link #rebuild(Path)})。
+     */
+    public static ReplayIndex open(Path dir) throws IOException {
+        Path indexFile = dir.resolve(INDEX_FILE);
+        if (!Files.exists(indexFile)) return rebuild(dir);
+        try (FileChannel channel = FileChannel.open(indexFile)) {
+            return new ReplayIndex(dir, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * ディレクトリの .obr をすべて読んで (ヘッダと末尾だけ) 索引を作り直します。
+     */
+    public static ReplayIndex rebuild(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        List<Path> replays = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path path : stream) replays.add(path);
+        }
+        replays.sort(null);
+        Path tmp = dir.resolve(INDEX_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header(), 0);
+            long position = HEADER_SIZE;
+            for (Path path : replays) {
+                ReplayFile file;
+                try {
+                    file = ReplayFile.open(path);
+                } catch (IOException e) {
+                    e.printStackTrace(); // 壊れたファイルは索引に入れない
+                    continue;
+                }
+                writeFully(channel, record(file), position);
+                position += RECORD_SIZE;
+            }
+        }
+        Files.move(tmp, dir.resolve(INDEX_FILE), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        return open(dir);
+    }
+
+    /**
+     * 書き終えたリプレイを索引の最後に追加します (索引がなければ作る)。同時に1つのプロセス・スレッドから呼んでください。
+     */
+    public static synchronized void append(Path dir, Path replay) throws IOException {
+        Path indexFile = dir.resolve(INDEX_FILE);
+        if (!Files.exists(indexFile)) {
+            rebuild(dir);
+            return;
+        }
+        ByteBuffer record = record(ReplayFile.open(replay));
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+            long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+            writeFully(channel, record, HEADER_SIZE + records * RECORD_SIZE);
+        }
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        return buffer.flip();
+    }
+
+    private static ByteBuffer record(ReplayFile file) {
+        ReplayHeader header = file.getHeader();
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.putLong(header.seed1()).putLong(header.seed2()).putLong(file.getTotalFrames())
+            .putLong(header.createdMillis()).putLong(file.getSize()).putInt(file.getKeyframeCount())
+            .put((byte) file.getWinner()).put((byte) (file.isFinished() ? 1 : 0));
+        byte[] name = file.getPath().getFileName().toString().getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_BYTES) throw new IllegalArgumentException("replay file name too long: " + file.getPath());
+        buffer.position(NAME_OFFSET);
+        buffer.putShort((short) name.length).put(name);
+        return buffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /** 索引を開いた時点のリプレイの数 */
+    public int size() { return size; }
+
+    public Entry get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+        int base = HEADER_SIZE + i * RECORD_SIZE;
+        byte[] name = new byte[data.getShort(base + NAME_OFFSET)];
+        data.get(base + NAME_OFFSET + 2, name);
+        return new Entry(new String(name, StandardCharsets.UTF_8), data.getLong(base), data.getLong(base + 8),
+            data.getLong(base + 16), data.getLong(base + 24), data.getLong(base + 32), data.getInt(base + 40),
+            data.get(base + 44), data.get(base + 45) != 0);
+    }
+
+    /** i 番目のリプレイのファイル */
+    public Path resolve(int i) {
+        return dir.resolve(get(i).file());
+    }
+
+    /**
+     * 袋のシード (どちらかのプレイヤー) が seed のリプレイの番号を返します。
+     * レコード全体ではなくシードの欄だけを読みます。
+     */
+    public List<Integer> findBySeed(long seed) {
+        List<Integer> found = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int base = HEADER_SIZE + i * RECORD_SIZE;
+            if (data.getLong(base) == seed || data.getLong(base + 8) == seed) found.add(i);
+        }
+        return found;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: ReplayIndex DIR [--rebuild] [--seed SEED]");
+            System.exit(2);
+        }
+        Path dir = Paths.get(args[0]);
+        boolean rebuild = false;
+        Long seed = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rebuild" -> rebuild = true;
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+        ReplayIndex index = rebuild ? rebuild(dir) : open(dir);
+        List<Integer> rows = new ArrayList<>();
+        if (seed != null) {
+            rows = index.findBySeed(seed);
+        } else {
+            for (int i = 0; i < index.size(); i++) rows.add(i);
+        }
+        System.out.printf("%-40s %20s %20s %8s %6s %4s %10s%n", "file", "seed1", "seed2", "frames", "winner", "kf", "bytes");
+        for (int i : rows) {
+            Entry e = index.get(i);
+            System.out.printf("%-40s %20d %20d %8d %6s %4d %10d%n", e.file(), e.seed1(), e.seed2(), e.frames(),
+                e.finished() ? String.valueOf(e.winner()) : "-", e.keyframes(), e.size());
+        }
+        System.out.println(rows.size() + " / " + index.size() + " replays");
+    }
+}
@@ -0,0 +1,341 @@
+package org.yourcompany.yourproject.replay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import org.yourcompany.yourproject.config.GameAction;
+import org.yourcompany.yourproject.config.SpeedProfile;
+import org.yourcompany.yourproject.controller.VersusManager;
+import org.yourcompany.yourproject.model.GameLogic;
+import org.yourcompany.yourproject.model.Placement;
+import org.yourcompany.yourproject.player.Player;
+
+/**
+ * リプレイファイルを再生する (記録した操作で対局をもう一度シミュレーションする) クラス。
+ *
+ * 待ち時間なしでフレームを進めるので、実際の対局よりずっと速く最後まで再生できます。
+ * {@link #seek(long)} は目標のフレーム以前で最も新しいキーフレームから状態を復元し、残りのフレームだけを進めます。
+ * フレームを進める間だけ、記録したときのルールの設定 (SDF・ARE など) を GameLogic に反映し、終わったら元の設定に戻します。
+ * ルールは静的な設定なので、再生と同時に別のスレッドで進めているゲームがあれば、そのゲームにも反映されます。
+ *
+ * <pre>
+ * 使い方: ReplayPlayer FILE [--seek FRAME] [--verify]
+ *   --seek FRAME  そのフレームまでシークして状態を表示する
+ *   --verify      最後まで再生しながら、キーフレームと再生した状態が一致するか確かめる
+ * </pre>
+ */
+public final class ReplayPlayer {
+
+    private final ReplayFile file;
+    private final ReplayHeader.Rules rules; // 記録したときのルールの設定
+    private final ScriptedPlayer[] players = { new ScriptedPlayer(), new ScriptedPlayer() };
+    private VersusManager manager;
+    private ByteBuffer stream;
+    private long frame;              // 進めたフレーム数
+    private long advanceRemaining;   // 今の ADVANCE で、まだ進めていないフレームの数
+    private boolean ended;
+    private boolean verifyKeyframes;
+    private int keyframeMismatches;
+    private final ByteArrayOutputStream stateBytes = new ByteArrayOutputStream();
+
+    public ReplayPlayer(ReplayFile file) {
+        this.file = file;
+        this.rules = file.getHeader().rules();
+        restart();
+    }
+
+    public static ReplayPlayer open(Path path) throws IOException {
+        return new ReplayPlayer(ReplayFile.open(path));
+    }
+
+    public ReplayFile getFile() { return file; }
+    /** 再生中の対局 (再生用のプレイヤーで動いている) */
+    public VersusManager getManager() { return manager; }
+    /** 進めたフレーム数 */
+    public long getFrame() { return frame; }
+    public boolean isEnded() { return ended; }
+
+    /**
+     * 本体を読み進めるたびに、キーフレームと再生した状態を比べるようにします (決定性の確認用)。
+     */
+    public void setVerifyKeyframes(boolean verify) { this.verifyKeyframes = verify; }
+    /** 比べたキーフレームのうち、再生した状態と一致しなかった数 */
+    public int getKeyframeMismatches() { return keyframeMismatches; }
+
+    /** 最初のフレームに戻します */
+    public void restart() {
+        ReplayHeader header = file.getHeader();
+        ReplayHeader.Rules saved = rules.apply();
+        try {
+            manager = new VersusManager(players[0], players[1], header.seed1(), header.seed2());
+        } finally {
+            saved.apply();
+        }
+        stream = file.body();
+        frame = 0;
+        advanceRemaining = 0;
+        ended = false;
+        players[0].clear();
+        players[1].clear();
+    }
+
+    /**
+     * 1フレーム進めます。
+     * @return 進めた場合 true。記録の終わりに達していれば false
+     */
+    public boolean step() {
+        if (advanceRemaining == 0) {
+            if (ended || !readFrame()) return false;
+        }
+        ReplayHeader.Rules saved = rules.apply();
+        try {
+            manager.update();
+        } finally {
+            saved.apply();
+        }
+        frame++;
+        advanceRemaining--;
+        return true;
+    }
+
+    /** 最後まで進めて、進めたフレーム数を返します */
+    public long playToEnd() {
+        long start = frame;
+        while (step()) { }
+        return frame - start;
+    }
+
+    /**
+     * 指定したフレームまで進めた状態にします (記録の終わりより後なら終わりまで)。
+     * 目標より前のキーフレームがあればそこから復元するので、戻る場合も最初から進め直す必要はありません。
+     */
+    public void seek(long target) {
+        int keyframe = file.findKeyframe(target);
+        boolean useKeyframe = keyframe >= 0 && (target < frame || file.keyframeFrame(keyframe) > frame);
+        if (useKeyframe) {
+            restoreKeyframe(keyframe);
+        } else if (target < frame) {
+            restart();
+        }
+        while (frame < target && step()) { }
+    }
+
+    private void restoreKeyframe(int index) {
+        ByteBuffer buffer = file.body();
+        buffer.position(file.keyframeOffset(index));
+        long token = ReplayFormat.getVarint(buffer);
+        int length = (int) (ReplayFormat.value(token) >>> 1);
+        ByteBuffer blob = buffer.slice(buffer.position(), length);
+        try {
+            manager.readState(new DataInputStream(new ByteBufferInput(blob)));
+        } catch (IOException e) {
+            throw new IllegalStateException("broken keyframe at frame " + file.keyframeFrame(index), e);
+        }
+        buffer.position(buffer.position() + length);
+        stream = buffer;
+        frame = file.keyframeFrame(index);
+        advanceRemaining = 0;
+        ended = false;
+        players[0].clear();
+        players[1].clear();
+    }
+
+    /**
+     * 次のフレームの操作を ADVANCE まで読みます。
+     * @return 進めるフレームがあれば true
+     */
+    private boolean readFrame() {
+        try {
+            while (stream.hasRemaining()) {
+                long token = ReplayFormat.getVarint(stream);
+                long value = ReplayFormat.value(token);
+                switch (ReplayFormat.kind(token)) {
+                    case ReplayFormat.ADVANCE -> {
+                        advanceRemaining = value;
+                        return value > 0;
+                    }
+                    case ReplayFormat.ACTION -> players[(int) (value & 1)].actions.add(GameAction.values()[(int) (value >>> 1)]);
+                    case ReplayFormat.PLACEMENT -> {
+                        int x = (int) ReplayFormat.unzigzag(ReplayFormat.getVarint(stream));
+                        int y = (int) ReplayFormat.unzigzag(ReplayFormat.getVarint(stream));
+                        players[(int) (value & 1)].placement = new Placement((value & 2) != 0, x, y,
+                            (int) (value >>> 3) & 3, (value & 4) != 0);
+                    }
+                    default -> {
+                        if ((value & 1) != 0) {
+                            ended = true;
+                            return false;
+                        }
+                        int length = (int) (value >>> 1);
+                        if (verifyKeyframes) verifyKeyframe(stream.slice(stream.position(), length));
+                        stream.position(stream.position() + length);
+                    }
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            // 最後まで書けなかったファイル
+        }
+        ended = true;
+        return false;
+    }
+
+    private void verifyKeyframe(ByteBuffer expected) {
+        byte[] actual = stateBytes();
+        byte[] recorded = new byte[expected.remaining()];
+        expected.get(recorded);
+        if (!Arrays.equals(actual, recorded)) {
+            keyframeMismatches++;
+            System.err.println("keyframe mismatch at frame " + frame);
+        }
+    }
+
+    private byte[] stateBytes() {
+        stateBytes.reset();
+        try {
+            manager.writeState(new DataOutputStream(stateBytes));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return stateBytes.toByteArray();
+    }
+
+    /**
+     * 今の対局の状態のハッシュ (FNV-1a 64ビット)。同じ状態なら同じ値になります (結果の比較用)。
+     */
+    public long stateHash() {
+        return stateHash(manager);
+    }
+
+    /** VersusManager.writeState の内容のハッシュ (FNV-1a 64ビット) */
+    public static long stateHash(VersusManager manager) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            manager.writeState(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes.toByteArray()) {
+            hash ^= (b & 0xFF);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * 記録した操作をそのまま返すプレイヤー。置き場所があるフレームは即時配置、それ以外はそのフレームの操作をすべて実行します。
+     */
+    private static final class ScriptedPlayer implements Player {
+        final ArrayDeque<GameAction> actions = new ArrayDeque<>();
+        Placement placement;
+
+        void clear() {
+            actions.clear();
+            placement = null;
+        }
+
+        @Override
+        public SpeedProfile getSpeedProfile() {
+            return (placement != null) ? SpeedProfile.instant() : SpeedProfile.actionsPerTick(Math.max(1, actions.size()));
+        }
+
+        @Override
+        public GameAction getAction(GameLogic gameState) {
+            GameAction action = actions.poll();
+            return (action != null) ? action : GameAction.NONE;
+        }
+
+        @Override
+        public Placement getPlacement(GameLogic gameState) {
+            Placement p = placement;
+            placement = null;
+            return p;
+        }
+    }
+
+    /** ByteBuffer を InputStream として読む (キーフレームの復元用) */
+    private static final class ByteBufferInput extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInput(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: ReplayPlayer FILE [--seek FRAME] [--verify]");
+            System.exit(2);
+        }
+        Path path = Paths.get(args[0]);
+        long seekFrame = -1;
+        boolean verify = false;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seek" -> seekFrame = Long.parseLong(args[++i]);
+                case "--verify" -> verify = true;
+                default -> throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+
+        ReplayPlayer player = open(path);
+        ReplayFile file = player.getFile();
+        ReplayHeader header = file.getHeader();
+        System.out.printf("%s: %s vs %s, seeds %d / %d, %d frames, %d keyframes, %d bytes%s%n",
+            path, header.player1(), header.player2(), header.seed1(), header.seed2(), file.getTotalFrames(),
+            file.getKeyframeCount(), file.getSize(), file.isFinished() ? "" : " (unfinished)");
+
+        if (seekFrame >= 0) {
+            long start = System.nanoTime();
+            player.seek(seekFrame);
+            System.out.printf("seek to %d: %.3f ms%n", player.getFrame(), (System.nanoTime() - start) / 1e6);
+            printState(player);
+            return;
+        }
+
+        player.setVerifyKeyframes(verify);
+        long start = System.nanoTime();
+        long frames = player.playToEnd();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("replayed %d frames in %.3f s (%.0f frames/s)%n", frames, seconds, frames / seconds);
+        printState(player);
+        GameLogic logic1 = player.getManager().getPlayer1Logic();
+        GameLogic logic2 = player.getManager().getPlayer2Logic();
+        int winner = (logic1.isGameOver() == logic2.isGameOver()) ? 0 : (logic1.isGameOver() ? 2 : 1);
+        boolean ok = winner == file.getWinner() || !file.isFinished();
+        if (verify) ok &= player.getKeyframeMismatches() == 0;
+        System.out.println(ok ? "OK" : "MISMATCH (recorded winner " + file.getWinner() + ", replayed " + winner
+            + ", keyframe mismatches " + player.getKeyframeMismatches() + ")");
+        if (!ok) System.exit(1);
+    }
+
+    private static void printState(ReplayPlayer player) {
+        GameLogic logic1 = player.getManager().getPlayer1Logic();
+        GameLogic logic2 = player.getManager().getPlayer2Logic();
+        System.out.printf("frame %d: P1 score %d%s, P2 score %d%s, state hash %016x%n", player.getFrame(),
+            logic1.getScore(), logic1.isGameOver() ? " (game over)" : "",
+            logic2.getScore(), logic2.isGameOver() ? " (game over)" : "", player.stateHash());
+    }
+}
@@ -0,0 +1,485 @@
+package org.yourcompany.yourproject.replay;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.yourcompany.yourproject.ai.AnytimeDecider;
+import org.yourcompany.yourproject.ai.Evaluator;
+import org.yourcompany.yourproject.ai.HeuristicEvaluator;
+import org.yourcompany.yourproject.ai.LandingSpot;
+import org.yourcompany.yourproject.ai.MoveGenerator;
+import org.yourcompany.yourproject.config.GameAction;
+import org.yourcompany.yourproject.config.SpeedProfile;
+import org.yourcompany.yourproject.controller.HeadlessMatch;
+import org.yourcompany.yourproject.controller.VersusManager;
+import org.yourcompany.yourproject.model.GameLogic;
+import org.yourcompany.yourproject.model.GameSnapshot;
+import org.yourcompany.yourproject.player.AIPlayer;
+import org.yourcompany.yourproject.player.Player;
+
+/**
+ * 記録した対局 (リプレイのコーパス) を再生して、ルールの変化やエンジン・AIの速度の低下を見つける回帰テスト。
+ *
+ * <ol>
+ * <li>決定性: 各リプレイを最後まで再生し、フレーム数・勝者・最後の状態のハッシュが expected.properties と一致するか、
+ *     途中のキーフレームがすべて再生した状態と一致するかを確かめる (GameLogic・RotationSystem の挙動の変化を検出)</li>
+ * <li>速度: コーパス全体の再生を繰り返し、1秒あたりのティック数 (中央値) と1ティックあたりの確保メモリを測る</li>
+ * <li>AIの思考時間: 再生中の局面で AI の1手 (候補手の生成 + 評価) を実行し、p50/p95/p99 を測る</li>
+ * </ol>
+ * 既定では 1 (決定性) だけを確かめます。速度はマシンの速さや負荷で変わるので、2・3 は指定した場合だけ測ります。
+ * 速度の基準値はマシンごとのもので、リポジトリには入れません (コーパスの perf-baseline.properties は .gitignore 済み)。
+ * 同じマシンで --update-baseline して作り、--baseline で渡すと、ティック数/秒が基準値より --threshold 以上
+ * 遅くなっていたら失敗になります (基準値のファイルがない場合も失敗)。確保メモリと思考時間は基準値との比較を表示します。
+ * 失敗があれば終了コード 1 で終了します。
+ *
+ * {@code mvn verify} で決定性だけを確かめます (pom.xml の replay-regression。{@code -Dexec.skip=true} で飛ばせる)。
+ * コーパスは作業ディレクトリからの相対パスなので、ObserisGame/ で実行してください
+ * (CI ではリポジトリの直下から {@code mvn -B -f ObserisGame/pom.xml verify}。pom.xml が作業ディレクトリを ObserisGame/ にする)。
+ * コーパスのディレクトリには何も書きません (--record・--accept・--update-baseline を指定した場合を除く)。
+ *
+ * <pre>
+ * 使い方: ReplayRegression [オプション]
+ *   --corpus DIR        リプレイのコーパス (既定: regression/corpus)
+ *   --record N          コーパスを作り直す: ヒューリスティックAI同士の対局を N 局記録し、期待値も書き直す
+ *   --seed S            --record の最初の袋のシード (既定: 1。シード S .. S+N-1 を使う)
+ *   --max-frames N      --record の1局の最大フレーム数 (既定: 3600)
+ *   --accept            今の再生結果を期待値 (expected.properties) として書き直す (ルールを意図して変えた場合)
+ *   --perf              速度と思考時間を測って表示する (基準値とは比べない)
+ *   --iterations N      速度を測る回数 (1回は 0.5 秒以上。この前に3回ウォームアップする。既定: 5)
+ *   --threshold F       失敗とするティック数/秒の低下率 (既定: 0.25。JIT の結果で実行ごとに 1 割強ぶれるため)
+ *   --baseline FILE     速度を測り、この基準値と比べる (--update-baseline では書き出し先。既定: コーパスの perf-baseline.properties)
+ *   --update-baseline   速度を測り、今回の測定値を基準値として書き直す
+ *   --model NAME        思考時間を測るモデル (heuristic または .onnx。既定: heuristic)
+ *   --ai-every K        K 手ごとに AI の思考時間を測る (既定: 2)
+ * </pre>
+ */
+public final class ReplayRegression {
+
+    public static final String EXPECTED_FILE = "expected.properties";
+    public static final String BASELINE_FILE = "perf-baseline.properties";
+    private static final int KEYFRAME_INTERVAL = 600;
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final long MIN_ITERATION_NANOS = 500_000_000L; // 1回の測定はコーパスを繰り返して最低この時間
+
+    /** 1つのリプレイの再生結果 */
+    private record Outcome(String file, long frames, int winner, long hash, int keyframeMismatches) {}
+
+    /** 速度の測定値 */
+    private record Perf(double ticksPerSecond, double allocBytesPerTick, double aiP50Micros, double aiP95Micros,
+                        double aiP99Micros, int aiSamples) {}
+
+    private ReplayRegression() {}
+
+    public static void main(String[] args) throws IOException {
+        Path corpus = Path.of("regression", "corpus");
+        int record = 0;
+        long seed = 1;
+        long maxFrames = 3600;
+        boolean accept = false;
+        int iterations = 5;
+        double threshold = 0.25;
+        Path baselineFile = null;
+        boolean updateBaseline = false;
+        boolean perfOnly = false;
+        String model = "heuristic";
+        int aiEvery = 2;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--corpus" -> corpus = Path.of(args[++i]);
+                case "--record" -> record = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--max-frames" -> maxFrames = Long.parseLong(args[++i]);
+                case "--accept" -> accept = true;
+                case "--perf" -> perfOnly = true;
+                case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                case "--threshold" -> threshold = Double.parseDouble(args[++i]);
+                case "--baseline" -> baselineFile = Path.of(args[++i]);
+                case "--update-baseline" -> updateBaseline = true;
+                case "--model" -> model = args[++i];
+                case "--ai-every" -> aiEvery = Math.max(1, Integer.parseInt(args[++i]));
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        boolean gate = baselineFile != null; // 基準値を指定した場合だけ、速度の低下で失敗にする
+        if (baselineFile == null) baselineFile = corpus.resolve(BASELINE_FILE);
+
+        if (record > 0) {
+            recordCorpus(corpus, record, seed, maxFrames);
+            accept = true;
+        }
+        List<ReplayFile> files = openCorpus(corpus);
+        if (files.isEmpty()) {
+            System.err.println("No replays in " + corpus.toAbsolutePath() + " (create them with --record N)");
+            System.exit(2);
+        }
+
+        boolean passed = checkDeterminism(corpus.resolve(EXPECTED_FILE), files, accept);
+        if (gate || updateBaseline || perfOnly) {
+            Perf perf = measure(files, Math.max(1, iterations), model, aiEvery);
+            passed &= compareWithBaseline(gate ? baselineFile : null, perf, model, threshold, updateBaseline,
+                baselineFile);
+        }
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) System.exit(1);
+    }
+
+    /**
+     * コーパスのリプレイをファイル名の順に開きます (索引は作らない。チェックアウトしたディレクトリを書き換えないため)。
+     */
+    private static List<ReplayFile> openCorpus(Path corpus) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        if (Files.isDirectory(corpus)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(corpus, "*" + ReplayIndex.EXTENSION)) {
+                for (Path path : stream) paths.add(path);
+            }
+        }
+        paths.sort(null);
+        List<ReplayFile> files = new ArrayList<>();
+        for (Path path : paths) files.add(ReplayFile.open(path));
+        return files;
+    }
+
+    // ---------------------------------------------------------------
+    // コーパスの記録
+    // ---------------------------------------------------------------
+
+    /**
+     * ヒューリスティックAI同士の対局を games 局記録します。
+     * 半分は両者とも操作列で置き (移動・回転・SRS のキックを含む)、残りは片方が即時配置です。
+     * 4局に1局ずつ、片方を {@link GravityPlayer} にして自然落下・固定猶予も通るようにします。
+     */
+    private static void recordCorpus(Path corpus, int games, long seed, long maxFrames) throws IOException {
+        Files.createDirectories(corpus);
+        try (DirectoryStream<Path> old = Files.newDirectoryStream(corpus, "*" + ReplayIndex.EXTENSION)) {
+            for (Path path : old) Files.delete(path);
+        }
+        for (int i = 0; i < games; i++) {
+            SpeedProfile speed1 = (i % 2 == 0) ? SpeedProfile.DEFAULT : SpeedProfile.instant();
+            SpeedProfile speed2 = SpeedProfile.actionsPerTick(1 + i % 3);
+            AIPlayer player1 = new AIPlayer(Evaluator.forModel(HeuristicEvaluator.MODEL_NAME));
+            AIPlayer player2 = new AIPlayer(Evaluator.forModel(HeuristicEvaluator.MODEL_NAME));
+            player1.setSpeedProfile(speed1);
+            player2.setSpeedProfile(speed2);
+            Player side1 = (i % 4 == 2) ? new GravityPlayer(player1) : player1;
+            Player side2 = (i % 4 == 3) ? new GravityPlayer(player2) : player2;
+            Path file = corpus.resolve(String.format("match-%04d%s", i, ReplayIndex.EXTENSION));
+            try {
+                HeadlessMatch match = new HeadlessMatch(side1, side2, seed + i);
+                ReplayWriter writer = ReplayWriter.start(file, match.getManager(), describe(side1, speed1),
+                    describe(side2, speed2), KEYFRAME_INTERVAL);
+                HeadlessMatch.Result result;
+                try {
+                    result = match.play(maxFrames); // 記録は VersusManager に設定した writer が行う
+                } finally {
+                    writer.close();
+                }
+                System.out.printf(Locale.ROOT, "recorded %s: seed %d, %d frames, winner %d%n",
+                    file.getFileName(), seed + i, result.frames(), result.winner());
+            } finally {
+                player1.close();
+                player2.close();
+            }
+        }
+    }
+
+    private static String describe(Player player, SpeedProfile speed) {
+        String name = (player instanceof GravityPlayer) ? "heuristic gravity" : "heuristic";
+        return speed.instantPlacement() ? name + " (instant)" : name + " (" + speed.actionsPerTick() + " actions/tick)";
+    }
+
+    /**
+     * ミノが出てから約1秒待ってから動かし、ハードドロップの代わりにソニックドロップして固定猶予で固定させるプレイヤー。
+     * AIはハードドロップしかしないので、これがないと自然落下・固定猶予のルールがコーパスで確かめられない。
+     */
+    private static final class GravityPlayer implements Player {
+        private static final long WAIT_FRAMES = 70; // 自然落下 (1000ms) が1回起きるだけ待つ
+
+        private final Player inner;
+        private long piece = -1;       // 今動かしているミノ (固定した数で区別する)
+        private long spawnFrame;
+        private boolean dropped;
+
+        GravityPlayer(Player inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        public GameAction getAction(GameLogic gameState) {
+            GameSnapshot now = gameState.getSnapshot();
+            if (!now.hasCurrentPiece()) return GameAction.NONE;
+            if (now.placedPieces() != piece) {
+                piece = now.placedPieces();
+                spawnFrame = gameState.getFrameCount();
+                dropped = false;
+            }
+            if (dropped || gameState.getFrameCount() - spawnFrame < WAIT_FRAMES) return GameAction.NONE;
+            GameAction action = inner.getAction(gameState);
+            if (action == GameAction.HARD_DROP) {
+                dropped = true;
+                return GameAction.SONIC_DROP;
+            }
+            return action;
+        }
+
+        @Override
+        public SpeedProfile getSpeedProfile() { return inner.getSpeedProfile(); }
+        @Override
+        public void setOpponent(GameLogic opponentLogic) { inner.setOpponent(opponentLogic); }
+        @Override
+        public boolean isThinking() { return inner.isThinking(); }
+    }
+
+    // ---------------------------------------------------------------
+    // 決定性
+    // ---------------------------------------------------------------
+
+    private static boolean checkDeterminism(Path expectedFile, List<ReplayFile> files, boolean accept) throws IOException {
+        List<Outcome> outcomes = new ArrayList<>();
+        for (ReplayFile file : files) {
+            ReplayPlayer player = new ReplayPlayer(file);
+            player.setVerifyKeyframes(true);
+            player.playToEnd();
+            VersusManager manager = player.getManager();
+            boolean over1 = manager.getPlayer1Logic().isGameOver();
+            boolean over2 = manager.getPlayer2Logic().isGameOver();
+            int winner = (over1 == over2) ? 0 : (over1 ? 2 : 1);
+            outcomes.add(new Outcome(file.getPath().getFileName().toString(), player.getFrame(), winner,
+                player.stateHash(), player.getKeyframeMismatches()));
+        }
+
+        if (accept) {
+            writeExpected(expectedFile, outcomes);
+            System.out.println("Expected results written to " + expectedFile.toAbsolutePath());
+        }
+        Properties expected = load(expectedFile);
+        boolean passed = true;
+        System.out.printf("%-20s %8s %6s %18s  %s%n", "replay", "frames", "winner", "state hash", "result");
+        for (Outcome o : outcomes) {
+            String problem = null;
+            String hash = expected.getProperty(o.file() + ".hash");
+            if (hash == null) {
+                problem = "no expected result (run with --accept)";
+            } else if (o.keyframeMismatches() > 0) {
+                problem = o.keyframeMismatches() + " keyframes differ from the replayed state";
+            } else if (o.frames() != Long.parseLong(expected.getProperty(o.file() + ".frames", "-1"))) {
+                problem = "frames differ (expected " + expected.getProperty(o.file() + ".frames") + ")";
+            } else if (o.winner() != Integer.parseInt(expected.getProperty(o.file() + ".winner", "-1"))) {
+                problem = "winner differs (expected " + expected.getProperty(o.file() + ".winner") + ")";
+            } else if (!hash.equals(hex(o.hash()))) {
+                problem = "final state differs (expected " + hash + ")";
+            }
+            passed &= problem == null;
+            System.out.printf("%-20s %8d %6d %18s  %s%n", o.file(), o.frames(), o.winner(), hex(o.hash()),
+                problem == null ? "OK" : "NG: " + problem);
+        }
+        return passed;
+    }
+
+    private static void writeExpected(Path file, List<Outcome> outcomes) throws IOException {
+        Properties expected = new Properties();
+        for (Outcome o : outcomes) {
+            expected.setProperty(o.file() + ".frames", String.valueOf(o.frames()));
+            expected.setProperty(o.file() + ".winner", String.valueOf(o.winner()));
+            expected.setProperty(o.file() + ".hash", hex(o.hash()));
+        }
+        store(file, expected, "Final state of each replay (ReplayRegression --accept)");
+    }
+
+    private static String hex(long hash) {
+        return String.format("%016x", hash);
+    }
+
+    // ---------------------------------------------------------------
+    // 速度
+    // ---------------------------------------------------------------
+
+    private static Perf measure(List<ReplayFile> files, int iterations, String model, int aiEvery) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        double[] ticksPerSecond = new double[iterations];
+        double[] bytesPerTick = new double[iterations];
+        for (int it = -WARMUP_ITERATIONS; it < iterations; it++) {
+            long frames = 0;
+            long nanos = 0;
+            long bytes = 0;
+            while (nanos < MIN_ITERATION_NANOS) {
+                for (ReplayFile file : files) {
+                    ReplayPlayer player = new ReplayPlayer(file);
+                    long allocated = threads.getCurrentThreadAllocatedBytes();
+                    long start = System.nanoTime();
+                    frames += player.playToEnd();
+                    nanos += System.nanoTime() - start;
+                    bytes += threads.getCurrentThreadAllocatedBytes() - allocated;
+                }
+            }
+            if (it < 0) continue; // ウォームアップ
+            ticksPerSecond[it] = frames / (nanos / 1e9);
+            bytesPerTick[it] = (double) bytes / frames;
+        }
+
+        long[] latencies = measureDecisions(files, model, aiEvery);
+        return new Perf(median(ticksPerSecond), median(bytesPerTick), percentile(latencies, 0.50) / 1e3,
+            percentile(latencies, 0.95) / 1e3, percentile(latencies, 0.99) / 1e3, latencies.length);
+    }
+
+    /**
+     * 再生中に新しいミノが出るたびに (aiEvery 手ごとに)、その局面で AI の1手を実行して時間を測ります。
+     * 選んだ手は使わず、再生は記録した操作のまま進めます。
+     * JIT が効くまでの時間を含めないように、コーパスを1回通してから測ります。
+     */
+    private static long[] measureDecisions(List<ReplayFile> files, String model, int aiEvery) {
+        String name = model.equalsIgnoreCase("heuristic") ? HeuristicEvaluator.MODEL_NAME : model;
+        AnytimeDecider decider = new AnytimeDecider(Evaluator.forModel(name));
+        try {
+            decideAlong(files, decider, aiEvery);
+            return decideAlong(files, decider, aiEvery);
+        } finally {
+            decider.close();
+        }
+    }
+
+    private static long[] decideAlong(List<ReplayFile> files, AnytimeDecider decider, int aiEvery) {
+        List<Long> samples = new ArrayList<>();
+        long seen = 0;
+        for (ReplayFile file : files) {
+            ReplayPlayer player = new ReplayPlayer(file);
+            long[] lastPieces = { -1, -1 };
+            while (player.step()) {
+                VersusManager manager = player.getManager();
+                for (int p = 0; p < 2; p++) {
+                    GameSnapshot mine = (p == 0 ? manager.getPlayer1Logic() : manager.getPlayer2Logic()).getSnapshot();
+                    if (mine.gameOver() || !mine.hasCurrentPiece() || mine.placedPieces() == lastPieces[p]) continue;
+                    lastPieces[p] = mine.placedPieces();
+                    if (seen++ % aiEvery != 0) continue;
+                    GameSnapshot opponent = (p == 0 ? manager.getPlayer2Logic() : manager.getPlayer1Logic()).getSnapshot();
+                    long start = System.nanoTime();
+                    List<LandingSpot> moves = MoveGenerator.generate(mine);
+                    long moveGenNanos = System.nanoTime() - start;
+                    decider.decide(moves, mine, opponent, start, moveGenNanos);
+                    samples.add(System.nanoTime() - start);
+                }
+            }
+        }
+        return samples.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int n = sorted.length;
+        return (n % 2 == 1) ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+    }
+
+    private static double percentile(long[] values, double p) {
+        if (values.length == 0) return 0;
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    // ---------------------------------------------------------------
+    // 基準値との比較
+    // ---------------------------------------------------------------
+
+    /**
+     * @param file   比べる基準値 (null なら比べずに今回の測定値だけを表示する)
+     * @param output update のときに基準値を書き出すファイル
+     */
+    private static boolean compareWithBaseline(Path file, Perf perf, String model, double threshold,
+                                               boolean update, Path output) throws IOException {
+        Properties baseline = (file != null) ? load(file) : new Properties();
+        boolean hasBaseline = baseline.getProperty("ticksPerSecond") != null;
+        // 思考時間はモデルが同じ場合だけ比べる
+        boolean sameModel = model.equals(baseline.getProperty("model"));
+
+        System.out.println();
+        System.out.printf("%-22s %14s %14s %9s%n", "metric", "current", "baseline", "change");
+        row("ticks/s", perf.ticksPerSecond(), baseline, "ticksPerSecond", true);
+        row("alloc bytes/tick", perf.allocBytesPerTick(), baseline, "allocBytesPerTick", true);
+        row("AI p50 (us)", perf.aiP50Micros(), baseline, "aiP50Micros", sameModel);
+        row("AI p95 (us)", perf.aiP95Micros(), baseline, "aiP95Micros", sameModel);
+        row("AI p99 (us)", perf.aiP99Micros(), baseline, "aiP99Micros", sameModel);
+        System.out.printf(Locale.ROOT, "(%d AI decisions with %s)%n", perf.aiSamples(), model);
+
+        boolean passed = true;
+        if (file != null && !hasBaseline && !update) {
+            passed = false;
+            System.out.println("NG: no performance baseline at " + file.toAbsolutePath()
+                + " (create it with --update-baseline)");
+        }
+        if (hasBaseline) {
+            double base = Double.parseDouble(baseline.getProperty("ticksPerSecond"));
+            double floor = base * (1 - threshold);
+            if (perf.ticksPerSecond() < floor) {
+                passed = false;
+                System.out.printf(Locale.ROOT, "NG: ticks/s %.0f is below %.0f (baseline %.0f - %.0f%%)%n",
+                    perf.ticksPerSecond(), floor, base, threshold * 100);
+            }
+        }
+        if (update) {
+            Properties values = new Properties();
+            values.setProperty("ticksPerSecond", format(perf.ticksPerSecond()));
+            values.setProperty("allocBytesPerTick", format(perf.allocBytesPerTick()));
+            values.setProperty("aiP50Micros", format(perf.aiP50Micros()));
+            values.setProperty("aiP95Micros", format(perf.aiP95Micros()));
+            values.setProperty("aiP99Micros", format(perf.aiP99Micros()));
+            values.setProperty("model", model);
+            values.setProperty("java.version", System.getProperty("java.version"));
+            store(output, values, "Performance baseline (ReplayRegression --update-baseline)");
+            System.out.println("Baseline written to " + output.toAbsolutePath());
+        }
+        return passed;
+    }
+
+    private static void row(String label, double current, Properties baseline, String key, boolean compare) {
+        String base = compare ? baseline.getProperty(key) : null;
+        if (base == null) {
+            System.out.printf(Locale.ROOT, "%-22s %14.1f %14s %9s%n", label, current, "-", "-");
+            return;
+        }
+        double value = Double.parseDouble(base);
+        double change = (value == 0) ? 0 : (current - value) / value * 100;
+        System.out.printf(Locale.ROOT, "%-22s %14.1f %14.1f %+8.1f%%%n", label, current, value, change);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static Properties load(Path file) throws IOException {
+        Properties properties = new Properties();
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        }
+        return properties;
+    }
+
+    /** キーの順に並べて書きます (差分が読みやすいように。日時のコメントも入れない) */
+    private static void store(Path file, Properties properties, String comment) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("# " + comment + "\n");
+            for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+                writer.write(key + "=" + properties.getProperty(key) + "\n");
+            }
+        }
+    }
+}
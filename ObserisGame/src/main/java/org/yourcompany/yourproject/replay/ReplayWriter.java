@@ -0,0 +1,238 @@
+package org.yourcompany.yourproject.replay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.yourcompany.yourproject.config.GameAction;
+import org.yourcompany.yourproject.controller.MatchRecorder;
+import org.yourcompany.yourproject.controller.VersusManager;
+import org.yourcompany.yourproject.model.GameLogic;
+import org.yourcompany.yourproject.model.Placement;
+
+/**
+ * VersusManager の対局をリプレイファイル (.obr) に記録するクラス。形式は {@link ReplayFormat} を参照。
+ *
+ * ゲームループのスレッドではバッファにトークンを詰めるだけで、いっぱいになったバッファは
+ * AsynchronousFileChannel で非同期に書き込みます (書き込みの完了は待たない)。
+ * 書き込みが追いつかない場合も、待たずに新しいバッファを使います。
+ * keyframeInterval フレームごとに両方のゲームの状態 (キーフレーム) を書き、再生時のシークに使います。
+ * ゲームループのスレッドから使い、対局が終わったら {@link #close()} で閉じてください。
+ */
+public final class ReplayWriter implements MatchRecorder, AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final VersusManager manager;
+    private final ReplayHeader header;
+    private final AsynchronousFileChannel channel;
+    private final ConcurrentLinkedQueue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+    private final Phaser pending = new Phaser(1); // 書き込み中のバッファの数 + 1
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private final ByteArrayOutputStream keyframeBytes = new ByteArrayOutputStream();
+    private final DataOutputStream keyframeOut = new DataOutputStream(keyframeBytes);
+    private ByteBuffer current;
+    private long filePosition;  // 書き込みに出したバイト数 (current の先頭のファイル上の位置)
+    private long frames;        // 記録したフレーム数
+    private long pendingAdvance; // まだ書いていない、操作のないフレームの数
+    private long[] keyframeFrames = new long[16];
+    private long[] keyframeOffsets = new long[16];
+    private int keyframeCount;
+    private boolean closed;
+
+    /**
+     * 記録を始めます。manager は生成・resetGame の直後 (まだ update していない状態) にしてください。
+     * @param keyframeInterval キーフレームの間隔 (フレーム数)。0 以下でキーフレームなし
+     */
+    public static ReplayWriter start(Path file, VersusManager manager, String player1, String player2,
+                                     int keyframeInterval) throws IOException {
+        ReplayHeader header = ReplayHeader.current(manager.getGameSeed(1), manager.getGameSeed(2),
+            Math.max(0, keyframeInterval), player1, player2);
+        ReplayWriter writer = new ReplayWriter(file, manager, header);
+        manager.setRecorder(writer);
+        return writer;
+    }
+
+    private ReplayWriter(Path file, VersusManager manager, ReplayHeader header) throws IOException {
+        this.manager = manager;
+        this.header = header;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        this.channel = AsynchronousFileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        this.current = obtainBuffer();
+        header.write(current);
+    }
+
+    public ReplayHeader getHeader() { return header; }
+    /** 記録したフレーム数 */
+    public long getFrames() { return frames; }
+
+    @Override
+    public void recordAction(int player, GameAction action) {
+        writeAdvance();
+        ensure(ReplayFormat.MAX_TOKEN_BYTES);
+        ReplayFormat.putVarint(current, ReplayFormat.token(ReplayFormat.ACTION, player | (action.ordinal() << 1)));
+    }
+
+    @Override
+    public void recordPlacement(int player, Placement placement) {
+        writeAdvance();
+        ensure(ReplayFormat.MAX_TOKEN_BYTES);
+        int value = player | (placement.useHold() ? 2 : 0) | (placement.lastMoveWasRotation() ? 4 : 0)
+            | (placement.rotation() << 3);
+        ReplayFormat.putVarint(current, ReplayFormat.token(ReplayFormat.PLACEMENT, value));
+        ReplayFormat.putVarint(current, ReplayFormat.zigzag(placement.x()));
+        ReplayFormat.putVarint(current, ReplayFormat.zigzag(placement.y()));
+    }
+
+    @Override
+    public void endFrame(VersusManager manager) {
+        frames++;
+        pendingAdvance++;
+        int interval = header.keyframeInterval();
+        if (interval > 0 && frames % interval == 0) writeKeyframe();
+    }
+
+    /**
+     * 操作のなかったフレームをまとめて1つの ADVANCE にします。
+     */
+    private void writeAdvance() {
+        if (pendingAdvance == 0) return;
+        ensure(ReplayFormat.MAX_TOKEN_BYTES);
+        ReplayFormat.putVarint(current, ReplayFormat.token(ReplayFormat.ADVANCE, pendingAdvance));
+        pendingAdvance = 0;
+    }
+
+    private void writeKeyframe() {
+        keyframeBytes.reset();
+        try {
+            manager.writeState(keyframeOut);
+        } catch (IOException | IllegalStateException e) {
+            e.printStackTrace(); // キーフレームがなくても先頭から再生はできる
+            return;
+        }
+        writeAdvance();
+        int length = keyframeBytes.size();
+        ensure(ReplayFormat.MAX_TOKEN_BYTES + length);
+        if (keyframeCount == keyframeFrames.length) {
+            keyframeFrames = Arrays.copyOf(keyframeFrames, keyframeCount * 2);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+        }
+        keyframeFrames[keyframeCount] = frames;
+        keyframeOffsets[keyframeCount] = filePosition + current.position();
+        keyframeCount++;
+        ReplayFormat.putVarint(current, ReplayFormat.token(ReplayFormat.SPECIAL, (long) length << 1));
+        current.put(keyframeBytes.toByteArray());
+        // キーフレームまでは早めにディスクへ出しておく (途中で落ちてもそこまでは再生できる)
+        submit();
+    }
+
+    /** current に n バイト書ける空きがなければ、書き込みに出して次のバッファにします */
+    private void ensure(int n) {
+        if (current.remaining() >= n) return;
+        submit();
+        if (current.remaining() < n) {
+            // 大きすぎるレコード用のバッファは使い捨て。受け取ったバッファはプールに戻す
+            recycle(current);
+            current = ByteBuffer.allocateDirect(n);
+        }
+    }
+
+    private ByteBuffer obtainBuffer() {
+        ByteBuffer buffer = freeBuffers.poll();
+        return (buffer != null) ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    private void submit() {
+        ByteBuffer buffer = current;
+        current = obtainBuffer();
+        buffer.flip();
+        if (!buffer.hasRemaining()) {
+            recycle(buffer);
+            return;
+        }
+        long position = filePosition;
+        filePosition += buffer.remaining();
+        pending.register();
+        channel.write(buffer, position, position, new WriteHandler(buffer));
+    }
+
+    private void recycle(ByteBuffer buffer) {
+        if (buffer.capacity() != BUFFER_SIZE) return;
+        buffer.clear();
+        freeBuffers.offer(buffer);
+    }
+
+    /**
+     * 1つのバッファの書き込み。一部しか書けなかった場合は残りを続けて書きます。
+     */
+    private final class WriteHandler implements CompletionHandler<Integer, Long> {
+        private final ByteBuffer buffer;
+
+        WriteHandler(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void completed(Integer written, Long position) {
+            if (buffer.hasRemaining()) {
+                long next = position + written;
+                channel.write(buffer, next, next, this);
+                return;
+            }
+            recycle(buffer);
+            pending.arriveAndDeregister();
+        }
+
+        @Override
+        public void failed(Throwable exc, Long position) {
+            if (error.compareAndSet(null, exc)) exc.printStackTrace();
+            pending.arriveAndDeregister();
+        }
+    }
+
+    /**
+     * 記録を終えます。終わりのトークンとキーフレーム表を書き、全ての書き込みが終わるまで待ってから閉じます。
+     * 勝者は閉じた時点のゲームオーバーの状態から決めます (どちらも終わっていなければ 0)。
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        manager.setRecorder(null);
+        GameLogic logic1 = manager.getPlayer1Logic();
+        GameLogic logic2 = manager.getPlayer2Logic();
+        boolean over1 = logic1.isGameOver();
+        boolean over2 = logic2.isGameOver();
+        int winner = (over1 == over2) ? 0 : (over1 ? 2 : 1);
+
+        writeAdvance();
+        ensure(ReplayFormat.MAX_TOKEN_BYTES);
+        ReplayFormat.putVarint(current, ReplayFormat.token(ReplayFormat.SPECIAL, ((long) winner << 1) | 1));
+        ReplayFormat.putVarint(current, frames);
+        long tableOffset = filePosition + current.position();
+        for (int i = 0; i < keyframeCount; i++) {
+            ensure(ReplayFormat.KEYFRAME_ENTRY_SIZE);
+            current.putLong(keyframeFrames[i]).putLong(keyframeOffsets[i]);
+        }
+        ensure(ReplayFormat.TRAILER_SIZE);
+        current.putLong(tableOffset).putLong(frames).putInt(keyframeCount).putInt(winner).putInt(ReplayFormat.TRAILER_MAGIC);
+        submit();
+
+        pending.arriveAndAwaitAdvance();
+        channel.close();
+        Throwable failure = error.get();
+        if (failure != null) throw new IOException("failed to write replay", failure);
+    }
+}
@@ -1,12 +1,14 @@
 package org.yourcompany.yourproject.view;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.awt.Graphics;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.JPanel;
 
 import org.yourcompany.yourproject.model.GameLogic;
+import org.yourcompany.yourproject.profiling.RepaintEvent;
 
 /**
  * 一人のプレイヤーのUIコンポーネント（HOLD, 盤面, NEXT/SCORE）をまとめるパネル。
@@ -14,11 +16,25 @@ import org.yourcompany.yourproject.model.GameLogic;
  */
 public class PlayerUIPanel extends JPanel {
 
+    private GameLogic gameLogic;
+
     public PlayerUIPanel(GameLogic gameLogic) {
         setupPanel(gameLogic);
     }
 
+    @Override
+    public void paint(Graphics g) {
+        RepaintEvent event = new RepaintEvent();
+        event.begin();
+        super.paint(g);
+        if (event.shouldCommit()) {
+            event.frame = gameLogic.getFrameCount();
+            event.commit();
+        }
+    }
+
     private void setupPanel(GameLogic gameLogic) {
+        this.gameLogic = gameLogic;
         // メインのレイアウト
         setLayout(new BorderLayout(5, 5));
 
@@ -2,18 +2,12 @@ package org.yourcompany.yourproject.view;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Cursor;
 import java.awt.Font;
 import java.awt.GridLayout;
-import java.io.IOException;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -22,7 +16,11 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel; // ★ インポート
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 
+import org.yourcompany.yourproject.ai.HeuristicEvaluator;
+import org.yourcompany.yourproject.ai.ModelPreloader;
+import org.yourcompany.yourproject.ai.ModelResources;
 import org.yourcompany.yourproject.config.PlayerType;
 
 public class Title extends JFrame {
@@ -32,14 +30,19 @@ public class Title extends JFrame {
      */
     private final String[] availableModels;
 
+    /** モデルの読み込み状況を表示するラベル */
+    private final JLabel statusLabel = new JLabel(" ", SwingConstants.CENTER);
+
+    private final List<JButton> buttons;
+
     public Title() {
         setTitle("Tetris Title");
         setSize(400, 300);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         
-        // ★ 2. (コンストラクタの最初で)利用可能なモデルをスキャンする
-        this.availableModels = scanAvailableModels();
+        // ★ 2. (コンストラクタの最初で)利用可能なモデルの一覧を取得する
+        this.availableModels = getModelList();
 
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBackground(Color.LIGHT_GRAY);
@@ -66,8 +69,10 @@ public class Title extends JFrame {
             
             // ユーザーがキャンセルしなかった場合
             if (aiModel != null) {
-                new VersusGameFrame(PlayerType.HUMAN, PlayerType.AI, null, aiModel);
-                dispose();
+                startWhenReady(() -> {
+                    new VersusGameFrame(PlayerType.HUMAN, PlayerType.AI, null, aiModel);
+                    dispose();
+                }, aiModel);
             }
         });
         
@@ -82,8 +87,10 @@ public class Title extends JFrame {
                 String ai2Model = getAIModelSelection("AI (Player 2) のモデルを選択してください:", availableModels);
 
                 if (ai2Model != null) {
-                    new VersusGameFrame(PlayerType.AI, PlayerType.AI, ai1Model, ai2Model);
-                    dispose();
+                    startWhenReady(() -> {
+                        new VersusGameFrame(PlayerType.AI, PlayerType.AI, ai1Model, ai2Model);
+                        dispose();
+                    }, ai1Model, ai2Model);
                 }
             }
         });
@@ -97,9 +104,16 @@ public class Title extends JFrame {
         buttonPanel.add(cvcButton);
         buttonPanel.add(optionButton);
         panel.add(buttonPanel, BorderLayout.SOUTH);
+        this.buttons = List.of(pvpButton, pvcButton, cvcButton, optionButton);
+
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(8, 0, 0, 0));
+        panel.add(statusLabel, BorderLayout.NORTH);
 
         add(panel);
         setVisible(true);
+
+        // 一覧を表示したら、対戦開始時に待たないようモデルを先に読み込んでおく
+        startPreloading();
     }
 
     /**
@@ -131,58 +145,52 @@ public class Title extends JFrame {
     }
 
     /**
-     * ★ 4. resources フォルダをスキャンして、利用可能なAIモデル (.onnx) のリストを取得する
-     * * @return (例: ["model_A.onnx", "model_B.onnx"])
-     * @note この方法はIDE実行時には動作しますが、JARファイルにすると動作しません。
+     * ★ 4. 利用可能なAIモデル (.onnx) のリストを取得する
+     * ビルド時に生成されるモデル一覧 (models.manifest) を読むので、JAR から実行しても動作する
+     * @return (例: ["model_A.onnx", "model_B.onnx", HeuristicEvaluator.MODEL_NAME])
      */
-    private String[] scanAvailableModels() {
-        List<String> modelNames = new ArrayList<>();
-        
-        try {
-            // 1. クラスパスのルート (resources フォルダがコピーされる場所) を取得
-            URL rootUrl = Title.class.getClassLoader().getResource("");
-            if (rootUrl == null) {
-                System.err.println("Could not find classpath root.");
-                return new String[0];
-            }
-            
-            // "file:..." で始まるURIでなければスキャンできない (JARファイルなど)
-            if (!"file".equals(rootUrl.getProtocol())) {
-                 System.err.println("Cannot scan models: Not running from file system (maybe a JAR?).");
-                 // ★ JAR実行時のフォールバック (手動リスト)
-                 // ここに、resources に置いたモデル名を手動で書いておくのが確実
-                 return new String[] {
-                    "tetris_model_examination.onnx", 
-                    "milestone_gen_1900.onnx",
-                    "tetris_model_v2_final.onnx"
-                    // 他のモデルファイル...
-                 };
-            }
-            
-            Path rootPath = Paths.get(rootUrl.toURI());
-
-            // 2. "resources" フォルダ (rootPath) 以下をスキャン
-            try (Stream<Path> stream = Files.walk(rootPath, 5)) { // 5階層までスキャン
-                modelNames = stream
-                    .filter(path -> path.toString().endsWith(".onnx")) // .onnx ファイルのみ
-                    .map(path -> path.getFileName().toString())  // フルパスからファイル名のみ抽出
-                    .filter(name -> {
-                        // 3. ペアとなる ".data" ファイルの存在も確認
-                        //    (AIPlayer がロードできることの保証)
-                        String dataName = name + ".data";
-                        return (Title.class.getClassLoader().getResource(dataName) != null);
-                    })
-                    .distinct() // 重複排除
-                    .collect(Collectors.toList());
-            }
-
-        } catch (IOException | URISyntaxException e) {
-            e.printStackTrace();
-            System.err.println("Failed to scan models. Returning empty list.");
-            return new String[0];
-        }
-        
+    private String[] getModelList() {
+        List<String> modelNames = ModelResources.getModelList();
         System.out.println("Found " + modelNames.size() + " valid models: " + modelNames);
+        // モデル不要のヒューリスティックAIも選択肢に加える
+        modelNames.add(HeuristicEvaluator.MODEL_NAME);
         return modelNames.toArray(new String[0]);
     }
-}
\ No newline at end of file
+
+    /**
+     * ★ 5. 一覧のモデルをバックグラウンドでロード・ウォームアップし、進捗をラベルに表示する
+     */
+    private void startPreloading() {
+        List<String> models = List.of(availableModels);
+        if (models.stream().allMatch(HeuristicEvaluator.MODEL_NAME::equals)) return;
+
+        statusLabel.setText("AIモデルを準備中...");
+        ModelPreloader.preloadAll(models, (model, finished, total, error) -> {
+            String text = (error != null)
+                ? String.format("モデルの読み込みに失敗: %s (%d/%d)", model, finished, total)
+                : (finished < total)
+                    ? String.format("AIモデルを準備中... (%d/%d)", finished, total)
+                    : String.format("AIモデルの準備完了 (%d/%d)", finished, total);
+            SwingUtilities.invokeLater(() -> statusLabel.setText(text));
+        });
+    }
+
+    /**
+     * ★ 6. 選んだモデルの準備ができてから対戦を始める (準備済みならすぐ始まる)
+     */
+    private void startWhenReady(Runnable startMatch, String... models) {
+        CompletableFuture<?>[] loads = Arrays.stream(models)
+            .map(ModelPreloader::preload)
+            .toArray(CompletableFuture<?>[]::new);
+        CompletableFuture<Void> ready = CompletableFuture.allOf(loads);
+        if (ready.isDone()) {
+            startMatch.run();
+            return;
+        }
+        // ロードが終わるまで画面を止めずに待つ (失敗した場合も開始処理側でエラーを出す)
+        buttons.forEach(b -> b.setEnabled(false));
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        statusLabel.setText("AIモデルの準備を待っています...");
+        ready.whenComplete((v, error) -> SwingUtilities.invokeLater(startMatch));
+    }
+}
@@ -1,10 +1,16 @@
 package org.yourcompany.yourproject.view;
 import java.awt.GridLayout;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
 
 import javax.swing.BorderFactory;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 
+import org.yourcompany.yourproject.ai.ModelHotSwapper;
+import org.yourcompany.yourproject.config.AIConfig;
 import org.yourcompany.yourproject.config.PlayerType;
 import org.yourcompany.yourproject.controller.GameController;
 import org.yourcompany.yourproject.controller.VersusManager;
@@ -33,6 +39,7 @@ public class VersusGameFrame extends JFrame {
         if (player2 instanceof AIPlayer aIPlayer) {
             aIPlayer.setOpponent(versusManager.getPlayer1Logic());
         }
+        startModelHotSwap(player1, player2);
 
         // 3. UIコンポーネントを生成 ▼▼▼ フィールドに格納 ▼▼▼
         this.player1UI = new PlayerUIPanel(versusManager.getPlayer1Logic());
@@ -71,6 +78,30 @@ public class VersusGameFrame extends JFrame {
         }
     }
 
+    /**
+     * AIConfig.MODEL_WATCH_DIR が設定されていれば、そこに置かれた新しいモデルを対局中のAIへ差し替える
+     * (対象は AIConfig.MODEL_HOT_SWAP_PLAYER。ウィンドウを閉じたら監視をやめる)
+     */
+    private void startModelHotSwap(Player player1, Player player2) {
+        String watchDir = AIConfig.MODEL_WATCH_DIR;
+        if (watchDir == null || watchDir.isBlank()) return;
+        try {
+            ModelHotSwapper swapper = ModelHotSwapper.watch(Path.of(watchDir));
+            int target = AIConfig.MODEL_HOT_SWAP_PLAYER;
+            if (target != 2 && player1 instanceof AIPlayer ai) swapper.addTarget(ai::swapEvaluator);
+            if (target != 1 && player2 instanceof AIPlayer ai) swapper.addTarget(ai::swapEvaluator);
+            addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    swapper.close();
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("モデルの監視を開始できませんでした: " + watchDir);
+        }
+    }
+
     // ▼▼▼ メソッド追加 ▼▼▼
     /**
      * GameControllerから呼び出され、
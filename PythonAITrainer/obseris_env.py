@@ -1,161 +1,372 @@
 import subprocess
 import json
+import mmap
+import struct
 import sys
-import time
-import select
+
+import numpy as np
+
+# --- TrainingEnvironment のバイナリ形式 (ビッグエンディアン) ---
+OP_RESET = 1
+OP_STEP = 2
+OP_PLACE = 3
+OP_CLOSE = 4
+RESPONSE_ERROR = 0
+RESPONSE_OBSERVATION = 1
+RESPONSE_SHARED = 2
+
+BOARD_HEIGHT = 40
+BOARD_WIDTH = 10
+SPIN_TYPES = ('NONE', 'T_SPIN', 'T_SPIN_MINI')
+
+_STEP_RESULT = struct.Struct('>BBBBi')   # 受理, 消去数, スピン, 火力, スコア増分
+_BOARD = struct.Struct('>40H')           # 1行 = u16 (bit x = 列 x)
+_PIECES = struct.Struct('>BBBB')         # 現在, ホールド, ホールド可, ネクスト数
+_SCALARS = struct.Struct('>hbBqi')       # お邪魔, コンボ, B2B, スコア, 固定数
+_MOVE = struct.Struct('>BbbBBBBB')       # ホールド, x, y, 向き, スピン, 消去数, 火力, ゲームオーバー
+_MOVE_SIZE = _MOVE.size + _BOARD.size
+
+
+def rows_to_planes(rows):
+    """u16 の行ビット列 ([..., 40]) を 0/1 の盤面 ([..., 40, 10]) に展開します。"""
+    rows = np.asarray(rows, dtype=np.uint16)
+    return ((rows[..., None] >> np.arange(BOARD_WIDTH, dtype=np.uint16)) & 1).astype(np.uint8)
+
+
+def parse_observation(buf, offset=0):
+    """
+    観測メッセージ1つを辞書にします (キーは JSON 形式と同じ)。
+    盤面は行ビット列の numpy 配列 (board: [40], moves の盤面は move_boards: [手の数, 40]) で返します。
+    :return: (観測, 次のメッセージの位置)
+    """
+    kind = buf[offset]
+    if kind == RESPONSE_ERROR:
+        (length,) = struct.unpack_from('>H', buf, offset + 1)
+        raise RuntimeError(bytes(buf[offset + 3:offset + 3 + length]).decode('utf-8'))
+    off = offset + 1
+    accepted, lines, spin, attack, score_delta = _STEP_RESULT.unpack_from(buf, off)
+    off += _STEP_RESULT.size
+    game_over = buf[off]
+    off += 1
+    board = np.frombuffer(buf, dtype='>u2', count=BOARD_HEIGHT, offset=off).astype(np.uint16)
+    off += _BOARD.size
+    current, hold, can_hold, n_next = _PIECES.unpack_from(buf, off)
+    off += _PIECES.size
+    next_queue = list(buf[off:off + n_next])
+    off += n_next
+    pending, combo, b2b, score, placed = _SCALARS.unpack_from(buf, off)
+    off += _SCALARS.size
+
+    (n_moves,) = struct.unpack_from('>H', buf, off)
+    off += 2
+    moves = []
+    move_boards = np.empty((n_moves, BOARD_HEIGHT), dtype=np.uint16)
+    for i in range(n_moves):
+        use_hold, x, y, rot, m_spin, m_lines, m_attack, m_over = _MOVE.unpack_from(buf, off)
+        move_boards[i] = np.frombuffer(buf, dtype='>u2', count=BOARD_HEIGHT, offset=off + _MOVE.size)
+        off += _MOVE_SIZE
+        moves.append({'useHold': bool(use_hold), 'x': x, 'y': y, 'rot': rot, 'spin': SPIN_TYPES[m_spin],
+                      'linesCleared': m_lines, 'attack': m_attack, 'isGameOver': bool(m_over)})
+
+    state = {
+        'accepted': bool(accepted), 'linesCleared': lines, 'spin': SPIN_TYPES[spin],
+        'attack': attack, 'scoreDelta': score_delta,
+        'isGameOver': bool(game_over), 'board': board,
+        'current': current, 'hold': hold, 'canHold': bool(can_hold), 'next': next_queue,
+        'pendingGarbage': pending, 'combo': combo, 'b2b': bool(b2b),
+        'score': score, 'placedPieces': placed,
+        'moves': moves, 'move_boards': move_boards,
+    }
+    return state, off
+
+
+class SharedObservationRing:
+    """
+    VectorEnvironment --shm が書き込むメモリマップドファイル (SharedObservationRing.java) を読むクラス。
+    各スロットの配列は numpy のビューなのでコピーは発生しません (torch.from_numpy でそのまま使える)。
+    ビューは同じスロットが次に書き込まれるまで (スロット数 - 1 回先の step まで) 有効です。
+    """
+    _HEADER = struct.Struct('<iiiiiiq')
+    MAGIC = 0x5253424F
+    ALIGN = 64
+    MOVE_INFO_SIZE = 4
+    BOARD_PLANE = BOARD_HEIGHT * BOARD_WIDTH
+    FEATURE_SIZE = 72
+
+    def __init__(self, path):
+        self._file = open(path, 'rb')
+        self._mm = mmap.mmap(self._file.fileno(), 0, access=mmap.ACCESS_READ)
+        magic, version, n, m, slots, _, slot_size = self._HEADER.unpack_from(self._mm, 0)
+        if magic != self.MAGIC or version != 1:
+            raise RuntimeError(f"Not an observation ring: {path}")
+        self.num_envs, self.max_moves, self.num_slots, self.slot_size = n, m, slots, slot_size
+        self.slots = [self._views(64 + k * slot_size) for k in range(slots)]
+
+    def _views(self, base):
+        n, m = self.num_envs, self.max_moves
+        offset = 8
+        views = {'seq': np.frombuffer(self._mm, dtype='<i8', count=1, offset=base)}
+
+        def take(name, dtype, shape):
+            nonlocal offset
+            offset = (offset + self.ALIGN - 1) // self.ALIGN * self.ALIGN
+            count = int(np.prod(shape))
+            views[name] = np.frombuffer(self._mm, dtype=dtype, count=count, offset=base + offset).reshape(shape)
+            offset += count * np.dtype(dtype).itemsize
+
+        # SharedObservationRing.java と同じ順番・境界
+        take('rewards', '<f4', (n,))
+        take('dones', 'u1', (n,))
+        take('move_counts', '<i4', (n,))
+        take('final_scores', '<i8', (n,))
+        take('final_pieces', '<i4', (n,))
+        take('moves', 'i1', (n, m, self.MOVE_INFO_SIZE))
+        take('boards', '<f4', (n, m, 2, BOARD_HEIGHT, BOARD_WIDTH))
+        take('features', '<f4', (n, m, self.FEATURE_SIZE))
+        return views
+
+    def read(self, seq, slot):
+        """通し番号 seq の結果が入ったスロットのビュー (辞書) を返します。"""
+        views = self.slots[slot]
+        if int(views['seq'][0]) != seq:
+            raise RuntimeError(f"slot {slot} holds seq {int(views['seq'][0])}, expected {seq}")
+        return views
+
+    def close(self):
+        self.slots = []
+        try:
+            self._mm.close()
+        except BufferError:
+            pass  # 呼び出し側がまだビューを持っている (ビューが消えればマップも解放される)
+        self._file.close()
+
 
 class TetrisEnv:
     """
-    Javaで実行されているテトリス環境と通信するためのPythonラッパー。
-    C++ AI からの「高レベル命令」を仲介する。
+    Javaで実行されているテトリス環境 (TrainingEnvironment) と通信するためのPythonラッパー。
+    1手ごとに「置ける場所の一覧 (moves)」を受け取り、その中から選んだ手の番号を送ります。
+
+    protocol='binary' (既定): 長さ付きのバイナリメッセージでやり取りする (テキストの変換がなく速い)
+    protocol='json': 1行1 JSON でやり取りする (デバッグ用)
     """
-    def __init__(self, java_path, jar_path, main_class='org.yourcompany.yourproject.ai.TrainingEnvironment'):
+    def __init__(self, java_path, jar_path, main_class='org.yourcompany.yourproject.ai.TrainingEnvironment',
+                 protocol='binary', seed=None):
         self.java_path = java_path
         self.jar_path = jar_path
         self.main_class = main_class
+        self.protocol = protocol
+        self.seed = seed
         self.proc = None
 
     def _start_java_process(self):
-        """Javaプロセスを起動します。"""
-        # 実行するコマンドをリストとして作成
+        """Javaプロセスを起動します (1回だけ。エピソードごとの再起動はしない)。"""
         command = [self.java_path, '-cp', self.jar_path, self.main_class]
-        
-        # --- ▼▼▼ デバッグ出力追加 ▼▼▼ ---
-        print(f"[DEBUG] Executing Java command: {' '.join(command)}", file=sys.stderr) 
-        # --- ▲▲▲ デバッグ出力追加 ▲▲▲ ---
-        
-        self.proc = subprocess.Popen(
-            command, # <--- 変数 command を使用
-            stdin=subprocess.PIPE,
-            stdout=subprocess.PIPE,
-            stderr=subprocess.PIPE,# <--- Javaのエラー出力を受け取るように変更
-            text=True,
-            encoding='utf-8',
-            bufsize=1
-        )
-        
-        # --- ▼▼▼ エラー出力表示を追加 ▼▼▼ ---
-        # Javaプロセスがすぐに終了していないか、エラーを出力していないか確認
-        try:
-            # 短時間待機してエラー出力を読み取る (ノンブロッキング)
-            stderr_output = self.proc.stderr.read()
-            if stderr_output:
-                print(f"[DEBUG] Java stderr output:\n{stderr_output}", file=sys.stderr)
-        except Exception as e:
-             print(f"[DEBUG] Error reading stderr: {e}", file=sys.stderr)
-        # --- ▲▲▲ エラー出力表示を追加 ▲▲▲ ---
+        if self.protocol == 'json':
+            command.append('--json')
+        if self.seed is not None:
+            command += ['--seed', str(self.seed)]
+        print(f"[DEBUG] Executing Java command: {' '.join(command)}", file=sys.stderr)
 
+        # Java のログ (標準エラー) はそのまま端末へ流す
+        self.proc = subprocess.Popen(command, stdin=subprocess.PIPE, stdout=subprocess.PIPE, bufsize=0)
 
+    def _is_running(self):
+        return self.proc is not None and self.proc.poll() is None
 
-    def reset(self):
-        if self.proc:
-            try:
-                self.proc.stdin.close()
-                self.proc.terminate()
-                self.proc.wait(timeout=2)
-            except Exception as e:
-                print(f"Javaプロセスの終了中にエラー: {e}", file=sys.stderr)
+    # --- バイナリ形式 ---
+    def _request(self, payload):
+        self.proc.stdin.write(struct.pack('>i', len(payload)) + payload)
+        self.proc.stdin.flush()
+        header = self._read_exact(4)
+        (length,) = struct.unpack('>i', header)
+        body = self._read_exact(length)
+        state, _ = parse_observation(body)
+        return state
 
-        print('ok')
-        self._start_java_process()
+    def _read_exact(self, n):
+        chunks = bytearray()
+        while len(chunks) < n:
+            chunk = self.proc.stdout.read(n - len(chunks))
+            if not chunk:
+                raise EOFError("Java process closed the connection.")
+            chunks += chunk
+        return bytes(chunks)
 
-        print('ok')
-        # --- ▼▼▼ 標準出力/エラー出力の読み取り処理を変更 ▼▼▼ ---
-        initial_state_line = None
-        stderr_output = ""
-        start_time = time.time()
-        timeout_seconds = 5 # 5秒待っても応答がなければタイムアウト
+    # --- JSON 形式 ---
+    def _request_json(self, command):
+        self.proc.stdin.write((json.dumps(command) + '\n').encode('utf-8'))
+        self.proc.stdin.flush()
+        line = self.proc.stdout.readline()
+        if not line:
+            raise EOFError("No response from Java.")
+        state = json.loads(line)
+        if 'error' in state:
+            raise RuntimeError(state['error'])
+        return state
 
+    def reset(self, seed=None):
+        """
+        新しいゲームを始め、最初の状態を返します (失敗時は None)。
+        seed を指定すると、同じミノの順番を再現できます。
+        """
         try:
-            while time.time() - start_time < timeout_seconds:
-                # selectを使って標準出力/エラー出力が読み取り可能かチェック
-                ready_to_read, _, _ = select.select([self.proc.stdout, self.proc.stderr], [], [], 0.1)
-
-                if self.proc.stderr in ready_to_read:
-                    line = self.proc.stderr.readline()
-                    if line:
-                        stderr_output += line
-                    else: # ストリームが閉じられた
-                        break
-
-                if self.proc.stdout in ready_to_read:
-                    initial_state_line = self.proc.stdout.readline()
-                    if initial_state_line:
-                        # 最初の行を読み取れたらループを抜ける
-                        break 
-                    else: # ストリームが閉じられた
-                         break
-
-                if self.proc.poll() is not None: # プロセスが終了していたらループを抜ける
-                    break
-
-                # CPU負荷軽減のため少し待機
-                # time.sleep(0.01) # 不要かもしれない
-
-            # タイムアウト後にもう一度エラー出力を読み取る試み
-            try:
-                 stderr_output += self.proc.stderr.read()
-            except:
-                 pass
-
-            if stderr_output:
-                print(f"[DEBUG] Java stderr output during reset:\n{stderr_output}", file=sys.stderr)
-
-            if not initial_state_line:
-                raise Exception(f"Javaプロセスから初期状態を受信できませんでした (タイムアウト: {timeout_seconds}秒)。")
-
-            initial_state = json.loads(initial_state_line)
-            return initial_state
-
+            if not self._is_running():
+                self._start_java_process()
+            if self.protocol == 'json':
+                command = {'cmd': 'reset'}
+                if seed is not None:
+                    command['seed'] = seed
+                return self._request_json(command)
+            return self._request(struct.pack('>BBq', OP_RESET, seed is not None, seed or 0))
         except Exception as e:
             print(f"リセット失敗: {e}", file=sys.stderr)
-             # プロセスがまだ生きていれば終了させる
-            if self.proc and self.proc.poll() is None:
-                try:
-                    self.proc.terminate()
-                    self.proc.wait(timeout=1)
-                except:
-                    pass
             return None
-        # --- ▲▲▲ 標準出力/エラー出力の読み取り処理を変更 ▲▲▲ ---
 
-   
     def step(self, agent_command):
         """
-        AI (C++) が決定した「高レベル命令」を実行し、(state, done, info) を返します。
-        :param agent_command: {'x': 4, 'rot': 1, 'useHold': False} といった辞書
+        AI が選んだ手を実行し、(state, done, info) を返します。
+        :param agent_command: 直前の state['moves'] の中の番号 (int)、
+                              または {'x': 4, 'rot': 1, 'useHold': False} といった辞書
         """
-        if self.proc.poll() is not None:
+        if not self._is_running():
             return None, True, {"error": "Java process terminated."}
-
         try:
-            # 1. JavaにAIの「高レベル命令」をJSONで送信
-            action_json = json.dumps(agent_command)
-            self.proc.stdin.write(action_json + '\n')
-            self.proc.stdin.flush()
-
-            # 2. Javaから「1手進んだ」ゲーム状態をJSONで受信
-            response_line = self.proc.stdout.readline()
-            if not response_line:
-                return None, True, {"error": "No response from Java."}
-            
-            state = json.loads(response_line)
-            
-            # 3. 完了フラグをチェック
-            done = state['isGameOver']
-            
+            if isinstance(agent_command, dict):
+                use_hold = bool(agent_command.get('useHold', False))
+                x, rot = int(agent_command['x']), int(agent_command.get('rot', 0))
+                if self.protocol == 'json':
+                    state = self._request_json({'x': x, 'rot': rot, 'useHold': use_hold})
+                else:
+                    state = self._request(struct.pack('>BBbB', OP_PLACE, use_hold, x, rot))
+            else:
+                if self.protocol == 'json':
+                    state = self._request_json({'cmd': 'step', 'move': int(agent_command)})
+                else:
+                    state = self._request(struct.pack('>BH', OP_STEP, int(agent_command)))
+
             # 報酬(reward)は、この環境では計算しません。
             # 学習は「最終スコア」で行うためです。
-            
-            return state, done, {}
-
+            info = {} if state['accepted'] else {"error": "Move rejected."}
+            return state, state['isGameOver'], info
         except Exception as e:
             return None, True, {"error": str(e)}
-        
+
     def close(self):
         if self.proc:
             try:
-                self.proc.stdin.close()
-                self.proc.terminate()
+                if self._is_running():
+                    if self.protocol == 'json':
+                        self.proc.stdin.write(b'{"cmd":"close"}\n')
+                    else:
+                        self.proc.stdin.write(struct.pack('>iB', 1, OP_CLOSE))
+                    self.proc.stdin.close()
+                self.proc.wait(timeout=2)
             except Exception as e:
-                print(f"終了エラー: {e}")
\ No newline at end of file
+                print(f"終了エラー: {e}")
+                self.proc.terminate()
+
+
+class VectorTetrisEnv:
+    """
+    1つの Java プロセス (VectorEnvironment) の中で N 個のゲームを同時に動かすラッパー。
+    step(actions) の1往復で全ての環境が1手ずつ進み、観測・報酬・終了フラグがまとめて返ります。
+    終了した環境は Java 側で自動的にリセットされ、その環境の観測は新しいゲームの最初の状態になります
+    (終了したゲームのスコアと手数は infos[i] に入ります)。
+    """
+    def __init__(self, java_path, jar_path, num_envs, seed=None, threads=None,
+                 main_class='org.yourcompany.yourproject.ai.VectorEnvironment',
+                 shm_path=None, shm_slots=2, max_moves=256):
+        self.num_envs = num_envs
+        self.seed = seed
+        self.ring = None
+        command = [java_path, '-cp', jar_path, main_class, '--envs', str(num_envs)]
+        if seed is not None:
+            command += ['--seed', str(seed)]
+        if threads is not None:
+            command += ['--threads', str(threads)]
+        if shm_path is not None:
+            # 観測は共有メモリで受け取り、パイプには通し番号だけが流れる
+            command += ['--shm', str(shm_path), '--shm-slots', str(shm_slots), '--max-moves', str(max_moves)]
+        self.shm_path = shm_path
+        print(f"[DEBUG] Executing Java command: {' '.join(command)}", file=sys.stderr)
+        self.proc = subprocess.Popen(command, stdin=subprocess.PIPE, stdout=subprocess.PIPE, bufsize=0)
+
+    def _request(self, payload):
+        self.proc.stdin.write(struct.pack('>i', len(payload)) + payload)
+        self.proc.stdin.flush()
+        (length,) = struct.unpack('>i', self._read_exact(4))
+        return self._parse_batch(self._read_exact(length))
+
+    def _read_exact(self, n):
+        chunks = bytearray()
+        while len(chunks) < n:
+            chunk = self.proc.stdout.read(n - len(chunks))
+            if not chunk:
+                raise EOFError("Java process closed the connection.")
+            chunks += chunk
+        return bytes(chunks)
+
+    def _parse_batch(self, buf):
+        if buf[0] == RESPONSE_ERROR:
+            parse_observation(buf)  # エラーメッセージを例外にする
+        if buf[0] == RESPONSE_SHARED:
+            return self._read_shared(buf)
+        (n,) = struct.unpack_from('>H', buf, 1)
+        off = 3
+        rewards = np.frombuffer(buf, dtype='>f4', count=n, offset=off).astype(np.float32)
+        off += 4 * n
+        dones = np.frombuffer(buf, dtype=np.uint8, count=n, offset=off).astype(bool)
+        off += n
+        final_scores = struct.unpack_from(f'>{n}q', buf, off)
+        off += 8 * n
+        final_pieces = struct.unpack_from(f'>{n}i', buf, off)
+        off += 4 * n
+        states = []
+        for _ in range(n):
+            state, off = parse_observation(buf, off)
+            states.append(state)
+        infos = [{'final_score': final_scores[i], 'final_pieces': final_pieces[i]} if dones[i] else {}
+                 for i in range(n)]
+        return states, rewards, dones, infos
+
+    def _read_shared(self, buf):
+        """
+        共有メモリ形式の応答: states の代わりにスロットのビュー (辞書) を返します。
+        batch['boards'][i, :batch['move_counts'][i]] が環境 i の候補手の盤面 ([2, 40, 10]) です。
+        """
+        seq, slot = struct.unpack_from('>qB', buf, 1)
+        if self.ring is None:
+            self.ring = SharedObservationRing(self.shm_path)  # Java 側がファイルを作った後に開く
+        batch = self.ring.read(seq, slot)
+        dones = batch['dones'].astype(bool)
+        infos = [{'final_score': int(batch['final_scores'][i]), 'final_pieces': int(batch['final_pieces'][i])}
+                 if dones[i] else {} for i in range(self.num_envs)]
+        return batch, batch['rewards'], dones, infos
+
+    def reset(self, seed=None):
+        """全ての環境を作り直し、最初の状態のリストを返します (環境 i のゲームは seed と i で決まる)。"""
+        states, _, _, _ = self._request(struct.pack('>BBq', OP_RESET, seed is not None, seed or 0))
+        return states
+
+    def step(self, actions):
+        """
+        :param actions: 環境ごとの手の番号 (各環境の直前の state['moves'] の中の位置)
+        :return: (states, rewards[N], dones[N], infos)
+                 (shm_path を指定した場合、states は SharedObservationRing のスロットのビュー)
+        """
+        if len(actions) != self.num_envs:
+            raise ValueError(f"expected {self.num_envs} actions, got {len(actions)}")
+        payload = struct.pack(f'>BH{self.num_envs}H', OP_STEP, self.num_envs, *[int(a) for a in actions])
+        return self._request(payload)
+
+    def close(self):
+        if self.ring is not None:
+            self.ring.close()
+            self.ring = None
+        try:
+            self.proc.stdin.write(struct.pack('>iB', 1, OP_CLOSE))
+            self.proc.stdin.close()
+            self.proc.wait(timeout=2)
+        except Exception as e:
+            print(f"終了エラー: {e}")
+            self.proc.terminate()